@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.jvm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.arm.nevada.client.interpreter.Instruction;
+import com.arm.nevada.client.interpreter.ProgramImage;
+import com.arm.nevada.client.interpreter.machine.Machine;
+
+/**
+ * Executes one program over many initial machine states on a fork-join pool, e.g. to validate a kernel against an
+ * input corpus. Every worker thread has its own copy of the program. A state is never modified, the program is
+ * executed on a copy-on-write fork of it. The fork is not reused: it shares the register files and memory with the
+ * state, so only the written ones are copied, and loading a long-lived worker machine with
+ * {@link Machine#copyStateFrom(Machine)} was measured slower than the short-lived fork. The execution follows the
+ * PC from the PC of the state like {@link ProgramImage#execute(Machine, int)}, so loops and branches are taken, and
+ * it stops at a fault or after the instruction budget.
+ * <p>
+ * The states are host-side machines, e.g. read from binary snapshots by MachineSnapshotCodec, since the JSON classes
+ * of GWT work only in the browser.
+ */
+public class BatchExecutor {
+	/**
+	 * Extracts the result of one execution from the final state of the machine. Called on the worker threads.
+	 */
+	public interface Extractor<T> {
+		T extract(Machine machine);
+	}
+
+	/**
+	 * Receives the results of the streamed executions as soon as they are ready. Called on the worker threads, in
+	 * any order.
+	 */
+	public interface ResultHandler<T> {
+		void handle(int index, T result);
+	}
+
+	/**
+	 * Extracts the whole final state, the machine is not reused by the executor.
+	 */
+	public static final Extractor<Machine> finalState = new Extractor<Machine>() {
+		public Machine extract(Machine machine) {
+			return machine;
+		}
+	};
+
+	// the states executed by one task without splitting
+	private static final int sequentialStateCount = 16;
+	// the streamed states are executed in windows of this many states per worker
+	private static final int windowStatesPerWorker = 256;
+
+	private final List<Instruction> program;
+	private final ForkJoinPool pool;
+	private final ThreadLocal<Worker> workers = new ThreadLocal<Worker>();
+	private int instructionBudget = 1000000;
+
+	/**
+	 * Executes on the common pool.
+	 */
+	public BatchExecutor(List<Instruction> program) {
+		this(program, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param program
+	 *            Parsed instructions, they are not executed, only copied for the workers.
+	 */
+	public BatchExecutor(List<Instruction> program, ForkJoinPool pool) {
+		this.program = new ArrayList<Instruction>(program);
+		this.pool = pool;
+	}
+
+	/**
+	 * @param instructionBudget
+	 *            The maximum number of instructions executed for one state, stops infinite loops.
+	 */
+	public void setInstructionBudget(int instructionBudget) {
+		this.instructionBudget = instructionBudget;
+	}
+
+	public int getInstructionBudget() {
+		return instructionBudget;
+	}
+
+	/**
+	 * Extracts the given NEON words, see {@link Machine#getNEONRegisterSet()}.
+	 */
+	public static Extractor<int[]> neonWords(final int firstWord, final int count) {
+		return new Extractor<int[]>() {
+			public int[] extract(Machine machine) {
+				int[] words = new int[count];
+				for (int i = 0; i < count; i++) {
+					words[i] = machine.getNEONRegisterSet().getOneValue(firstWord + i);
+				}
+				return words;
+			}
+		};
+	}
+
+	/**
+	 * Extracts the given memory words.
+	 * 
+	 * @param byteAddress
+	 *            No alignment is required.
+	 */
+	public static Extractor<int[]> memoryWords(final int byteAddress, final int count) {
+		return new Extractor<int[]>() {
+			public int[] extract(Machine machine) {
+				int[] words = new int[count];
+				for (int i = 0; i < count; i++) {
+					words[i] = machine.getMemorySet().getWord(byteAddress + 4 * i);
+				}
+				return words;
+			}
+		};
+	}
+
+	/**
+	 * Executes the program for all states and waits for the results. The states must not be modified until the
+	 * execution is over.
+	 * 
+	 * @return The results in the order of the states.
+	 */
+	public <T> List<T> execute(List<Machine> states, Extractor<T> extractor) {
+		final Object[] results = new Object[states.size()];
+		pool.invoke(new BatchTask<T>(states, 0, 0, states.size(), extractor, new ResultHandler<T>() {
+			public void handle(int index, T result) {
+				results[index] = result;
+			}
+		}));
+		@SuppressWarnings("unchecked")
+		List<T> list = (List<T>) Arrays.asList(results);
+		return list;
+	}
+
+	/**
+	 * Executes the program for the streamed states. The states are read in windows, so the whole input is never
+	 * kept in memory. Returns when all results are handled.
+	 */
+	public <T> void execute(Iterator<Machine> states, Extractor<T> extractor, ResultHandler<T> handler) {
+		int windowSize = windowStatesPerWorker * pool.getParallelism();
+		int firstIndex = 0;
+		while (states.hasNext()) {
+			List<Machine> window = new ArrayList<Machine>(windowSize);
+			while (window.size() < windowSize && states.hasNext()) {
+				window.add(states.next());
+			}
+			pool.invoke(new BatchTask<T>(window, firstIndex, 0, window.size(), extractor, handler));
+			firstIndex += window.size();
+		}
+	}
+
+	private Worker getWorker() {
+		Worker worker = workers.get();
+		if (worker == null) {
+			worker = new Worker(program);
+			workers.set(worker);
+		}
+		return worker;
+	}
+
+	/**
+	 * The program copy of one thread.
+	 */
+	private static class Worker {
+		private final ProgramImage image;
+
+		Worker(List<Instruction> program) {
+			List<Instruction> copies = new ArrayList<Instruction>(program.size());
+			for (Instruction instruction : program) {
+				copies.add(instruction.copy());
+			}
+			image = new ProgramImage(copies);
+		}
+
+		Machine execute(Machine state, int budget) {
+			Machine machine = state.fork();
+			image.execute(machine, budget);
+			return machine;
+		}
+	}
+
+	/**
+	 * Executes the states from..to, splits the range in half while it is long.
+	 */
+	private class BatchTask<T> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<Machine> states;
+		private final int firstIndex;
+		private final int from;
+		private final int to;
+		private final Extractor<T> extractor;
+		private final ResultHandler<T> handler;
+
+		BatchTask(List<Machine> states, int firstIndex, int from, int to, Extractor<T> extractor,
+				ResultHandler<T> handler) {
+			this.states = states;
+			this.firstIndex = firstIndex;
+			this.from = from;
+			this.to = to;
+			this.extractor = extractor;
+			this.handler = handler;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= sequentialStateCount) {
+				Worker worker = getWorker();
+				for (int i = from; i < to; i++) {
+					handler.handle(firstIndex + i, extractor.extract(worker.execute(states.get(i), instructionBudget)));
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new BatchTask<T>(states, firstIndex, from, middle, extractor, handler), new BatchTask<T>(states,
+					firstIndex, middle, to, extractor, handler));
+		}
+	}
+}
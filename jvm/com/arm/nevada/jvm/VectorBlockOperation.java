@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.jvm;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.Vector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import com.arm.nevada.client.interpreter.BlockOperation;
+import com.arm.nevada.client.interpreter.LaneBackend;
+
+/**
+ * One lane-parallel instruction on a D or Q register as a 64 or 128 bit vector. The register is loaded as longs and
+ * reinterpreted to the lane size, which keeps the NEON lane order on a little-endian host.
+ */
+class VectorBlockOperation extends BlockOperation {
+	private final LaneBackend.Operation operation;
+	private final VectorSpecies<Long> species;
+	private final int size;
+	private final boolean signed;
+	private final int destination;
+	private final int source1;
+	private final int source2;
+
+	/**
+	 * @param destination
+	 *            The index of the first D register, the sources can be {@link LaneBackend#zeroOperand}.
+	 */
+	VectorBlockOperation(LaneBackend.Operation operation, int doubleCount, int size, boolean signed, int destination,
+			int source1, int source2) {
+		this.operation = operation;
+		this.species = doubleCount == 2 ? LongVector.SPECIES_128 : LongVector.SPECIES_64;
+		this.size = size;
+		this.signed = signed;
+		this.destination = destination;
+		this.source1 = source1;
+		this.source2 = source2;
+	}
+
+	static int getPreferredBitSize() {
+		return VectorShape.preferredShape().vectorBitSize();
+	}
+
+	@Override
+	public boolean execute(long[] doubleRegisters) {
+		LongVector operand1 = load(doubleRegisters, source1);
+		LongVector operand2 = load(doubleRegisters, source2);
+		LongVector dest = load(doubleRegisters, destination);
+		Vector<?> result;
+		switch (size) {
+		case 8:
+			result = calculate(operand1.reinterpretAsBytes(), operand2.reinterpretAsBytes(), dest.reinterpretAsBytes());
+			break;
+		case 16:
+			result = calculate(operand1.reinterpretAsShorts(), operand2.reinterpretAsShorts(),
+					dest.reinterpretAsShorts());
+			break;
+		case 32:
+			result = calculate(operand1.reinterpretAsInts(), operand2.reinterpretAsInts(), dest.reinterpretAsInts());
+			break;
+		default:
+			result = calculate(operand1, operand2, dest);
+			break;
+		}
+		result.reinterpretAsLongs().intoArray(doubleRegisters, destination);
+		return false;
+	}
+
+	private LongVector load(long[] doubleRegisters, int first) {
+		if (first == LaneBackend.zeroOperand) {
+			return LongVector.zero(species);
+		}
+		return LongVector.fromArray(species, doubleRegisters, first);
+	}
+
+	private <E> Vector<E> calculate(Vector<E> a, Vector<E> b, Vector<E> dest) {
+		switch (operation) {
+		case add:
+			return a.lanewise(VectorOperators.ADD, b);
+		case subtract:
+			return a.lanewise(VectorOperators.SUB, b);
+		case multiply:
+			return a.lanewise(VectorOperators.MUL, b);
+		case multiplyAccumulate:
+			return dest.lanewise(VectorOperators.ADD, a.lanewise(VectorOperators.MUL, b));
+		case multiplySubtract:
+			return dest.lanewise(VectorOperators.SUB, a.lanewise(VectorOperators.MUL, b));
+		case and:
+			return a.lanewise(VectorOperators.AND, b);
+		case bitClear:
+			return a.lanewise(VectorOperators.AND_NOT, b);
+		case or:
+			return a.lanewise(VectorOperators.OR, b);
+		case orNot:
+			return a.lanewise(VectorOperators.OR, b.lanewise(VectorOperators.NOT));
+		case exclusiveOr:
+			return a.lanewise(VectorOperators.XOR, b);
+		case minimum:
+			return signed ? a.lanewise(VectorOperators.MIN, b) : unsigned(unsigned(a).lanewise(VectorOperators.MIN,
+					unsigned(b)));
+		case maximum:
+			return signed ? a.lanewise(VectorOperators.MAX, b) : unsigned(unsigned(a).lanewise(VectorOperators.MAX,
+					unsigned(b)));
+		case equal:
+			return select(a, a.compare(VectorOperators.EQ, b));
+		case greaterThan:
+			return select(a, a.compare(signed ? VectorOperators.GT : VectorOperators.UNSIGNED_GT, b));
+		case greaterEqual:
+			return select(a, a.compare(signed ? VectorOperators.GE : VectorOperators.UNSIGNED_GE, b));
+		case test:
+			Vector<E> common = a.lanewise(VectorOperators.AND, b);
+			return select(a, common.compare(VectorOperators.NE, 0));
+		case absolute:
+			return a.lanewise(VectorOperators.ABS);
+		case negate:
+			return a.lanewise(VectorOperators.NEG);
+		}
+		throw new IllegalArgumentException(operation.toString());
+	}
+
+	/**
+	 * Flips the sign bit of every lane, so the signed order of the result is the unsigned order of the lanes.
+	 */
+	private <E> Vector<E> unsigned(Vector<E> lanes) {
+		return lanes.lanewise(VectorOperators.XOR, lanes.broadcast(-1L << (size - 1)));
+	}
+
+	/**
+	 * @return All ones in the lanes of the mask, zero in the others.
+	 */
+	private static <E> Vector<E> select(Vector<E> lanes, VectorMask<E> mask) {
+		return lanes.broadcast(0).blend(lanes.broadcast(-1), mask);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.jvm;
+
+import java.nio.ByteOrder;
+
+import com.arm.nevada.client.interpreter.BlockOperation;
+import com.arm.nevada.client.interpreter.ByteShuffle;
+import com.arm.nevada.client.interpreter.LaneBackend;
+import com.arm.nevada.client.parser.EnumRegisterType;
+
+/**
+ * Lane backend on the Java Vector API, for the batch executions on a JVM host. The jvm source folder is not part of
+ * the GWT module, it must be compiled and run with <code>--add-modules jdk.incubator.vector</code>. Without the
+ * module {@link #install()} does nothing, and the instructions use their scalar operations.
+ */
+public class VectorLaneBackend extends LaneBackend {
+	private static final String vectorModuleName = "jdk.incubator.vector";
+
+	/**
+	 * @return True if the vector module is present, the host is little-endian like the NEON lane order, and the
+	 *         preferred vector shape holds a Q register.
+	 */
+	public static boolean isSupported() {
+		if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) {
+			return false;
+		}
+		if (!ModuleLayer.boot().findModule(vectorModuleName).isPresent()) {
+			return false;
+		}
+		return VectorBlockOperation.getPreferredBitSize() >= 128;
+	}
+
+	/**
+	 * Installs a new backend if the host supports it.
+	 * 
+	 * @return True if the backend is installed.
+	 */
+	public static boolean install() {
+		if (!isSupported()) {
+			return false;
+		}
+		LaneBackend.install(new VectorLaneBackend());
+		return true;
+	}
+
+	@Override
+	public BlockOperation createOperation(Operation operation, EnumRegisterType type, int size, boolean signed,
+			int destinationIndex, int source1Index, int source2Index) {
+		int doubleCount = type.getSize() / 64;
+		return new VectorBlockOperation(operation, doubleCount, size, signed,
+				destinationIndex * doubleCount,
+				source1Index == zeroOperand ? zeroOperand : source1Index * doubleCount,
+				source2Index == zeroOperand ? zeroOperand : source2Index * doubleCount);
+	}
+
+	@Override
+	public BlockOperation createShuffle(ByteShuffle shuffle) {
+		return VectorShuffleOperation.create(shuffle);
+	}
+}
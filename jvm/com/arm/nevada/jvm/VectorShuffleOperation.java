@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.jvm;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+import com.arm.nevada.client.interpreter.BlockOperation;
+import com.arm.nevada.client.interpreter.ByteShuffle;
+
+/**
+ * A {@link ByteShuffle} as one byte rearrangement of a vector, which holds the concatenated inputs and the outputs.
+ */
+class VectorShuffleOperation extends BlockOperation {
+	private final VectorSpecies<Long> species;
+	private final VectorShuffle<Byte> shuffle;
+	private final int[] inputDoubles;
+	private final int[] outputDoubles;
+	private final long[] buffer;
+
+	private VectorShuffleOperation(VectorSpecies<Long> species, ByteShuffle byteShuffle) {
+		this.species = species;
+		this.inputDoubles = byteShuffle.getInputDoubles();
+		this.outputDoubles = byteShuffle.getOutputDoubles();
+		this.buffer = new long[species.length()];
+		// the bytes after the outputs are not stored
+		int[] sources = new int[8 * species.length()];
+		System.arraycopy(byteShuffle.getSources(), 0, sources, 0, byteShuffle.getSources().length);
+		this.shuffle = VectorShuffle.fromArray(species.withLanes(byte.class), sources, 0);
+	}
+
+	/**
+	 * @return Null if the inputs or the outputs do not fit in the preferred vector shape.
+	 */
+	static VectorShuffleOperation create(ByteShuffle byteShuffle) {
+		int doubleCount = Math.max(byteShuffle.getInputDoubles().length, byteShuffle.getOutputDoubles().length);
+		int bitSize = 64;
+		while (bitSize < 64 * doubleCount) {
+			bitSize *= 2;
+		}
+		if (bitSize > VectorShape.preferredShape().vectorBitSize()) {
+			return null;
+		}
+		return new VectorShuffleOperation(VectorSpecies.of(long.class, VectorShape.forBitSize(bitSize)), byteShuffle);
+	}
+
+	@Override
+	public boolean execute(long[] doubleRegisters) {
+		for (int i = 0; i < inputDoubles.length; i++) {
+			buffer[i] = doubleRegisters[inputDoubles[i]];
+		}
+		ByteVector bytes = LongVector.fromArray(species, buffer, 0).reinterpretAsBytes();
+		bytes.rearrange(shuffle).reinterpretAsLongs().intoArray(buffer, 0);
+		for (int i = 0; i < outputDoubles.length; i++) {
+			doubleRegisters[outputDoubles[i]] = buffer[i];
+		}
+		return false;
+	}
+}
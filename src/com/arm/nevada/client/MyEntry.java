@@ -29,6 +29,9 @@ package com.arm.nevada.client;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.arm.nevada.client.interpreter.machine.EventBusMachineObserver;
+import com.arm.nevada.client.interpreter.machine.ExecutionCheckpoints;
+import com.arm.nevada.client.interpreter.machine.GwtExecutionScheduler;
 import com.arm.nevada.client.interpreter.machine.Machine;
 import com.arm.nevada.client.interpreter.machine.MachineController;
 import com.arm.nevada.client.utils.StateSaverAndLoader;
@@ -47,8 +50,11 @@ public class MyEntry implements EntryPoint {
 		ResourceBundle.INSTANCE.style().ensureInjected();
 
 		EventBus eventBus = new SimpleEventBus();
-		Machine machine = new Machine(eventBus);
+		Machine machine = new Machine();
+		new EventBusMachineObserver(machine, eventBus);
 		MachineController machineController = new MachineController(machine, eventBus);
+		machineController.setScheduler(new GwtExecutionScheduler());
+		machineController.setCheckpoints(new ExecutionCheckpoints(256));
 		AppUI appUI = new AppUI(eventBus, machineController);
 
 		RootPanel rootPanel = RootPanel.get("appContainer");
@@ -34,6 +34,7 @@ import com.arm.nevada.client.parser.EnumRegisterType;
 import com.arm.nevada.client.shared.SpecialBits;
 import com.arm.nevada.client.shared.SpecialRegiser;
 import com.arm.nevada.client.utils.DataTypeTools;
+import com.arm.nevada.client.utils.SwarTools;
 
 public class AbsoluteAndNegateInstruction extends Instruction {
 
@@ -53,6 +54,8 @@ public class AbsoluteAndNegateInstruction extends Instruction {
 	private boolean saturate;
 
 	private boolean negateInstruction;
+	private long[] resultParts;
+	private DoubleRegisterKernel doubleRegisterKernel;
 
 	
 	public AbsoluteAndNegateInstruction(EnumInstruction instruction, EnumRegisterType destinationRegisterType) {
@@ -112,63 +115,110 @@ public class AbsoluteAndNegateInstruction extends Instruction {
 		if (difference) {
 			source2Index = arguments.getRegisterIndexes().get(2);
 		}
+		int size = dataType.getSizeInBits();
+		resultParts = new long[NEONRegisterSet.getLaneCount(sourceRegisterType, size)];
+		doubleRegisterKernel = createDoubleRegisterKernel();
+	}
+
+	/**
+	 * @return The SWAR kernel of VNEG and signed VABS on 8 and 16 bit lanes, null for the other instructions.
+	 */
+	private DoubleRegisterKernel createDoubleRegisterKernel() {
+		final int size = dataType.getSizeInBits();
+		if (saturate || difference || !dataType.isInteger() || (size != 8 && size != 16)
+				|| destinationRegisterType == EnumRegisterType.SINGLE) {
+			return null;
+		}
+		if (negateInstruction) {
+			return new DoubleRegisterKernel() {
+				long run(long operand1, long operand2, long dest) {
+					return SwarTools.negate(operand1, size);
+				}
+			};
+		}
+		if (!Boolean.TRUE.equals(dataType.getSigned())) {
+			return null;
+		}
+		return new DoubleRegisterKernel() {
+			long run(long operand1, long operand2, long dest) {
+				return SwarTools.absolute(operand1, size);
+			}
+		};
 	}
 
 	@Override
 	public void execute(Machine machine) {
 		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
+		if (doubleRegisterKernel != null) {
+			doubleRegisterKernel.execute(neonRegSet, destinationRegisterType, destinationIndex, source1Index,
+					LaneBackend.zeroOperand);
+			machine.incrementPCBy4();
+			highlightRegisters(machine);
+			return;
+		}
 		int size = dataType.getSizeInBits();
 		assert size != 64;
 		int outSize = longing ? size * 2 : size;
 
-		int[] op1Parts = null;
-		int[] op2Parts = null;
-		long[] destParts = null;
-
-		op1Parts = DataTypeTools.getParts(size, neonRegSet.getRegisterValues(sourceRegisterType, source1Index));
-		if (difference)
-			op2Parts = DataTypeTools.getParts(size, neonRegSet.getRegisterValues(sourceRegisterType, source2Index));
-		if (accumulate)
-			destParts = DataTypeTools.createPartListFromWordsLong(outSize, neonRegSet.getRegisterValues(destinationRegisterType, destinationIndex));
-
-		int[] resultPartList = new int[longing ? 2 * op1Parts.length : op1Parts.length];
+		int laneCount = resultParts.length;
 		if (negateInstruction){
 			if (dataType == EnumDataType._f32) {
-				for (int i = 0; i < op1Parts.length; i++) {
-					resultPartList[i] = negateFloat32(op1Parts[i]);
+				for (int i = 0; i < laneCount; i++) {
+					resultParts[i] = negateFloat32(neonRegSet.getLaneInt(sourceRegisterType, source1Index, size, i)) & 0xFFFFFFFFL;
 				}
 			} else {
-				for (int i = 0; i < op1Parts.length; i++) {
-					resultPartList[i] = negateInteger(machine, op1Parts[i]);
+				for (int i = 0; i < laneCount; i++) {
+					resultParts[i] = negateInteger(machine, neonRegSet.getLaneInt(sourceRegisterType, source1Index, size, i)) & 0xFFFFFFFFL;
 				}
 			}
 		} else {
-			if (dataType == EnumDataType._f32) {
-				for (int i = 0; i < op1Parts.length; i++) {
-					resultPartList[i] = absoluteFloat32(op1Parts[i], difference ? op2Parts[i] : 0, accumulate ? ((int) destParts[i]) : 0);
-				}
-			} else {
-				for (int i = 0; i < op1Parts.length; i++) {
-					long res = absoluteInteger(machine, op1Parts[i], difference ? op2Parts[i] : 0, accumulate ? destParts[i] : 0);
-					long bitMask = DataTypeTools.getBitmaskLong(outSize);
-					res = res & bitMask;
-					int[] resParts = DataTypeTools.getParts(size, res);
-					if (longing) {
-						resultPartList[2 * i + 0] = resParts[0];
-						resultPartList[2 * i + 1] = resParts[1];
-					} else {
-						resultPartList[i] = resParts[0];
-					}
+			for (int i = 0; i < laneCount; i++) {
+				int op1 = neonRegSet.getLaneInt(sourceRegisterType, source1Index, size, i);
+				int op2 = difference ? neonRegSet.getLaneInt(sourceRegisterType, source2Index, size, i) : 0;
+				long dest = accumulate ? neonRegSet.getLane(destinationRegisterType, destinationIndex, outSize, i) : 0;
+				if (dataType == EnumDataType._f32) {
+					resultParts[i] = absoluteFloat32(op1, op2, (int) dest) & 0xFFFFFFFFL;
+				} else {
+					resultParts[i] = absoluteInteger(machine, op1, op2, dest) & DataTypeTools.getBitmaskLong(outSize);
 				}
 			}
 		}
 
-		int[] registerWords = DataTypeTools.createWordsFromOnePartPerWord(size, resultPartList);
-		neonRegSet.setRegisterValues(destinationRegisterType, true, destinationIndex, registerWords);
+		neonRegSet.setLanes(destinationRegisterType, destinationIndex, outSize, resultParts, true);
 		machine.incrementPCBy4();
 		highlightRegisters(machine);
 	}
 
+	@Override
+	public BlockOperation compile() {
+		int size = dataType.getSizeInBits();
+		if (saturate || difference || !dataType.isInteger() || size == 64) {
+			return null;
+		}
+		BlockOperation operation = null;
+		if (negateInstruction) {
+			operation = LaneBackend.createInstalledOperation(LaneBackend.Operation.negate, destinationRegisterType,
+					size, true, destinationIndex, source1Index, LaneBackend.zeroOperand);
+		} else if (Boolean.TRUE.equals(dataType.getSigned())) {
+			operation = LaneBackend.createInstalledOperation(LaneBackend.Operation.absolute, destinationRegisterType,
+					size, true, destinationIndex, source1Index, LaneBackend.zeroOperand);
+		}
+		if (operation == null && doubleRegisterKernel != null) {
+			operation = doubleRegisterKernel.compile(destinationRegisterType, destinationIndex, source1Index,
+					LaneBackend.zeroOperand);
+		}
+		return operation;
+	}
+
+	@Override
+	public LockstepOperation compileLockstep() {
+		if (doubleRegisterKernel == null) {
+			return null;
+		}
+		return doubleRegisterKernel.compileLockstep(destinationRegisterType, destinationIndex, source1Index,
+				LaneBackend.zeroOperand);
+	}
+
 	private void highlightRegisters(Machine machine) {
 		machine.highlightNEONRegister(destinationRegisterType, destinationIndex);
 	}
@@ -34,6 +34,7 @@ import com.arm.nevada.client.parser.EnumRegisterType;
 import com.arm.nevada.client.shared.Out;
 import com.arm.nevada.client.shared.SpecialBits;
 import com.arm.nevada.client.utils.DataTypeTools;
+import com.arm.nevada.client.utils.SwarTools;
 
 /*
  vadd,
@@ -80,6 +81,43 @@ public class ArithmeticInstructions extends Instruction {
 	private int source2Size;
 	private int destSize;
 
+	// lane buffers, allocated by bindArguments
+	private long[] source1Parts;
+	private long[] source2Parts;
+	private long[] destParts;
+	private long[] pairwise1Parts;
+	private long[] pairwise2Parts;
+	private LaneKernel kernel;
+	private DoubleRegisterKernel doubleRegisterKernel;
+
+	// int lane buffers and kernel, only for lanes of maximum 32 bit
+	private int[] source1IntParts;
+	private int[] source2IntParts;
+	private int[] destIntParts;
+	private int[] pairwise1IntParts;
+	private int[] pairwise2IntParts;
+	private IntLaneKernel intKernel;
+
+	/**
+	 * Calculates every destination lane. The kernel is selected by bindArguments, so the flags are not tested per
+	 * lane.
+	 */
+	private static abstract class LaneKernel {
+		/**
+		 * @param dest
+		 *            Contains the original destination lanes, the results are written into it.
+		 * @return True if any of the lanes is saturated.
+		 */
+		abstract boolean run(long[] operand1, long[] operand2, long[] dest);
+	}
+
+	/**
+	 * Same as {@link LaneKernel} on int lanes, the lanes of maximum 32 bit are calculated without long operations.
+	 */
+	private static abstract class IntLaneKernel {
+		abstract boolean run(int[] operand1, int[] operand2, int[] dest);
+	}
+
 	
 	public ArithmeticInstructions(EnumInstruction instruction, EnumRegisterType destRegisterType){
 		this.instruction = instruction;
@@ -215,167 +253,652 @@ public class ArithmeticInstructions extends Instruction {
 			source1Size = source2Size;
 			destSize = source2Size;
 		}
+
+		source1Parts = new long[NEONRegisterSet.getLaneCount(source1RegisterType, source1Size)];
+		source2Parts = new long[NEONRegisterSet.getLaneCount(source2RegisterType, source2Size)];
+		destParts = new long[NEONRegisterSet.getLaneCount(destinationRegisterType, destSize)];
+		if (pairwise) {
+			int pairCount = longing ? source1Parts.length / 2 : source1Parts.length;
+			pairwise1Parts = new long[pairCount];
+			pairwise2Parts = new long[pairCount];
+		}
+		kernel = createKernel();
+		doubleRegisterKernel = createDoubleRegisterKernel();
+
+		if (isIntLanePaths() && source1Size <= 32 && destSize <= 32) {
+			source1IntParts = new int[source1Parts.length];
+			source2IntParts = new int[source2Parts.length];
+			destIntParts = new int[destParts.length];
+			if (pairwise) {
+				pairwise1IntParts = new int[pairwise1Parts.length];
+				pairwise2IntParts = new int[pairwise2Parts.length];
+			}
+			intKernel = createIntKernel();
+		} else {
+			intKernel = null;
+		}
 	}
 
-	@Override
-	public void execute(Machine machine) {
-		NEONRegisterSet neonRS = machine.getNEONRegisterSet();
-		long[] source1Parts = DataTypeTools.createPartListFromWordsLong(source1Size,
-				neonRS.getRegisterValues(source1RegisterType, source1Index));
-		long[] source2Parts = DataTypeTools.createPartListFromWordsLong(source2Size,
-				neonRS.getRegisterValues(source2RegisterType, source2Index));
-		long[] destParts = DataTypeTools.createPartListFromWordsLong(destSize,
-				neonRS.getRegisterValues(destinationRegisterType, destionationIndex));
+	private IntLaneKernel createIntKernel() {
+		if (dataType.isFloatType()) {
+			return addElseSub ? floatAddInt : floatSubInt;
+		}
+		final boolean signed = dataType.getSigned() != null && dataType.getSigned();
+		// the lanes are zero extended, shifting left and back arithmetically sign extends them
+		final int shift1 = signed ? 32 - source1Size : 0;
+		final int shift2 = signed ? 32 - source2Size : 0;
+		final int mask = DataTypeTools.getBitmask(destSize);
 
-		if (pairwise) {
-			long[] s1p;
-			long[] s2p;
-			if (longing) {
-				s1p = new long[source1Parts.length / 2];
-				s2p = new long[source1Parts.length / 2];
-				for (int i = 0; i < source1Parts.length / 2; i++) {
-					s1p[i] = source2Parts[2 * i + 0];
-					s2p[i] = source2Parts[2 * i + 1];
+		if (saturating) {
+			return createSaturatingIntKernel(signed, shift1, shift2, mask);
+		} else if (narrowAndHighHalf) {
+			// only the bits below the source size are used, so the sum may overflow the int
+			final int roundingConst = rounding ? 1 << (destSize - 1) : 0;
+			final int half = source2Size / 2;
+			if (addElseSub) {
+				return new IntLaneKernel() {
+					boolean run(int[] operand1, int[] operand2, int[] dest) {
+						for (int i = 0; i < dest.length; i++) {
+							dest[i] = ((operand1[i] + operand2[i] + roundingConst) >>> half) & mask;
+						}
+						return false;
+					}
+				};
+			}
+			return new IntLaneKernel() {
+				boolean run(int[] operand1, int[] operand2, int[] dest) {
+					for (int i = 0; i < dest.length; i++) {
+						dest[i] = ((operand1[i] - operand2[i] + roundingConst) >>> half) & mask;
+					}
+					return false;
 				}
-			} else {
-				s1p = new long[source1Parts.length];
-				s2p = new long[source2Parts.length];
-				int cntr = 0;
-				for (int i = 0; i < source1Parts.length / 2; i++, cntr++) {
-					s1p[cntr] = source1Parts[i * 2 + 0];
-					s2p[cntr] = source1Parts[i * 2 + 1];
+			};
+		} else if (halving) {
+			return createHalvingIntKernel(signed, shift1, shift2, mask);
+		} else if (accumulate) {
+			return new IntLaneKernel() {
+				boolean run(int[] operand1, int[] operand2, int[] dest) {
+					for (int i = 0; i < dest.length; i++) {
+						dest[i] = (dest[i] + (operand1[i] << shift1 >> shift1) + (operand2[i] << shift2 >> shift2)) & mask;
+					}
+					return false;
 				}
-				for (int i = 0; i < source2Parts.length / 2; i++, cntr++) {
-					s1p[cntr] = source2Parts[i * 2 + 0];
-					s2p[cntr] = source2Parts[i * 2 + 1];
+			};
+		} else if (addElseSub) {
+			return new IntLaneKernel() {
+				boolean run(int[] operand1, int[] operand2, int[] dest) {
+					for (int i = 0; i < dest.length; i++) {
+						dest[i] = ((operand1[i] << shift1 >> shift1) + (operand2[i] << shift2 >> shift2)) & mask;
+					}
+					return false;
 				}
-			}
-			source1Parts = s1p;
-			source2Parts = s2p;
+			};
 		}
+		return new IntLaneKernel() {
+			boolean run(int[] operand1, int[] operand2, int[] dest) {
+				for (int i = 0; i < dest.length; i++) {
+					dest[i] = ((operand1[i] << shift1 >> shift1) - (operand2[i] << shift2 >> shift2)) & mask;
+				}
+				return false;
+			}
+		};
+	}
 
-		assert source1Parts.length == source2Parts.length && source1Parts.length == destParts.length;
+	/**
+	 * The halving kernels on int lanes. The sum of two 32 bit lanes does not fit in an int, so the halved sum and
+	 * difference are calculated from the common and the different bits:<br>
+	 * (a + b) >> 1 = (a & b) + ((a ^ b) >> 1)<br>
+	 * (a + b + 1) >> 1 = (a | b) - ((a ^ b) >> 1)<br>
+	 * (a - b) >> 1 = ((a ^ b) >> 1) - (~a & b)<br>
+	 * The shift is logical for unsigned lanes.
+	 */
+	private IntLaneKernel createHalvingIntKernel(boolean signed, final int shift1, final int shift2, final int mask) {
+		final int logicalShift = signed ? 0 : 1;
+		if (!addElseSub) {
+			return new IntLaneKernel() {
+				boolean run(int[] operand1, int[] operand2, int[] dest) {
+					for (int i = 0; i < dest.length; i++) {
+						int a = operand1[i] << shift1 >> shift1;
+						int b = operand2[i] << shift2 >> shift2;
+						int different = a ^ b;
+						dest[i] = (((different >> 1) & ~(logicalShift << 31)) - (~a & b)) & mask;
+					}
+					return false;
+				}
+			};
+		} else if (rounding) {
+			return new IntLaneKernel() {
+				boolean run(int[] operand1, int[] operand2, int[] dest) {
+					for (int i = 0; i < dest.length; i++) {
+						int a = operand1[i] << shift1 >> shift1;
+						int b = operand2[i] << shift2 >> shift2;
+						int different = a ^ b;
+						dest[i] = ((a | b) - ((different >> 1) & ~(logicalShift << 31))) & mask;
+					}
+					return false;
+				}
+			};
+		}
+		return new IntLaneKernel() {
+			boolean run(int[] operand1, int[] operand2, int[] dest) {
+				for (int i = 0; i < dest.length; i++) {
+					int a = operand1[i] << shift1 >> shift1;
+					int b = operand2[i] << shift2 >> shift2;
+					int different = a ^ b;
+					dest[i] = ((a & b) + ((different >> 1) & ~(logicalShift << 31))) & mask;
+				}
+				return false;
+			}
+		};
+	}
 
-		if (dataType.isFloatType()) {
-			for (int i = 0; i < destParts.length; i++) {
-				destParts[i] = calculateFloat(source1Parts[i], source2Parts[i], destParts[i]);
+	/**
+	 * The saturating kernels on int lanes. The lanes below 32 bit can't overflow the int, they are clamped to the
+	 * range of the size. The 32 bit lanes overflow if the sign of the result is wrong.
+	 */
+	private IntLaneKernel createSaturatingIntKernel(final boolean signed, final int shift1, final int shift2,
+			final int mask) {
+		final boolean fullWord = destSize == 32;
+		final int max = signed ? mask >>> 1 : mask;
+		final int min = signed ? ~max : 0;
+		if (signed) {
+			if (addElseSub) {
+				return new IntLaneKernel() {
+					boolean run(int[] operand1, int[] operand2, int[] dest) {
+						boolean any = false;
+						for (int i = 0; i < dest.length; i++) {
+							int a = operand1[i] << shift1 >> shift1;
+							int b = operand2[i] << shift2 >> shift2;
+							int result = a + b;
+							if (fullWord ? ((a ^ result) & (b ^ result)) < 0 : result > max || result < min) {
+								result = a < 0 ? min : max;
+								any = true;
+							}
+							dest[i] = result & mask;
+						}
+						return any;
+					}
+				};
 			}
-		} else {
-			for (int i = 0; i < destParts.length; i++) {
-				destParts[i] = calculateInt(source1Parts[i], source2Parts[i], destParts[i], machine);
+			return new IntLaneKernel() {
+				boolean run(int[] operand1, int[] operand2, int[] dest) {
+					boolean any = false;
+					for (int i = 0; i < dest.length; i++) {
+						int a = operand1[i] << shift1 >> shift1;
+						int b = operand2[i] << shift2 >> shift2;
+						int result = a - b;
+						if (fullWord ? ((a ^ b) & (a ^ result)) < 0 : result > max || result < min) {
+							result = a < 0 ? min : max;
+							any = true;
+						}
+						dest[i] = result & mask;
+					}
+					return any;
+				}
+			};
+		}
+		if (addElseSub) {
+			return new IntLaneKernel() {
+				boolean run(int[] operand1, int[] operand2, int[] dest) {
+					boolean any = false;
+					for (int i = 0; i < dest.length; i++) {
+						int result = operand1[i] + operand2[i];
+						if (fullWord ? (result ^ Integer.MIN_VALUE) < (operand1[i] ^ Integer.MIN_VALUE) : result > max) {
+							result = max;
+							any = true;
+						}
+						dest[i] = result & mask;
+					}
+					return any;
+				}
+			};
+		}
+		return new IntLaneKernel() {
+			boolean run(int[] operand1, int[] operand2, int[] dest) {
+				boolean any = false;
+				for (int i = 0; i < dest.length; i++) {
+					int result = operand1[i] - operand2[i];
+					if ((operand2[i] ^ Integer.MIN_VALUE) > (operand1[i] ^ Integer.MIN_VALUE)) {
+						result = 0;
+						any = true;
+					}
+					dest[i] = result & mask;
+				}
+				return any;
 			}
+		};
+	}
+
+	/**
+	 * @return The SWAR kernel of the plain and the halving add / sub on 8 and 16 bit lanes, null for the other
+	 *         instructions.
+	 */
+	private DoubleRegisterKernel createDoubleRegisterKernel() {
+		if (!dataType.isInteger() || (destSize != 8 && destSize != 16) || narrowAndHighHalf || longing || wide
+				|| pairwise || accumulate || saturating || (halving && !addElseSub)) {
+			return null;
 		}
-		int[] resultWords = DataTypeTools.createWordsFromOnePartPerLong(destSize, destParts);
-		neonRS.setRegisterValues(destinationRegisterType, true, destionationIndex, resultWords);
-		machine.incrementPCBy4();
-		highlightDestinationRegisters(machine);
+		final int size = destSize;
+		final boolean signed = dataType.getSigned() != null && dataType.getSigned();
+		if (halving && rounding) {
+			return new DoubleRegisterKernel() {
+				long run(long operand1, long operand2, long dest) {
+					return SwarTools.roundingHalvingAdd(operand1, operand2, size, signed);
+				}
+			};
+		} else if (halving) {
+			return new DoubleRegisterKernel() {
+				long run(long operand1, long operand2, long dest) {
+					return SwarTools.halvingAdd(operand1, operand2, size, signed);
+				}
+			};
+		} else if (addElseSub) {
+			return new DoubleRegisterKernel() {
+				long run(long operand1, long operand2, long dest) {
+					return SwarTools.add(operand1, operand2, size);
+				}
+			};
+		}
+		return new DoubleRegisterKernel() {
+			long run(long operand1, long operand2, long dest) {
+				return SwarTools.subtract(operand1, operand2, size);
+			}
+		};
 	}
 
-	private void highlightDestinationRegisters(Machine machine) {
-		machine.highlightNEONRegister(destinationRegisterType, destionationIndex);
+	private LaneKernel createKernel() {
+		if (dataType.isFloatType()) {
+			return addElseSub ? floatAdd : floatSub;
+		}
+		final boolean signed = dataType.getSigned() != null && dataType.getSigned();
+		// the lanes are zero extended, shifting left and back arithmetically sign extends them
+		final int shift1 = signed ? 64 - source1Size : 0;
+		final int shift2 = signed ? 64 - source2Size : 0;
+		final long mask = DataTypeTools.getBitmaskLong(destSize);
+
+		if (saturating) {
+			return createSaturatingKernel(signed, shift1, shift2, mask);
+		} else if (narrowAndHighHalf) {
+			final long roundingConst = rounding ? 1l << (destSize - 1) : 0;
+			final int half = source2Size / 2;
+			if (addElseSub) {
+				return new LaneKernel() {
+					boolean run(long[] operand1, long[] operand2, long[] dest) {
+						for (int i = 0; i < dest.length; i++) {
+							long sum = (operand1[i] << shift1 >> shift1) + (operand2[i] << shift2 >> shift2);
+							dest[i] = ((sum + roundingConst) >>> half) & mask;
+						}
+						return false;
+					}
+				};
+			}
+			return new LaneKernel() {
+				boolean run(long[] operand1, long[] operand2, long[] dest) {
+					for (int i = 0; i < dest.length; i++) {
+						long difference = (operand1[i] << shift1 >> shift1) - (operand2[i] << shift2 >> shift2);
+						dest[i] = ((difference + roundingConst) >>> half) & mask;
+					}
+					return false;
+				}
+			};
+		} else if (halving) {
+			return createHalvingKernel(signed, shift1, shift2, mask);
+		} else if (accumulate) {
+			return new LaneKernel() {
+				boolean run(long[] operand1, long[] operand2, long[] dest) {
+					for (int i = 0; i < dest.length; i++) {
+						dest[i] = (dest[i] + (operand1[i] << shift1 >> shift1) + (operand2[i] << shift2 >> shift2)) & mask;
+					}
+					return false;
+				}
+			};
+		} else if (addElseSub) {
+			return new LaneKernel() {
+				boolean run(long[] operand1, long[] operand2, long[] dest) {
+					for (int i = 0; i < dest.length; i++) {
+						dest[i] = ((operand1[i] << shift1 >> shift1) + (operand2[i] << shift2 >> shift2)) & mask;
+					}
+					return false;
+				}
+			};
+		}
+		return new LaneKernel() {
+			boolean run(long[] operand1, long[] operand2, long[] dest) {
+				for (int i = 0; i < dest.length; i++) {
+					dest[i] = ((operand1[i] << shift1 >> shift1) - (operand2[i] << shift2 >> shift2)) & mask;
+				}
+				return false;
+			}
+		};
 	}
 
-	private long calculateInt(long s1, long s2, long dest, Machine machine) {
-		// boolean addElseSub;
-		// boolean narrow = false;
-		// boolean highHalf = false;
-		// boolean longing = false;
-		// boolean wide = false;
-		// boolean halving = false;
-		// boolean pairwise = false;
-		// boolean accumulate = false;
-		// boolean rounding = false;
-		// boolean saturating = false;
-
-		long result = 0;
-		boolean signed = dataType.getSigned() == null || dataType.getSigned() == false ? false : true;
+	private LaneKernel createHalvingKernel(boolean signed, final int shift1, final int shift2, final long mask) {
+		final long roundingConst = rounding ? 1 : 0;
 		if (signed) {
-			s1 = DataTypeTools.extendToSingnedLong(s1, source1Size);
-			s2 = DataTypeTools.extendToSingnedLong(s2, source2Size);
-			dest = DataTypeTools.extendToSingnedLong(dest, destSize);
+			if (addElseSub) {
+				return new LaneKernel() {
+					boolean run(long[] operand1, long[] operand2, long[] dest) {
+						for (int i = 0; i < dest.length; i++) {
+							long sum = (operand1[i] << shift1 >> shift1) + (operand2[i] << shift2 >> shift2);
+							dest[i] = ((sum + roundingConst) >> 1) & mask;
+						}
+						return false;
+					}
+				};
+			}
+			return new LaneKernel() {
+				boolean run(long[] operand1, long[] operand2, long[] dest) {
+					for (int i = 0; i < dest.length; i++) {
+						long difference = (operand1[i] << shift1 >> shift1) - (operand2[i] << shift2 >> shift2);
+						dest[i] = ((difference + roundingConst) >> 1) & mask;
+					}
+					return false;
+				}
+			};
+		}
+		if (addElseSub) {
+			return new LaneKernel() {
+				boolean run(long[] operand1, long[] operand2, long[] dest) {
+					for (int i = 0; i < dest.length; i++) {
+						dest[i] = ((operand1[i] + operand2[i] + roundingConst) >>> 1) & mask;
+					}
+					return false;
+				}
+			};
 		}
+		return new LaneKernel() {
+			boolean run(long[] operand1, long[] operand2, long[] dest) {
+				for (int i = 0; i < dest.length; i++) {
+					dest[i] = ((operand1[i] - operand2[i] + roundingConst) >>> 1) & mask;
+				}
+				return false;
+			}
+		};
+	}
 
+	private LaneKernel createSaturatingKernel(final boolean signed, final int shift1, final int shift2, final long mask) {
+		final int size = destSize;
+		final Out<Boolean> saturated = new Out<Boolean>();
+		if (signed) {
+			if (addElseSub) {
+				return new LaneKernel() {
+					boolean run(long[] operand1, long[] operand2, long[] dest) {
+						boolean any = false;
+						for (int i = 0; i < dest.length; i++) {
+							dest[i] = saturatingAddSigned(operand1[i] << shift1 >> shift1, operand2[i] << shift2 >> shift2, size,
+									saturated) & mask;
+							any |= saturated.getValue();
+						}
+						return any;
+					}
+				};
+			}
+			return new LaneKernel() {
+				boolean run(long[] operand1, long[] operand2, long[] dest) {
+					boolean any = false;
+					for (int i = 0; i < dest.length; i++) {
+						dest[i] = saturatingSubSigned(operand1[i] << shift1 >> shift1, operand2[i] << shift2 >> shift2, size,
+								saturated) & mask;
+						any |= saturated.getValue();
+					}
+					return any;
+				}
+			};
+		}
 		if (addElseSub) {
-			result = s1 + s2;
-		} else {
-			result = s1 - s2;
+			return new LaneKernel() {
+				boolean run(long[] operand1, long[] operand2, long[] dest) {
+					boolean any = false;
+					for (int i = 0; i < dest.length; i++) {
+						dest[i] = saturatingAddUnsigned(operand1[i], operand2[i], size, saturated) & mask;
+						any |= saturated.getValue();
+					}
+					return any;
+				}
+			};
 		}
+		return new LaneKernel() {
+			boolean run(long[] operand1, long[] operand2, long[] dest) {
+				boolean any = false;
+				for (int i = 0; i < dest.length; i++) {
+					dest[i] = saturatingSubUnsigned(operand1[i], operand2[i], size, saturated) & mask;
+					any |= saturated.getValue();
+				}
+				return any;
+			}
+		};
+	}
 
-		if (rounding) {
-			long rundingConst = 0;
-			if (narrowAndHighHalf)
-				rundingConst = 1l << (destSize - 1);
-			else if (halving) {
-				rundingConst = 1;
-			} else
-				assert false;
-			result += rundingConst;
+	private static final IntLaneKernel floatAddInt = new IntLaneKernel() {
+		boolean run(int[] operand1, int[] operand2, int[] dest) {
+			for (int i = 0; i < dest.length; i++) {
+				float result = DataTypeTools.intToFloat(operand1[i]) + DataTypeTools.intToFloat(operand2[i]);
+				dest[i] = DataTypeTools.FloatToInt(result);
+			}
+			return false;
 		}
+	};
 
-		if (halving) {
-			if (signed)
-				result = result >> 1;
-			else
-				result = result >>> 1;
+	private static final IntLaneKernel floatSubInt = new IntLaneKernel() {
+		boolean run(int[] operand1, int[] operand2, int[] dest) {
+			for (int i = 0; i < dest.length; i++) {
+				float result = DataTypeTools.intToFloat(operand1[i]) - DataTypeTools.intToFloat(operand2[i]);
+				dest[i] = DataTypeTools.FloatToInt(result);
+			}
+			return false;
 		}
+	};
 
-		if (narrowAndHighHalf) {
-			assert source1Size == source2Size;
-			result = result >>> (source2Size / 2);
-		} else if (wide || longing) {
-			// nothing to do
+	private static final LaneKernel floatAdd = new LaneKernel() {
+		boolean run(long[] operand1, long[] operand2, long[] dest) {
+			for (int i = 0; i < dest.length; i++) {
+				float result = DataTypeTools.intToFloat((int) operand1[i]) + DataTypeTools.intToFloat((int) operand2[i]);
+				dest[i] = DataTypeTools.FloatToInt(result) & 0xFFFFFFFFL;
+			}
+			return false;
 		}
+	};
 
-		if (accumulate) {
-			// It's a mistake in the documentation A8.6.348 VPADAL
-			// if (signed && result < 0) {
-			// result = -result;
-			// }
-			result = dest + result;
+	private static final LaneKernel floatSub = new LaneKernel() {
+		boolean run(long[] operand1, long[] operand2, long[] dest) {
+			for (int i = 0; i < dest.length; i++) {
+				float result = DataTypeTools.intToFloat((int) operand1[i]) - DataTypeTools.intToFloat((int) operand2[i]);
+				dest[i] = DataTypeTools.FloatToInt(result) & 0xFFFFFFFFL;
+			}
+			return false;
 		}
+	};
 
-		if (saturating) {
-			Out<Boolean> saturated = new Out<Boolean>();
-			result = saturatingAddOrSubstract(s1, s2, destSize, saturated, addElseSub, signed);
-			if (saturated.getValue()) {
-				int fpscr = machine.getSpecialRegisters().getFPSCR();
-				fpscr = DataTypeTools.setBit(fpscr, true, SpecialBits.FPSCR_QC);
-				machine.getSpecialRegisters().setFPSCR(fpscr, true);
+	@Override
+	public void execute(Machine machine) {
+		NEONRegisterSet neonRS = machine.getNEONRegisterSet();
+		if (doubleRegisterKernel != null) {
+			doubleRegisterKernel.execute(neonRS, destinationRegisterType, destionationIndex, source1Index, source2Index);
+			machine.incrementPCBy4();
+			highlightDestinationRegisters(machine);
+			return;
+		}
+		if (intKernel != null) {
+			neonRS.getLanesInt(source1RegisterType, source1Index, source1Size, source1IntParts);
+			neonRS.getLanesInt(source2RegisterType, source2Index, source2Size, source2IntParts);
+			neonRS.getLanesInt(destinationRegisterType, destionationIndex, destSize, destIntParts);
+			if (calculateInt()) {
+				setSaturatedFlag(machine);
 			}
+			neonRS.setLanesInt(destinationRegisterType, destionationIndex, destSize, destIntParts, true);
+			machine.incrementPCBy4();
+			highlightDestinationRegisters(machine);
+			return;
 		}
+		neonRS.getLanes(source1RegisterType, source1Index, source1Size, source1Parts);
+		neonRS.getLanes(source2RegisterType, source2Index, source2Size, source2Parts);
+		neonRS.getLanes(destinationRegisterType, destionationIndex, destSize, destParts);
+		if (calculate()) {
+			setSaturatedFlag(machine);
+		}
+		neonRS.setLanes(destinationRegisterType, destionationIndex, destSize, destParts, true);
+		machine.incrementPCBy4();
+		highlightDestinationRegisters(machine);
+	}
+
+	@Override
+	public BlockOperation compile() {
+		if ((instruction == EnumInstruction.vadd || instruction == EnumInstruction.vsub) && dataType.isInteger()) {
+			BlockOperation operation = LaneBackend.createInstalledOperation(addElseSub ? LaneBackend.Operation.add
+					: LaneBackend.Operation.subtract, destinationRegisterType, destSize, false, destionationIndex,
+					source1Index, source2Index);
+			if (operation != null) {
+				return operation;
+			}
+		}
+		if (doubleRegisterKernel != null) {
+			return doubleRegisterKernel.compile(destinationRegisterType, destionationIndex, source1Index, source2Index);
+		}
+		return new BlockOperation() {
+			public boolean execute(long[] doubleRegisters) {
+				NEONRegisterSet.readLanes(doubleRegisters, source1RegisterType, source1Index, source1Size, source1Parts);
+				NEONRegisterSet.readLanes(doubleRegisters, source2RegisterType, source2Index, source2Size, source2Parts);
+				NEONRegisterSet.readLanes(doubleRegisters, destinationRegisterType, destionationIndex, destSize, destParts);
+				boolean saturated = calculate();
+				NEONRegisterSet.writeLanes(doubleRegisters, destinationRegisterType, destionationIndex, destSize, destParts);
+				return saturated;
+			}
+		};
+	}
 
-		result = result & DataTypeTools.getBitmaskLong(destSize);
-		return result;
+	/**
+	 * The plain add / sub runs as one SWAR loop over all machines, the halving ones as their kernel.
+	 */
+	@Override
+	public LockstepOperation compileLockstep() {
+		if (doubleRegisterKernel != null && halving) {
+			return doubleRegisterKernel.compileLockstep(destinationRegisterType, destionationIndex, source1Index,
+					source2Index);
+		}
+		if (!dataType.isInteger() || destinationRegisterType == EnumRegisterType.SINGLE || narrowAndHighHalf
+				|| longing || wide || pairwise || accumulate || saturating || halving) {
+			return null;
+		}
+		final int doubleCount = destinationRegisterType.getSize() / 64;
+		final int first = destionationIndex * doubleCount;
+		final int firstSource1 = source1Index * doubleCount;
+		final int firstSource2 = source2Index * doubleCount;
+		final long high = destSize == 64 ? 0 : SwarTools.getHighBits(destSize);
+		return new LockstepOperation() {
+			public void execute(long[][] doubleRegisters, int machineCount, boolean[] saturated) {
+				for (int i = 0; i < doubleCount; i++) {
+					long[] a = doubleRegisters[firstSource1 + i];
+					long[] b = doubleRegisters[firstSource2 + i];
+					long[] d = doubleRegisters[first + i];
+					if (addElseSub) {
+						for (int k = 0; k < machineCount; k++) {
+							d[k] = ((a[k] & ~high) + (b[k] & ~high)) ^ ((a[k] ^ b[k]) & high);
+						}
+					} else {
+						for (int k = 0; k < machineCount; k++) {
+							d[k] = ((a[k] | high) - (b[k] & ~high)) ^ ((a[k] ^ ~b[k]) & high);
+						}
+					}
+				}
+			}
+		};
 	}
 
-	private long calculateFloat(long s1, long s2, long dest) {
-		float f1 = DataTypeTools.intToFloat(DataTypeTools.integerFromLong(s1)[0]);
-		float f2 = DataTypeTools.intToFloat(DataTypeTools.integerFromLong(s2)[0]);
-		float result;
+	private void setSaturatedFlag(Machine machine) {
+		int fpscr = machine.getSpecialRegisters().getFPSCR();
+		fpscr = DataTypeTools.setBit(fpscr, true, SpecialBits.FPSCR_QC);
+		machine.getSpecialRegisters().setFPSCR(fpscr, true);
+	}
 
-		if (addElseSub) {
-			result = f1 + f2;
-		} else {
-			result = f1 - f2;
+	/**
+	 * Same as {@link #calculate()} on the int buffers.
+	 */
+	private boolean calculateInt() {
+		int[] operand1Parts = source1IntParts;
+		int[] operand2Parts = source2IntParts;
+		if (pairwise) {
+			int[] s1p = pairwise1IntParts;
+			int[] s2p = pairwise2IntParts;
+			if (longing) {
+				for (int i = 0; i < source1IntParts.length / 2; i++) {
+					s1p[i] = source2IntParts[2 * i + 0];
+					s2p[i] = source2IntParts[2 * i + 1];
+				}
+			} else {
+				int cntr = 0;
+				for (int i = 0; i < source1IntParts.length / 2; i++, cntr++) {
+					s1p[cntr] = source1IntParts[i * 2 + 0];
+					s2p[cntr] = source1IntParts[i * 2 + 1];
+				}
+				for (int i = 0; i < source2IntParts.length / 2; i++, cntr++) {
+					s1p[cntr] = source2IntParts[i * 2 + 0];
+					s2p[cntr] = source2IntParts[i * 2 + 1];
+				}
+			}
+			operand1Parts = s1p;
+			operand2Parts = s2p;
+		}
+		return intKernel.run(operand1Parts, operand2Parts, destIntParts);
+	}
+
+	/**
+	 * Calculates the destParts from the lanes read into the buffers.
+	 * 
+	 * @return True if any of the lanes is saturated.
+	 */
+	private boolean calculate() {
+		long[] operand1Parts = source1Parts;
+		long[] operand2Parts = source2Parts;
+		if (pairwise) {
+			long[] s1p = pairwise1Parts;
+			long[] s2p = pairwise2Parts;
+			if (longing) {
+				for (int i = 0; i < source1Parts.length / 2; i++) {
+					s1p[i] = source2Parts[2 * i + 0];
+					s2p[i] = source2Parts[2 * i + 1];
+				}
+			} else {
+				int cntr = 0;
+				for (int i = 0; i < source1Parts.length / 2; i++, cntr++) {
+					s1p[cntr] = source1Parts[i * 2 + 0];
+					s2p[cntr] = source1Parts[i * 2 + 1];
+				}
+				for (int i = 0; i < source2Parts.length / 2; i++, cntr++) {
+					s1p[cntr] = source2Parts[i * 2 + 0];
+					s2p[cntr] = source2Parts[i * 2 + 1];
+				}
+			}
+			operand1Parts = s1p;
+			operand2Parts = s2p;
 		}
 
-		long longResult = DataTypeTools.LongFromIntegers(DataTypeTools.FloatToInt(result), 0);
-		return longResult;
+		assert operand1Parts.length == operand2Parts.length && operand1Parts.length == destParts.length;
+
+		return kernel.run(operand1Parts, operand2Parts, destParts);
+	}
+
+	private void highlightDestinationRegisters(Machine machine) {
+		machine.highlightNEONRegister(destinationRegisterType, destionationIndex);
+	}
+
+	@Override
+	void highlight(Machine machine) {
+		highlightDestinationRegisters(machine);
 	}
 
-	private long saturatingAddOrSubstract(long x, long y, int size, Out<Boolean> saturated, boolean addElseSub, boolean signed) {
-		if (signed)
-			if (addElseSub)
-				return saturatingAddSigned(x, y, size, saturated);
-			else
-				return saturatingSubSigned(x, y, size, saturated);
-		else if (addElseSub)
-			return saturatingAddUnsigned(x, y, size, saturated);
-		else
-			return saturatingSubUnsigned(x, y, size, saturated);
+	@Override
+	int getReadDoubleRegisters() {
+		return getDoubleRegisterMask(source1RegisterType, source1Index)
+				| getDoubleRegisterMask(source2RegisterType, source2Index)
+				| getDoubleRegisterMask(destinationRegisterType, destionationIndex);
+	}
+
+	@Override
+	int getWrittenDoubleRegisters() {
+		return getDoubleRegisterMask(destinationRegisterType, destionationIndex);
 	}
 
-	private long saturatingAddSigned(long x, long y, int size, Out<Boolean> saturated) {
+	private static long saturatingAddSigned(long x, long y, int size, Out<Boolean> saturated) {
 		saturated.setValue(false);
 		long max = DataTypeTools.getBitmaskLong(size - 1);
 		long min = ~max;
@@ -393,7 +916,7 @@ public class ArithmeticInstructions extends Instruction {
 		}
 	}
 
-	private long saturatingAddUnsigned(long x, long y, int size, Out<Boolean> saturated) {
+	private static long saturatingAddUnsigned(long x, long y, int size, Out<Boolean> saturated) {
 		long result = x + y;
 		result = DataTypeTools.getBitmaskLong(size) & result;
 		if (DataTypeTools.unsignedGreaterEqualThan(result, x)) {
@@ -407,14 +930,15 @@ public class ArithmeticInstructions extends Instruction {
 		}
 	}
 
-	private long saturatingSubSigned(long x, long y, int size, Out<Boolean> saturated) {
+	private static long saturatingSubSigned(long x, long y, int size, Out<Boolean> saturated) {
 		long max = DataTypeTools.getBitmaskLong(size - 1);
 		long min = ~max;
 		saturated.setValue(false);
 		if (y == min) {
-			if (x < 0) {
+			// -min does not fit, but x - min only overflows if x is not negative
+			if (x >= 0) {
 				saturated.setValue(true);
-				return min;
+				return max;
 			} else
 				return x - y;
 		}
@@ -434,7 +958,7 @@ public class ArithmeticInstructions extends Instruction {
 		}
 	}
 
-	private long saturatingSubUnsigned(long x, long y, int size, Out<Boolean> saturated) {
+	private static long saturatingSubUnsigned(long x, long y, int size, Out<Boolean> saturated) {
 		saturated.setValue(false);
 		if (DataTypeTools.unsignedGreaterThan(y, x)) {
 			saturated.setValue(true);
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+import java.util.Map;
+
+import com.arm.nevada.client.interpreter.machine.Machine;
+import com.arm.nevada.client.interpreter.machine.SpecialRegisters;
+import com.arm.nevada.client.parser.Arguments;
+import com.arm.nevada.client.parser.EnumInstruction;
+import com.arm.nevada.client.shared.SpecialBits;
+
+/**
+ * Branch to a label: b and the conditional branches by the APSR flags. The label is resolved by the
+ * {@link ProgramImage}, an unresolved branch does not step the PC.
+ */
+public class BranchInstruction extends Instruction {
+
+	private EnumInstruction instruction;
+	private String label;
+	private int targetIndex = -1;
+
+	public BranchInstruction(EnumInstruction instruction) {
+		this.instruction = instruction;
+	}
+
+	@Override
+	public void bindArguments(Arguments arguments) {
+		this.label = arguments.getLabel();
+	}
+
+	@Override
+	public Instruction copy() {
+		Instruction copy = super.copy();
+		((BranchInstruction) copy).targetIndex = targetIndex;
+		return copy;
+	}
+
+	@Override
+	boolean isBranch() {
+		return true;
+	}
+
+	@Override
+	boolean link(Map<String, Integer> labels) {
+		Integer index = labels.get(label);
+		targetIndex = index == null ? -1 : index;
+		return index != null;
+	}
+
+	/**
+	 * @return The index of the target instruction, or -1 if the label is not resolved.
+	 */
+	public int getTargetIndex() {
+		return targetIndex;
+	}
+
+	@Override
+	public void execute(Machine machine) {
+		if (targetIndex < 0) {
+			return;
+		}
+		if (isConditionPassed(machine.getSpecialRegisters())) {
+			machine.setPC(4 * targetIndex);
+		} else {
+			machine.incrementPCBy4();
+		}
+	}
+
+	private boolean isConditionPassed(SpecialRegisters registers) {
+		boolean n = registers.getAPSRFlag(SpecialBits.APSR_N);
+		boolean z = registers.getAPSRFlag(SpecialBits.APSR_Z);
+		boolean v = registers.getAPSRFlag(SpecialBits.APSR_V);
+		switch (instruction) {
+		case b:
+			return true;
+		case beq:
+			return z;
+		case bne:
+			return !z;
+		case bgt:
+			return !z && n == v;
+		case blt:
+			return n != v;
+		case bge:
+			return n == v;
+		case ble:
+			return z || n != v;
+		default:
+			assert false;
+			return false;
+		}
+	}
+
+	@Override
+	public EnumInstruction getInstructionName() {
+		return instruction;
+	}
+
+	@Override
+	public Instruction create() {
+		return new BranchInstruction(instruction);
+	}
+
+	@Override
+	public EnumDataType getDataType() {
+		return null;
+	}
+
+	@Override
+	int getReadDoubleRegisters() {
+		return 0;
+	}
+
+	@Override
+	int getWrittenDoubleRegisters() {
+		return 0;
+	}
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
+import com.arm.nevada.client.parser.EnumRegisterType;
+
+/**
+ * Byte permutation of D registers, the common engine of vzip, vuzp, vtrn, vrev, vext and vswp. The input registers are
+ * concatenated into one byte vector, and every byte of the output registers is taken from the precomputed source
+ * index of that vector. The index vector is built once when the instruction is bound, the execution only gathers.
+ * <p>
+ * The bytes are moved in the largest units which the permutation keeps together, e.g. in 4 byte units for vzip.32.
+ * The table lookup of vtbl and vtbx, where the indexes are data, is in {@link #lookup(long[], int, int, long, long)}.
+ */
+public class ByteShuffle extends BlockOperation {
+	private final int[] inputDoubles;
+	private final int[] outputDoubles;
+	private final int[] sources;
+
+	// the permutation of the units, by output unit
+	private final int unitBits;
+	private final long unitMask;
+	private final int[] unitInputDoubles;
+	private final int[] unitInputShifts;
+	private final int[] unitOutputShifts;
+
+	// reused by every execution, the outputs may overlap the inputs
+	private final long[] inputs;
+	private final long[] outputs;
+
+	/**
+	 * @param inputDoubles
+	 *            The D registers concatenated into the input byte vector, the first one is the lowest.
+	 * @param outputDoubles
+	 *            The D registers written with the output bytes, in this order.
+	 * @param sources
+	 *            The index of the input byte for every output byte.
+	 */
+	public ByteShuffle(int[] inputDoubles, int[] outputDoubles, int[] sources) {
+		assert sources.length == 8 * outputDoubles.length;
+		this.inputDoubles = inputDoubles;
+		this.outputDoubles = outputDoubles;
+		this.sources = sources;
+		this.inputs = new long[inputDoubles.length];
+		this.outputs = new long[outputDoubles.length];
+
+		int unitBytes = 8;
+		while (unitBytes > 1 && !isKeptTogether(sources, unitBytes)) {
+			unitBytes /= 2;
+		}
+		this.unitBits = 8 * unitBytes;
+		this.unitMask = unitBits == 64 ? -1L : (1L << unitBits) - 1;
+		int unitCount = sources.length / unitBytes;
+		this.unitInputDoubles = new int[unitCount];
+		this.unitInputShifts = new int[unitCount];
+		this.unitOutputShifts = new int[unitCount];
+		for (int unit = 0; unit < unitCount; unit++) {
+			int source = sources[unit * unitBytes];
+			unitInputDoubles[unit] = source / 8;
+			unitInputShifts[unit] = source % 8 * 8;
+			unitOutputShifts[unit] = unit * unitBytes % 8 * 8;
+		}
+	}
+
+	/**
+	 * @return True if the aligned units of the output come from aligned units of the input unchanged.
+	 */
+	private static boolean isKeptTogether(int[] sources, int unitBytes) {
+		for (int i = 0; i < sources.length; i += unitBytes) {
+			if (sources[i] % unitBytes != 0) {
+				return false;
+			}
+			for (int k = 1; k < unitBytes; k++) {
+				if (sources[i + k] != sources[i] + k) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	public int[] getInputDoubles() {
+		return inputDoubles;
+	}
+
+	public int[] getOutputDoubles() {
+		return outputDoubles;
+	}
+
+	/**
+	 * @return The index of the input byte for every output byte.
+	 */
+	public int[] getSources() {
+		return sources;
+	}
+
+	/**
+	 * Executes the permutation on a detached copy of the D registers.
+	 */
+	@Override
+	public boolean execute(long[] doubleRegisters) {
+		for (int i = 0; i < inputDoubles.length; i++) {
+			inputs[i] = doubleRegisters[inputDoubles[i]];
+		}
+		permute();
+		for (int i = 0; i < outputDoubles.length; i++) {
+			doubleRegisters[outputDoubles[i]] = outputs[i];
+		}
+		return false;
+	}
+
+	/**
+	 * Executes the permutation on the registers of the machine, the output registers are written in order.
+	 */
+	public void execute(NEONRegisterSet neonRegSet) {
+		for (int i = 0; i < inputDoubles.length; i++) {
+			inputs[i] = neonRegSet.getDoubleRegister(inputDoubles[i]);
+		}
+		permute();
+		for (int i = 0; i < outputDoubles.length; i++) {
+			neonRegSet.setDoubleRegister(outputDoubles[i], outputs[i], true);
+		}
+	}
+
+	private void permute() {
+		int unitsPerDouble = 64 / unitBits;
+		for (int i = 0; i < outputs.length; i++) {
+			outputs[i] = 0;
+		}
+		for (int unit = 0; unit < unitInputDoubles.length; unit++) {
+			long value = (inputs[unitInputDoubles[unit]] >>> unitInputShifts[unit]) & unitMask;
+			outputs[unit / unitsPerDouble] |= value << unitOutputShifts[unit];
+		}
+	}
+
+	/**
+	 * Creates the operation of the installed {@link LaneBackend}, or returns this shuffle.
+	 */
+	BlockOperation compile() {
+		BlockOperation operation = LaneBackend.createInstalledShuffle(this);
+		return operation != null ? operation : this;
+	}
+
+	/**
+	 * @return The D registers of a D or Q register.
+	 */
+	static int[] getDoubles(EnumRegisterType registerType, int index) {
+		if (registerType == EnumRegisterType.QUAD) {
+			return new int[] { 2 * index, 2 * index + 1 };
+		}
+		return new int[] { index };
+	}
+
+	private static int[] concat(int[] first, int[] second) {
+		int[] result = new int[first.length + second.length];
+		System.arraycopy(first, 0, result, 0, first.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+
+	/**
+	 * @param laneSources
+	 *            The index of the input lane for every output lane.
+	 * @return The sources of the bytes of the lanes.
+	 */
+	private static int[] getByteSources(int[] laneSources, int size) {
+		int laneBytes = size / 8;
+		int[] sources = new int[laneSources.length * laneBytes];
+		for (int lane = 0; lane < laneSources.length; lane++) {
+			for (int k = 0; k < laneBytes; k++) {
+				sources[lane * laneBytes + k] = laneSources[lane] * laneBytes + k;
+			}
+		}
+		return sources;
+	}
+
+	/**
+	 * vzip: the lanes of the two registers are interleaved, the lower half of the result goes to the first register.
+	 */
+	static ByteShuffle zip(EnumRegisterType registerType, int size, int index1, int index2) {
+		int lanes = registerType.getSize() / size;
+		int[] laneSources = new int[2 * lanes];
+		for (int lane = 0; lane < 2 * lanes; lane++) {
+			laneSources[lane] = lane % 2 * lanes + lane / 2;
+		}
+		return createPair(registerType, size, index1, index2, laneSources);
+	}
+
+	/**
+	 * vuzp: the even lanes of the two registers go to the first register, the odd lanes to the second.
+	 */
+	static ByteShuffle unzip(EnumRegisterType registerType, int size, int index1, int index2) {
+		int lanes = registerType.getSize() / size;
+		int[] laneSources = new int[2 * lanes];
+		for (int lane = 0; lane < 2 * lanes; lane++) {
+			laneSources[lane] = lane < lanes ? 2 * lane : 2 * (lane - lanes) + 1;
+		}
+		return createPair(registerType, size, index1, index2, laneSources);
+	}
+
+	/**
+	 * vtrn: the odd lanes of the first register are exchanged with the even lanes of the second register.
+	 */
+	static ByteShuffle transpose(EnumRegisterType registerType, int size, int index1, int index2) {
+		int lanes = registerType.getSize() / size;
+		int[] laneSources = new int[2 * lanes];
+		for (int lane = 0; lane < lanes; lane++) {
+			laneSources[lane] = lane % 2 == 1 ? lanes + lane - 1 : lane;
+			laneSources[lanes + lane] = lane % 2 == 0 ? lane + 1 : lanes + lane;
+		}
+		return createPair(registerType, size, index1, index2, laneSources);
+	}
+
+	/**
+	 * vswp: the two registers are exchanged.
+	 */
+	static ByteShuffle swap(EnumRegisterType registerType, int index1, int index2) {
+		int bytes = registerType.getSize() / 8;
+		int[] sources = new int[2 * bytes];
+		for (int i = 0; i < 2 * bytes; i++) {
+			sources[i] = (i + bytes) % (2 * bytes);
+		}
+		int[] doubles = concat(getDoubles(registerType, index1), getDoubles(registerType, index2));
+		return new ByteShuffle(doubles, doubles, sources);
+	}
+
+	/**
+	 * Both registers are inputs and outputs, the lane sources are over their concatenation.
+	 */
+	private static ByteShuffle createPair(EnumRegisterType registerType, int size, int index1, int index2,
+			int[] laneSources) {
+		int[] doubles = concat(getDoubles(registerType, index1), getDoubles(registerType, index2));
+		return new ByteShuffle(doubles, doubles, getByteSources(laneSources, size));
+	}
+
+	/**
+	 * vrev16, vrev32 and vrev64: the order of the lanes is reversed in every region.
+	 */
+	static ByteShuffle reverse(EnumRegisterType registerType, int size, int regionSize, int destinationIndex,
+			int sourceIndex) {
+		int lanes = registerType.getSize() / size;
+		int lanesPerRegion = regionSize / size;
+		int[] laneSources = new int[lanes];
+		for (int lane = 0; lane < lanes; lane++) {
+			int region = lane / lanesPerRegion;
+			laneSources[lane] = region * lanesPerRegion + (lanesPerRegion - lane % lanesPerRegion - 1);
+		}
+		return new ByteShuffle(getDoubles(registerType, sourceIndex), getDoubles(registerType, destinationIndex),
+				getByteSources(laneSources, size));
+	}
+
+	/**
+	 * vext: the bytes from the byte offset of the first source, then from the beginning of the second source.
+	 */
+	static ByteShuffle extract(EnumRegisterType registerType, int byteOffset, int destinationIndex,
+			int source1Index, int source2Index) {
+		int bytes = registerType.getSize() / 8;
+		int[] sources = new int[bytes];
+		for (int i = 0; i < bytes; i++) {
+			sources[i] = byteOffset + i;
+		}
+		return new ByteShuffle(concat(getDoubles(registerType, source1Index), getDoubles(registerType, source2Index)),
+				getDoubles(registerType, destinationIndex), sources);
+	}
+
+	/**
+	 * vtbl and vtbx: every byte of the index vector selects a byte of the table.
+	 * 
+	 * @param doubleRegisters
+	 *            The table is in consecutive D registers of this array.
+	 * @param tableStart
+	 *            The index of the first D register of the table.
+	 * @param tableLength
+	 *            The number of D registers in the table.
+	 * @param fallback
+	 *            The bytes of the result where the index is out of the table: zero for vtbl, the destination for vtbx.
+	 */
+	static long lookup(long[] doubleRegisters, int tableStart, int tableLength, long indexVector, long fallback) {
+		long result = 0;
+		for (int i = 0; i < 8; i++) {
+			int index = (int) (indexVector >>> (8 * i)) & 0xFF;
+			long value;
+			if (index < 8 * tableLength) {
+				value = doubleRegisters[tableStart + (index >>> 3)] >>> (8 * (index & 7));
+			} else {
+				value = fallback >>> (8 * i);
+			}
+			result |= (value & 0xFF) << (8 * i);
+		}
+		return result;
+	}
+}
@@ -35,6 +35,7 @@ import com.arm.nevada.client.parser.EnumInstruction;
 import com.arm.nevada.client.parser.EnumRegisterType;
 import com.arm.nevada.client.shared.SpecialRegiser;
 import com.arm.nevada.client.utils.DataTypeTools;
+import com.arm.nevada.client.utils.SwarTools;
 
 public class ComparisonInstruction extends Instruction {
 
@@ -57,6 +58,7 @@ public class ComparisonInstruction extends Instruction {
 	private Compare compareType;
 	private EnumInstruction instruction;
 	private EnumRegisterType registerType;
+	private DoubleRegisterKernel doubleRegisterKernel;
 
 	private static final int falseValue = 0;
 	private static final int trueValue = 0xFFFFFFFF;
@@ -137,29 +139,142 @@ public class ComparisonInstruction extends Instruction {
 				source2RegisterIndex = registerIndexes.get(2);
 			}
 		}
+		doubleRegisterKernel = createDoubleRegisterKernel();
+	}
+
+	/**
+	 * @return The SWAR kernel of the integer comparisons on 8 and 16 bit lanes, null for the other types.
+	 */
+	private DoubleRegisterKernel createDoubleRegisterKernel() {
+		final int size = dateType.getSizeInBits();
+		if (!dateType.isInteger() || (size != 8 && size != 16)) {
+			return null;
+		}
+		final boolean signed = dateType.getSigned() != null && dateType.getSigned();
+		switch (compareType) {
+		case equal:
+			return new DoubleRegisterKernel() {
+				long run(long operand1, long operand2, long dest) {
+					return SwarTools.equal(operand1, operand2, size);
+				}
+			};
+		case greaterThan:
+			return new DoubleRegisterKernel() {
+				long run(long operand1, long operand2, long dest) {
+					return SwarTools.greaterThan(operand1, operand2, size, signed);
+				}
+			};
+		case greaterEqual:
+			return new DoubleRegisterKernel() {
+				long run(long operand1, long operand2, long dest) {
+					return SwarTools.greaterEqual(operand1, operand2, size, signed);
+				}
+			};
+		case lessThan:
+			return new DoubleRegisterKernel() {
+				long run(long operand1, long operand2, long dest) {
+					return SwarTools.greaterThan(operand2, operand1, size, signed);
+				}
+			};
+		case lessEqual:
+			return new DoubleRegisterKernel() {
+				long run(long operand1, long operand2, long dest) {
+					return SwarTools.greaterEqual(operand2, operand1, size, signed);
+				}
+			};
+		case test:
+			if (signed) {
+				return null;
+			}
+			return new DoubleRegisterKernel() {
+				long run(long operand1, long operand2, long dest) {
+					return SwarTools.test(operand1, operand2, size);
+				}
+			};
+		}
+		return null;
+	}
+
+	private int getSource2Index() {
+		return compareToZero ? LaneBackend.zeroOperand : source2RegisterIndex;
 	}
 
 	@Override
 	public void execute(Machine machine) {
 		NEONRegisterSet neonRegisterSet = machine.getNEONRegisterSet();
-		int[] source1Parts = DataTypeTools.getParts(dateType.getSizeInBits(), neonRegisterSet.getRegisterValues(registerType, source1RegisterIndex));
-		int[] source2Parts;
-		if (compareToZero)
-			source2Parts = new int[source1Parts.length]; // default zero
-		else
-			source2Parts = DataTypeTools.getParts(dateType.getSizeInBits(), neonRegisterSet.getRegisterValues(registerType, source2RegisterIndex));
-		int[] resultParts = new int[source1Parts.length];
-
-		for (int partI = 0; partI < source1Parts.length; partI++) {
-			int result = calculate(source1Parts[partI], source2Parts[partI], machine);
-			resultParts[partI] = result;
+		if (doubleRegisterKernel != null && registerType != EnumRegisterType.SINGLE) {
+			doubleRegisterKernel.execute(neonRegisterSet, registerType, destinationRegisterIndex, source1RegisterIndex,
+					getSource2Index());
+			highlightDestinationRegisters(machine);
+			machine.incrementPCBy4();
+			return;
+		}
+		int size = dateType.getSizeInBits();
+		int laneCount = NEONRegisterSet.getLaneCount(registerType, size);
+		for (int partI = 0; partI < laneCount; partI++) {
+			int source1 = neonRegisterSet.getLaneInt(registerType, source1RegisterIndex, size, partI);
+			int source2 = compareToZero ? 0 : neonRegisterSet.getLaneInt(registerType, source2RegisterIndex, size, partI);
+			int result = calculate(source1, source2, machine);
+			neonRegisterSet.setLane(registerType, destinationRegisterIndex, size, partI, result, false);
 		}
-		int[] outWords = DataTypeTools.createWordsFromOnePartPerWord(dateType.getSizeInBits(), resultParts);
-		neonRegisterSet.setRegisterValues(registerType, true, destinationRegisterIndex, outWords);
+		neonRegisterSet.fireRegisterChanged(registerType, destinationRegisterIndex);
 		highlightDestinationRegisters(machine);
 		machine.incrementPCBy4();
 	}
 
+	@Override
+	public BlockOperation compile() {
+		int size = dateType.getSizeInBits();
+		boolean signed = dateType.getSigned() != null && dateType.getSigned();
+		if (!dateType.isInteger() || size == 64 || registerType == EnumRegisterType.SINGLE
+				|| (compareType == Compare.test && signed)) {
+			return null;
+		}
+		int source1 = source1RegisterIndex;
+		int source2 = getSource2Index();
+		LaneBackend.Operation backendOperation = null;
+		switch (compareType) {
+		case equal:
+			backendOperation = LaneBackend.Operation.equal;
+			break;
+		case greaterThan:
+			backendOperation = LaneBackend.Operation.greaterThan;
+			break;
+		case greaterEqual:
+			backendOperation = LaneBackend.Operation.greaterEqual;
+			break;
+		case lessThan:
+			backendOperation = LaneBackend.Operation.greaterThan;
+			source1 = source2;
+			source2 = source1RegisterIndex;
+			break;
+		case lessEqual:
+			backendOperation = LaneBackend.Operation.greaterEqual;
+			source1 = source2;
+			source2 = source1RegisterIndex;
+			break;
+		case test:
+			backendOperation = LaneBackend.Operation.test;
+			break;
+		}
+		BlockOperation operation = LaneBackend.createInstalledOperation(backendOperation, registerType, size, signed,
+				destinationRegisterIndex, source1, source2);
+		if (operation == null && doubleRegisterKernel != null) {
+			operation = doubleRegisterKernel.compile(registerType, destinationRegisterIndex, source1RegisterIndex,
+					getSource2Index());
+		}
+		return operation;
+	}
+
+	@Override
+	public LockstepOperation compileLockstep() {
+		if (doubleRegisterKernel == null || registerType == EnumRegisterType.SINGLE) {
+			return null;
+		}
+		return doubleRegisterKernel.compileLockstep(registerType, destinationRegisterIndex, source1RegisterIndex,
+				getSource2Index());
+	}
+
 	private void highlightDestinationRegisters(Machine machine) {
 		machine.highlightNEONRegister(registerType, destinationRegisterIndex);
 	}
@@ -175,7 +290,7 @@ public class ComparisonInstruction extends Instruction {
 				f1 = Math.abs(f1);
 				f2 = Math.abs(f2);
 			}
-			if (new Float(f1).isNaN() || new Float(f2).isNaN())
+			if (Float.isNaN(f1) || Float.isNaN(f2))
 				return falseValue;
 			switch (compareType) {
 			case equal:
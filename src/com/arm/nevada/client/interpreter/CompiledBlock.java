@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+import java.util.List;
+
+import com.arm.nevada.client.interpreter.machine.Machine;
+import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
+import com.arm.nevada.client.interpreter.machine.Storage;
+
+/**
+ * Straight-line sequence of instructions compiled into {@link BlockOperation}s. The D registers are loaded once into
+ * a local array, the operations work on it and the changed registers are written back when the block exits or an
+ * instruction without compiled form has to be interpreted. The block has no breakpoints and highlights nothing, the
+ * observer only gets the register writes.
+ * <p>
+ * In conformance mode every execution is repeated by the interpreter on a fork of the machine and the two results
+ * are compared.
+ */
+public class CompiledBlock {
+	private static final int doubleRegisterCount = 32;
+
+	private final Instruction[] instructions;
+	private final BlockOperation[] operations;
+	private final int compiledCount;
+	private boolean conformanceCheck = false;
+
+	// register buffers, reused by every execution
+	private final long[] doubleRegisters = new long[doubleRegisterCount];
+	private final long[] loadedDoubleRegisters = new long[doubleRegisterCount];
+
+	/**
+	 * @param instructions
+	 *            Bound instructions, the block keeps them for the interpreted operations.
+	 */
+	public CompiledBlock(List<Instruction> instructions) {
+		this.instructions = instructions.toArray(new Instruction[instructions.size()]);
+		this.operations = new BlockOperation[this.instructions.length];
+		int count = 0;
+		for (int i = 0; i < operations.length; i++) {
+			operations[i] = this.instructions[i].compile();
+			if (operations[i] != null) {
+				count++;
+			}
+		}
+		this.compiledCount = count;
+	}
+
+	public int getInstructionCount() {
+		return instructions.length;
+	}
+
+	/**
+	 * @return The number of instructions which are not interpreted.
+	 */
+	public int getCompiledCount() {
+		return compiledCount;
+	}
+
+	public boolean isConformanceCheck() {
+		return conformanceCheck;
+	}
+
+	/**
+	 * @param conformanceCheck
+	 *            If true, {@link #execute(Machine)} throws IllegalStateException when the compiled and the interpreted
+	 *            results differ.
+	 */
+	public void setConformanceCheck(boolean conformanceCheck) {
+		this.conformanceCheck = conformanceCheck;
+	}
+
+	/**
+	 * Executes the block from the current PC, which is incremented by 4 for every instruction. Stops early, like the
+	 * interpreter, if an interpreted instruction does not step the PC, and after a taken branch, which leaves the PC
+	 * at its target.
+	 * 
+	 * @return The number of executed instructions.
+	 */
+	public int execute(Machine machine) {
+		if (!conformanceCheck) {
+			return run(machine);
+		}
+		Machine reference = machine.fork();
+		int expectedCount = interpret(reference);
+		int count = run(machine);
+		if (count != expectedCount) {
+			throw new IllegalStateException("compiled block executed " + count + " instructions instead of "
+					+ expectedCount);
+		}
+		compare("PC", count, reference.getPC(), machine.getPC());
+		compare("NEON", count, reference.getNEONRegisterSet(), machine.getNEONRegisterSet());
+		compare("ARM", count, reference.getArmRegisterSet(), machine.getArmRegisterSet());
+		compare("special", count, reference.getSpecialRegisters(), machine.getSpecialRegisters());
+		compare("memory", count, reference.getMemorySet(), machine.getMemorySet());
+		return count;
+	}
+
+	private int run(Machine machine) {
+		NEONRegisterSet neon = machine.getNEONRegisterSet();
+		long[] registers = doubleRegisters;
+		load(neon);
+		int startPC = machine.getPC();
+		int i;
+		for (i = 0; i < operations.length; i++) {
+			BlockOperation operation = operations[i];
+			if (operation != null) {
+				if (operation.execute(registers)) {
+					instructions[i].setSaturationFlag(machine);
+				}
+				continue;
+			}
+			store(neon);
+			int pc = startPC + 4 * i;
+			machine.setPC(pc);
+			instructions[i].execute(machine);
+			if (machine.getPC() == pc) {
+				break;
+			}
+			if (machine.getPC() != pc + 4) {
+				// a taken branch leaves the block, the registers are stored already
+				return i + 1;
+			}
+			load(neon);
+		}
+		store(neon);
+		machine.setPC(startPC + 4 * i);
+		return i;
+	}
+
+	private int interpret(Machine machine) {
+		int pc = machine.getPC();
+		for (int i = 0; i < instructions.length; i++) {
+			instructions[i].execute(machine);
+			if (machine.getPC() == pc) {
+				return i;
+			}
+			if (machine.getPC() != pc + 4) {
+				return i + 1;
+			}
+			pc = machine.getPC();
+		}
+		return instructions.length;
+	}
+
+	private void load(NEONRegisterSet neon) {
+		for (int i = 0; i < doubleRegisterCount; i++) {
+			doubleRegisters[i] = neon.getDoubleRegister(i);
+			loadedDoubleRegisters[i] = doubleRegisters[i];
+		}
+	}
+
+	private void store(NEONRegisterSet neon) {
+		for (int i = 0; i < doubleRegisterCount; i++) {
+			if (doubleRegisters[i] != loadedDoubleRegisters[i]) {
+				neon.setDoubleRegister(i, doubleRegisters[i], true);
+				loadedDoubleRegisters[i] = doubleRegisters[i];
+			}
+		}
+	}
+
+	private static void compare(String name, int count, int expected, int actual) {
+		if (expected != actual) {
+			throw new IllegalStateException("compiled block differs after " + count + " instructions, " + name
+					+ " expected: " + expected + " actual: " + actual);
+		}
+	}
+
+	private static void compare(String name, int count, Storage expected, Storage actual) {
+		int size = expected.getSize();
+		compare(name + " size", count, size, actual.getSize());
+		for (int i = 0; i < size; i++) {
+			compare(name + " word " + i, count, expected.getOneValue(i), actual.getOneValue(i));
+		}
+	}
+}
@@ -46,6 +46,10 @@ public class ConversationInstruction extends Instruction {
 	private boolean fixed;
 	private boolean signed;
 
+	private int sourceSize;
+	private int resultSize;
+	private long[] resultParts;
+
 	public ConversationInstruction(EnumInstruction instruction, EnumRegisterType destinationRegisterType, boolean fixed) {
 		this.instruction = instruction;
 		this.destinationRegisterType = destinationRegisterType;
@@ -71,13 +75,7 @@ public class ConversationInstruction extends Instruction {
 			fractionBitCount = (int) arguments.getImmediateValue();
 		}
 		signed = !(dataType == EnumDataType._u32_f32 || dataType == EnumDataType._f32_u32);
-	}
 
-	@Override
-	public void execute(Machine machine) {
-		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
-		int sourceSize;
-		int resultSize;
 		if (dataType == EnumDataType._f32_f16) {
 			sourceSize = 16;
 			resultSize = 32;
@@ -88,42 +86,38 @@ public class ConversationInstruction extends Instruction {
 			sourceSize = dataType.getSizeInBits();
 			resultSize = dataType.getSizeInBits();
 		}
-		int[] sourceParts = DataTypeTools.createPartListFromWords(sourceSize, neonRegSet.getRegisterValues(sourceRegisterType, sourceIndex));
-		int[] resultParts = new int[sourceParts.length];
+		resultParts = new long[NEONRegisterSet.getLaneCount(sourceRegisterType, sourceSize)];
+	}
 
-		if (fixed) {
-			if (dataType == EnumDataType._s32_f32 || dataType == EnumDataType._u32_f32) {
-				for (int i = 0; i < sourceParts.length; i++) {
-					resultParts[i] = calculateSingleToFixed(sourceParts[i]);
-				}
-			} else if (dataType == EnumDataType._f32_s32 || dataType == EnumDataType._f32_u32) {
-				for (int i = 0; i < sourceParts.length; i++) {
-					resultParts[i] = calculateFixedToSingle(sourceParts[i]);
-				}
-			} else
-				assert false : "non valid instruction state";
-		} else {
-			if (dataType == EnumDataType._s32_f32 || dataType == EnumDataType._u32_f32) {
-				for (int i = 0; i < sourceParts.length; i++) {
-					resultParts[i] = calculateSingleToInteger(sourceParts[i]);
-				}
-			} else if (dataType == EnumDataType._f32_s32 || dataType == EnumDataType._f32_u32) {
-				for (int i = 0; i < sourceParts.length; i++) {
-					resultParts[i] = calculateIntegerToSingle(sourceParts[i]);
-				}
-			} else if (dataType == EnumDataType._f32_f16) {
-				for (int i = 0; i < sourceParts.length; i++) {
-					resultParts[i] = calculateHalfToSingle(sourceParts[i]);
-				}
-			} else if (dataType == EnumDataType._f16_f32) {
-				for (int i = 0; i < sourceParts.length; i++) {
-					resultParts[i] = calculateSingleToHalf(sourceParts[i]);
+	@Override
+	public void execute(Machine machine) {
+		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
+		int fpscr = machine.getSpecialRegisters().getFPSCR();
+		for (int i = 0; i < resultParts.length; i++) {
+			int source = neonRegSet.getLaneInt(sourceRegisterType, sourceIndex, sourceSize, i);
+			int result = 0;
+			if (fixed) {
+				if (dataType == EnumDataType._s32_f32 || dataType == EnumDataType._u32_f32) {
+					result = calculateSingleToFixed(source);
+				} else if (dataType == EnumDataType._f32_s32 || dataType == EnumDataType._f32_u32) {
+					result = calculateFixedToSingle(source);
+				} else
+					assert false : "non valid instruction state";
+			} else {
+				if (dataType == EnumDataType._s32_f32 || dataType == EnumDataType._u32_f32) {
+					result = calculateSingleToInteger(source);
+				} else if (dataType == EnumDataType._f32_s32 || dataType == EnumDataType._f32_u32) {
+					result = calculateIntegerToSingle(source);
+				} else if (dataType == EnumDataType._f32_f16) {
+					result = HalfPrecision.toSingle(source, fpscr);
+				} else if (dataType == EnumDataType._f16_f32) {
+					result = HalfPrecision.toHalf(source, fpscr);
 				}
 			}
+			resultParts[i] = result & 0xFFFFFFFFL;
 		}
 
-		int[] resultWords = DataTypeTools.createWordsFromOnePartPerWord(resultSize, resultParts);
-		neonRegSet.setRegisterValues(destinationRegisterType, true, destinationIndex, resultWords);
+		neonRegSet.setLanes(destinationRegisterType, destinationIndex, resultSize, resultParts, true);
 		machine.incrementPCBy4();
 		highlightRegisters(machine);
 
@@ -133,72 +127,6 @@ public class ConversationInstruction extends Instruction {
 		machine.highlightNEONRegister(destinationRegisterType, destinationIndex);
 	}
 
-	/**
-	 * http://stackoverflow.com/questions/6162651/half-precision-floating-point-in-java
-	 * 
-	 * @param hbits
-	 * @return
-	 */
-	private int calculateHalfToSingle(int hbits) {
-		int mant = hbits & 0x03ff; // 10 bits mantissa
-		int exp = hbits & 0x7c00; // 5 bits exponent
-		if (exp == 0x7c00) { // NaN/Inf
-			exp = 0x3fc00; // -> NaN/Inf
-			mant = 0x200;
-		}
-		else if (exp != 0) // normalized value
-		{
-			exp += 0x1c000; // exp - 15 + 127
-			if (mant == 0 && exp > 0x1c400) // smooth transition
-				return (hbits & 0x8000) << 16 | exp << 13 | 0x3ff;
-		}
-		else if (mant != 0){ // && exp==0 -> subnormal
-			exp = 0x1c400; // make it normal
-			do {
-				mant <<= 1; // mantissa * 2
-				exp -= 0x400; // decrease exp by 1
-			} while ((mant & 0x400) == 0); // while not normal
-			mant &= 0x3ff; // discard subnormal bit
-		} // else +/-0 -> +/-0
-		return // combine all parts
-		(hbits & 0x8000) << 16 // sign << ( 31 - 15 )
-				| (exp | mant) << 13; // value << ( 23 - 10 )
-	}
-
-	/**
-	 * http://stackoverflow.com/questions/6162651/half-precision-floating-point-in-java
-	 * 
-	 * @param single
-	 * @return
-	 */
-	private int calculateSingleToHalf(int single) {
-		int fbits = single;
-		int sign = fbits >>> 16 & 0x8000; // sign only
-		int val = (fbits & 0x7fffffff) + 0x1000; // rounded value
-
-		if (val >= 0x47800000) // might be or become NaN/Inf
-		{ // avoid Inf due to rounding
-			if ((fbits & 0x7fffffff) >= 0x47800000)
-			{ // is or must become NaN/Inf
-				if (val < 0x7f800000) // was value but too large
-					return sign | 0x7c00; // make it +/-Inf
-				return sign | 0x7c00 | // remains +/-Inf or NaN
-						(fbits & 0x007fffff) >>> 13; // keep NaN (and Inf) bits
-			}
-			return sign | 0x7bff; // unrounded not quite Inf
-		}
-		if (val >= 0x38800000) // remains normalized value
-			return sign | val - 0x38000000 >>> 13; // exp - 127 + 15
-		if (val < 0x33000000) // too small for subnormal
-			return sign; // becomes +/-0
-		val = (fbits & 0x7fffffff) >>> 23; // tmp exp for subnormal calc
-		int out = sign | ((fbits & 0x7fffff | 0x800000) // add subnormal bit
-				+ (0x800000 >>> val - 102) // round depending on cut off
-		>>> 126 - val); // div by 2^(1-(exp-127+15)) and >> 13 | exp=0
-
-		return out;
-	}
-
 	private int calculateFixedToSingle(int fixed) {
 		float single;
 		if (signed) {
@@ -227,7 +155,7 @@ public class ConversationInstruction extends Instruction {
 				if (longVal > DataTypeTools.getBitmaskLong(32))
 					fixed = -1; // full ones
 				else
-					fixed = DataTypeTools.integerFromLong(longVal)[0];
+					fixed = (int) longVal;
 			}
 		}
 		return fixed;
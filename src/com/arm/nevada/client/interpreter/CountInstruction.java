@@ -61,25 +61,23 @@ public class CountInstruction extends Instruction {
 	@Override
 	public void execute(Machine machine) {
 		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
-		int[] sourceParts = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(registerType, sourceIndex));
-		int[] resultParts = new int[sourceParts.length];
-
-		if (instruction == EnumInstruction.vcls) {
-			for (int i = 0; i < sourceParts.length; i++) {
-				resultParts[i] = countLeadingSignBits(sourceParts[i]);
-			}
-		} else if (instruction == EnumInstruction.vclz) {
-			for (int i = 0; i < sourceParts.length; i++) {
-				resultParts[i] = countLeadingZeros(sourceParts[i]);
+		int laneCount = NEONRegisterSet.getLaneCount(registerType, size);
+		for (int i = 0; i < laneCount; i++) {
+			int source = neonRegSet.getLaneInt(registerType, sourceIndex, size, i);
+			int result;
+			if (instruction == EnumInstruction.vcls) {
+				result = countLeadingSignBits(source);
+			} else if (instruction == EnumInstruction.vclz) {
+				result = countLeadingZeros(source);
+			} else if (instruction == EnumInstruction.vcnt) {
+				result = countSetBits(source);
+			} else {
+				assert false;
+				result = 0;
 			}
-		} else if (instruction == EnumInstruction.vcnt) {
-			for (int i = 0; i < sourceParts.length; i++) {
-				resultParts[i] = countSetBits(sourceParts[i]);
-			}
-		} else
-			assert false;
-		int[] resultWords = DataTypeTools.createWordsFromOnePartPerWord(size, resultParts);
-		neonRegSet.setRegisterValues(registerType, true, destinationIndex, resultWords);
+			neonRegSet.setLane(registerType, destinationIndex, size, i, result, false);
+		}
+		neonRegSet.fireRegisterChanged(registerType, destinationIndex);
 		machine.incrementPCBy4();
 		highlightRegisters(machine);
 	}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+import com.arm.nevada.client.interpreter.machine.ARMRegisterSet;
+import com.arm.nevada.client.interpreter.machine.Machine;
+import com.arm.nevada.client.parser.Arguments;
+import com.arm.nevada.client.parser.EnumInstruction;
+
+/**
+ * The core register instructions of the loops: add, adds, sub, subs, cmp and mov. The second operand is a register
+ * or any 32 bit immediate value, the modified immediate encoding of the ARM instruction set is not checked.
+ */
+public class DataProcessingInstruction extends Instruction {
+
+	private EnumInstruction instruction;
+	private boolean immediate;
+	private int destinationIndex;
+	private int firstOperandIndex;
+	private int secondOperandIndex;
+	private int immediateValue;
+
+	/**
+	 * @param immediate
+	 *            True if the last operand is an immediate value instead of a register.
+	 */
+	public DataProcessingInstruction(EnumInstruction instruction, boolean immediate) {
+		this.instruction = instruction;
+		this.immediate = immediate;
+	}
+
+	/**
+	 * The registers are: Rd, Rn, Rm for add and sub, where Rn may be omitted if it is the same as Rd. Rn, Rm for cmp
+	 * and Rd, Rm for mov. Rm is missing if the instruction has immediate value.
+	 */
+	@Override
+	public void bindArguments(Arguments arguments) {
+		int registerCount = arguments.getRegisterIndexes().size() + (immediate ? 1 : 0);
+		int index = 0;
+		if (instruction == EnumInstruction.cmp) {
+			this.destinationIndex = -1;
+		} else {
+			this.destinationIndex = arguments.getRegisterIndexes().get(index++);
+		}
+		if (instruction == EnumInstruction.mov) {
+			this.firstOperandIndex = -1;
+		} else if (registerCount == 2 && instruction != EnumInstruction.cmp) {
+			this.firstOperandIndex = destinationIndex;
+		} else {
+			this.firstOperandIndex = arguments.getRegisterIndexes().get(index++);
+		}
+		if (immediate) {
+			this.immediateValue = (int) arguments.getImmediateValue();
+		} else {
+			this.secondOperandIndex = arguments.getRegisterIndexes().get(index);
+		}
+	}
+
+	@Override
+	public void execute(Machine machine) {
+		ARMRegisterSet registers = machine.getArmRegisterSet();
+		int second = immediate ? immediateValue : registers.getOperandValue(secondOperandIndex);
+		if (instruction == EnumInstruction.mov) {
+			registers.setOneValue(destinationIndex, second, true);
+			machine.highlightARMRegister(destinationIndex);
+			machine.incrementPCBy4();
+			return;
+		}
+		int first = registers.getOperandValue(firstOperandIndex);
+		boolean add = instruction == EnumInstruction.add || instruction == EnumInstruction.adds;
+		int result = add ? first + second : first - second;
+		if (instruction == EnumInstruction.adds) {
+			// unsigned overflow if the result is lower than an operand
+			boolean carry = (result ^ 0x80000000) < (first ^ 0x80000000);
+			boolean overflow = ((first ^ result) & (second ^ result)) < 0;
+			machine.getSpecialRegisters().setAPSRFlags(result < 0, result == 0, carry, overflow, true);
+		} else if (instruction == EnumInstruction.subs || instruction == EnumInstruction.cmp) {
+			// the carry is NOT borrow
+			boolean carry = (first ^ 0x80000000) >= (second ^ 0x80000000);
+			boolean overflow = ((first ^ second) & (first ^ result)) < 0;
+			machine.getSpecialRegisters().setAPSRFlags(result < 0, result == 0, carry, overflow, true);
+		}
+		if (destinationIndex >= 0) {
+			registers.setOneValue(destinationIndex, result, true);
+			machine.highlightARMRegister(destinationIndex);
+		}
+		machine.incrementPCBy4();
+	}
+
+	@Override
+	public EnumInstruction getInstructionName() {
+		return instruction;
+	}
+
+	@Override
+	public Instruction create() {
+		return new DataProcessingInstruction(instruction, immediate);
+	}
+
+	@Override
+	public EnumDataType getDataType() {
+		return null;
+	}
+
+	@Override
+	int getReadDoubleRegisters() {
+		return 0;
+	}
+
+	@Override
+	int getWrittenDoubleRegisters() {
+		return 0;
+	}
+}
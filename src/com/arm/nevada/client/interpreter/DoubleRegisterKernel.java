@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
+import com.arm.nevada.client.parser.EnumRegisterType;
+
+/**
+ * Calculates a whole D register of the destination from the same D registers of the sources, e.g. by the
+ * {@link com.arm.nevada.client.utils.SwarTools} on 8 and 16 bit lanes. Used for DOUBLE and QUAD registers, a QUAD
+ * register is calculated as two D registers.
+ */
+abstract class DoubleRegisterKernel {
+
+	/**
+	 * @param dest
+	 *            The original value of the destination D register.
+	 * @return The new value of the destination D register.
+	 */
+	abstract long run(long operand1, long operand2, long dest);
+
+	/**
+	 * Executes the kernel on the register set, the sources can be {@link LaneBackend#zeroOperand}.
+	 */
+	void execute(NEONRegisterSet neonRegisterSet, EnumRegisterType type, int destinationIndex, int source1Index,
+			int source2Index) {
+		int doubleCount = type.getSize() / 64;
+		for (int i = 0; i < doubleCount; i++) {
+			long operand1 = source1Index == LaneBackend.zeroOperand ? 0 : neonRegisterSet.getDoubleRegister(
+					source1Index * doubleCount + i);
+			long operand2 = source2Index == LaneBackend.zeroOperand ? 0 : neonRegisterSet.getDoubleRegister(
+					source2Index * doubleCount + i);
+			int dest = destinationIndex * doubleCount + i;
+			neonRegisterSet.setDoubleRegister(dest, run(operand1, operand2, neonRegisterSet.getDoubleRegister(dest)),
+					true);
+		}
+	}
+
+	BlockOperation compile(EnumRegisterType type, int destinationIndex, int source1Index, int source2Index) {
+		final int doubleCount = type.getSize() / 64;
+		final int first = destinationIndex * doubleCount;
+		final int firstSource1 = source1Index == LaneBackend.zeroOperand ? -1 : source1Index * doubleCount;
+		final int firstSource2 = source2Index == LaneBackend.zeroOperand ? -1 : source2Index * doubleCount;
+		return new BlockOperation() {
+			public boolean execute(long[] doubleRegisters) {
+				for (int i = 0; i < doubleCount; i++) {
+					long operand1 = firstSource1 < 0 ? 0 : doubleRegisters[firstSource1 + i];
+					long operand2 = firstSource2 < 0 ? 0 : doubleRegisters[firstSource2 + i];
+					doubleRegisters[first + i] = run(operand1, operand2, doubleRegisters[first + i]);
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Same as {@link #compile(EnumRegisterType, int, int, int)} for a {@link LockstepEngine}, the kernel runs on the
+	 * registers of all machines in one loop.
+	 */
+	LockstepOperation compileLockstep(EnumRegisterType type, int destinationIndex, int source1Index,
+			int source2Index) {
+		final int doubleCount = type.getSize() / 64;
+		final int first = destinationIndex * doubleCount;
+		final int firstSource1 = source1Index == LaneBackend.zeroOperand ? -1 : source1Index * doubleCount;
+		final int firstSource2 = source2Index == LaneBackend.zeroOperand ? -1 : source2Index * doubleCount;
+		return new LockstepOperation() {
+			public void execute(long[][] doubleRegisters, int machineCount, boolean[] saturated) {
+				for (int i = 0; i < doubleCount; i++) {
+					long[] operand1 = firstSource1 < 0 ? null : doubleRegisters[firstSource1 + i];
+					long[] operand2 = firstSource2 < 0 ? null : doubleRegisters[firstSource2 + i];
+					long[] dest = doubleRegisters[first + i];
+					for (int k = 0; k < machineCount; k++) {
+						dest[k] = run(operand1 == null ? 0 : operand1[k], operand2 == null ? 0 : operand2[k],
+								dest[k]);
+					}
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+import com.arm.nevada.client.shared.SpecialBits;
+import com.arm.nevada.client.utils.DataTypeTools;
+
+/**
+ * Conversions between half and single precision by lookup tables, as the Advanced SIMD vcvt.f32.f16 and
+ * vcvt.f16.f32 do them: NaN is converted to the default NaN and denormal single inputs are flushed to zero. The
+ * alternative half-precision format (FPSCR.AHP) and the rounding mode (FPSCR.RMode) are taken from the FPSCR.
+ */
+final class HalfPrecision {
+	static final int roundToNearest = 0;
+	static final int roundTowardsPlusInfinity = 1;
+	static final int roundTowardsMinusInfinity = 2;
+	static final int roundTowardsZero = 3;
+
+	/**
+	 * The single of every IEEE half.
+	 */
+	private static final int[] singles = new int[1 << 16];
+
+	/**
+	 * The half is the base added to the significand of the single with its implicit bit shifted right by the shift,
+	 * by the biased exponent of the single. The significand overflows into the exponent of the half, so the
+	 * denormals, the rounding and the overflow to infinity need no special cases.
+	 */
+	private static final int[] halfBases = new int[256];
+	private static final int[] halfShifts = new int[256];
+
+	static {
+		for (int half = 0; half < singles.length; half++) {
+			singles[half] = calculateSingle(half);
+		}
+		for (int exponent = 1; exponent < 256; exponent++) {
+			int halfExponent = exponent - 127 + 15;
+			if (halfExponent >= 1) {
+				// normal, the implicit bit adds 1 to the exponent
+				halfBases[exponent] = (halfExponent - 1) << 10;
+				halfShifts[exponent] = 13;
+			} else {
+				// denormal, or zero rounded by the shifted out bits
+				halfBases[exponent] = 0;
+				halfShifts[exponent] = Math.min(14 - halfExponent, 25);
+			}
+		}
+	}
+
+	private HalfPrecision() {
+	}
+
+	private static int calculateSingle(int half) {
+		int sign = (half & 0x8000) << 16;
+		int exponent = (half >>> 10) & 0x1f;
+		int mantissa = half & 0x3ff;
+		if (exponent == 0x1f) {
+			return mantissa == 0 ? sign | 0x7f800000 : 0x7fc00000;
+		} else if (exponent == 0) {
+			if (mantissa == 0) {
+				return sign;
+			}
+			// denormal half, normal single
+			exponent = 1;
+			while ((mantissa & 0x400) == 0) {
+				mantissa <<= 1;
+				exponent--;
+			}
+			mantissa &= 0x3ff;
+		}
+		return sign | ((exponent - 15 + 127) << 23) | (mantissa << 13);
+	}
+
+	/**
+	 * @param half
+	 *            In the lower 16 bits.
+	 */
+	static int toSingle(int half, int fpscr) {
+		half &= 0xffff;
+		if ((half & 0x7c00) == 0x7c00 && DataTypeTools.getBit(fpscr, SpecialBits.FPSCR_AHP)) {
+			// the largest exponent is a normal one in the alternative format
+			return ((half & 0x8000) << 16) | ((0x1f - 15 + 127) << 23) | ((half & 0x3ff) << 13);
+		}
+		return singles[half];
+	}
+
+	/**
+	 * @return The half in the lower 16 bits.
+	 */
+	static int toHalf(int single, int fpscr) {
+		boolean alternative = DataTypeTools.getBit(fpscr, SpecialBits.FPSCR_AHP);
+		int roundingMode = (fpscr >>> SpecialBits.FPSCR_RMODE) & 3;
+		int sign = (single >>> 16) & 0x8000;
+		int exponent = (single >>> 23) & 0xff;
+		int mantissa = single & 0x7fffff;
+		if (exponent == 0xff) {
+			if (mantissa != 0) {
+				return alternative ? 0 : 0x7e00;
+			}
+			return sign | (alternative ? 0x7fff : 0x7c00);
+		} else if (exponent == 0) {
+			// zero, or denormal flushed to zero
+			return sign;
+		} else if (exponent >= (alternative ? 127 + 17 : 127 + 16)) {
+			return sign | overflow(alternative, roundingMode, sign != 0);
+		}
+		int significand = mantissa | 0x800000;
+		int shift = halfShifts[exponent];
+		int half = halfBases[exponent] + (significand >>> shift);
+		int dropped = significand & ((1 << shift) - 1);
+		if (dropped != 0 && isRoundedUp(roundingMode, sign != 0, dropped, 1 << (shift - 1), half)) {
+			half++;
+		}
+		if (alternative && half > 0x7fff) {
+			half = 0x7fff;
+		}
+		return sign | half;
+	}
+
+	/**
+	 * @return The result without the sign if the exponent is too large for the half.
+	 */
+	private static int overflow(boolean alternative, int roundingMode, boolean negative) {
+		if (alternative) {
+			return 0x7fff;
+		}
+		switch (roundingMode) {
+		case roundTowardsPlusInfinity:
+			return negative ? 0x7bff : 0x7c00;
+		case roundTowardsMinusInfinity:
+			return negative ? 0x7c00 : 0x7bff;
+		case roundTowardsZero:
+			return 0x7bff;
+		default:
+			return 0x7c00;
+		}
+	}
+
+	/**
+	 * @param dropped
+	 *            The shifted out bits of the significand, not zero.
+	 * @param halfway
+	 *            The value of the dropped bits halfway between the two halves.
+	 */
+	private static boolean isRoundedUp(int roundingMode, boolean negative, int dropped, int halfway, int half) {
+		switch (roundingMode) {
+		case roundTowardsPlusInfinity:
+			return !negative;
+		case roundTowardsMinusInfinity:
+			return negative;
+		case roundTowardsZero:
+			return false;
+		default:
+			// to nearest, ties to even
+			return dropped > halfway || (dropped == halfway && (half & 1) != 0);
+		}
+	}
+}
@@ -26,13 +26,34 @@
 
 package com.arm.nevada.client.interpreter;
 
+import java.util.Map;
+
 import com.arm.nevada.client.interpreter.machine.Machine;
 import com.arm.nevada.client.parser.Arguments;
 import com.arm.nevada.client.parser.EnumInstruction;
+import com.arm.nevada.client.parser.EnumRegisterType;
+import com.arm.nevada.client.shared.SpecialBits;
+import com.arm.nevada.client.utils.DataTypeTools;
 
 public abstract class Instruction {
 	
+	private static boolean intLanePaths = true;
+
 	private boolean breakpoint = false;
+	private String label;
+	private Arguments boundArguments;
+
+	/**
+	 * Enables the int-only paths of the instructions bound later. They calculate the lanes of maximum 32 bit without
+	 * long operations, which are emulated in the browser. Disabled only to compare the two paths.
+	 */
+	public static void setIntLanePaths(boolean enabled) {
+		intLanePaths = enabled;
+	}
+
+	public static boolean isIntLanePaths() {
+		return intLanePaths;
+	}
 
 	/**
 	 * Initializes the fields. Must be called before using the object.
@@ -42,6 +63,31 @@ public abstract class Instruction {
 	 */
 	public abstract void bindArguments(Arguments arguments);
 
+	/**
+	 * Same as {@link #bindArguments(Arguments)}, but the arguments are kept for {@link #copy()}.
+	 */
+	public void bind(Arguments arguments) {
+		boundArguments = arguments;
+		bindArguments(arguments);
+	}
+
+	/**
+	 * Creates an independent instruction with the same arguments, label and breakpoint, e.g. to execute the program on
+	 * an other thread, since the instructions keep their lane buffers between the executions.
+	 * 
+	 * @return This instruction if it was not bound by {@link #bind(Arguments)}.
+	 */
+	public Instruction copy() {
+		if (boundArguments == null) {
+			return this;
+		}
+		Instruction copy = create();
+		copy.bind(boundArguments);
+		copy.setBreakpoint(breakpoint);
+		copy.setLabel(label);
+		return copy;
+	}
+
 	public abstract void execute(Machine machine);
 
 	public abstract EnumInstruction getInstructionName();
@@ -50,6 +96,108 @@ public abstract class Instruction {
 
 	public abstract EnumDataType getDataType();
 
+	/**
+	 * Creates the operation executed by a {@link CompiledBlock} instead of this instruction. Must be called after
+	 * bindArguments.
+	 * 
+	 * @return Null if the instruction can't be compiled, the block interprets it then.
+	 */
+	public BlockOperation compile() {
+		return null;
+	}
+
+	/**
+	 * Creates the operation executed by a {@link LockstepEngine} on all of its machines at once. Must be called
+	 * after bindArguments.
+	 *
+	 * @return Null if there is no lockstep form, the engine uses {@link #compile()} or interprets the instruction
+	 *         then.
+	 */
+	public LockstepOperation compileLockstep() {
+		return null;
+	}
+
+	/**
+	 * @return True if the instruction reads or writes the memory, the other instructions are interpreted without it.
+	 */
+	boolean accessesMemory() {
+		return false;
+	}
+
+	/**
+	 * @return True if the instruction may set the PC to an other instruction than the next one.
+	 */
+	boolean isBranch() {
+		return false;
+	}
+
+	/**
+	 * Resolves the labels used by the instruction, called by the {@link ProgramImage} whenever the labels may have
+	 * changed.
+	 * 
+	 * @param labels
+	 *            The index of the instruction for each label of the program.
+	 * @return False if a label is not defined, the instruction can't be executed then.
+	 */
+	boolean link(Map<String, Integer> labels) {
+		return true;
+	}
+
+	/**
+	 * Sets the saturation flag when the compiled form of the instruction reports saturation. FPSCR.QC by default.
+	 */
+	void setSaturationFlag(Machine machine) {
+		int fpscr = machine.getSpecialRegisters().getFPSCR();
+		machine.getSpecialRegisters().setFPSCR(DataTypeTools.setBit(fpscr, true, SpecialBits.FPSCR_QC), true);
+	}
+
+	/**
+	 * Highlights the same as {@link #execute(Machine)}, used when the instruction was executed by its compiled form.
+	 */
+	void highlight(Machine machine) {
+	}
+
+	/**
+	 * @return The D registers read by the instruction, bit n stands for Dn. All bits are set if it is not known.
+	 */
+	int getReadDoubleRegisters() {
+		return -1;
+	}
+
+	/**
+	 * @return The D registers written by the instruction, bit n stands for Dn. All bits are set if it is not known.
+	 */
+	int getWrittenDoubleRegisters() {
+		return -1;
+	}
+
+	/**
+	 * @return The bits of the D registers overlapped by the register, see {@link #getReadDoubleRegisters()}.
+	 */
+	static int getDoubleRegisterMask(EnumRegisterType type, int index) {
+		switch (type) {
+		case SINGLE:
+			return 1 << (index >>> 1);
+		case DOUBLE:
+			return 1 << index;
+		case QUAD:
+			return 3 << (2 * index);
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * @return The label written before the instruction, or null.
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	public void setLabel(String label) {
+		this.label = label;
+	}
+
 	public boolean isBreakpoint() {
 		return breakpoint;
 	}
@@ -26,7 +26,6 @@
 
 package com.arm.nevada.client.interpreter;
 
-import java.util.LinkedList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -45,11 +44,16 @@ public class InstructionListForMachineController implements InstructionUpdatedIn
 	private static final Logger logger = Logger.getLogger(InstructionListForMachineController.class.getName());
 
 	private EventBus eventBus;
-	private List<Instruction> instructions;
+	private ProgramImage program;
 	private Machine machine;
 
+	/**
+	 * @param eventBus
+	 *            The instruction list follows the changes of the view through this bus. It can be null, then the
+	 *            instructions must be set by {@link #setInstructions(List)}.
+	 */
 	public InstructionListForMachineController(Machine machine, EventBus eventBus) {
-		this.instructions = new LinkedList<Instruction>();
+		this.program = ProgramImage.EMPTY;
 
 		this.machine = machine;
 		this.eventBus = eventBus;
@@ -64,15 +68,32 @@ public class InstructionListForMachineController implements InstructionUpdatedIn
 	 * @return The instruction by the Program Counter. If the PC is not valid then null.
 	 */
 	public Instruction getNextInstruction() {
-		int pc = getMachine().getPC();
-		if (pc % 4 != 0 || pc < 0 || pc / 4 > instructions.size() - 1) {
+		int index = getNextIndex();
+		if (index < 0) {
 			return null;
 		}
+		return program.get(index);
+	}
+
+	/**
+	 * @return The index of the instruction pointed by the PC, or -1 if the PC is not valid.
+	 */
+	public int getNextIndex() {
+		int pc = getMachine().getPC();
+		if ((pc & 3) != 0 || pc < 0 || pc >>> 2 >= program.getLength()) {
+			return -1;
+		}
+		return pc >>> 2;
+	}
 
-		return instructions.get(pc / 4);
+	public ProgramImage getProgram() {
+		return program;
 	}
 
 	private void registerEventHandlers() {
+		if (eventBus == null) {
+			return;
+		}
 		this.eventBus.addHandler(InstructionUpdatedInViewEvent.TYPE, this);
 		this.eventBus.addHandler(AllInstructionReplacedInViewEvent.TYPE, this);
 		this.eventBus.addHandler(RemoveInstructionFromViewEvent.TYPE, this);
@@ -82,25 +103,34 @@ public class InstructionListForMachineController implements InstructionUpdatedIn
 		return machine;
 	}
 
+	/**
+	 * Replaces the whole program.
+	 */
+	public void setInstructions(List<Instruction> instructions) {
+		this.program = new ProgramImage(instructions);
+	}
+
 	@Override
 	public void onAllInstructionReplacedInView(
 			AllInstructionReplacedInViewEvent event) {
-		instructions = event.getInstructionList();
+		setInstructions(event.getInstructionList());
 	}
 
 	@Override
 	public void onInstructionUpdatedInView(InstructionUpdatedInViewEvent event) {
-		instructions.set(event.getIndex(), event.getInstruction());
+		program.set(event.getIndex(), event.getInstruction());
 	}
 
 	@Override
 	public void onRemoveInstructionFromView(RemoveInstructionFromViewEvent event) {
-		instructions.remove(event.getIndex());
+		if (event.getIndex() < program.getLength()) {
+			program = program.remove(event.getIndex());
+		}
 		logger.log(Level.FINE, "remove in InstructionListForMachineController");
 	}
 
 	public int getInstructionCount() {
-		return instructions.size();
+		return program.getLength();
 	}
 
 }
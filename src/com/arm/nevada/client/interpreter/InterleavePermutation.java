@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+/**
+ * Lane permutation between the memory and the registers of the vld1-4 and vst1-4 instructions which access all lanes
+ * of the registers. The k. lane of the s. structure is the (k * structureCount + s). lane of the memory and the k.
+ * lane of the s. group of registers. The permutations are computed once for every structure count, lane size and
+ * register count, and the data is moved by double words.
+ */
+final class InterleavePermutation {
+	private static final int[] sizes = { 8, 16, 32 };
+	private static final int maxRegisterCount = 4;
+
+	// by structure count - 1, size index and register count - 1
+	private static final InterleavePermutation[][][] permutations =
+			new InterleavePermutation[4][sizes.length][maxRegisterCount];
+
+	static {
+		for (int structureCount = 1; structureCount <= 4; structureCount++) {
+			for (int sizeIndex = 0; sizeIndex < sizes.length; sizeIndex++) {
+				for (int registerCount = structureCount; registerCount <= maxRegisterCount;
+						registerCount += structureCount) {
+					permutations[structureCount - 1][sizeIndex][registerCount - 1] = new InterleavePermutation(
+							structureCount, sizes[sizeIndex], registerCount);
+				}
+			}
+		}
+	}
+
+	private final int size;
+	private final int registerCount;
+	private final long laneMask;
+	private final boolean identity;
+	// by the lane of the memory
+	private final int[] registerIndexes;
+	private final int[] registerShifts;
+
+	private InterleavePermutation(int structureCount, int size, int registerCount) {
+		this.size = size;
+		this.registerCount = registerCount;
+		this.laneMask = (1L << size) - 1;
+		this.identity = structureCount == 1;
+		final int lanesPerDouble = 64 / size;
+		final int lanesPerStructure = lanesPerDouble * registerCount / structureCount;
+		this.registerIndexes = new int[lanesPerDouble * registerCount];
+		this.registerShifts = new int[registerIndexes.length];
+		for (int structure = 0; structure < structureCount; structure++) {
+			for (int inStructure = 0; inStructure < lanesPerStructure; inStructure++) {
+				int registerLane = structure * lanesPerStructure + inStructure;
+				int memoryLane = inStructure * structureCount + structure;
+				registerIndexes[memoryLane] = registerLane / lanesPerDouble;
+				registerShifts[memoryLane] = registerLane % lanesPerDouble * size;
+			}
+		}
+	}
+
+	/**
+	 * @param size
+	 *            The lane size: 8, 16 or 32 bits. The 64 bit lanes are accessed as two 32 bit lanes.
+	 * @param registerCount
+	 *            The number of D registers, 1 to 4, a multiple of the structure count.
+	 */
+	static InterleavePermutation get(int structureCount, int size, int registerCount) {
+		int sizeIndex = size == 8 ? 0 : size == 16 ? 1 : 2;
+		InterleavePermutation permutation = permutations[structureCount - 1][sizeIndex][registerCount - 1];
+		if (permutation == null || sizes[sizeIndex] != size) {
+			throw new IllegalArgumentException("No permutation for " + structureCount + " structures of " + size
+					+ " bit lanes in " + registerCount + " registers");
+		}
+		return permutation;
+	}
+
+	int getRegisterCount() {
+		return registerCount;
+	}
+
+	/**
+	 * @param memory
+	 *            The double words of the memory, in address order.
+	 * @param registers
+	 *            Filled with the values of the registers, in register list order.
+	 */
+	void deinterleave(long[] memory, long[] registers) {
+		if (identity) {
+			System.arraycopy(memory, 0, registers, 0, registerCount);
+			return;
+		}
+		for (int d = 0; d < registerCount; d++) {
+			registers[d] = 0;
+		}
+		int lane = 0;
+		for (int d = 0; d < registerCount; d++) {
+			long doubleWord = memory[d];
+			for (int shift = 0; shift < 64; shift += size, lane++) {
+				registers[registerIndexes[lane]] |= ((doubleWord >>> shift) & laneMask) << registerShifts[lane];
+			}
+		}
+	}
+
+	/**
+	 * The inverse of {@link #deinterleave(long[], long[])}.
+	 */
+	void interleave(long[] registers, long[] memory) {
+		if (identity) {
+			System.arraycopy(registers, 0, memory, 0, registerCount);
+			return;
+		}
+		int lane = 0;
+		for (int d = 0; d < registerCount; d++) {
+			long doubleWord = 0;
+			for (int shift = 0; shift < 64; shift += size, lane++) {
+				doubleWord |= ((registers[registerIndexes[lane]] >>> registerShifts[lane]) & laneMask) << shift;
+			}
+			memory[d] = doubleWord;
+		}
+	}
+}
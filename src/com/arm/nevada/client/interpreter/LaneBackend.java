@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+import com.arm.nevada.client.parser.EnumRegisterType;
+
+/**
+ * Optional provider of the {@link BlockOperation}s of the simple lane-parallel integer instructions, e.g. by the
+ * vector unit of the host. The instructions ask the installed backend in {@link Instruction#compile()} and use their
+ * own scalar operations when there is no backend or it does not support the operation.
+ */
+public abstract class LaneBackend {
+
+	public enum Operation {
+		add,
+		subtract,
+		multiply,
+		multiplyAccumulate,
+		multiplySubtract,
+		and,
+		bitClear,
+		or,
+		orNot,
+		exclusiveOr,
+		minimum,
+		maximum,
+		equal,
+		greaterThan,
+		greaterEqual,
+		test,
+		absolute,
+		negate
+	}
+
+	/**
+	 * Source index of a zero operand, e.g. for the comparisons with zero.
+	 */
+	public static final int zeroOperand = -1;
+
+	private static LaneBackend installed = null;
+
+	/**
+	 * @param backend
+	 *            Null uninstalls the current backend. Affects only the blocks compiled later.
+	 */
+	public static void install(LaneBackend backend) {
+		installed = backend;
+	}
+
+	public static LaneBackend getInstalled() {
+		return installed;
+	}
+
+	/**
+	 * Asks the installed backend for the operation.
+	 * 
+	 * @return Null if there is no backend or it does not support the operation.
+	 */
+	static BlockOperation createInstalledOperation(Operation operation, EnumRegisterType type, int size,
+			boolean signed, int destinationIndex, int source1Index, int source2Index) {
+		if (installed == null || type == EnumRegisterType.SINGLE) {
+			return null;
+		}
+		return installed.createOperation(operation, type, size, signed, destinationIndex, source1Index, source2Index);
+	}
+
+	/**
+	 * Asks the installed backend for the operation of the byte permutation.
+	 * 
+	 * @return Null if there is no backend or it does not support the permutation.
+	 */
+	static BlockOperation createInstalledShuffle(ByteShuffle shuffle) {
+		if (installed == null) {
+			return null;
+		}
+		return installed.createShuffle(shuffle);
+	}
+
+	/**
+	 * Creates an operation which calculates every lane of the destination register from the same lanes of the
+	 * sources. The destination lanes are written with the wrapped integer result, the comparisons write all ones or
+	 * zero.
+	 * 
+	 * @param type
+	 *            DOUBLE or QUAD, the type of every register.
+	 * @param size
+	 *            The lane size: 8, 16, 32 or 64.
+	 * @param signed
+	 *            Used by minimum, maximum, greaterThan and greaterEqual.
+	 * @param source2Index
+	 *            Not used by absolute and negate. Any of the sources can be {@link #zeroOperand}.
+	 * @return Null if the backend does not support the operation.
+	 */
+	public abstract BlockOperation createOperation(Operation operation, EnumRegisterType type, int size,
+			boolean signed, int destinationIndex, int source1Index, int source2Index);
+
+	/**
+	 * Creates an operation which writes the output D registers of the shuffle with the bytes selected by
+	 * {@link ByteShuffle#getSources()}. The outputs may overlap the inputs.
+	 * 
+	 * @return Null if the backend does not support the permutation, {@link ByteShuffle} executes it then.
+	 */
+	public BlockOperation createShuffle(ByteShuffle shuffle) {
+		return null;
+	}
+}
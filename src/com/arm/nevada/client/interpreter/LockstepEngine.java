@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.arm.nevada.client.interpreter;
+
+import java.util.List;
+
+import com.arm.nevada.client.interpreter.machine.ARMRegisterSet;
+import com.arm.nevada.client.interpreter.machine.Machine;
+import com.arm.nevada.client.interpreter.machine.MachineObserverAdapter;
+import com.arm.nevada.client.interpreter.machine.MemorySet;
+import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
+import com.arm.nevada.client.interpreter.machine.PagedMemorySet;
+import com.arm.nevada.client.interpreter.machine.SpecialRegisters;
+
+/**
+ * Executes a straight-line program on many machines in lockstep. The states are kept in structure-of-arrays layout,
+ * e.g. doubleRegisters[n][k] is Dn of the k. machine, and every instruction is executed once for all machines by
+ * its {@link LockstepOperation}. An instruction without lockstep form runs its {@link BlockOperation} on the machines
+ * one by one, or if it has no compiled form either, it is interpreted on a scratch machine loaded with the state of
+ * each machine in turn.
+ * <p>
+ * Every instruction is executed on every machine, like in the instruction tests a faulting instruction leaves the PC
+ * and the following ones are executed. The first fault of every machine is kept and reported to the observer of the
+ * machine by {@link #store(int, Machine)}. The machines must have the same memory class, size and offset. The memory
+ * of every machine is kept as its own copy-on-write fork, so a {@link PagedMemorySet} works outside of the window
+ * too.
+ */
+public class LockstepEngine {
+	private static final int doubleRegisterCount = 32;
+	private static final int armRegisterCount = 16;
+	private static final int pcIndex = 15;
+
+	private final Instruction[] instructions;
+	private final LockstepOperation[] operations;
+	private final int lockstepCount;
+	private final int machineCount;
+
+	// the state of the machines, the last index is the machine
+	private final long[][] doubleRegisters;
+	private final int[][] armRegisters;
+	private int[][] specialRegisters;
+	// the memory of every machine, swapped into the scratch machine for the interpreted memory accesses
+	private final MemorySet[] memories;
+
+	// interprets the instructions without compiled form, forked from the first loaded machine
+	private Machine scratch;
+	private final boolean[] saturated;
+
+	// the first fault of every machine: the instruction index or -1, the address and the expected alignment, which
+	// is 0 for a segmentation fault
+	private final int[] faultIndexes;
+	private final int[] faultAddresses;
+	private final int[] faultAlignments;
+	private final FaultRecorder faultRecorder = new FaultRecorder();
+
+	/**
+	 * Observer of the scratch machine, records the faults of the machine being interpreted.
+	 */
+	private class FaultRecorder extends MachineObserverAdapter {
+		int machine;
+		int instruction;
+
+		@Override
+		public void onAlignmentError(int address, int expectedAlignmentInBits) {
+			recordFault(address, expectedAlignmentInBits);
+		}
+
+		@Override
+		public void onSegmentationFault() {
+			recordFault(0, 0);
+		}
+
+		private void recordFault(int address, int alignment) {
+			if (faultIndexes[machine] < 0) {
+				faultIndexes[machine] = instruction;
+				faultAddresses[machine] = address;
+				faultAlignments[machine] = alignment;
+			}
+		}
+	}
+
+	/**
+	 * @param instructions
+	 *            Bound instructions, the engine keeps them for the interpreted operations.
+	 * @param machineCount
+	 *            The number of machines, their state is zero until {@link #load(int, Machine)}.
+	 * @throws IllegalArgumentException
+	 *             If the program has a branch.
+	 */
+	public LockstepEngine(List<Instruction> instructions, int machineCount) {
+		this.instructions = instructions.toArray(new Instruction[instructions.size()]);
+		this.operations = new LockstepOperation[this.instructions.length];
+		this.machineCount = machineCount;
+		int count = 0;
+		for (int i = 0; i < operations.length; i++) {
+			Instruction instruction = this.instructions[i];
+			if (instruction.isBranch()) {
+				throw new IllegalArgumentException("The program must be straight-line, instruction " + i
+						+ " is a branch.");
+			}
+			operations[i] = instruction.compileLockstep();
+			if (operations[i] != null) {
+				count++;
+				continue;
+			}
+			BlockOperation operation = instruction.compile();
+			if (operation != null) {
+				operations[i] = LockstepOperation.perMachine(operation, instruction.getReadDoubleRegisters(),
+						instruction.getWrittenDoubleRegisters());
+			}
+		}
+		this.lockstepCount = count;
+		doubleRegisters = new long[doubleRegisterCount][machineCount];
+		armRegisters = new int[armRegisterCount][machineCount];
+		saturated = new boolean[machineCount];
+		memories = new MemorySet[machineCount];
+		faultIndexes = new int[machineCount];
+		faultAddresses = new int[machineCount];
+		faultAlignments = new int[machineCount];
+		for (int k = 0; k < machineCount; k++) {
+			faultIndexes[k] = -1;
+		}
+	}
+
+	public int getInstructionCount() {
+		return instructions.length;
+	}
+
+	/**
+	 * @return The number of instructions executed for all machines at once.
+	 */
+	public int getLockstepCount() {
+		return lockstepCount;
+	}
+
+	public int getMachineCount() {
+		return machineCount;
+	}
+
+	/**
+	 * Copies the state of the machine into the k. slot of the engine, the memory is forked.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the memory class, size or offset differs from the first loaded machine.
+	 */
+	public void load(int k, Machine machine) {
+		MemorySet memorySet = machine.getMemorySet();
+		if (scratch == null) {
+			scratch = machine.fork();
+			scratch.setObserver(faultRecorder);
+			specialRegisters = new int[machine.getSpecialRegisters().getSize()][machineCount];
+		} else if (!hasScratchLayout(memorySet)) {
+			throw new IllegalArgumentException("The memory of machine " + k
+					+ " differs from the memory of the first loaded machine.");
+		}
+		read(k, machine.getNEONRegisterSet(), machine.getArmRegisterSet(), machine.getSpecialRegisters());
+		memories[k] = memorySet.fork();
+		faultIndexes[k] = -1;
+	}
+
+	/**
+	 * Copies the k. state of the engine into the machine, which must have the memory layout of the loaded machines.
+	 * The memory is taken over copy-on-write, which clears the journal of the machine. The observer is notified
+	 * about every value and about the first fault of the k. machine.
+	 */
+	public void store(int k, Machine machine) {
+		MemorySet memorySet = machine.getMemorySet();
+		if (scratch == null || !hasScratchLayout(memorySet)) {
+			throw new IllegalArgumentException("The memory of the machine differs from the memory of the engine.");
+		}
+		write(k, machine.getNEONRegisterSet(), machine.getArmRegisterSet(), machine.getSpecialRegisters(), true);
+		memorySet.copyStateFrom(memories[k]);
+		if (faultIndexes[k] >= 0) {
+			if (faultAlignments[k] != 0) {
+				machine.reportAlignmentError(faultAddresses[k], faultAlignments[k]);
+			} else {
+				machine.reportSegmentationFault();
+			}
+		}
+	}
+
+	private boolean hasScratchLayout(MemorySet memorySet) {
+		MemorySet scratchMemory = scratch.getMemorySet();
+		return memorySet.getClass() == scratchMemory.getClass() && memorySet.getSize() == scratchMemory.getSize()
+				&& memorySet.getOffset() == scratchMemory.getOffset();
+	}
+
+	/**
+	 * @return The index of the first instruction which faulted on the k. machine, or -1.
+	 */
+	public int getFaultIndex(int k) {
+		return faultIndexes[k];
+	}
+
+	/**
+	 * @return The value of the Dn register of the k. machine.
+	 */
+	public long getDoubleRegister(int k, int n) {
+		return doubleRegisters[n][k];
+	}
+
+	/**
+	 * Executes the whole program on every machine.
+	 * 
+	 * @throws IllegalStateException
+	 *             If no machine was loaded.
+	 */
+	public void execute() {
+		if (scratch == null) {
+			throw new IllegalStateException("No machine was loaded.");
+		}
+		for (int i = 0; i < instructions.length; i++) {
+			LockstepOperation operation = operations[i];
+			if (operation == null) {
+				for (int k = 0; k < machineCount; k++) {
+					interpret(i, k);
+				}
+				continue;
+			}
+			operation.execute(doubleRegisters, machineCount, saturated);
+			for (int k = 0; k < machineCount; k++) {
+				if (saturated[k]) {
+					saturated[k] = false;
+					setSaturationFlag(instructions[i], k);
+				}
+			}
+			int[] pc = armRegisters[pcIndex];
+			for (int k = 0; k < machineCount; k++) {
+				pc[k] += 4;
+			}
+		}
+	}
+
+	private void interpret(int index, int k) {
+		Instruction instruction = instructions[index];
+		boolean memoryAccess = instruction.accessesMemory();
+		MemorySet memorySet = scratch.getMemorySet();
+		write(k, scratch.getNEONRegisterSet(), scratch.getArmRegisterSet(), scratch.getSpecialRegisters(), false);
+		if (memoryAccess) {
+			memorySet.copyStateFrom(memories[k]);
+		}
+		faultRecorder.machine = k;
+		faultRecorder.instruction = index;
+		instruction.execute(scratch);
+		read(k, scratch.getNEONRegisterSet(), scratch.getArmRegisterSet(), scratch.getSpecialRegisters());
+		if (memoryAccess) {
+			memories[k] = memorySet.fork();
+		}
+	}
+
+	private void setSaturationFlag(Instruction instruction, int k) {
+		SpecialRegisters special = scratch.getSpecialRegisters();
+		for (int i = 0; i < specialRegisters.length; i++) {
+			special.setOneValue(i, specialRegisters[i][k], false);
+		}
+		instruction.setSaturationFlag(scratch);
+		for (int i = 0; i < specialRegisters.length; i++) {
+			specialRegisters[i][k] = special.getOneValue(i);
+		}
+	}
+
+	/**
+	 * Copies the registers into the k. slot.
+	 */
+	private void read(int k, NEONRegisterSet neon, ARMRegisterSet arm, SpecialRegisters special) {
+		for (int i = 0; i < doubleRegisterCount; i++) {
+			doubleRegisters[i][k] = neon.getDoubleRegister(i);
+		}
+		for (int i = 0; i < armRegisterCount; i++) {
+			armRegisters[i][k] = arm.getOneValue(i);
+		}
+		for (int i = 0; i < specialRegisters.length; i++) {
+			specialRegisters[i][k] = special.getOneValue(i);
+		}
+	}
+
+	/**
+	 * Copies the registers of the k. slot into the register sets.
+	 */
+	private void write(int k, NEONRegisterSet neon, ARMRegisterSet arm, SpecialRegisters special, boolean fireEvent) {
+		for (int i = 0; i < doubleRegisterCount; i++) {
+			neon.setDoubleRegister(i, doubleRegisters[i][k], fireEvent);
+		}
+		for (int i = 0; i < armRegisterCount; i++) {
+			arm.setOneValue(i, armRegisters[i][k], fireEvent);
+		}
+		for (int i = 0; i < specialRegisters.length; i++) {
+			special.setOneValue(i, specialRegisters[i][k], fireEvent);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.arm.nevada.client.interpreter;
+
+/**
+ * Compiled form of one instruction for a {@link LockstepEngine}, executed once for all of its machines. The D
+ * registers are in structure-of-arrays layout, doubleRegisters[n][k] is Dn of the k. machine.
+ */
+public abstract class LockstepOperation {
+
+	/**
+	 * @param doubleRegisters
+	 *            The D registers of the machines, read and written in place.
+	 * @param machineCount
+	 *            The number of machines, the arrays of the registers can be longer.
+	 * @param saturated
+	 *            Set to true for the machines on which the instruction saturated, see
+	 *            {@link Instruction#setSaturationFlag}.
+	 */
+	public abstract void execute(long[][] doubleRegisters, int machineCount, boolean[] saturated);
+
+	/**
+	 * Executes the block operation on the machines one by one. Only the given D registers are gathered into a local
+	 * array and only the written ones are scattered back.
+	 */
+	static LockstepOperation perMachine(final BlockOperation operation, int readDoubleRegisters,
+			int writtenDoubleRegisters) {
+		final int[] read = getIndexes(readDoubleRegisters | writtenDoubleRegisters);
+		final int[] written = getIndexes(writtenDoubleRegisters);
+		return new LockstepOperation() {
+			private final long[] registers = new long[32];
+
+			public void execute(long[][] doubleRegisters, int machineCount, boolean[] saturated) {
+				for (int k = 0; k < machineCount; k++) {
+					for (int i = 0; i < read.length; i++) {
+						registers[read[i]] = doubleRegisters[read[i]][k];
+					}
+					if (operation.execute(registers)) {
+						saturated[k] = true;
+					}
+					for (int i = 0; i < written.length; i++) {
+						doubleRegisters[written[i]][k] = registers[written[i]];
+					}
+				}
+			}
+		};
+	}
+
+	private static int[] getIndexes(int mask) {
+		int[] indexes = new int[Integer.bitCount(mask)];
+		int count = 0;
+		for (int i = 0; i < 32; i++) {
+			if ((mask & (1 << i)) != 0) {
+				indexes[count++] = i;
+			}
+		}
+		return indexes;
+	}
+}
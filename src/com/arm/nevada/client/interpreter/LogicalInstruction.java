@@ -31,7 +31,6 @@ import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
 import com.arm.nevada.client.parser.Arguments;
 import com.arm.nevada.client.parser.EnumInstruction;
 import com.arm.nevada.client.parser.EnumRegisterType;
-import com.arm.nevada.client.utils.DataTypeTools;
 
 public class LogicalInstruction extends Instruction {
 	private EnumRegisterType registerType;
@@ -41,6 +40,7 @@ public class LogicalInstruction extends Instruction {
 	private EnumDataType dataType;
 	private boolean immediate;
 	private long immedateValue;
+	private DoubleRegisterKernel doubleRegisterKernel;
 
 	public LogicalInstruction(EnumInstruction instruction, EnumRegisterType destinationRegisterType, boolean immediate) {
 		this.instructionName = instruction;
@@ -59,33 +59,154 @@ public class LogicalInstruction extends Instruction {
 		} else {
 			this.source2Index = arguments.getRegisterIndexes().get(2);
 		}
+		if (registerType == EnumRegisterType.SINGLE) {
+			doubleRegisterKernel = null;
+		} else {
+			doubleRegisterKernel = new DoubleRegisterKernel() {
+				long run(long operand1, long operand2, long dest) {
+					return calculate(operand1, immediate ? immedateValue : operand2, dest);
+				}
+			};
+		}
+	}
+
+	private int getSource2Index() {
+		return immediate ? LaneBackend.zeroOperand : source2Index;
 	}
 
 	@Override
 	public void execute(Machine machine) {
-		int size = 32; // do not change, unless rewrite this method
 		NEONRegisterSet neonRS = machine.getNEONRegisterSet();
-		int[] op1s = DataTypeTools.getParts(size, neonRS.getRegisterValues(registerType, source1Index));
-		int[] op2s;
-		int[] dests = DataTypeTools.getParts(size, neonRS.getRegisterValues(registerType, destinationIndex));
-		int[] resultWords = new int[op1s.length];
-		if (immediate) {
-			op2s = new int[op1s.length];
-			int[] immParts = DataTypeTools.integerFromLong(immedateValue);
-			for (int i = 0; i < op1s.length; i++) {
-				op2s[i] = immParts[i % 2];
+		if (doubleRegisterKernel != null) {
+			doubleRegisterKernel.execute(neonRS, registerType, destinationIndex, source1Index, getSource2Index());
+			machine.incrementPCBy4();
+			highlightChangedRegisters(machine);
+			return;
+		}
+		int wordCount = NEONRegisterSet.getLaneCount(registerType, 32);
+		for (int i = 0; i < wordCount; i++) {
+			int op1 = neonRS.getLaneInt(registerType, source1Index, 32, i);
+			int op2;
+			if (immediate) {
+				op2 = (int) (immedateValue >>> (32 * (i % 2)));
+			} else {
+				op2 = neonRS.getLaneInt(registerType, source2Index, 32, i);
 			}
-		} else {
-			op2s = DataTypeTools.getParts(32, neonRS.getRegisterValues(registerType, source2Index));
+			int dest = neonRS.getLaneInt(registerType, destinationIndex, 32, i);
+			neonRS.setLane(registerType, destinationIndex, 32, i, calculate(op1, op2, dest), false);
+		}
+		neonRS.fireRegisterChanged(registerType, destinationIndex);
+		machine.incrementPCBy4();
+		highlightChangedRegisters(machine);
+	}
+
+	@Override
+	public BlockOperation compile() {
+		if (doubleRegisterKernel == null) {
+			return null;
 		}
+		LaneBackend.Operation backendOperation = getBackendOperation();
+		if (backendOperation != null && !immediate) {
+			BlockOperation operation = LaneBackend.createInstalledOperation(backendOperation, registerType, 64, false,
+					destinationIndex, source1Index, source2Index);
+			if (operation != null) {
+				return operation;
+			}
+		}
+		return doubleRegisterKernel.compile(registerType, destinationIndex, source1Index, getSource2Index());
+	}
 
-		for (int i = 0; i < op1s.length; i++) {
-			resultWords[i] = calculate(op1s[i], op2s[i], dests[i]);
+	@Override
+	public LockstepOperation compileLockstep() {
+		if (doubleRegisterKernel == null) {
+			return null;
 		}
+		if (immediate) {
+			return doubleRegisterKernel.compileLockstep(registerType, destinationIndex, source1Index,
+					LaneBackend.zeroOperand);
+		}
+		final int doubleCount = registerType.getSize() / 64;
+		final int first = destinationIndex * doubleCount;
+		final int firstSource1 = source1Index * doubleCount;
+		final int firstSource2 = source2Index * doubleCount;
+		return new LockstepOperation() {
+			public void execute(long[][] doubleRegisters, int machineCount, boolean[] saturated) {
+				for (int i = 0; i < doubleCount; i++) {
+					long[] n = doubleRegisters[firstSource1 + i];
+					long[] m = doubleRegisters[firstSource2 + i];
+					long[] d = doubleRegisters[first + i];
+					switch (instructionName) {
+					case vand:
+						for (int k = 0; k < machineCount; k++) {
+							d[k] = n[k] & m[k];
+						}
+						break;
+					case vbic:
+						for (int k = 0; k < machineCount; k++) {
+							d[k] = n[k] & ~m[k];
+						}
+						break;
+					case vorr:
+						for (int k = 0; k < machineCount; k++) {
+							d[k] = n[k] | m[k];
+						}
+						break;
+					case veor:
+						for (int k = 0; k < machineCount; k++) {
+							d[k] = n[k] ^ m[k];
+						}
+						break;
+					default:
+						for (int k = 0; k < machineCount; k++) {
+							d[k] = calculate(n[k], m[k], d[k]);
+						}
+					}
+				}
+			}
+		};
+	}
 
-		neonRS.setRegisterValues(registerType, true, destinationIndex, resultWords);
-		machine.incrementPCBy4();
-		highlightChangedRegisters(machine);
+	private LaneBackend.Operation getBackendOperation() {
+		switch (getInstructionName()) {
+		case vand:
+			return LaneBackend.Operation.and;
+		case vbic:
+			return LaneBackend.Operation.bitClear;
+		case vorr:
+			return LaneBackend.Operation.or;
+		case veor:
+			return LaneBackend.Operation.exclusiveOr;
+		case vorn:
+			return LaneBackend.Operation.orNot;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Same as {@link #calculate(int, int, int)} on a whole D register, the operations are bitwise.
+	 */
+	private long calculate(long n, long m, long d) {
+		switch (getInstructionName()) {
+		case vand:
+			return n & m;
+		case vbic:
+			return n & ~m;
+		case vorr:
+			return n | m;
+		case veor:
+			return n ^ m;
+		case vorn:
+			return n | (~m);
+		case vbif:
+			return (d & m) | (n & ~m);
+		case vbit:
+			return (n & m) | (d & ~m);
+		case vbsl:
+			return (n & d) | (m & ~d);
+		}
+		assert false;
+		return 0;
 	}
 
 	private int calculate(int n, int m, int d) {
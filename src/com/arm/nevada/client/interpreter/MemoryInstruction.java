@@ -30,12 +30,11 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.arm.nevada.client.interpreter.machine.Machine;
+import com.arm.nevada.client.interpreter.machine.MemorySet;
+import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
 import com.arm.nevada.client.parser.Arguments;
 import com.arm.nevada.client.parser.EnumInstruction;
 import com.arm.nevada.client.parser.EnumRegisterType;
-import com.arm.nevada.client.shared.events.AlignmentErrorEvent;
-import com.arm.nevada.client.shared.events.SegmentationFaultEvent;
-import com.arm.nevada.client.utils.DataTypeTools;
 
 public class MemoryInstruction extends Instruction {
 	private static final Logger logger = Logger.getLogger(MemoryInstruction.class.getName());
@@ -59,6 +58,11 @@ public class MemoryInstruction extends Instruction {
 	private Integer offsetRegisterIndex = null;
 	private int alignmentInByte;
 
+	// for Mode.ALL, the buffers are reused by every execution
+	private InterleavePermutation permutation;
+	private long[] memoryDoubleWords;
+	private long[] registerDoubleWords;
+
 	public MemoryInstruction(EnumInstruction instruction, Mode mode, int elementCount, int spacing, boolean writaBack) {
 		this.instruction = instruction;
 		this.mode = mode;
@@ -100,6 +104,12 @@ public class MemoryInstruction extends Instruction {
 		this.offsetRegisterIndex = arguments.getRegisterIndexes().size() >= 3 ? arguments.getRegisterIndexes().get(2) : null;
 		this.subRegisterIndex = arguments.getSubRegisterIndex();
 		this.alignmentInByte = arguments.getAlignmentByte();
+		if (mode == Mode.ALL) {
+			int size = dataType.getSizeInBits() == 64 ? 32 : dataType.getSizeInBits();
+			this.permutation = InterleavePermutation.get(structureCount, size, elementCount);
+			this.memoryDoubleWords = new long[elementCount];
+			this.registerDoubleWords = new long[elementCount];
+		}
 	}
 
 	@Override
@@ -107,16 +117,7 @@ public class MemoryInstruction extends Instruction {
 		// It is okay, since only vld1 ALL and vst1 ALL are 64 bit, but they don't care the type.
 		final int size = dataType.getSizeInBits() == 64 ? 32 : dataType.getSizeInBits();
 		final int writeBaseAddress = machine.getArmRegisterSet().getOneValue(baseRegisterIndex);
-		final int partsPerWord = 32 / size;
 
-		if (writeBaseAddress % alignmentInByte != 0) {
-			AlignmentErrorEvent alignmentError = new AlignmentErrorEvent(writeBaseAddress, alignmentInByte * 8);
-			machine.fireEvent(alignmentError);
-			logger.log(Level.FINE, "GenerateAlignmentException() " + writeBaseAddress + "%" + (alignmentInByte));
-			return;
-		}
-
-		Integer increment = null;
 		int readBytes = 0;
 		if (mode == Mode.ALL) {
 			readBytes = 8 * elementCount;
@@ -125,13 +126,7 @@ public class MemoryInstruction extends Instruction {
 		} else
 			assert false;
 
-		int offsetBytes = machine.getMemorySet().getOffset() * 4;
-		if (writeBaseAddress - offsetBytes < 0
-				|| machine.getMemorySet().getSizeInBytes() + offsetBytes < writeBaseAddress + readBytes) {
-			// FIXME: maybe unsigned comparison should be done
-			SegmentationFaultEvent segmentationFault = new SegmentationFaultEvent();
-			machine.fireEvent(segmentationFault);
-			System.out.println("Segmentation fault");
+		if (!checkAccess(machine, writeBaseAddress, readBytes)) {
 			return;
 		}
 
@@ -141,13 +136,13 @@ public class MemoryInstruction extends Instruction {
 		case vld3:
 		case vld4:
 			// case vld
-			executeVLD(machine, size, writeBaseAddress, partsPerWord);
+			executeVLD(machine, size, writeBaseAddress);
 			break;
 		case vst1:
 		case vst2:
 		case vst3:
 		case vst4:
-			executeVST(machine, size, writeBaseAddress, partsPerWord);
+			executeVST(machine, size, writeBaseAddress);
 
 			int changedBytes = mode == Mode.ALL ? elementCount * 8 : elementCount * size / 8;
 			machine.highlightMemoryBytes(writeBaseAddress, writeBaseAddress + changedBytes - 1);
@@ -155,17 +150,7 @@ public class MemoryInstruction extends Instruction {
 
 		} // switch instruction
 
-		if (writeBack) {
-			increment = readBytes;
-		} else if (offsetRegisterIndex != null) {
-			increment = machine.getArmRegisterSet().getOneValue(offsetRegisterIndex);
-		}
-
-		if (increment != null) {
-			machine.getArmRegisterSet().setOneValue(
-					baseRegisterIndex,
-					writeBaseAddress + increment,
-					true);
+		if (updateBaseRegister(machine, writeBaseAddress, readBytes)) {
 			machine.highlightARMRegister(baseRegisterIndex);
 		}
 
@@ -173,139 +158,168 @@ public class MemoryInstruction extends Instruction {
 
 	}
 
-	private void executeVST(Machine machine, final int size,
-			final int writeBaseAddress, final int partsPerWord) {
-		
-		if(this.mode == Mode.ALL) {
-			// get the parts
-			int[] allPart = new int[64 / size * elementCount];
-			for (int element = 0; element < elementCount; element++) {
-				int doubleIndex = doubleStartIndex + element * spacing;
-				for (int word = 0; word < 2; word++) {
-					int wordValue = machine.getNEONRegisterSet().getOneValue(doubleIndex * 2 + word);
-					int[] wordParts = DataTypeTools.getParts(size, wordValue);
-					for (int part = 0; part < partsPerWord; part++) {
-						allPart[element * 64 / size + word * partsPerWord + part] = wordParts[part];
-					}
-				}
-			}
+	/**
+	 * Reports the alignment error or the segmentation fault of the access.
+	 * 
+	 * @return False if the access is not allowed.
+	 */
+	private boolean checkAccess(Machine machine, int baseAddress, int byteCount) {
+		if (baseAddress % alignmentInByte != 0) {
+			machine.reportAlignmentError(baseAddress, alignmentInByte * 8);
+			logger.log(Level.FINE, "GenerateAlignmentException() " + baseAddress + "%" + (alignmentInByte));
+			return false;
+		}
+		if (!machine.getMemorySet().isAccessible(baseAddress, byteCount)) {
+			machine.reportSegmentationFault();
+			System.out.println("Segmentation fault");
+			return false;
+		}
+		return true;
+	}
 
-			// interleave the parts
-			int[] allPartReordered = new int[64 / size * elementCount];
-			for (int structure = 0; structure < structureCount; structure++) {
-				for (int inStructure = 0; inStructure < allPart.length / structureCount; inStructure++) {
-					allPartReordered[structure + inStructure * structureCount] = allPart[inStructure + allPart.length / structureCount
-							* structure];
-				}
-			}
+	/**
+	 * Increments the base register after the access, if the instruction has write back or offset register.
+	 * 
+	 * @return True if the base register is written.
+	 */
+	private boolean updateBaseRegister(Machine machine, int baseAddress, int accessedBytes) {
+		Integer increment = null;
+		if (writeBack) {
+			increment = accessedBytes;
+		} else if (offsetRegisterIndex != null) {
+			increment = machine.getArmRegisterSet().getOneValue(offsetRegisterIndex);
+		}
+		if (increment == null) {
+			return false;
+		}
+		machine.getArmRegisterSet().setOneValue(baseRegisterIndex, baseAddress + increment, true);
+		return true;
+	}
 
-			// create words from parts
-			int[] reorderedWords = new int[elementCount * 2];
-			for (int word = 0; word < elementCount * 2; word++) {
-				int[] wordParts = new int[partsPerWord];
-				for (int part = 0; part < partsPerWord; part++) {
-					wordParts[part] = allPartReordered[word * partsPerWord + part];
-				}
-				reorderedWords[word] = DataTypeTools.createByParts(wordParts);
-			}
+	/**
+	 * @return True if the instruction is a vld1 of whole D registers, which can be executed by
+	 *         {@link #loadDoubleRegisters(Machine, long[])}.
+	 */
+	boolean isDoubleRegisterLoad() {
+		return instruction == EnumInstruction.vld1 && mode == Mode.ALL
+				&& doubleStartIndex + (elementCount - 1) * spacing < 32;
+	}
 
-			// write to memory
-			for (int word = 0; word < elementCount * 2; word++) {
-				machine.getMemorySet().setWord(writeBaseAddress + 4 * word, reorderedWords[word], true);
-			}
+	/**
+	 * Same as {@link #execute(Machine)} for {@link #isDoubleRegisterLoad()} instructions, but the D registers are
+	 * loaded into a detached copy, nothing is highlighted and the PC is not stepped.
+	 * 
+	 * @return False if the access is not allowed, it is reported and nothing is changed then.
+	 */
+	boolean loadDoubleRegisters(Machine machine, long[] doubleRegisters) {
+		assert isDoubleRegisterLoad();
+		final int baseAddress = machine.getArmRegisterSet().getOneValue(baseRegisterIndex);
+		final int readBytes = 8 * elementCount;
+		if (!checkAccess(machine, baseAddress, readBytes)) {
+			return false;
 		}
-		else if (this.mode == Mode.ONE){
-			int[] values = new int[elementCount];
-			for (int element = 0; element < elementCount; element++) {
-				int doubleIndex = doubleStartIndex + element * spacing;
-				values[element] = machine.getNEONRegisterSet().getSubRegister(EnumRegisterType.DOUBLE, size, doubleIndex, subRegisterIndex);
-			}
+		// the lanes are consecutive, so the D register is the little-endian double word
+		machine.getMemorySet().load(baseAddress, memoryDoubleWords, elementCount);
+		for (int d = 0; d < elementCount; d++) {
+			doubleRegisters[doubleStartIndex + d * spacing] = memoryDoubleWords[d];
+		}
+		updateBaseRegister(machine, baseAddress, readBytes);
+		return true;
+	}
 
-			for (int valueIndex = 0; valueIndex < elementCount; valueIndex++)
-				machine.getMemorySet().setValue(writeBaseAddress + valueIndex * size / 8, values[valueIndex], size, true);
+	/**
+	 * Only for {@link #isDoubleRegisterLoad()} instructions.
+	 */
+	@Override
+	void highlight(Machine machine) {
+		assert isDoubleRegisterLoad();
+		for (int d = 0; d < elementCount; d++) {
+			machine.highlightNEONRegister(EnumRegisterType.DOUBLE, doubleStartIndex + d * spacing);
+		}
+		if (writeBack || offsetRegisterIndex != null) {
+			machine.highlightARMRegister(baseRegisterIndex);
 		}
 	}
 
-	private void executeVLD(Machine machine, final int size,
-			final int writeBaseAddress, final int partsPerWord) {
-		
-		if(this.mode == Mode.ALL) {
-			int currentAddress = writeBaseAddress;
-			int[] allPart = new int[64 / size * elementCount];
-			int filledParts = 0;
+	@Override
+	boolean accessesMemory() {
+		return true;
+	}
 
-			for (int elementCounter = 0; elementCounter < elementCount * 2; elementCounter++) {
-				int word = machine.getMemorySet().getWord(currentAddress);
-				int[] wordParts = DataTypeTools.getParts(size, word);
-				for (int partInWordCounter = 0; partInWordCounter < wordParts.length; partInWordCounter++) {
-					allPart[filledParts] = wordParts[partInWordCounter];
-					filledParts++;
-				}
-				currentAddress += 4;
-			}
+	@Override
+	int getReadDoubleRegisters() {
+		return isDoubleRegisterLoad() ? 0 : super.getReadDoubleRegisters();
+	}
 
-			int[][] structsAsParts = new int[structureCount][(elementCount / structureCount) * 2 * partsPerWord];
+	@Override
+	int getWrittenDoubleRegisters() {
+		if (!isDoubleRegisterLoad()) {
+			return super.getWrittenDoubleRegisters();
+		}
+		int written = 0;
+		for (int d = 0; d < elementCount; d++) {
+			written |= getDoubleRegisterMask(EnumRegisterType.DOUBLE, doubleStartIndex + d * spacing);
+		}
+		return written;
+	}
 
-			for (int i = 0; i < allPart.length; i++) {
-				structsAsParts[i % structureCount][i / structureCount] = allPart[i];
+	private void executeVST(Machine machine, final int size, final int writeBaseAddress) {
+		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
+		MemorySet memorySet = machine.getMemorySet();
+		final int byteSize = size / 8;
+		if (this.mode == Mode.ALL) {
+			for (int d = 0; d < elementCount; d++) {
+				registerDoubleWords[d] = neonRegSet.getDoubleRegister(doubleStartIndex + d * spacing);
 			}
-
-			int[][] structsAsWords = new int[structureCount][elementCount / structureCount * 2];
-			for (int struct = 0; struct < structureCount; struct++) {
-				int[] structParts = structsAsParts[struct];
-				for (int word = 0; word < structParts.length / partsPerWord; word++) {
-					int[] wordParts = new int[partsPerWord];
-					for (int i = 0; i < partsPerWord; i++) {
-						wordParts[i] = structParts[partsPerWord * word + i];
-					}
-					int createdWord = DataTypeTools.createByParts(wordParts);
-					structsAsWords[struct][word] = createdWord;
-				}
+			permutation.interleave(registerDoubleWords, memoryDoubleWords);
+			memorySet.store(writeBaseAddress, memoryDoubleWords, elementCount, true);
+		}
+		else if (this.mode == Mode.ONE){
+			for (int element = 0; element < elementCount; element++) {
+				int doubleIndex = doubleStartIndex + element * spacing;
+				long value = neonRegSet.getLane(EnumRegisterType.DOUBLE, doubleIndex, size, subRegisterIndex);
+				memorySet.store(writeBaseAddress + element * byteSize, value, size, true);
 			}
+		}
+	}
 
-			int currentDoubleIndex = doubleStartIndex;
-			for (int struct = 0; struct < structureCount; struct++) {
-				int[] structWords = structsAsWords[struct];
-				assert structWords.length % 2 == 0;
-				for (int word = 0; word < structWords.length; word += 2) {
-					machine.getNEONRegisterSet().setDouble(currentDoubleIndex, true, structsAsWords[struct][word],
-							structsAsWords[struct][word + 1]);
-					machine.highlightNEONRegister(EnumRegisterType.DOUBLE, currentDoubleIndex);
-					currentDoubleIndex += spacing;
-				}
+	private void executeVLD(Machine machine, final int size, final int writeBaseAddress) {
+		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
+		MemorySet memorySet = machine.getMemorySet();
+		final int byteSize = size / 8;
+		if (this.mode == Mode.ALL) {
+			memorySet.load(writeBaseAddress, memoryDoubleWords, elementCount);
+			permutation.deinterleave(memoryDoubleWords, registerDoubleWords);
+			for (int d = 0; d < elementCount; d++) {
+				int doubleIndex = doubleStartIndex + d * spacing;
+				neonRegSet.setDoubleRegister(doubleIndex, registerDoubleWords[d], true);
+				machine.highlightNEONRegister(EnumRegisterType.DOUBLE, doubleIndex);
 			}
 		}
 		else {
-			// Common
-			int[] parts = new int[structureCount];
-			for (int i = 0; i < structureCount; i++) {
-				int currentBaseAddress = writeBaseAddress + i * size / 8;
-				int currentWord = machine.getMemorySet().getWord(currentBaseAddress);
-				parts[i] = DataTypeTools.getParts(size, currentWord)[0];
-
-			}
 			// ONE
 			if (mode == Mode.ONE) {
 				for (int structure = 0; structure < structureCount; structure++) {
 					int currentDIndex = doubleStartIndex + structure * spacing;
-					machine.getNEONRegisterSet().setSubRegister(EnumRegisterType.DOUBLE, size, currentDIndex, subRegisterIndex, parts[structure]);
+					long value = memorySet.load(writeBaseAddress + structure * byteSize, size);
+					neonRegSet.setLane(EnumRegisterType.DOUBLE, currentDIndex, size, subRegisterIndex, value, true);
 					machine.highlightNEONSubregister(EnumRegisterType.DOUBLE, size, currentDIndex, subRegisterIndex);
 				}
 			}
 			// ONE_REPEAT
 			else if (mode == Mode.ONE_REPEAT) {
+				final int lanesPerDouble = 64 / size;
 				for (int structure = 0; structure < structureCount; structure++) {
+					long value = memorySet.load(writeBaseAddress + structure * byteSize, size);
 					for (int dInStructure = 0; dInStructure < elementCount / structureCount; dInStructure++) {
 						int currentDIndex =
 								doubleStartIndex
 										+ elementCount / structureCount * structure * spacing
 										+ spacing * dInStructure;
-						int[] currentWordParts = new int[partsPerWord];
-						for (int part = 0; part < partsPerWord; part++) {
-							currentWordParts[part] = parts[structure];
+						for (int lane = 0; lane < lanesPerDouble; lane++) {
+							neonRegSet.setLane(EnumRegisterType.DOUBLE, currentDIndex, size, lane, value, false);
 						}
-						int currentWord = DataTypeTools.createByParts(currentWordParts);
-						machine.getNEONRegisterSet().setDouble(currentDIndex, true, currentWord, currentWord);
+						neonRegSet.fireRegisterChanged(EnumRegisterType.DOUBLE, currentDIndex);
 						machine.highlightNEONRegister(EnumRegisterType.DOUBLE, currentDIndex);
 					}
 				}
@@ -32,6 +32,7 @@ import com.arm.nevada.client.parser.Arguments;
 import com.arm.nevada.client.parser.EnumInstruction;
 import com.arm.nevada.client.parser.EnumRegisterType;
 import com.arm.nevada.client.utils.DataTypeTools;
+import com.arm.nevada.client.utils.SwarTools;
 
 public class MinimumAndMaximumInstruction extends Instruction {
 
@@ -46,6 +47,8 @@ public class MinimumAndMaximumInstruction extends Instruction {
 	private boolean pairwise;
 	private int destinationRegisterIndex;
 	private int size;
+	private long[] resultParts;
+	private DoubleRegisterKernel doubleRegisterKernel;
 
 	public MinimumAndMaximumInstruction(EnumInstruction instruction, EnumRegisterType registerType) {
 		this.instruction = instruction;
@@ -87,24 +90,79 @@ public class MinimumAndMaximumInstruction extends Instruction {
 		this.destinationRegisterIndex = arguments.getRegisterIndexes().get(0);
 		this.data1Index = arguments.getRegisterIndexes().get(1);
 		this.data2Index = arguments.getRegisterIndexes().get(2);
+		this.resultParts = new long[NEONRegisterSet.getLaneCount(destinationRegisterType, size)];
+		this.doubleRegisterKernel = createDoubleRegisterKernel();
+	}
+
+	/**
+	 * @return The SWAR kernel of VMIN and VMAX on 8 and 16 bit integer lanes, null for the other instructions.
+	 */
+	private DoubleRegisterKernel createDoubleRegisterKernel() {
+		if (pairwise || !dataType.isInteger() || dataType.getSigned() == null || (size != 8 && size != 16)
+				|| destinationRegisterType == EnumRegisterType.SINGLE) {
+			return null;
+		}
+		final boolean signed = dataType.getSigned();
+		final int laneSize = size;
+		if (minimumElseMaximum) {
+			return new DoubleRegisterKernel() {
+				long run(long operand1, long operand2, long dest) {
+					return SwarTools.minimum(operand1, operand2, laneSize, signed);
+				}
+			};
+		}
+		return new DoubleRegisterKernel() {
+			long run(long operand1, long operand2, long dest) {
+				return SwarTools.maximum(operand1, operand2, laneSize, signed);
+			}
+		};
 	}
 
 	@Override
 	public void execute(Machine machine) {
-		int[] resultParts;
+		if (doubleRegisterKernel != null) {
+			doubleRegisterKernel.execute(machine.getNEONRegisterSet(), destinationRegisterType,
+					destinationRegisterIndex, data1Index, data2Index);
+			machine.incrementPCBy4();
+			highlightRegisters(machine);
+			return;
+		}
 		if (pairwise) {
-			resultParts = execPairwise(machine);
+			execPairwise(machine);
 		}
 		else {
-			resultParts = execRegisterWise(machine);
+			execRegisterWise(machine);
 		}
 
-		int[] resultWords = DataTypeTools.createWordsFromOnePartPerWord(size, resultParts);
-		machine.getNEONRegisterSet().setRegisterValues(destinationRegisterType, true, destinationRegisterIndex, resultWords);
+		machine.getNEONRegisterSet().setLanes(destinationRegisterType, destinationRegisterIndex, size, resultParts, true);
 		machine.incrementPCBy4();
 		highlightRegisters(machine);
 	}
 
+	@Override
+	public BlockOperation compile() {
+		if (pairwise || !dataType.isInteger() || dataType.getSigned() == null || size == 64) {
+			return null;
+		}
+		BlockOperation operation = LaneBackend.createInstalledOperation(minimumElseMaximum
+				? LaneBackend.Operation.minimum : LaneBackend.Operation.maximum, destinationRegisterType, size,
+				dataType.getSigned(), destinationRegisterIndex, data1Index, data2Index);
+		if (operation == null && doubleRegisterKernel != null) {
+			operation = doubleRegisterKernel.compile(destinationRegisterType, destinationRegisterIndex, data1Index,
+					data2Index);
+		}
+		return operation;
+	}
+
+	@Override
+	public LockstepOperation compileLockstep() {
+		if (doubleRegisterKernel == null) {
+			return null;
+		}
+		return doubleRegisterKernel.compileLockstep(destinationRegisterType, destinationRegisterIndex, data1Index,
+				data2Index);
+	}
+
 	private int calculate(int op1, int op2) {
 		int result;
 		if (dataType.isFloatType()) {
@@ -116,32 +174,28 @@ public class MinimumAndMaximumInstruction extends Instruction {
 		return result;
 	}
 
-	private int[] execRegisterWise(Machine machine) {
+	private void execRegisterWise(Machine machine) {
 		assert !pairwise;
 		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
-		int[] source1Parts = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(sourceRegisterType, data1Index));
-		int[] source2Parts = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(sourceRegisterType, data2Index));
-		int[] resultParts = new int[source1Parts.length];
-		for (int i = 0; i < source2Parts.length; i++) {
-			resultParts[i] = calculate(source1Parts[i], source2Parts[i]);
+		for (int i = 0; i < resultParts.length; i++) {
+			resultParts[i] = calculate(
+					neonRegSet.getLaneInt(sourceRegisterType, data1Index, size, i),
+					neonRegSet.getLaneInt(sourceRegisterType, data2Index, size, i)) & 0xFFFFFFFFL;
 		}
-		return resultParts;
 	}
 
-	private int[] execPairwise(Machine machine) {
+	private void execPairwise(Machine machine) {
 		assert pairwise;
 		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
-		int[] source1Parts = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(sourceRegisterType, data1Index));
-		int[] source2Parts = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(sourceRegisterType, data2Index));
-		int[][] sources = new int[][] { source1Parts, source2Parts };
-
-		int[] resultParts = new int[source1Parts.length];
-		for (int sourceI = 0; sourceI < sources.length; sourceI++) {
-			for (int i = 0; i < source1Parts.length; i += 2) {
-				resultParts[(sourceI * source1Parts.length + i) / 2] = calculate(sources[sourceI][i], sources[sourceI][i + 1]);
+		int laneCount = resultParts.length;
+		for (int sourceI = 0; sourceI < 2; sourceI++) {
+			int sourceIndex = sourceI == 0 ? data1Index : data2Index;
+			for (int i = 0; i < laneCount; i += 2) {
+				resultParts[(sourceI * laneCount + i) / 2] = calculate(
+						neonRegSet.getLaneInt(sourceRegisterType, sourceIndex, size, i),
+						neonRegSet.getLaneInt(sourceRegisterType, sourceIndex, size, i + 1)) & 0xFFFFFFFFL;
 			}
 		}
-		return resultParts;
 	}
 
 	private int calculateInteger(int op1, int op2) {
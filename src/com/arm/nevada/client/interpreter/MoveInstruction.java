@@ -47,6 +47,7 @@ public class MoveInstruction extends Instruction {
 	private boolean saturating;
 	private boolean forceUnsignedSaturating;
 	private boolean negate;
+	private long[] resultParts;
 
 	public MoveInstruction(EnumInstruction instruction, EnumRegisterType destinationRegisterType, boolean immediate) {
 		this.instruction = instruction;
@@ -110,6 +111,10 @@ public class MoveInstruction extends Instruction {
 		if (this.dataType == null) {
 			this.dataType = EnumDataType._64;
 		}
+
+		int sourceSize = dataType.getSizeInBits();
+		int destSize = narrow ? sourceSize / 2 : longing ? sourceSize * 2 : sourceSize;
+		this.resultParts = new long[NEONRegisterSet.getLaneCount(destRegisterType, destSize)];
 	}
 
 	@Override
@@ -124,25 +129,18 @@ public class MoveInstruction extends Instruction {
 			destSize = sourceSize;
 		NEONRegisterSet neonRS = machine.getNEONRegisterSet();
 
-		long[] source1Parts;
-		if (immediate) {
-			long[] immParts = DataTypeTools.createPartListFromWordsLong(sourceSize, DataTypeTools.integerFromLong(immedateValue));
-			source1Parts = new long[destRegisterType.getSize() / sourceSize];
-			for (int i = 0; i < source1Parts.length; i++) {
-				source1Parts[i] = immParts[i % (64 / sourceSize)];
-			}
-		} else {
-			source1Parts = DataTypeTools.createPartListFromWordsLong(sourceSize, neonRS.getRegisterValues(sourceRegisterType, sourceIndex));
-		}
-
-		long[] resultParts = new long[source1Parts.length];
-
+		long sourceMask = DataTypeTools.getBitmaskLong(sourceSize);
 		for (int i = 0; i < resultParts.length; i++) {
-			resultParts[i] = calculate(source1Parts[i], machine);
+			long source;
+			if (immediate) {
+				source = (immedateValue >>> (i % (64 / sourceSize) * sourceSize)) & sourceMask;
+			} else {
+				source = neonRS.getLane(sourceRegisterType, sourceIndex, sourceSize, i);
+			}
+			resultParts[i] = calculate(source, machine);
 		}
 
-		int[] resultWords = DataTypeTools.createWordsFromOnePartPerLong(destSize, resultParts);
-		neonRS.setRegisterValues(destRegisterType, true, destinationIndex, resultWords);
+		neonRS.setLanes(destRegisterType, destinationIndex, destSize, resultParts, true);
 		machine.incrementPCBy4();
 		highlightChangedRegisters(machine);
 	}
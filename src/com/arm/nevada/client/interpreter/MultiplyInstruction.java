@@ -32,7 +32,6 @@ import com.arm.nevada.client.parser.Arguments;
 import com.arm.nevada.client.parser.EnumInstruction;
 import com.arm.nevada.client.parser.EnumRegisterType;
 import com.arm.nevada.client.shared.Out;
-import com.arm.nevada.client.shared.SpecialBits;
 import com.arm.nevada.client.utils.DataTypeTools;
 
 public class MultiplyInstruction extends Instruction {
@@ -53,6 +52,16 @@ public class MultiplyInstruction extends Instruction {
 	private EnumRegisterType destRegisterType;
 	private EnumRegisterType sourceRegisterType;
 	private Integer source2RegisterIndex;
+	private long[] source1Parts;
+	private long[] source2Parts;
+	private long[] results;
+	// int lane buffers, only if the int path is used
+	private int[] source1IntParts;
+	private int[] source2IntParts;
+	private int[] intResults;
+	private final Out<Boolean> saturated = new Out<Boolean>();
+	// set by the calculation if any of the lanes is saturated
+	private boolean saturatedLane;
 
 	public MultiplyInstruction(EnumInstruction instruction, EnumRegisterType destRegisterType, boolean scalar) {
 		this.instruction = instruction;
@@ -135,6 +144,20 @@ public class MultiplyInstruction extends Instruction {
 		this.destinationRegisterIndex = arguments.getRegisterIndexes().get(0);
 		this.source1RegisterIndex = arguments.getRegisterIndexes().get(1);
 		this.source2RegisterIndex = arguments.getRegisterIndexes().get(2);
+		this.results = new long[NEONRegisterSet.getLaneCount(sourceRegisterType, dataType.getSizeInBits())];
+		this.source1Parts = new long[results.length];
+		this.source2Parts = new long[results.length];
+
+		int size = dataType.getSizeInBits();
+		int destSize = longing ? size * 2 : size;
+		// the saturating products of 32 bit lanes need 64 bit
+		if (isIntLanePaths() && dataType.isInteger() && destSize <= 32 && (!saturating || size <= 16)) {
+			source1IntParts = new int[results.length];
+			source2IntParts = new int[results.length];
+			intResults = new int[results.length];
+		} else {
+			intResults = null;
+		}
 	}
 
 	@Override
@@ -142,66 +165,230 @@ public class MultiplyInstruction extends Instruction {
 		NEONRegisterSet neonRS = machine.getNEONRegisterSet();
 		int size = dataType.getSizeInBits();
 		int destSize = longing ? size * 2 : size;
-		int[] op1s = DataTypeTools.getParts(size, neonRS.getRegisterValues(sourceRegisterType, source1RegisterIndex));
-		int[] op2s;
-		long[] destVals = DataTypeTools.createPartListFromWordsLong(destSize, neonRS.getRegisterValues(destRegisterType, destinationRegisterIndex));
+		int scalarValue = 0;
 		if (scalar) {
-			op2s = new int[op1s.length];
-			int scalarValue = neonRS.getSubRegister(EnumRegisterType.DOUBLE, size, source2RegisterIndex, subRegisterIndex);
-			for (int i = 0; i < op2s.length; i++) {
-				op2s[i] = scalarValue;
+			scalarValue = neonRS.getSubRegister(EnumRegisterType.DOUBLE, size, source2RegisterIndex, subRegisterIndex);
+		}
+
+		if (intResults != null) {
+			executeInt(machine, scalarValue);
+			return;
+		}
+
+		neonRS.getLanes(sourceRegisterType, source1RegisterIndex, size, source1Parts);
+		if (!scalar) {
+			neonRS.getLanes(sourceRegisterType, source2RegisterIndex, size, source2Parts);
+		}
+		neonRS.getLanes(destRegisterType, destinationRegisterIndex, destSize, results);
+		if (calculate(scalarValue)) {
+			setSaturationFlag(machine);
+		}
+		neonRS.setLanes(destRegisterType, destinationRegisterIndex, destSize, results, true);
+		machine.incrementPCBy4();
+		highlightDestinationRegisters(machine);
+	}
+
+	@Override
+	public BlockOperation compile() {
+		if (!scalar && !longing && !saturating && dataType.isInteger() && dataType.getSizeInBits() != 64) {
+			LaneBackend.Operation operation;
+			if (accumulate) {
+				operation = LaneBackend.Operation.multiplyAccumulate;
+			} else if (substract) {
+				operation = LaneBackend.Operation.multiplySubtract;
+			} else {
+				operation = LaneBackend.Operation.multiply;
+			}
+			BlockOperation backendOperation = LaneBackend.createInstalledOperation(operation, destRegisterType,
+					dataType.getSizeInBits(), false, destinationRegisterIndex, source1RegisterIndex, source2RegisterIndex);
+			if (backendOperation != null) {
+				return backendOperation;
 			}
-		} else {
-			op2s = DataTypeTools.getParts(size, neonRS.getRegisterValues(sourceRegisterType, source2RegisterIndex));
 		}
+		return new BlockOperation() {
+			public boolean execute(long[] doubleRegisters) {
+				int size = dataType.getSizeInBits();
+				int destSize = longing ? size * 2 : size;
+				int scalarValue = 0;
+				NEONRegisterSet.readLanes(doubleRegisters, sourceRegisterType, source1RegisterIndex, size, source1Parts);
+				if (scalar) {
+					long lanes = doubleRegisters[source2RegisterIndex] >>> (subRegisterIndex * size);
+					scalarValue = (int) lanes & DataTypeTools.getBitmask(size);
+				} else {
+					NEONRegisterSet.readLanes(doubleRegisters, sourceRegisterType, source2RegisterIndex, size, source2Parts);
+				}
+				NEONRegisterSet.readLanes(doubleRegisters, destRegisterType, destinationRegisterIndex, destSize, results);
+				boolean saturated = calculate(scalarValue);
+				NEONRegisterSet.writeLanes(doubleRegisters, destRegisterType, destinationRegisterIndex, destSize, results);
+				return saturated;
+			}
+		};
+	}
 
-		int[] resultWords;
+	/**
+	 * Calculates the results from the lanes read into the buffers, the results buffer holds the destination lanes
+	 * before.
+	 * 
+	 * @return True if any of the lanes is saturated.
+	 */
+	private boolean calculate(int scalarValue) {
+		int size = dataType.getSizeInBits();
+		int destSize = longing ? size * 2 : size;
+		saturatedLane = false;
 		if (dataType.isFloatType()) {
-			int[] results = new int[op1s.length];
-			for (int i = 0; i < op1s.length; i++) {
-				float op1 = DataTypeTools.intToFloat(op1s[i]);
-				float op2 = DataTypeTools.intToFloat(op2s[i]);
-				float dest = DataTypeTools.intToFloat(DataTypeTools.integerFromLong(destVals[i])[0]);
-				float result = calculateFloat(machine, op1, op2, dest);
-				results[i] = DataTypeTools.FloatToInt(result);
+			for (int i = 0; i < results.length; i++) {
+				float op1 = DataTypeTools.intToFloat((int) source1Parts[i]);
+				float op2 = DataTypeTools.intToFloat(scalar ? scalarValue : (int) source2Parts[i]);
+				float dest = DataTypeTools.intToFloat((int) results[i]);
+				float result = calculateFloat(op1, op2, dest);
+				results[i] = DataTypeTools.FloatToInt(result) & DataTypeTools.getBitmaskLong(size);
 			}
-			resultWords = DataTypeTools.createWordsFromOnePartPerWord(size, results);
 		} else {
-			long[] results = new long[op1s.length];
-			int outSize = longing ? size * 2 : size;
-			if (dataType.isPolynomial()) {
-				for (int i = 0; i < op1s.length; i++) {
-					long result = calculatePolynomial(machine, op1s[i], op2s[i]);
-					results[i] = result;
-				}
-			} else {
-				// integer
-				boolean signed = dataType.getSigned() != null && dataType.getSigned() == true;
-				if (signed) {
-					for (int i = 0; i < op1s.length; i++) {
-						long dest = DataTypeTools.extendToSingnedLong(destVals[i], outSize);
-						long result = calculateIntegerSigned(machine, op1s[i], op2s[i], dest);
-						results[i] = result;
-					}
+			boolean signed = dataType.getSigned() != null && dataType.getSigned() == true;
+			for (int i = 0; i < results.length; i++) {
+				int op1 = (int) source1Parts[i];
+				int op2 = scalar ? scalarValue : (int) source2Parts[i];
+				if (dataType.isPolynomial()) {
+					results[i] = calculatePolynomial(op1, op2);
+				} else if (signed) {
+					// integer
+					long dest = DataTypeTools.extendToSingnedLong(results[i], destSize);
+					results[i] = calculateIntegerSigned(op1, op2, dest);
 				} else {
-					for (int i = 0; i < op1s.length; i++) {
-						long result = calculateIntegerUnsigned(machine, op1s[i], op2s[i], destVals[i]);
-						results[i] = result;
-					}
+					results[i] = calculateIntegerUnsigned(op1, op2, results[i]);
 				}
 			}
-			resultWords = DataTypeTools.createWordsFromOnePartPerLong(outSize, results);
 		}
-		neonRS.setRegisterValues(destRegisterType, true, destinationRegisterIndex, resultWords);
+		return saturatedLane;
+	}
+
+	/**
+	 * Same as the integer part of {@link #execute(Machine)} without long operations, for lanes of maximum 32 bit.
+	 */
+	private void executeInt(Machine machine, int scalarValue) {
+		NEONRegisterSet neonRS = machine.getNEONRegisterSet();
+		int size = dataType.getSizeInBits();
+		int destSize = longing ? size * 2 : size;
+		boolean signed = dataType.getSigned() != null && dataType.getSigned() == true;
+		neonRS.getLanesInt(sourceRegisterType, source1RegisterIndex, size, source1IntParts);
+		if (!scalar) {
+			neonRS.getLanesInt(sourceRegisterType, source2RegisterIndex, size, source2IntParts);
+		}
+		neonRS.getLanesInt(destRegisterType, destinationRegisterIndex, destSize, intResults);
+		saturatedLane = false;
+		for (int i = 0; i < intResults.length; i++) {
+			int op2 = scalar ? scalarValue : source2IntParts[i];
+			if (signed) {
+				intResults[i] = calculateIntegerSignedInt(source1IntParts[i], op2,
+						DataTypeTools.extendSignedToInt(intResults[i], destSize));
+			} else {
+				intResults[i] = calculateIntegerUnsignedInt(source1IntParts[i], op2, intResults[i]);
+			}
+		}
+		if (saturatedLane) {
+			setSaturationFlag(machine);
+		}
+		neonRS.setLanesInt(destRegisterType, destinationRegisterIndex, destSize, intResults, true);
 		machine.incrementPCBy4();
 		highlightDestinationRegisters(machine);
 	}
 
+	private int calculateIntegerUnsignedInt(int op1, int op2, int dest) {
+		int inSize = dataType.getSizeInBits();
+		int outSize = longing ? inSize * 2 : inSize;
+		int bitMask = DataTypeTools.getBitmask(inSize);
+		// the lower 32 bits of the product are exact
+		int result = (op1 & bitMask) * (op2 & bitMask);
+		if (accumulate)
+			result = dest + result;
+		else if (substract)
+			result = dest - result;
+		return result & DataTypeTools.getBitmask(outSize);
+	}
+
+	/**
+	 * Same as {@link #calculateIntegerSigned(int, int, long)}, the doubled products of the saturating
+	 * instructions fit in an int up to 16 bit lanes.
+	 * 
+	 * @param dest
+	 *            Sign extended.
+	 */
+	private int calculateIntegerSignedInt(final int op1, final int op2, int dest) {
+		int inSize = dataType.getSizeInBits();
+		int outSize = longing ? inSize * 2 : inSize;
+		assert !saturating || inSize <= 16;
+
+		int op1i = DataTypeTools.extendSignedToInt(op1, inSize);
+		int op2i = DataTypeTools.extendSignedToInt(op2, inSize);
+		if (saturating && op1i == op2i && op1i == DataTypeTools.getMinValue(inSize, true)) {
+			saturatedLane = true;
+			int result = DataTypeTools.getMaxValue(2 * inSize, true);
+			if (highHalf) {
+				result = result >> inSize;
+			}
+			return result & DataTypeTools.getBitmask(outSize);
+		}
+		int result = op1i * op2i;
+
+		if (doubling)
+			result *= 2;
+
+		int addend = 0;
+		if (accumulate || substract) {
+			addend = dest;
+			if (substract)
+				result = -result;
+		}
+
+		if (highHalf) {
+			if (rounding) {
+				result += 1 << (inSize - 1);
+			}
+			result = result >> inSize;
+		}
+
+		if (saturating) {
+			int sum = addend + result;
+			boolean overflow;
+			if (outSize == 32) {
+				overflow = ((addend ^ sum) & (result ^ sum)) < 0;
+			} else {
+				overflow = sum != DataTypeTools.extendSignedToInt(sum, outSize);
+			}
+			if (overflow) {
+				saturatedLane = true;
+				sum = result < 0 ? DataTypeTools.getMinValue(outSize, true) : DataTypeTools.getMaxValue(outSize, true);
+			}
+			result = sum;
+		} else {
+			result = addend + result;
+		}
+		return result & DataTypeTools.getBitmask(outSize);
+	}
+
 	private void highlightDestinationRegisters(Machine machine) {
 		machine.highlightNEONRegister(destRegisterType, destinationRegisterIndex);
 	}
 
-	private long calculateIntegerUnsigned(Machine machine, final int op1, final int op2, long dest) {
+	@Override
+	void highlight(Machine machine) {
+		highlightDestinationRegisters(machine);
+	}
+
+	@Override
+	int getReadDoubleRegisters() {
+		int source2 = scalar ? getDoubleRegisterMask(EnumRegisterType.DOUBLE, source2RegisterIndex)
+				: getDoubleRegisterMask(sourceRegisterType, source2RegisterIndex);
+		return getDoubleRegisterMask(sourceRegisterType, source1RegisterIndex) | source2
+				| getDoubleRegisterMask(destRegisterType, destinationRegisterIndex);
+	}
+
+	@Override
+	int getWrittenDoubleRegisters() {
+		return getDoubleRegisterMask(destRegisterType, destinationRegisterIndex);
+	}
+
+	private long calculateIntegerUnsigned(final int op1, final int op2, long dest) {
 		// assert !accumulate;
 		// assert !substract;
 		// assert !longing;
@@ -228,7 +415,7 @@ public class MultiplyInstruction extends Instruction {
 		return result;
 	}
 
-	private long calculateIntegerSigned(Machine machine, final int op1, final int op2, long dest) {
+	private long calculateIntegerSigned(final int op1, final int op2, long dest) {
 		assert dataType.getSigned() != null && dataType.getSigned() == true;
 		assert !(highHalf && longing);
 
@@ -242,7 +429,7 @@ public class MultiplyInstruction extends Instruction {
 
 		if (saturating && op1l == op2l && op1l == DataTypeTools.getMinValueLong(inSize, true)) {
 			// there is no other case for saturating when the out size is 2 * inSize
-			setSaturatingBit(machine);
+			saturatedLane = true;
 			result = DataTypeTools.getMaxValueLong(2 * inSize, true); // 1l << (2 * inSize); // - * - = maximum value
 			if (highHalf) {
 				result = result >> inSize;
@@ -272,10 +459,9 @@ public class MultiplyInstruction extends Instruction {
 		}
 
 		if (saturating) {
-			Out<Boolean> saturated = new Out<Boolean>();
 			result = DataTypeTools.signedSaturatingAdd(addend, result, outSize, saturated);
 			if (saturated.getValue()) {
-				setSaturatingBit(machine);
+				saturatedLane = true;
 			}
 		} else {
 			result = addend + result;
@@ -288,7 +474,7 @@ public class MultiplyInstruction extends Instruction {
 		return result;
 	}
 
-	private float calculateFloat(Machine machine, final float op1, final float op2, float dest) {
+	private float calculateFloat(final float op1, final float op2, float dest) {
 		assert !longing;
 		assert !doubling;
 		assert !saturating;
@@ -304,7 +490,7 @@ public class MultiplyInstruction extends Instruction {
 		return out;
 	}
 
-	private long calculatePolynomial(Machine machine, final int op1, final int op2) {
+	private long calculatePolynomial(final int op1, final int op2) {
 		assert !accumulate;
 		assert !substract;
 		// assert !longing;
@@ -321,12 +507,6 @@ public class MultiplyInstruction extends Instruction {
 		return out;
 	}
 
-	private void setSaturatingBit(Machine machine) {
-		int fpscr = machine.getSpecialRegisters().getFPSCR();
-		fpscr = DataTypeTools.setBit(fpscr, true, SpecialBits.FPSCR_QC);
-		machine.getSpecialRegisters().setFPSCR(fpscr, true);
-	}
-
 	@Override
 	public EnumInstruction getInstructionName() {
 		return instruction;
@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.arm.nevada.client.interpreter.machine.Machine;
+
+/**
+ * Array backed image of the program for the executor. The instruction count is fixed, an image is built once when
+ * the whole program is replaced and only patched when one line changes. The breakpoint and the invalid instruction
+ * flags are kept in bitsets, so stepping by the PC needs no allocation and no list traversal.
+ * <p>
+ * The labels are resolved to instruction indexes when the image is built and whenever a labeled line changes, so a
+ * taken branch only sets the PC. A branch to an undefined label and a repeated label are invalid instructions.
+ */
+public class ProgramImage {
+	private static int nextLineStamp = 1;
+
+	public static final ProgramImage EMPTY = new ProgramImage(new Instruction[0], null);
+
+	private final Instruction[] instructions;
+	private final int[] breakpoints;
+	private final int[] errors;
+	private int errorCount;
+	private final Map<String, Integer> labels = new HashMap<String, Integer>();
+
+	/**
+	 * Every stored instruction gets a new stamp, the prefix hashes are computed from the stamps.
+	 */
+	private final int[] lineStamps;
+	private final int[] prefixHashes;
+	private int validPrefixHashCount = 1;
+
+	/**
+	 * Fused by {@link #getSuperinstruction(int)} on demand, dropped when an instruction is replaced.
+	 */
+	private Superinstruction[] superinstructions;
+	private List<String> fusionReport;
+
+	public ProgramImage(List<Instruction> instructions) {
+		this(instructions.toArray(new Instruction[instructions.size()]), null);
+	}
+
+	private ProgramImage(Instruction[] instructions, int[] lineStamps) {
+		this.instructions = instructions;
+		this.breakpoints = new int[(instructions.length + 31) >>> 5];
+		this.errors = new int[breakpoints.length];
+		link();
+		if (lineStamps == null) {
+			lineStamps = new int[instructions.length];
+			for (int i = 0; i < instructions.length; i++) {
+				lineStamps[i] = nextLineStamp++;
+			}
+		}
+		this.lineStamps = lineStamps;
+		this.prefixHashes = new int[instructions.length + 1];
+	}
+
+	/**
+	 * Replaces one instruction in place and updates its flags. The whole program is linked again if the old or the
+	 * new instruction has a label. Setting the same instruction again, e.g. after toggling its breakpoint, keeps the
+	 * prefix hashes.
+	 */
+	public void set(int index, Instruction instruction) {
+		boolean sameInstruction = instructions[index] == instruction;
+		boolean labelChanged = getLabel(instructions[index]) != null || getLabel(instruction) != null;
+		instructions[index] = instruction;
+		if (labelChanged) {
+			link();
+		} else {
+			if (isError(index)) {
+				errorCount--;
+			}
+			updateFlags(index);
+		}
+		if (!sameInstruction) {
+			lineStamps[index] = nextLineStamp++;
+			validPrefixHashCount = Math.min(validPrefixHashCount, index + 1);
+		}
+		superinstructions = null;
+	}
+
+	/**
+	 * @return The fused unit starting at the index, or null. The program is fused at the first call after a change.
+	 */
+	public Superinstruction getSuperinstruction(int index) {
+		fuse();
+		return superinstructions[index];
+	}
+
+	/**
+	 * @return The decisions of the latest fusion of the program, see {@link SuperinstructionFusion#getReport()}.
+	 */
+	public List<String> getFusionReport() {
+		fuse();
+		return fusionReport;
+	}
+
+	private void fuse() {
+		if (superinstructions != null) {
+			return;
+		}
+		Instruction[] executable = new Instruction[instructions.length];
+		for (int i = 0; i < instructions.length; i++) {
+			executable[i] = isError(i) ? null : instructions[i];
+		}
+		SuperinstructionFusion fusion = new SuperinstructionFusion();
+		superinstructions = fusion.fuse(Arrays.asList(executable));
+		fusionReport = fusion.getReport();
+	}
+
+	/**
+	 * The hash changes if any of the first length instructions is replaced, so it identifies the program prefix.
+	 * 
+	 * @param length
+	 *            The number of instructions from the beginning, at most {@link #getLength()}.
+	 */
+	public int getPrefixHash(int length) {
+		for (int i = validPrefixHashCount; i <= length; i++) {
+			prefixHashes[i] = (prefixHashes[i - 1] ^ lineStamps[i - 1]) * 0x01000193;
+		}
+		validPrefixHashCount = Math.max(validPrefixHashCount, length + 1);
+		return prefixHashes[length];
+	}
+
+	/**
+	 * @return A new image without the instruction at the given index.
+	 */
+	public ProgramImage remove(int index) {
+		Instruction[] newInstructions = new Instruction[instructions.length - 1];
+		System.arraycopy(instructions, 0, newInstructions, 0, index);
+		System.arraycopy(instructions, index + 1, newInstructions, index, instructions.length - index - 1);
+		int[] newLineStamps = new int[lineStamps.length - 1];
+		System.arraycopy(lineStamps, 0, newLineStamps, 0, index);
+		System.arraycopy(lineStamps, index + 1, newLineStamps, index, lineStamps.length - index - 1);
+		return new ProgramImage(newInstructions, newLineStamps);
+	}
+
+	/**
+	 * Collects the labels, then resolves the labels of the instructions and updates all flags.
+	 */
+	private void link() {
+		labels.clear();
+		for (int i = 0; i < instructions.length; i++) {
+			String label = getLabel(instructions[i]);
+			if (label != null && !labels.containsKey(label)) {
+				labels.put(label, i);
+			}
+		}
+		errorCount = 0;
+		for (int i = 0; i < instructions.length; i++) {
+			updateFlags(i);
+		}
+	}
+
+	private static String getLabel(Instruction instruction) {
+		return instruction == null ? null : instruction.getLabel();
+	}
+
+	private void updateFlags(int index) {
+		Instruction instruction = instructions[index];
+		setBit(breakpoints, index, instruction != null && instruction.isBreakpoint());
+		boolean error = instruction == null || instruction instanceof ErrorInstruction || !instruction.link(labels)
+				|| instruction.getLabel() != null && labels.get(instruction.getLabel()) != index;
+		setBit(errors, index, error);
+		if (error) {
+			errorCount++;
+		}
+	}
+
+	private static void setBit(int[] bits, int index, boolean value) {
+		if (value) {
+			bits[index >>> 5] |= 1 << index;
+		} else {
+			bits[index >>> 5] &= ~(1 << index);
+		}
+	}
+
+	/**
+	 * Executes the program from the PC without breakpoints, highlights or checkpoints, e.g. to run a loop headless.
+	 * The next instruction is found by the PC, so a taken branch costs the same as a step, and the superinstructions
+	 * are used.
+	 * 
+	 * @param budget
+	 *            The maximum number of executed instructions, stops infinite loops.
+	 * @return The number of executed instructions. The execution stops before the budget is exceeded, when the PC
+	 *         leaves the program, at an invalid instruction, or if an instruction other than a branch does not step
+	 *         the PC (e.g. a fault). A taken branch to itself keeps running until the budget is exhausted.
+	 */
+	public int execute(Machine machine, int budget) {
+		int count = 0;
+		while (count < budget) {
+			int pc = machine.getPC();
+			int index = pc >>> 2;
+			if ((pc & 3) != 0 || pc < 0 || index >= instructions.length || isError(index)) {
+				break;
+			}
+			Superinstruction unit = getSuperinstruction(index);
+			boolean branch = false;
+			if (unit != null && count + unit.getLength() <= budget) {
+				unit.execute(machine);
+				count += unit.getLength();
+			} else {
+				instructions[index].execute(machine);
+				branch = instructions[index].isBranch();
+				count++;
+			}
+			if (machine.getPC() == pc && !branch) {
+				break;
+			}
+		}
+		return count;
+	}
+
+	public Instruction get(int index) {
+		return instructions[index];
+	}
+
+	public int getLength() {
+		return instructions.length;
+	}
+
+	public boolean isBreakpoint(int index) {
+		return (breakpoints[index >>> 5] & (1 << index)) != 0;
+	}
+
+	/**
+	 * @return True if the instruction at the index may set the PC, so an unchanged PC is a taken branch to itself.
+	 */
+	public boolean isBranch(int index) {
+		return !isError(index) && instructions[index].isBranch();
+	}
+
+	/**
+	 * @return True if the instruction at the index can not be executed.
+	 */
+	public boolean isError(int index) {
+		return (errors[index >>> 5] & (1 << index)) != 0;
+	}
+
+	/**
+	 * @return The number of instructions which can not be executed.
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+}
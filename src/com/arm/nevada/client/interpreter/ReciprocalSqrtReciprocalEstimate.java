@@ -34,12 +34,35 @@ import com.arm.nevada.client.parser.EnumRegisterType;
 import com.arm.nevada.client.utils.DataTypeTools;
 
 /**
- * Unfortunately the results are not absolutely identical to the real results.
- * It comes from the lack of precision of the DoubleToLong(). Currently it can't be fixed effectively. 
- *
+ * vrecpe and vrsqrte. The estimates depend only on the top 8 or 9 bits of the operand, they are calculated once for
+ * every such prefix by the ARM pseudocode and looked up in tables. The exponent and the special values are handled
+ * for every lane.
  */
 public class ReciprocalSqrtReciprocalEstimate extends Instruction {
 
+	/**
+	 * The estimate of recip_estimate() in units of 1/256, at index q - 256 where 256 <= q < 512 is the operand in
+	 * units of 1/512.
+	 */
+	private static final int[] reciprocalEstimates = new int[256];
+
+	/**
+	 * The estimate of recip_sqrt_estimate() in units of 1/256. The first half is at index q0 - 128 where 128 <= q0 <
+	 * 256 is the operand of the 0.25 <= a < 0.5 range in units of 1/512, the second half at index q1 where 128 <= q1
+	 * < 256 is the operand of the 0.5 <= a < 1.0 range in units of 1/256.
+	 */
+	private static final int[] reciprocalSqrtEstimates = new int[256];
+
+	static {
+		for (int i = 0; i < 256; i++) {
+			reciprocalEstimates[i] = recipEstimate((256 + i) / 512.0);
+		}
+		for (int i = 0; i < 128; i++) {
+			reciprocalSqrtEstimates[i] = recipSqrtEstimate((128 + i) / 512.0);
+			reciprocalSqrtEstimates[128 + i] = recipSqrtEstimate((128 + i) / 256.0);
+		}
+	}
+
 	private EnumDataType dataType;
 	private EnumRegisterType registerType;
 	private int destinationIndex;
@@ -48,6 +71,7 @@ public class ReciprocalSqrtReciprocalEstimate extends Instruction {
 	private EnumInstruction instruction;
 	
 	private int size;
+	private int[] lanes;
 	
 	
 	public ReciprocalSqrtReciprocalEstimate(EnumInstruction instruction,EnumRegisterType registerType) {
@@ -61,110 +85,111 @@ public class ReciprocalSqrtReciprocalEstimate extends Instruction {
 		this.destinationIndex = arguments.getRegisterIndexes().get(0);
 		this.sourceIndex = arguments.getRegisterIndexes().get(1);
 		this.size = dataType.getSizeInBits();
+		this.lanes = new int[NEONRegisterSet.getLaneCount(registerType, size)];
 	}
 
 	@Override
 	public void execute(Machine machine) {
 		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
-		int[] sourceParts = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(registerType, sourceIndex));
+		int laneCount = NEONRegisterSet.getLaneCount(registerType, size);
+		for (int i = 0; i < laneCount; i++) {
+			int source = neonRegSet.getLaneInt(registerType, sourceIndex, size, i);
+			neonRegSet.setLane(registerType, destinationIndex, size, i, calculate(source), false);
+		}
+		neonRegSet.fireRegisterChanged(registerType, destinationIndex);
+		
+		machine.incrementPCBy4();
+		highlightRegisters(machine);
+	}
 
-		int[] resultParts = new int[sourceParts.length];
-		if (instruction == EnumInstruction.vrecpe){
-			if (dataType == EnumDataType._f32){
-				for (int i = 0; i < sourceParts.length; i++) {
-					resultParts[i] = calculateReciprocalEstimateFloat(sourceParts[i]);
-				}	
-			} else if (dataType == EnumDataType._u32){
-				for (int i = 0; i < sourceParts.length; i++) {
-					resultParts[i] = calculateReciprocEstimateUnsigned32(sourceParts[i]);
-				}	
-			} else {
-				assert false;
-			}
-		} else if (instruction == EnumInstruction.vrsqrte){
-			if (dataType == EnumDataType._f32){
-				for (int i = 0; i < sourceParts.length; i++) {
-					resultParts[i] = calculateReciprocSqrtEstimateFloat(sourceParts[i]);
-				}	
-			} else if (dataType == EnumDataType._u32){
-				for (int i = 0; i < sourceParts.length; i++) {
-					resultParts[i] = calculateReciprocSqrtEstimateUnsigned32(sourceParts[i]);
-				}	
-			} else {
-				assert false;
+	@Override
+	public BlockOperation compile() {
+		return new BlockOperation() {
+			public boolean execute(long[] doubleRegisters) {
+				NEONRegisterSet.readLanesInt(doubleRegisters, registerType, sourceIndex, size, lanes);
+				for (int i = 0; i < lanes.length; i++) {
+					lanes[i] = calculate(lanes[i]);
+				}
+				NEONRegisterSet.writeLanesInt(doubleRegisters, registerType, destinationIndex, size, lanes);
+				return false;
 			}
-		}  		
+		};
+	}
 
-		int[] resultWords = DataTypeTools.createWordsFromOnePartPerWord(size, resultParts);
-		neonRegSet.setRegisterValues(registerType, true, destinationIndex, resultWords);
-		
-		machine.incrementPCBy4();
+	@Override
+	void highlight(Machine machine) {
 		highlightRegisters(machine);
 	}
 
+	@Override
+	int getReadDoubleRegisters() {
+		return getDoubleRegisterMask(registerType, sourceIndex);
+	}
+
+	@Override
+	int getWrittenDoubleRegisters() {
+		return getDoubleRegisterMask(registerType, destinationIndex);
+	}
+
+	private int calculate(int source) {
+		if (instruction == EnumInstruction.vrecpe) {
+			if (dataType == EnumDataType._f32) {
+				return calculateReciprocalEstimateFloat(source);
+			} else if (dataType == EnumDataType._u32) {
+				return calculateReciprocEstimateUnsigned32(source);
+			}
+		} else if (instruction == EnumInstruction.vrsqrte) {
+			if (dataType == EnumDataType._f32) {
+				return calculateReciprocSqrtEstimateFloat(source);
+			} else if (dataType == EnumDataType._u32) {
+				return calculateReciprocSqrtEstimateUnsigned32(source);
+			}
+		}
+		assert false;
+		return 0;
+	}
+
 	/**
 	 * Impemented by the ARM documentation: A2-62  "FPRSqrtEstimate()" 
 	 */
-	private int calculateReciprocSqrtEstimateFloat(int value) {
- 		float floatValue = DataTypeTools.intToFloat(value);
-		int result;
+	static int calculateReciprocSqrtEstimateFloat(int value) {
+		int valueExponent = (value & 0x7f800000) >>> 23;
+		int fraction = value & 0x7fffff;
 		boolean negative = (value & 0x80000000) != 0;
 		
-		if (Float.isNaN(floatValue)){
-			result = 0x7fc00000;
-		} else if (floatValue == 0){
-			result = floatValue > 0 ? 0x7f800000 : 0xff800000;
+		if (valueExponent == 0xff && fraction != 0){
+			return 0x7fc00000;
+		} else if (valueExponent == 0 && fraction == 0){
+			return 0xff800000;
 		} else if (negative){
-			result = 0x7fc00000; 
-		} else if (Float.isInfinite(floatValue)){
-			result = 0;
-		} else {
-			long scaled;
-			long valueLong = DataTypeTools.LongFromIntegers(value, 0);
-			if (DataTypeTools.getBit(value, 23) == false){
-				scaled = ((valueLong << 32) & 0x8000000000000000l) | 0x3fe0000000000000l | ((valueLong & 0x7FFFFFl) << 29);
-			} else {
-				scaled = ((valueLong << 32) & 0x8000000000000000l) | 0x3fd0000000000000l | ((valueLong & 0x7FFFFFl) << 29);
-			}
-			
-			int valueExponent = (value & 0x7f800000) >>> 23;			
-			int resultExp = (380 - valueExponent) / 2;
-			long estimate = recipSqrtEstimate(scaled);
-			
-			result = (int)( ((estimate & 0x8000000000000000L) >>> 32) | ((resultExp & 255) << 23) | ((estimate >>> 29) &  0x7FFFFF));
-			result++;	// it's a hack due to the lack of precision of recipEstimate(). Remove it after fix.
+			return 0x7fc00000; 
+		} else if (valueExponent == 0xff){
+			return 0;
 		}
-		return result;
+		// the operand is scaled to 0.5 <= a < 1.0 if the exponent is even, to 0.25 <= a < 0.5 if it is odd
+		int index = DataTypeTools.getBit(value, 23) ? fraction >>> 16 : 128 | (fraction >>> 16);
+		int resultExp = (380 - valueExponent) / 2;
+		return ((resultExp & 255) << 23) | ((reciprocalSqrtEstimates[index] & 0xff) << 15);
 	}
 
 	/**
 	 * Impemented by the ARM documentation: A2-62  "UnsignedRSqrtEstimate()" 
 	 */
-	private int calculateReciprocSqrtEstimateUnsigned32(int value) {
-		int result;
-		if ((value & 0x3FFFFFFF) == 0)
-			result = 0xFFFFFFFF;
-		else {
-			long longValue = DataTypeTools.LongFromIntegers(value, 0);
-			long dp_operand;
-			
-			if (DataTypeTools.getBit(value, 31) == true){
-				dp_operand = 0x3FE0000000000000L | ((longValue & 0x7FFFFFFFL) << 21L);			
-			} else {
-				dp_operand = 0x3FD0000000000000L | ((longValue & 0x3FFFFFFFL) << 22L);
-			}
-			long estimate = recipSqrtEstimate(dp_operand);
-			result = 0x80000000 | ((int)((estimate & 0xFFFFFFFE00000L) >>> 21));
-			result++;	// it's a hack due to the lack of precision of recipEstimate(). Remove it after fix.
+	static int calculateReciprocSqrtEstimateUnsigned32(int value) {
+		if ((value >>> 30) == 0) {
+			return 0xFFFFFFFF;
 		}
-		return result;
+		// the operand is scaled to 0.5 <= a < 1.0 if bit 31 is set, to 0.25 <= a < 0.5 otherwise
+		int index = DataTypeTools.getBit(value, 31) ? 128 | ((value >>> 24) & 0x7f) : (value >>> 23) & 0x7f;
+		return reciprocalSqrtEstimates[index] << 23;
 	}
 	
 	/**
 	 * Impemented by the ARM documentation: A2-62  "recip_sqrt_estimate(double a)" 
+	 * 
+	 * @return The estimate in units of 1/256.
 	 */
-	private long recipSqrtEstimate(long longInput) {
-		double doubleInput = DataTypeTools.longToDouble(longInput);
+	static int recipSqrtEstimate(double doubleInput) {
 		int q0, q1, s;
 		double r;
 
@@ -176,9 +201,7 @@ public class ReciprocalSqrtReciprocalEstimate extends Instruction {
 			r = 1.0 / Math.sqrt(((double)q1 + 0.5) / 256.0); /* reciprocal root r */
 		}
 		s = (int)(256.0 * r + 0.5); /* r in units of 1/256 rounded to nearest */
-		double resultDouble = ((double)s / 256.0);
-		long resultLong = DataTypeTools.DoubleToLong(resultDouble);
-		return resultLong;
+		return s;
 	}
 
 	private void highlightRegisters(Machine machine) {
@@ -188,57 +211,46 @@ public class ReciprocalSqrtReciprocalEstimate extends Instruction {
 	/**
 	 * Impemented by thy ARM documentation: A2-58  "UnsignedRecipEstimate()" 
 	 */
-	private int calculateReciprocEstimateUnsigned32(int value) {
-		int result;
-		if (value >= 0)
-			result = 0xFFFFFFFF;
-		else{
-			long longValue = DataTypeTools.LongFromIntegers(value, 0);
-			long dp_operand = 0x3FE0000000000000L | ((longValue & 0x7FFFFFFFL) << 21L);
-			long estimate = recipEstimate(dp_operand);
-			result = 0x80000000 | ((int)((estimate & 0xFFFFFFFE00000L) >>> 21));
-			result++;	// it's a hack due to the lack of precision of recipEstimate(). Remove it after fix.
+	static int calculateReciprocEstimateUnsigned32(int value) {
+		if (value >= 0) {
+			return 0xFFFFFFFF;
 		}
-		return result;
+		return reciprocalEstimates[(value >>> 23) & 0xff] << 23;
 	}
 	
 	/**
 	 * Impemented by thy ARM documentation: A2-58  "FPRecipEstimate()"
 	 */
-	private int calculateReciprocalEstimateFloat(final int value){
- 		float floatValue = DataTypeTools.intToFloat(value);
-		int result;
-		boolean negative = floatValue < 0;
-		if (Float.isNaN(floatValue)){
-			result = 0x7fc00000;
-		} else if (Float.isInfinite(floatValue) || floatValue == 0.0){
-			result = floatValue > 0 ? 0x7f800000 : 0xff800000;
-		} else if (Math.abs(floatValue) >= Math.pow(2.0, 126)){
-			result = negative ? 0x80000000 : 0 ;
-		} else {
-			long valueLong = DataTypeTools.LongFromIntegers(value, 0);
-			long scaled = ((valueLong << 32) & 0x8000000000000000l) | 0x3fe0000000000000l | ((valueLong & 0x7FFFFFl) << 29);
-			int resultExp = 253 - DataTypeTools.getFloatExponentRaw(value);
-			long estimate = recipEstimate(scaled);
-			result = (int)( ((estimate & 0x8000000000000000L) >>> 32) | ((resultExp & 255) << 23) | ((estimate >>> 29) &  0x7FFFFF));
-			result++;	// it's a hack due to the lack of precision of recipEstimate().  Remove it after fix.
+	static int calculateReciprocalEstimateFloat(final int value){
+		int valueExponent = DataTypeTools.getFloatExponentRaw(value);
+		int fraction = value & 0x7fffff;
+		int sign = value & 0x80000000;
+		if (valueExponent == 0xff && fraction != 0){
+			return 0x7fc00000;
+		} else if (valueExponent == 0xff){
+			return sign | 0x7f800000;
+		} else if (valueExponent == 0 && fraction == 0){
+			return 0xff800000;
+		} else if (valueExponent >= 253){	// |value| >= 2^126
+			return sign;
 		}
-		return result;
+		// the operand is scaled to 0.5 <= a < 1.0
+		int resultExp = 253 - valueExponent;
+		return sign | ((resultExp & 255) << 23) | ((reciprocalEstimates[fraction >>> 15] & 0xff) << 15);
 	}
 	
 	/**
 	 * Impemented by thy ARM documentation: A2-58 "recip_estimate()"
+	 * 
+	 * @return The estimate in units of 1/256.
 	 */
-	private long recipEstimate(long value){
-		double a = DataTypeTools.longToDouble(value);
+	static int recipEstimate(double a){
 		int q, s;
 		double r;
 		q = (int)(a * 512.0); /* a in units of 1/512 rounded down */
 		r = 1.0 / (((double)q + 0.5) / 512.0); /* reciprocal r */
 		s = (int)(256.0 * r + 0.5); /* r in units of 1/256 rounded to nearest */
-		double doubleResult = (double)s / 256.0;
-		long longResult = DataTypeTools.DoubleToLong(doubleResult);
-		return longResult;
+		return s;
 	}
 
 	@Override
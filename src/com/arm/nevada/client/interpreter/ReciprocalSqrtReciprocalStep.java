@@ -62,24 +62,20 @@ public class ReciprocalSqrtReciprocalStep extends Instruction {
 	@Override
 	public void execute(Machine machine) {
 		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
-		int[] source1Parts = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(registerType, source1Index));
-		int[] source2Parts = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(registerType, source2Index));
-
-		int[] resultParts = new int[source1Parts.length];
-
-		if (instruction == EnumInstruction.vrecps) {
-			for (int i = 0; i < source1Parts.length; i++) {
-				resultParts[i] = calculateReciprocStep(source1Parts[i], source2Parts[i]);
-			}
-		} else if (instruction == EnumInstruction.vrsqrts) {
-			for (int i = 0; i < source1Parts.length; i++) {
-				resultParts[i] = calculateReciprocSquareRootStep(source1Parts[i], source2Parts[i]);
-			}
-		} else
-			assert false;
-
-		int[] resultWords = DataTypeTools.createWordsFromOnePartPerWord(size, resultParts);
-		neonRegSet.setRegisterValues(registerType, true, destinationIndex, resultWords);
+		int laneCount = NEONRegisterSet.getLaneCount(registerType, size);
+		for (int i = 0; i < laneCount; i++) {
+			int source1 = neonRegSet.getLaneInt(registerType, source1Index, size, i);
+			int source2 = neonRegSet.getLaneInt(registerType, source2Index, size, i);
+			int result = 0;
+			if (instruction == EnumInstruction.vrecps) {
+				result = calculateReciprocStep(source1, source2);
+			} else if (instruction == EnumInstruction.vrsqrts) {
+				result = calculateReciprocSquareRootStep(source1, source2);
+			} else
+				assert false;
+			neonRegSet.setLane(registerType, destinationIndex, size, i, result, false);
+		}
+		neonRegSet.fireRegisterChanged(registerType, destinationIndex);
 		machine.incrementPCBy4();
 		highlightRegisters(machine);
 	}
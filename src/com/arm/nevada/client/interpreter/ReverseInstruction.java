@@ -27,11 +27,9 @@
 package com.arm.nevada.client.interpreter;
 
 import com.arm.nevada.client.interpreter.machine.Machine;
-import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
 import com.arm.nevada.client.parser.Arguments;
 import com.arm.nevada.client.parser.EnumInstruction;
 import com.arm.nevada.client.parser.EnumRegisterType;
-import com.arm.nevada.client.utils.DataTypeTools;
 
 public class ReverseInstruction extends Instruction {
 
@@ -42,6 +40,7 @@ public class ReverseInstruction extends Instruction {
 	private EnumInstruction instruction;
 	private Integer size;
 	private int regionSize;
+	private ByteShuffle shuffle;
 
 	public ReverseInstruction(EnumInstruction instruction, EnumRegisterType registerType) {
 		this.instruction = instruction;
@@ -73,25 +72,12 @@ public class ReverseInstruction extends Instruction {
 		this.destinationIndex = arguments.getRegisterIndexes().get(0);
 		this.sourceIndex = arguments.getRegisterIndexes().get(1);
 		this.size = dataType.getSizeInBits();
+		this.shuffle = ByteShuffle.reverse(registerType, size, regionSize, destinationIndex, sourceIndex);
 	}
 
 	@Override
 	public void execute(Machine machine) {
-		int partPerRegion = regionSize / size;
-		int regionCount = registerType.getSize() / regionSize;
-
-		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
-		int[] sourceParts = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(registerType, sourceIndex));
-		int[] resultParts = new int[sourceParts.length];
-
-		for (int regionI = 0; regionI < regionCount; regionI++) {
-			for (int elemI = 0; elemI < partPerRegion; elemI++) {
-				resultParts[regionI * partPerRegion + (partPerRegion - elemI - 1)] = sourceParts[regionI * partPerRegion + elemI];
-			}
-		}
-
-		int[] resultWords = DataTypeTools.createWordsFromOnePartPerWord(size, resultParts);
-		neonRegSet.setRegisterValues(registerType, true, destinationIndex, resultWords);
+		shuffle.execute(machine.getNEONRegisterSet());
 		machine.incrementPCBy4();
 		highlightRegisters(machine);
 	}
@@ -100,6 +86,26 @@ public class ReverseInstruction extends Instruction {
 		machine.highlightNEONRegister(registerType, destinationIndex);
 	}
 
+	@Override
+	public BlockOperation compile() {
+		return shuffle.compile();
+	}
+
+	@Override
+	void highlight(Machine machine) {
+		highlightRegisters(machine);
+	}
+
+	@Override
+	int getReadDoubleRegisters() {
+		return getDoubleRegisterMask(registerType, sourceIndex);
+	}
+
+	@Override
+	int getWrittenDoubleRegisters() {
+		return getDoubleRegisterMask(registerType, destinationIndex);
+	}
+
 	@Override
 	public EnumInstruction getInstructionName() {
 		return instruction;
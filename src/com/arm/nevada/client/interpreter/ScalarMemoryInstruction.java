@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+import com.arm.nevada.client.interpreter.machine.ARMRegisterSet;
+import com.arm.nevada.client.interpreter.machine.Machine;
+import com.arm.nevada.client.parser.Arguments;
+import com.arm.nevada.client.parser.EnumInstruction;
+
+/**
+ * Word load and store of a core register: ldr and str. Like the NEON accesses without alignment, the address may be
+ * unaligned.
+ */
+public class ScalarMemoryInstruction extends Instruction {
+
+	public static enum AddressingMode {
+		/**
+		 * [rn, #imm], the base register is not changed.
+		 */
+		OFFSET,
+		/**
+		 * [rn, #imm]!, the base register is written back with the address.
+		 */
+		PRE_INDEXED,
+		/**
+		 * [rn], #imm, the base register is accessed and then written back with the incremented address.
+		 */
+		POST_INDEXED;
+	}
+
+	private EnumInstruction instruction;
+	private AddressingMode mode;
+	private int registerIndex;
+	private int baseRegisterIndex;
+	private int offset;
+
+	public ScalarMemoryInstruction(EnumInstruction instruction, AddressingMode mode) {
+		assert instruction == EnumInstruction.ldr || instruction == EnumInstruction.str;
+		this.instruction = instruction;
+		this.mode = mode;
+	}
+
+	@Override
+	public void bindArguments(Arguments arguments) {
+		this.registerIndex = arguments.getRegisterIndexes().get(0);
+		this.baseRegisterIndex = arguments.getRegisterIndexes().get(1);
+		this.offset = (int) arguments.getImmediateValue();
+	}
+
+	@Override
+	public void execute(Machine machine) {
+		ARMRegisterSet registers = machine.getArmRegisterSet();
+		int baseAddress = registers.getOneValue(baseRegisterIndex);
+		int address = mode == AddressingMode.POST_INDEXED ? baseAddress : baseAddress + offset;
+		if (!machine.getMemorySet().isAccessible(address, 4)) {
+			machine.reportSegmentationFault();
+			return;
+		}
+		if (instruction == EnumInstruction.ldr) {
+			registers.setOneValue(registerIndex, machine.getMemorySet().getWord(address), true);
+			machine.highlightARMRegister(registerIndex);
+		} else {
+			machine.getMemorySet().setWord(address, registers.getOperandValue(registerIndex), true);
+			machine.highlightMemoryBytes(address, address + 3);
+		}
+		if (mode != AddressingMode.OFFSET) {
+			registers.setOneValue(baseRegisterIndex, baseAddress + offset, true);
+			machine.highlightARMRegister(baseRegisterIndex);
+		}
+		machine.incrementPCBy4();
+	}
+
+	@Override
+	public EnumInstruction getInstructionName() {
+		return instruction;
+	}
+
+	@Override
+	public Instruction create() {
+		return new ScalarMemoryInstruction(instruction, mode);
+	}
+
+	@Override
+	public EnumDataType getDataType() {
+		return null;
+	}
+
+	@Override
+	boolean accessesMemory() {
+		return true;
+	}
+
+	@Override
+	int getReadDoubleRegisters() {
+		return 0;
+	}
+
+	@Override
+	int getWrittenDoubleRegisters() {
+		return 0;
+	}
+}
@@ -57,6 +57,17 @@ public class ShiftInstruction extends Instruction {
 	private EnumRegisterType destinationRegisterType;
 	private Integer destSize;
 
+	// lane buffers, allocated by bindArguments
+	private int[] currentIntParts;
+	private long[] currentLongParts;
+	private int[] leftShiftAmounts;
+	private long[] destParts;
+	private int[] destIntParts;
+	// the bytes of the shift register, only for the register shifts
+	private int[] shiftBytes;
+	// set by the calculation if any of the lanes is saturated
+	private boolean saturatedLane;
+
 	public ShiftInstruction(EnumInstruction instruction, EnumRegisterType sourceRegisterType, boolean immediate) {
 		this.instruction = instruction;
 		this.sourceRegisterType = sourceRegisterType;
@@ -215,82 +226,173 @@ public class ShiftInstruction extends Instruction {
 			destSize = dataType.getSizeInBits();
 			destinationRegisterType = sourceRegisterType;
 		}
+
+		int laneCount = NEONRegisterSet.getLaneCount(sourceRegisterType, dataType.getSizeInBits());
+		currentIntParts = new int[laneCount];
+		currentLongParts = new long[laneCount];
+		leftShiftAmounts = new int[laneCount];
+		destParts = new long[NEONRegisterSet.getLaneCount(destinationRegisterType, destSize)];
+		destIntParts = destSize <= 32 ? new int[destParts.length] : null;
+		shiftBytes = immediate ? null : new int[sourceRegisterType.getSize() / 8];
 	}
 
 	@Override
 	public void execute(Machine machine) {
 		NEONRegisterSet neonRegisterSet = machine.getNEONRegisterSet();
+		int size = dataType.getSizeInBits();
+		if (size == 64) {
+			neonRegisterSet.getLanes(sourceRegisterType, sourceDataIndex, 64, currentLongParts);
+		} else {
+			neonRegisterSet.getLanesInt(sourceRegisterType, sourceDataIndex, size, currentIntParts);
+		}
+		if (!immediate) {
+			neonRegisterSet.getLanesInt(sourceRegisterType, shiftRegisterIndex, 8, shiftBytes);
+		}
+		if (isCalculatedOn64Bit()) {
+			neonRegisterSet.getLanes(destinationRegisterType, destinationIndex, destSize, destParts);
+		} else {
+			neonRegisterSet.getLanesInt(destinationRegisterType, destinationIndex, destSize, destIntParts);
+		}
+
+		if (calculate()) {
+			saturated(machine);
+		}
+
+		if (destSize == 64) {
+			neonRegisterSet.setLanes(destinationRegisterType, destinationIndex, 64, currentLongParts, true);
+		} else {
+			neonRegisterSet.setLanesInt(destinationRegisterType, destinationIndex, destSize, currentIntParts, true);
+		}
+		highlightRegisters(machine);
+		machine.incrementPCBy4();
+	}
+
+	@Override
+	public BlockOperation compile() {
+		return new BlockOperation() {
+			public boolean execute(long[] doubleRegisters) {
+				int size = dataType.getSizeInBits();
+				if (size == 64) {
+					NEONRegisterSet.readLanes(doubleRegisters, sourceRegisterType, sourceDataIndex, 64, currentLongParts);
+				} else {
+					NEONRegisterSet.readLanesInt(doubleRegisters, sourceRegisterType, sourceDataIndex, size, currentIntParts);
+				}
+				if (!immediate) {
+					NEONRegisterSet.readLanesInt(doubleRegisters, sourceRegisterType, shiftRegisterIndex, 8, shiftBytes);
+				}
+				if (isCalculatedOn64Bit()) {
+					NEONRegisterSet.readLanes(doubleRegisters, destinationRegisterType, destinationIndex, destSize, destParts);
+				} else {
+					NEONRegisterSet.readLanesInt(doubleRegisters, destinationRegisterType, destinationIndex, destSize,
+							destIntParts);
+				}
+				boolean saturated = calculate();
+				if (destSize == 64) {
+					NEONRegisterSet.writeLanes(doubleRegisters, destinationRegisterType, destinationIndex, 64, currentLongParts);
+				} else {
+					NEONRegisterSet.writeLanesInt(doubleRegisters, destinationRegisterType, destinationIndex, destSize,
+							currentIntParts);
+				}
+				return saturated;
+			}
+		};
+	}
+
+	@Override
+	void setSaturationFlag(Machine machine) {
+		saturated(machine);
+	}
+
+	/**
+	 * @return True if the lanes are calculated on 64 bit, the source or the extended source is 64 bit.
+	 */
+	private boolean isCalculatedOn64Bit() {
+		int size = dataType.getSizeInBits();
+		return size == 64 || (changeSize && !narrow && size == 32);
+	}
+
+	/**
+	 * Calculates the result lanes from the lanes read into the buffers. The result is in currentLongParts if the
+	 * destination is 64 bit, in currentIntParts otherwise.
+	 * 
+	 * @return True if any of the lanes is saturated.
+	 */
+	private boolean calculate() {
 		boolean signedDataType = dataType.getSigned() == null ? false : dataType.getSigned();
 
 		final int orgSize = dataType.getSizeInBits();
 		int currentSize = orgSize;
 
-		int[] currentIntParts = new int[sourceRegisterType.getSize() / currentSize];
-		long[] currentLongParts = new long[sourceRegisterType.getSize() / currentSize];
+		int[] currentIntParts = this.currentIntParts;
+		long[] currentLongParts = this.currentLongParts;
 
-		if (currentSize == 64) {
-			currentLongParts = neonRegisterSet.getRegisterValuesLong(sourceRegisterType, sourceDataIndex);
-		} else {
-			int[] words = neonRegisterSet.getRegisterValues(sourceRegisterType, sourceDataIndex);
-			for (int i = 0; i < words.length; i++) {
-				int[] parts = DataTypeTools.getParts(currentSize, words[i]);
-				for (int j = 0; j < parts.length; j++) {
-					currentIntParts[i * 32 / currentSize + j] = signedDataType ? DataTypeTools.extendSignedToInt(parts[j], currentSize) : parts[j];
-				}
+		if (currentSize != 64 && signedDataType) {
+			for (int i = 0; i < currentIntParts.length; i++) {
+				currentIntParts[i] = DataTypeTools.extendSignedToInt(currentIntParts[i], currentSize);
 			}
 		}
 
 		if (changeSize && !narrow) {
 			if (currentSize == 32) {
-				currentLongParts = extendFrom32To64(currentIntParts, signedDataType);
+				extendFrom32To64(currentIntParts, currentLongParts, signedDataType);
 			} else {
-				currentIntParts = extendToMax32bit(currentIntParts, orgSize, signedDataType);
+				extendToMax32bit(currentIntParts, orgSize, signedDataType);
 			}
 			currentSize *= 2;
 		}
 
-		int[] leftShiftAmount = getLeftShiftAmount(neonRegisterSet);
-
-		long[] destParts = DataTypeTools.createPartListFromWordsLong(destSize,
-				machine.getNEONRegisterSet().getRegisterValues(destinationRegisterType, destinationIndex));
+		int[] leftShiftAmount = getLeftShiftAmount();
 
+		saturatedLane = false;
 		int afterShiftSize = narrow ? currentSize / 2 : currentSize;
 		if (currentSize == 64) {
+			long[] destParts = this.destParts;
 			for (int partI = 0; partI < currentLongParts.length; partI++) {
-				currentLongParts[partI] = calculate64Bit(machine, currentLongParts[partI], leftShiftAmount[partI], currentSize, afterShiftSize,
+				currentLongParts[partI] = calculate64Bit(currentLongParts[partI], leftShiftAmount[partI], currentSize, afterShiftSize,
 						destParts[partI]);
 			}
 			assert afterShiftSize == 64 || afterShiftSize == 32;
 			if (afterShiftSize == 32) {
 				for (int i = 0; i < currentLongParts.length; i++) {
-					currentIntParts[i] = DataTypeTools.integerFromLong(currentLongParts[i])[0];
+					currentIntParts[i] = (int) currentLongParts[i];
 				}
 			}
 		} else {
+			// the lanes of maximum 32 bit are calculated without long operations
+			int[] destIntParts = this.destIntParts;
 			for (int partI = 0; partI < currentIntParts.length; partI++) {
-				currentIntParts[partI] = calculateMax32bit(machine, currentIntParts[partI], leftShiftAmount[partI], currentSize, afterShiftSize,
-						destParts[partI]);
+				currentIntParts[partI] = calculateMax32bit(currentIntParts[partI], leftShiftAmount[partI], currentSize, afterShiftSize,
+						destIntParts[partI]);
 			}
 		}
-		currentSize = afterShiftSize;
-
-		if (currentSize == 64) {
-			store64(machine, currentLongParts, destinationRegisterType, destinationIndex);
-		} else {
-			storeMax32(machine, currentSize, currentIntParts, destinationRegisterType, destinationIndex);
-		}
-		highlightRegisters(machine);
-		machine.incrementPCBy4();
+		return saturatedLane;
 	}
 
 	private void highlightRegisters(Machine machine) {
 		machine.highlightNEONRegister(destinationRegisterType, destinationIndex);
 	}
 
-	private int[] getLeftShiftAmount(NEONRegisterSet neonRegisterSet) {
+	@Override
+	void highlight(Machine machine) {
+		highlightRegisters(machine);
+	}
+
+	@Override
+	int getReadDoubleRegisters() {
+		int shiftRegister = immediate ? 0 : getDoubleRegisterMask(sourceRegisterType, shiftRegisterIndex);
+		return getDoubleRegisterMask(sourceRegisterType, sourceDataIndex) | shiftRegister
+				| getDoubleRegisterMask(destinationRegisterType, destinationIndex);
+	}
+
+	@Override
+	int getWrittenDoubleRegisters() {
+		return getDoubleRegisterMask(destinationRegisterType, destinationIndex);
+	}
+
+	private int[] getLeftShiftAmount() {
 		int size = dataType.getSizeInBits();
 		int count = this.sourceRegisterType.getSize() / size;
-		int[] out = new int[count];
+		int[] out = leftShiftAmounts;
 
 		if (immediate) {
 			for (int i = 0; i < out.length; i++) {
@@ -299,27 +401,21 @@ public class ShiftInstruction extends Instruction {
 		} else {
 			for (int i = 0; i < count; i++) {
 				// shift amount is the lower 8 bit
-				out[i] = neonRegisterSet.getSubRegister(sourceRegisterType, 8, this.shiftRegisterIndex, size / 8 * i);
-				out[i] = DataTypeTools.extendSignedToInt(out[i], 8);
+				out[i] = DataTypeTools.extendSignedToInt(shiftBytes[size / 8 * i], 8);
 			}
 		}
 		return out;
 	}
 
-	private int[] extendToMax32bit(int[] input, int orgSize, boolean signed) {
-		int[] output = new int[input.length];
-		for (int i = 0; i < input.length; i++) {
-			if (signed) {
-				output[i] = DataTypeTools.extendSignedToInt(input[i], orgSize);
-			} else {
-				output[i] = input[i];
+	private void extendToMax32bit(int[] parts, int orgSize, boolean signed) {
+		if (signed) {
+			for (int i = 0; i < parts.length; i++) {
+				parts[i] = DataTypeTools.extendSignedToInt(parts[i], orgSize);
 			}
 		}
-		return output;
 	}
 
-	private long[] extendFrom32To64(int[] input, boolean signed) {
-		long[] output = new long[input.length];
+	private void extendFrom32To64(int[] input, long[] output, boolean signed) {
 		for (int i = 0; i < input.length; i++) {
 			if (signed) {
 				output[i] = input[i]; // automatic signed cast from int32 to long
@@ -327,7 +423,6 @@ public class ShiftInstruction extends Instruction {
 				output[i] = DataTypeTools.LongFromIntegers(input[i], 0);
 			}
 		}
-		return output;
 	}
 
 	private int roundMax32Bit(int value, int leftShitftAmount) {
@@ -367,12 +462,12 @@ public class ShiftInstruction extends Instruction {
 	 *            The output size, used for narrowing. SourceSize >= outSize
 	 * @return
 	 */
-	private int calculateMax32bit(Machine machine, final int source, int leftShiftAmount, final int originalSize, final int outSize, long destValue) {
+	private int calculateMax32bit(final int source, int leftShiftAmount, final int originalSize, final int outSize, int destValue) {
 		if (leftShiftAmount == 0 || source == 0)
 			return source;
 
 		if (dataType.getSigned() != null && dataType.getSigned() == true) {
-			destValue = DataTypeTools.extendToSingnedLong(destValue, dataType.getSizeInBits());
+			destValue = DataTypeTools.extendSignedToInt(destValue, dataType.getSizeInBits());
 		}
 
 		boolean originalValueNonNegative = source >= 0;
@@ -390,7 +485,7 @@ public class ShiftInstruction extends Instruction {
 			boolean satUnsigned = saturatingUnsigned;
 			Integer saturated = DataTypeTools.saturateMax32bit(originalSize, outSize, source, leftShiftAmount, typeUnsigned, satUnsigned);
 			if (saturated != null) {
-				saturated(machine);
+				saturatedLane = true;
 				return saturated;
 			}
 		}
@@ -429,7 +524,7 @@ public class ShiftInstruction extends Instruction {
 				bitMask = bitMask >>> (-leftShiftAmount / 2);
 				bitMask = bitMask >>> (-leftShiftAmount % 2);
 			}
-			current = current | (DataTypeTools.integerFromLong(destValue)[0] & ~bitMask);
+			current = current | (destValue & ~bitMask);
 		}
 
 		// optional accumulate
@@ -453,7 +548,7 @@ public class ShiftInstruction extends Instruction {
 	 *            The output size, used for narrowing. SourceSize >= outSize
 	 * @return
 	 */
-	private long calculate64Bit(Machine machine, final long source, int leftShiftAmount, final int originalSize, final int outSize, long destValue) {
+	private long calculate64Bit(final long source, int leftShiftAmount, final int originalSize, final int outSize, long destValue) {
 		if (leftShiftAmount == 0 || source == 0)
 			return source;
 
@@ -478,7 +573,7 @@ public class ShiftInstruction extends Instruction {
 			boolean satUnsigned = saturatingUnsigned;
 			Long saturated = DataTypeTools.saturate64bit(originalSize, outSize, source, leftShiftAmount, typeUnsigned, satUnsigned);
 			if (saturated != null) {
-				saturated(machine);
+				saturatedLane = true;
 				return saturated;
 			}
 		}
@@ -524,34 +619,6 @@ public class ShiftInstruction extends Instruction {
 		return current;
 	}
 
-	private void storeMax32(Machine machine, int size, int[] parts, EnumRegisterType regType, int destIndex) {
-		final int doulbeCount = regType.getSize() / 64;
-		int[] allWords = new int[regType.getSize() / 32];
-
-		for (int doubleI = 0; doubleI < doulbeCount; doubleI++) {
-			for (int wordI = 0; wordI < 2; wordI++) {
-				int[] wordParts = new int[32 / size];
-				for (int partI = 0; partI < 32 / size; partI++) {
-					wordParts[partI] = parts[doubleI * 64 / size + wordI * 32 / size + partI];
-				}
-				allWords[doubleI * 2 + wordI] = DataTypeTools.createByParts(wordParts);
-			}
-		}
-		machine.getNEONRegisterSet().setRegisterValues(regType, true, destIndex, allWords);
-	}
-
-	private void store64(Machine machine, long[] parts, EnumRegisterType regType, int destIndex) {
-		final int doulbeCount = regType.getSize() / 64;
-
-		int[] allWord = new int[doulbeCount * 2];
-		for (int doubleI = 0; doubleI < doulbeCount; doubleI++) {
-			int[] wordsFromLong = DataTypeTools.integerFromLong(parts[doubleI]);
-			allWord[doubleI * 2 + 0] = wordsFromLong[0];
-			allWord[doubleI * 2 + 1] = wordsFromLong[1];
-		}
-		machine.getNEONRegisterSet().setRegisterValues(regType, true, destIndex, allWord);
-	}
-
 	@Override
 	public EnumInstruction getInstructionName() {
 		return instruction;
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+import com.arm.nevada.client.interpreter.machine.Machine;
+import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
+
+/**
+ * Fused execution unit of consecutive instructions forming a common idiom, see {@link SuperinstructionFusion}. The
+ * members work on a detached copy of the D registers like in a {@link CompiledBlock}, so the registers passed from
+ * one member to the next are not written back and read again. The changed registers are written back once, then
+ * the members highlight the same as if they were executed one by one.
+ */
+public class Superinstruction {
+	private static final int doubleRegisterCount = 32;
+
+	private final String idiom;
+	private final Instruction[] members;
+	private final BlockOperation[] operations;
+	// the leading load, executed by the unit itself
+	private final MemoryInstruction load;
+
+	private final long[] doubleRegisters = new long[doubleRegisterCount];
+	private final long[] loadedDoubleRegisters = new long[doubleRegisterCount];
+
+	/**
+	 * Use {@link #create(String, Instruction[])}.
+	 */
+	private Superinstruction(String idiom, Instruction[] members, BlockOperation[] operations, MemoryInstruction load) {
+		this.idiom = idiom;
+		this.members = members;
+		this.operations = operations;
+		this.load = load;
+	}
+
+	/**
+	 * @param members
+	 *            Bound instructions, only the first one can be a load of whole D registers.
+	 * @return Null if one of the members can't be compiled.
+	 */
+	static Superinstruction create(String idiom, Instruction[] members) {
+		BlockOperation[] operations = new BlockOperation[members.length];
+		MemoryInstruction load = null;
+		for (int i = 0; i < members.length; i++) {
+			if (i == 0 && members[0] instanceof MemoryInstruction) {
+				load = (MemoryInstruction) members[0];
+				if (!load.isDoubleRegisterLoad()) {
+					return null;
+				}
+				continue;
+			}
+			operations[i] = members[i].compile();
+			if (operations[i] == null) {
+				return null;
+			}
+		}
+		return new Superinstruction(idiom, members, operations, load);
+	}
+
+	public String getIdiom() {
+		return idiom;
+	}
+
+	/**
+	 * @return The number of fused instructions.
+	 */
+	public int getLength() {
+		return members.length;
+	}
+
+	public Instruction getMember(int index) {
+		return members[index];
+	}
+
+	/**
+	 * Executes the members from the current PC, which must point to the first member. The PC is stepped over all of
+	 * them, or left unchanged if the leading load faults, like the interpreter stops at the faulting instruction.
+	 */
+	public void execute(Machine machine) {
+		NEONRegisterSet neon = machine.getNEONRegisterSet();
+		for (int i = 0; i < doubleRegisterCount; i++) {
+			doubleRegisters[i] = neon.getDoubleRegister(i);
+			loadedDoubleRegisters[i] = doubleRegisters[i];
+		}
+		if (load != null && !load.loadDoubleRegisters(machine, doubleRegisters)) {
+			return;
+		}
+		for (int i = 0; i < operations.length; i++) {
+			if (operations[i] != null && operations[i].execute(doubleRegisters)) {
+				members[i].setSaturationFlag(machine);
+			}
+		}
+		for (int i = 0; i < doubleRegisterCount; i++) {
+			if (doubleRegisters[i] != loadedDoubleRegisters[i]) {
+				neon.setDoubleRegister(i, doubleRegisters[i], true);
+			}
+		}
+		machine.setPC(machine.getPC() + 4 * members.length);
+		for (Instruction member : members) {
+			member.highlight(machine);
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.arm.nevada.client.parser.EnumInstruction;
+
+/**
+ * Finds the common NEON idioms in a program and fuses them into {@link Superinstruction}s:
+ * <ul>
+ * <li>vld1 followed by an arithmetic or multiply instruction reading the loaded registers,</li>
+ * <li>vmull followed by a narrowing right shift of its result,</li>
+ * <li>vmul followed by vadd on the same destination,</li>
+ * <li>vzip or vuzp pairs,</li>
+ * <li>vld1 followed by a vtbl or vtbx looking up the loaded registers.</li>
+ * </ul>
+ * The decisions are collected in a report, one line per candidate pair.
+ */
+public class SuperinstructionFusion {
+	private static final Logger logger = Logger.getLogger(SuperinstructionFusion.class.getName());
+
+	private final List<String> report = new ArrayList<String>();
+
+	/**
+	 * Fuses the instructions greedily from the beginning, an instruction belongs to at most one unit.
+	 * 
+	 * @param instructions
+	 *            Bound instructions, null for the invalid lines.
+	 * @return The units indexed by their first instruction, null where no unit starts.
+	 */
+	public Superinstruction[] fuse(List<Instruction> instructions) {
+		Superinstruction[] units = new Superinstruction[instructions.size()];
+		for (int i = 0; i + 1 < instructions.size(); i++) {
+			Instruction first = instructions.get(i);
+			Instruction second = instructions.get(i + 1);
+			if (first == null || second == null) {
+				continue;
+			}
+			String idiom = findIdiom(first, second);
+			if (idiom == null) {
+				continue;
+			}
+			String pair = i + ": " + first.getInstructionName() + " + " + second.getInstructionName();
+			if (!isDependent(idiom, first, second)) {
+				addDecision(pair + " not fused, no dependency for " + idiom);
+				continue;
+			}
+			Superinstruction unit = Superinstruction.create(idiom, new Instruction[] { first, second });
+			if (unit == null) {
+				addDecision(pair + " not fused, unsupported form of " + idiom);
+				continue;
+			}
+			units[i] = unit;
+			addDecision(pair + " fused as " + idiom);
+			i++;
+		}
+		return units;
+	}
+
+	/**
+	 * @return The decisions of the previous {@link #fuse(List)} calls.
+	 */
+	public List<String> getReport() {
+		return report;
+	}
+
+	private void addDecision(String decision) {
+		report.add(decision);
+		logger.log(Level.FINE, decision);
+	}
+
+	/**
+	 * @return The name of the idiom formed by the instruction kinds, or null.
+	 */
+	private static String findIdiom(Instruction first, Instruction second) {
+		EnumInstruction firstName = first.getInstructionName();
+		EnumInstruction secondName = second.getInstructionName();
+		if (first instanceof MemoryInstruction && firstName == EnumInstruction.vld1) {
+			if (second instanceof ArithmeticInstructions || second instanceof MultiplyInstruction) {
+				return "load-arithmetic";
+			}
+			if (second instanceof TableInstruction) {
+				return "load-table";
+			}
+		} else if (first instanceof MultiplyInstruction && firstName == EnumInstruction.vmull) {
+			if (second instanceof ShiftInstruction && isNarrowingShift(secondName)) {
+				return "multiply-narrow";
+			}
+		} else if (first instanceof MultiplyInstruction && firstName == EnumInstruction.vmul) {
+			if (second instanceof ArithmeticInstructions && secondName == EnumInstruction.vadd) {
+				return "multiply-add";
+			}
+		} else if (first instanceof ZipInstruction && second instanceof ZipInstruction) {
+			return "zip-pair";
+		}
+		return null;
+	}
+
+	private static boolean isNarrowingShift(EnumInstruction name) {
+		switch (name) {
+		case vshrn:
+		case vrshrn:
+		case vqshrn:
+		case vqshrun:
+		case vqrshrn:
+		case vqrshrun:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return True if the second instruction works on the result of the first one as the idiom requires.
+	 */
+	private static boolean isDependent(String idiom, Instruction first, Instruction second) {
+		if (idiom.equals("zip-pair")) {
+			return true;
+		}
+		if (idiom.equals("multiply-add")) {
+			return first.getWrittenDoubleRegisters() == second.getWrittenDoubleRegisters();
+		}
+		return (first.getWrittenDoubleRegisters() & second.getReadDoubleRegisters()) != 0;
+	}
+}
@@ -31,7 +31,6 @@ import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
 import com.arm.nevada.client.parser.Arguments;
 import com.arm.nevada.client.parser.EnumInstruction;
 import com.arm.nevada.client.parser.EnumRegisterType;
-import com.arm.nevada.client.utils.DataTypeTools;
 
 public class TableInstruction extends Instruction {
 
@@ -45,11 +44,13 @@ public class TableInstruction extends Instruction {
 	private EnumInstruction instruction;
 	// true when write 0 if he index out of range, false if don't change
 	private boolean overwriteElseNotChange;
+	private long[] table;
 
 	public TableInstruction(EnumInstruction instruction, EnumRegisterType registerType, int listElementCount) {
 		this.instruction = instruction;
 		this.registerType = registerType;
 		this.tableLengthInRegister = listElementCount;
+		this.table = new long[listElementCount];
 		
 		initializeFlags();
 	}
@@ -81,21 +82,15 @@ public class TableInstruction extends Instruction {
 
 	@Override
 	public void execute(Machine machine) {
-		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
-		int[] destination = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(registerType, destinationRegisterIndex));
-		int[] indexVector = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(registerType, indexVectorIndex));
-		int[] table = new int[tableLengthInRegister * EnumRegisterType.DOUBLE.getSize() / size];
+		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
 		for (int listI = 0; listI < tableLengthInRegister; listI++) {
-			int[] sub = DataTypeTools
-					.createPartListFromWords(size, neonRegSet.getRegisterValues(EnumRegisterType.DOUBLE, tableRegisterIndex + listI));
-			for (int subI = 0; subI < sub.length; subI++) {
-				table[listI * EnumRegisterType.DOUBLE.getSize() / size + subI] = sub[subI];
-			}
-		}
-		int[] resultPartList = calculateTable(indexVector, table, destination);
-
-		int[] resultWords = DataTypeTools.createWordsFromOnePartPerWord(size, resultPartList);
-		neonRegSet.setRegisterValues(registerType, true, destinationRegisterIndex, resultWords);
+			table[listI] = neonRegSet.getDoubleRegister(tableRegisterIndex + listI);
+		}
+		long indexVector = neonRegSet.getDoubleRegister(indexVectorIndex);
+		long destination = neonRegSet.getDoubleRegister(destinationRegisterIndex);
+		long result = ByteShuffle.lookup(table, 0, tableLengthInRegister, indexVector, overwriteElseNotChange ? 0
+				: destination);
+		neonRegSet.setDoubleRegister(destinationRegisterIndex, result, true);
 		machine.incrementPCBy4();
 		highlightRegisters(machine);
 	}
@@ -105,26 +100,39 @@ public class TableInstruction extends Instruction {
 	}
 
 	/**
-	 * 
-	 * @param indexVector
-	 *            Indexes as part list.
-	 * @param table
-	 * @return The result as part list.
+	 * The bytes are looked up directly in the D registers.
 	 */
-	private int[] calculateTable(int[] indexVector, int[] table, int[] destination) {
-		int length = table.length;
-		int[] result = new int[indexVector.length];
-		for (int i = 0; i < indexVector.length; i++) {
-			if (indexVector[i] >= length) {
-				if (overwriteElseNotChange)
-					result[i] = 0;
-				else
-					result[i] = destination[i];
-			}
-			else
-				result[i] = table[indexVector[i]];
+	@Override
+	public BlockOperation compile() {
+		if (tableRegisterIndex + tableLengthInRegister > 32) {
+			return null;
 		}
-		return result;
+		return new BlockOperation() {
+			public boolean execute(long[] doubleRegisters) {
+				long destination = doubleRegisters[destinationRegisterIndex];
+				doubleRegisters[destinationRegisterIndex] = ByteShuffle.lookup(doubleRegisters, tableRegisterIndex,
+						tableLengthInRegister, doubleRegisters[indexVectorIndex], overwriteElseNotChange ? 0
+								: destination);
+				return false;
+			}
+		};
+	}
+
+	@Override
+	void highlight(Machine machine) {
+		highlightRegisters(machine);
+	}
+
+	@Override
+	int getReadDoubleRegisters() {
+		int table = ((1 << tableLengthInRegister) - 1) << tableRegisterIndex;
+		return table | getDoubleRegisterMask(registerType, indexVectorIndex)
+				| getDoubleRegisterMask(registerType, destinationRegisterIndex);
+	}
+
+	@Override
+	int getWrittenDoubleRegisters() {
+		return getDoubleRegisterMask(registerType, destinationRegisterIndex);
 	}
 
 	@Override
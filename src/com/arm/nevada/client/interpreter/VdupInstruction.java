@@ -27,6 +27,7 @@
 package com.arm.nevada.client.interpreter;
 
 import com.arm.nevada.client.interpreter.machine.Machine;
+import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
 import com.arm.nevada.client.parser.Arguments;
 import com.arm.nevada.client.parser.EnumInstruction;
 import com.arm.nevada.client.parser.EnumRegisterType;
@@ -59,25 +60,19 @@ public class VdupInstruction extends Instruction {
 			int wholeValue = machine.getArmRegisterSet().getOneValue(arguments.getRegisterIndexes().get(1));
 			// The source element is the least significant 8, 16, or 32 bits of
 			// the ARM core register
-			sourceValue = DataTypeTools.getParts(size, wholeValue)[0];
+			sourceValue = wholeValue & DataTypeTools.getBitmask(size);
 		} else {
-			int[] wholeValue = machine.getNEONRegisterSet().getDouble(arguments.getRegisterIndexes().get(1));
-			int inWord = size * arguments.getSubRegisterIndex() < 32 ? 0 : 1;
-			int indexInWord = arguments.getSubRegisterIndex() - inWord * (32 / size);
-			sourceValue = DataTypeTools.getParts(size, wholeValue[inWord])[indexInWord];
+			sourceValue = machine.getNEONRegisterSet().getLaneInt(EnumRegisterType.DOUBLE, arguments.getRegisterIndexes().get(1), size,
+					arguments.getSubRegisterIndex());
 		}
 
-		int[] oneWordParts = new int[32 / size];
-		for (int i = 0; i < oneWordParts.length; i++) {
-			oneWordParts[i] = sourceValue;
-		}
-		int oneWordValue = DataTypeTools.createByParts(oneWordParts);
-
-		if (this.destinationRegisterType == EnumRegisterType.DOUBLE) {
-			machine.getNEONRegisterSet().setDouble(arguments.getRegisterIndexes().get(0), true, oneWordValue, oneWordValue);
-		} else {
-			machine.getNEONRegisterSet().setQuad(arguments.getRegisterIndexes().get(0), true, oneWordValue, oneWordValue, oneWordValue, oneWordValue);
+		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
+		int destinationIndex = arguments.getRegisterIndexes().get(0);
+		int laneCount = NEONRegisterSet.getLaneCount(destinationRegisterType, size);
+		for (int i = 0; i < laneCount; i++) {
+			neonRegSet.setLane(destinationRegisterType, destinationIndex, size, i, sourceValue, false);
 		}
+		neonRegSet.fireRegisterChanged(destinationRegisterType, destinationIndex);
 		machine.highlightNEONRegister(this.destinationRegisterType, arguments.getRegisterIndexes().get(0));
 		machine.incrementPCBy4();
 	}
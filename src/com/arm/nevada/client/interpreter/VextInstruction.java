@@ -27,11 +27,9 @@
 package com.arm.nevada.client.interpreter;
 
 import com.arm.nevada.client.interpreter.machine.Machine;
-import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
 import com.arm.nevada.client.parser.Arguments;
 import com.arm.nevada.client.parser.EnumInstruction;
 import com.arm.nevada.client.parser.EnumRegisterType;
-import com.arm.nevada.client.utils.DataTypeTools;
 
 public class VextInstruction extends Instruction {
 	private EnumDataType dataType;
@@ -42,13 +40,12 @@ public class VextInstruction extends Instruction {
 
 	private EnumInstruction instruction;
 
-	private int size;
 	private int immediateValue;
+	private ByteShuffle shuffle;
 
 	public VextInstruction(EnumInstruction instruction, EnumRegisterType registerType) {
 		this.instruction = instruction;
 		this.registerType = registerType;
-		this.size = 8;
 	}
 	
 	@Override
@@ -59,18 +56,12 @@ public class VextInstruction extends Instruction {
 		this.source2Index = arguments.getRegisterIndexes().get(2);
 
 		this.immediateValue = (int) arguments.getImmediateValue() * (dataType.getSizeInBits() / 8);
+		this.shuffle = ByteShuffle.extract(registerType, immediateValue, destinationIndex, source1Index, source2Index);
 	}
 
 	@Override
 	public void execute(Machine machine) {
-		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
-		int[] source1Parts = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(registerType, source1Index));
-		int[] source2Parts = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(registerType, source2Index));
-
-		int[] resultParts = calculate(source1Parts, source2Parts);
-
-		int[] resultWords = DataTypeTools.createWordsFromOnePartPerWord(size, resultParts);
-		neonRegSet.setRegisterValues(registerType, true, destinationIndex, resultWords);
+		shuffle.execute(machine.getNEONRegisterSet());
 		machine.incrementPCBy4();
 		highlightRegisters(machine);
 	}
@@ -79,16 +70,24 @@ public class VextInstruction extends Instruction {
 		machine.highlightNEONRegister(registerType, destinationIndex);
 	}
 
-	private int[] calculate(int[] source1Parts, int[] source2Parts) {
-		int[] resultParts = new int[source1Parts.length];
-		int counter = 0;
-		for (int i = immediateValue; i < source1Parts.length; i++, counter++) {
-			resultParts[counter] = source1Parts[i];
-		}
-		for (int i = 0; counter < registerType.getSize() / 8; i++, counter++) {
-			resultParts[counter] = source2Parts[i];
-		}
-		return resultParts;
+	@Override
+	public BlockOperation compile() {
+		return shuffle.compile();
+	}
+
+	@Override
+	void highlight(Machine machine) {
+		highlightRegisters(machine);
+	}
+
+	@Override
+	int getReadDoubleRegisters() {
+		return getDoubleRegisterMask(registerType, source1Index) | getDoubleRegisterMask(registerType, source2Index);
+	}
+
+	@Override
+	int getWrittenDoubleRegisters() {
+		return getDoubleRegisterMask(registerType, destinationIndex);
 	}
 
 	@Override
@@ -27,6 +27,7 @@
 package com.arm.nevada.client.interpreter;
 
 import com.arm.nevada.client.interpreter.machine.Machine;
+import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
 import com.arm.nevada.client.parser.Arguments;
 import com.arm.nevada.client.parser.EnumInstruction;
 import com.arm.nevada.client.parser.EnumRegisterType;
@@ -70,17 +71,19 @@ public class VmovInstruction extends Instruction {
 		switch (mode) {
 		case ARM_TO_D:
 			// VMOV<c><q> <Dm>, <Rt>, <Rt2>
-			int[] ARMValues = new int[2];
-			ARMValues[0] = machine.getArmRegisterSet().getOneValue(arguments.getRegisterIndexes().get(1));
-			ARMValues[1] = machine.getArmRegisterSet().getOneValue(arguments.getRegisterIndexes().get(2));
-			machine.getNEONRegisterSet().setDouble(to, true, ARMValues);
+			NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
+			neonRegSet.setLane(EnumRegisterType.DOUBLE, to, 32, 0, machine.getArmRegisterSet().getOneValue(arguments.getRegisterIndexes().get(1)), false);
+			neonRegSet.setLane(EnumRegisterType.DOUBLE, to, 32, 1, machine.getArmRegisterSet().getOneValue(arguments.getRegisterIndexes().get(2)), false);
+			neonRegSet.fireRegisterChanged(EnumRegisterType.DOUBLE, to);
 			machine.highlightNEONRegister(EnumRegisterType.DOUBLE, to);
 			break;
 		case D_TO_ARM:
 			// VMOV<c><q> <Rt>, <Rt2>, <Dm>
-			int[] doubleValue = machine.getNEONRegisterSet().getDouble(arguments.getRegisterIndexes().get(2));
-			machine.getArmRegisterSet().setOneValue(arguments.getRegisterIndexes().get(0), doubleValue[0], true);
-			machine.getArmRegisterSet().setOneValue(arguments.getRegisterIndexes().get(1), doubleValue[1], true);
+			int doubleIndex = arguments.getRegisterIndexes().get(2);
+			int lower = machine.getNEONRegisterSet().getLaneInt(EnumRegisterType.DOUBLE, doubleIndex, 32, 0);
+			int higher = machine.getNEONRegisterSet().getLaneInt(EnumRegisterType.DOUBLE, doubleIndex, 32, 1);
+			machine.getArmRegisterSet().setOneValue(arguments.getRegisterIndexes().get(0), lower, true);
+			machine.getArmRegisterSet().setOneValue(arguments.getRegisterIndexes().get(1), higher, true);
 			machine.highlightARMRegister(arguments.getRegisterIndexes().get(0));
 			machine.highlightARMRegister(arguments.getRegisterIndexes().get(1));
 			break;
@@ -88,7 +91,7 @@ public class VmovInstruction extends Instruction {
 			// VMOV<c>{.<size>} <Dd[x]>, <Rt>
 			// <size> 8 16 32; if omitted: 32
 			int armValue = machine.getArmRegisterSet().getOneValue(from);
-			int newPart = DataTypeTools.getParts(dataType.getSizeInBits(), armValue)[0];
+			int newPart = armValue & DataTypeTools.getBitmask(dataType.getSizeInBits());
 			int subIndex = arguments.getSubRegisterIndex();
 			machine.getNEONRegisterSet().setSubRegister(
 					EnumRegisterType.DOUBLE,
@@ -27,7 +27,6 @@
 package com.arm.nevada.client.interpreter;
 
 import com.arm.nevada.client.interpreter.machine.Machine;
-import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
 import com.arm.nevada.client.parser.Arguments;
 import com.arm.nevada.client.parser.EnumInstruction;
 import com.arm.nevada.client.parser.EnumRegisterType;
@@ -38,6 +37,7 @@ public class VswpInstruction extends Instruction {
 	private EnumRegisterType registerType;
 	private int data1Index;
 	private int data2Index;
+	private ByteShuffle shuffle;
 
 	public VswpInstruction(EnumRegisterType registerType) {
 		this.registerType = registerType;
@@ -48,17 +48,12 @@ public class VswpInstruction extends Instruction {
 		this.dataType = arguments.getType();
 		this.data1Index = arguments.getRegisterIndexes().get(0);
 		this.data2Index = arguments.getRegisterIndexes().get(1);
+		this.shuffle = ByteShuffle.swap(registerType, data1Index, data2Index);
 	}
 
 	@Override
 	public void execute(Machine machine) {
-		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
-		int[] values1 = neonRegSet.getRegisterValues(registerType, data1Index);
-		int[] values2 = neonRegSet.getRegisterValues(registerType, data2Index);
-
-		neonRegSet.setRegisterValues(registerType, true, data1Index, values2);
-		neonRegSet.setRegisterValues(registerType, true, data2Index, values1);
-
+		shuffle.execute(machine.getNEONRegisterSet());
 		machine.incrementPCBy4();
 		highlightRegisters(machine);
 	}
@@ -68,6 +63,26 @@ public class VswpInstruction extends Instruction {
 		machine.highlightNEONRegister(registerType, data2Index);
 	}
 
+	@Override
+	public BlockOperation compile() {
+		return shuffle.compile();
+	}
+
+	@Override
+	void highlight(Machine machine) {
+		highlightRegisters(machine);
+	}
+
+	@Override
+	int getReadDoubleRegisters() {
+		return getDoubleRegisterMask(registerType, data1Index) | getDoubleRegisterMask(registerType, data2Index);
+	}
+
+	@Override
+	int getWrittenDoubleRegisters() {
+		return getReadDoubleRegisters();
+	}
+
 	@Override
 	public EnumInstruction getInstructionName() {
 		return EnumInstruction.vswp;
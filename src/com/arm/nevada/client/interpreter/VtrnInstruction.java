@@ -27,11 +27,9 @@
 package com.arm.nevada.client.interpreter;
 
 import com.arm.nevada.client.interpreter.machine.Machine;
-import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
 import com.arm.nevada.client.parser.Arguments;
 import com.arm.nevada.client.parser.EnumInstruction;
 import com.arm.nevada.client.parser.EnumRegisterType;
-import com.arm.nevada.client.utils.DataTypeTools;
 
 public class VtrnInstruction extends Instruction {
 
@@ -39,6 +37,7 @@ public class VtrnInstruction extends Instruction {
 	private EnumRegisterType registerType;
 	private int data1Index;
 	private int data2Index;
+	private ByteShuffle shuffle;
 
 	public VtrnInstruction(EnumRegisterType registerType) {
 		this.registerType = registerType;
@@ -49,39 +48,41 @@ public class VtrnInstruction extends Instruction {
 		this.dataType = arguments.getType();
 		this.data1Index = arguments.getRegisterIndexes().get(0);
 		this.data2Index = arguments.getRegisterIndexes().get(1);
+		this.shuffle = ByteShuffle.transpose(registerType, dataType.getSizeInBits(), data1Index, data2Index);
 	}
 
 	@Override
 	public void execute(Machine machine) {
-		int size = dataType.getSizeInBits();
-		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
-		int[] data1Parts = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(registerType, data1Index));
-		int[] data2Parts = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(registerType, data2Index));
-
-		vtrn(data1Parts, data2Parts);
-
-		int[] result1Words = DataTypeTools.createWordsFromOnePartPerWord(size, data1Parts);
-		int[] result2Words = DataTypeTools.createWordsFromOnePartPerWord(size, data2Parts);
-		neonRegSet.setRegisterValues(registerType, true, data1Index, result1Words);
-		neonRegSet.setRegisterValues(registerType, true, data2Index, result2Words);
+		shuffle.execute(machine.getNEONRegisterSet());
 		machine.incrementPCBy4();
 		highlightRegisters(machine);
 	}
 
-	private void vtrn(int[] data1Parts, int[] data2Parts) {
-		int save;
-		for (int i = 0; i < data2Parts.length; i += 2) {
-			save = data1Parts[i + 1];
-			data1Parts[i + 1] = data2Parts[i + 0];
-			data2Parts[i + 0] = save;
-		}
-	}
-
 	private void highlightRegisters(Machine machine) {
 		machine.highlightNEONRegister(registerType, data1Index);
 		machine.highlightNEONRegister(registerType, data2Index);
 	}
 
+	@Override
+	public BlockOperation compile() {
+		return shuffle.compile();
+	}
+
+	@Override
+	void highlight(Machine machine) {
+		highlightRegisters(machine);
+	}
+
+	@Override
+	int getReadDoubleRegisters() {
+		return getDoubleRegisterMask(registerType, data1Index) | getDoubleRegisterMask(registerType, data2Index);
+	}
+
+	@Override
+	int getWrittenDoubleRegisters() {
+		return getReadDoubleRegisters();
+	}
+
 	@Override
 	public EnumInstruction getInstructionName() {
 		return EnumInstruction.vtrn;
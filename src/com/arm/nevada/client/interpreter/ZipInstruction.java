@@ -27,11 +27,9 @@
 package com.arm.nevada.client.interpreter;
 
 import com.arm.nevada.client.interpreter.machine.Machine;
-import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
 import com.arm.nevada.client.parser.Arguments;
 import com.arm.nevada.client.parser.EnumInstruction;
 import com.arm.nevada.client.parser.EnumRegisterType;
-import com.arm.nevada.client.utils.DataTypeTools;
 
 public class ZipInstruction extends Instruction {
 
@@ -41,6 +39,7 @@ public class ZipInstruction extends Instruction {
 	private int source2Index;
 
 	private EnumInstruction instruction;
+	private ByteShuffle shuffle;
 
 	public ZipInstruction(EnumInstruction instruction, EnumRegisterType destRegisterType) {
 		this.instruction = instruction;
@@ -52,27 +51,19 @@ public class ZipInstruction extends Instruction {
 		this.dataType = arguments.getType();
 		this.source1Index = arguments.getRegisterIndexes().get(0);
 		this.source2Index = arguments.getRegisterIndexes().get(1);
-	}
-
-	@Override
-	public void execute(Machine machine) {
 		int size = dataType.getSizeInBits();
-		NEONRegisterSet neonRegSet = machine.getNEONRegisterSet();
-		int[] source1Parts = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(registerType, source1Index));
-		int[] source2Parts = DataTypeTools.createPartListFromWords(size, neonRegSet.getRegisterValues(registerType, source2Index));
-
 		if (instruction == EnumInstruction.vzip) {
-			zip(source1Parts, source2Parts);
+			shuffle = ByteShuffle.zip(registerType, size, source1Index, source2Index);
 		} else if (instruction == EnumInstruction.vuzp) {
-			unzip(source1Parts, source2Parts);
+			shuffle = ByteShuffle.unzip(registerType, size, source1Index, source2Index);
 		} else {
 			assert false;
 		}
+	}
 
-		int[] result1Words = DataTypeTools.createWordsFromOnePartPerWord(size, source1Parts);
-		int[] result2Words = DataTypeTools.createWordsFromOnePartPerWord(size, source2Parts);
-		neonRegSet.setRegisterValues(registerType, true, source1Index, result1Words);
-		neonRegSet.setRegisterValues(registerType, true, source2Index, result2Words);
+	@Override
+	public void execute(Machine machine) {
+		shuffle.execute(machine.getNEONRegisterSet());
 		machine.incrementPCBy4();
 		highlightRegisters(machine);
 	}
@@ -82,40 +73,24 @@ public class ZipInstruction extends Instruction {
 		machine.highlightNEONRegister(registerType, source2Index);
 	}
 
-	/**
-	 * The input parameters also the outputs.
-	 * 
-	 * @param source1
-	 * @param source2
-	 */
-	private void unzip(int[] source1, int[] source2) {
-		int[] allOutValue = new int[2 * source1.length];
-		for (int i = 0; i < source1.length; i++) {
-			allOutValue[i] = source1[i];
-			allOutValue[source1.length + i] = source2[i];
-		}
-		for (int i = 0; i < source1.length; i++) {
-			source1[i] = allOutValue[2 * i + 0];
-			source2[i] = allOutValue[2 * i + 1];
-		}
+	@Override
+	public BlockOperation compile() {
+		return shuffle.compile();
 	}
 
-	/**
-	 * The input parameters also the outputs.
-	 * 
-	 * @param source1
-	 * @param source2
-	 */
-	private void zip(int[] source1, int[] source2) {
-		int[] allOutValue = new int[2 * source1.length];
-		for (int i = 0; i < source1.length; i++) {
-			allOutValue[2 * i + 0] = source1[i];
-			allOutValue[2 * i + 1] = source2[i];
-		}
-		for (int i = 0; i < source1.length; i++) {
-			source1[i] = allOutValue[i];
-			source2[i] = allOutValue[source1.length + i];
-		}
+	@Override
+	void highlight(Machine machine) {
+		highlightRegisters(machine);
+	}
+
+	@Override
+	int getReadDoubleRegisters() {
+		return getDoubleRegisterMask(registerType, source1Index) | getDoubleRegisterMask(registerType, source2Index);
+	}
+
+	@Override
+	int getWrittenDoubleRegisters() {
+		return getReadDoubleRegisters();
 	}
 
 	@Override
@@ -30,50 +30,52 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.arm.nevada.client.shared.ARMRegister;
-import com.arm.nevada.client.shared.events.ARMRegisterValueChangedEvent;
-import com.arm.nevada.client.shared.events.ARMRegisterValueChangedEventHandler;
-import com.arm.nevada.client.shared.events.visualize.ProgramCounterChangedEvenet;
-import com.google.gwt.event.shared.EventBus;
 
-public class ARMRegisterSet extends Storage implements ARMRegisterValueChangedEventHandler {
+public class ARMRegisterSet extends Storage {
 	private static final Logger logger = Logger.getLogger(ARMRegisterSet.class.getName());
 
-	public ARMRegisterSet(final EventBus eventBus) {
-		super(16, eventBus);
+	public ARMRegisterSet() {
+		super(16);
 	}
 
-	@Override
-	public void onElementChanged(ARMRegisterValueChangedEvent event) {
-		if (event.getSource() == this){
-			return;
-		}
-		setOneValue(event.getOffset(), event.getValue(), false);
+	/**
+	 * @return An independent copy which shares the values copy-on-write.
+	 */
+	public ARMRegisterSet fork() {
+		ARMRegisterSet fork = new ARMRegisterSet();
+		shareStateWith(fork);
+		return fork;
 	}
 
-	@Override
-	public void setOneValue(int index, int value, boolean fireEvent) {
-		super.setOneValue(index, value, fireEvent);
+	/**
+	 * Reads the register as an operand of an instruction. The PC reads as the address of the current instruction
+	 * plus 8, like on the ARM core.
+	 */
+	public int getOperandValue(int index) {
+		int value = getOneValue(index);
 		if (index == ARMRegister.R15.getIndex()) {
-			fireEvent(new ProgramCounterChangedEvenet(value));
+			value += 8;
 		}
+		return value;
 	}
 
+	/**
+	 * The program counter change is always reported, even if fireEvent is false.
+	 */
 	@Override
-	protected void fireValueChanged(int index, int value) {
-		ARMRegisterValueChangedEvent forwardEvent = new ARMRegisterValueChangedEvent(index, value);
-		if (index == ARMRegister.R15.getIndex()){
-			ProgramCounterChangedEvenet PCChanged = new ProgramCounterChangedEvenet(value);
-			fireEvent(PCChanged);
+	public void setOneValue(int index, int value, boolean fireEvent) {
+		super.setOneValue(index, value, fireEvent);
+		if (!fireEvent && index == ARMRegister.R15.getIndex()) {
+			observer.onProgramCounterChanged(value);
 		}
-		fireEvent(forwardEvent);
 	}
 
 	@Override
-	public void subscribeToEventBus() {
-		if (eventBus == null){
-			return;
+	protected void fireValueChanged(int index, int value) {
+		if (index == ARMRegister.R15.getIndex()) {
+			observer.onProgramCounterChanged(value);
 		}
-		eventBus.addHandler(ARMRegisterValueChangedEvent.TYPE, this);
+		observer.onARMRegisterChanged(index, value);
 	}
 
 	@Override
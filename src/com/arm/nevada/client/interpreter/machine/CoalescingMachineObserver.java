@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.arm.nevada.client.interpreter.machine;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.arm.nevada.client.shared.SpecialRegiser;
+
+/**
+ * Collects the changes of a machine and forwards them to the target observer by {@link #flush()}, e.g. once per time
+ * slice instead of once per instruction. Only the last value of a word is forwarded and every highlighted range only
+ * once. The errors and the memory layout changes are forwarded immediately, after the collected changes.
+ */
+public class CoalescingMachineObserver implements MachineObserver {
+	private final MachineObserver target;
+
+	private final Map<Integer, Integer> neonWords = new LinkedHashMap<Integer, Integer>();
+	private final Map<Integer, Integer> armRegisters = new LinkedHashMap<Integer, Integer>();
+	private final Map<Integer, Integer> memoryWords = new LinkedHashMap<Integer, Integer>();
+	private final Map<SpecialRegiser, Integer> specialRegisters = new LinkedHashMap<SpecialRegiser, Integer>();
+	private Integer programCounter;
+	private final Set<Long> neonHighlights = new LinkedHashSet<Long>();
+	private final Set<Long> memoryHighlights = new LinkedHashSet<Long>();
+	private final Set<Integer> armHighlights = new LinkedHashSet<Integer>();
+
+	public CoalescingMachineObserver(MachineObserver target) {
+		this.target = target;
+	}
+
+	public MachineObserver getTarget() {
+		return target;
+	}
+
+	/**
+	 * Forwards the collected changes, the values first and then the highlights.
+	 */
+	public void flush() {
+		for (Map.Entry<Integer, Integer> entry : neonWords.entrySet()) {
+			target.onNEONRegisterChanged(entry.getKey(), entry.getValue());
+		}
+		for (Map.Entry<Integer, Integer> entry : armRegisters.entrySet()) {
+			target.onARMRegisterChanged(entry.getKey(), entry.getValue());
+		}
+		for (Map.Entry<Integer, Integer> entry : memoryWords.entrySet()) {
+			target.onMemoryChanged(entry.getKey(), entry.getValue());
+		}
+		for (Map.Entry<SpecialRegiser, Integer> entry : specialRegisters.entrySet()) {
+			target.onSpecialRegisterChanged(entry.getKey(), entry.getValue());
+		}
+		if (programCounter != null) {
+			target.onProgramCounterChanged(programCounter);
+		}
+		for (Long range : neonHighlights) {
+			target.onNEONBytesHighlighted(getFrom(range), getTo(range));
+		}
+		for (Long range : memoryHighlights) {
+			target.onMemoryBytesHighlighted(getFrom(range), getTo(range));
+		}
+		for (Integer index : armHighlights) {
+			target.onARMRegisterHighlighted(index);
+		}
+		neonWords.clear();
+		armRegisters.clear();
+		memoryWords.clear();
+		specialRegisters.clear();
+		programCounter = null;
+		neonHighlights.clear();
+		memoryHighlights.clear();
+		armHighlights.clear();
+	}
+
+	private static Long getRange(int from, int to) {
+		return ((long) from << 32) | (to & 0xffffffffL);
+	}
+
+	private static int getFrom(long range) {
+		return (int) (range >> 32);
+	}
+
+	private static int getTo(long range) {
+		return (int) range;
+	}
+
+	@Override
+	public void onNEONRegisterChanged(int wordIndex, int value) {
+		neonWords.put(wordIndex, value);
+	}
+
+	@Override
+	public void onARMRegisterChanged(int index, int value) {
+		armRegisters.put(index, value);
+	}
+
+	@Override
+	public void onProgramCounterChanged(int value) {
+		programCounter = value;
+	}
+
+	@Override
+	public void onSpecialRegisterChanged(SpecialRegiser register, int value) {
+		specialRegisters.put(register, value);
+	}
+
+	@Override
+	public void onMemoryChanged(int wordIndex, int value) {
+		memoryWords.put(wordIndex, value);
+	}
+
+	@Override
+	public void onMemorySizeChanged(int newSizeInWords) {
+		flush();
+		target.onMemorySizeChanged(newSizeInWords);
+	}
+
+	@Override
+	public void onMemoryOffsetChanged(int newOffsetInWords) {
+		flush();
+		target.onMemoryOffsetChanged(newOffsetInWords);
+	}
+
+	@Override
+	public void onNEONBytesHighlighted(int fromByte, int toByte) {
+		neonHighlights.add(getRange(fromByte, toByte));
+	}
+
+	@Override
+	public void onMemoryBytesHighlighted(int fromByte, int toByte) {
+		memoryHighlights.add(getRange(fromByte, toByte));
+	}
+
+	@Override
+	public void onARMRegisterHighlighted(int index) {
+		armHighlights.add(index);
+	}
+
+	@Override
+	public void onAlignmentError(int address, int expectedAlignmentInBits) {
+		flush();
+		target.onAlignmentError(address, expectedAlignmentInBits);
+	}
+
+	@Override
+	public void onSegmentationFault() {
+		flush();
+		target.onSegmentationFault();
+	}
+}
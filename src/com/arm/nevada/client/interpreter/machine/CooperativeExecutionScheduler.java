@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.arm.nevada.client.interpreter.machine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+
+/**
+ * Headless scheduler without threads. Scheduling executes nothing, the owner runs the slices by {@link #runSlice()}
+ * and can do its own work, e.g. stop the execution, between them.
+ */
+public class CooperativeExecutionScheduler implements ExecutionScheduler {
+	private final List<RepeatingCommand> commands = new ArrayList<RepeatingCommand>();
+
+	@Override
+	public void scheduleIncremental(RepeatingCommand command) {
+		commands.add(command);
+	}
+
+	/**
+	 * Executes every scheduled command once, the finished ones are removed.
+	 * 
+	 * @return False if no command is left.
+	 */
+	public boolean runSlice() {
+		RepeatingCommand[] current = commands.toArray(new RepeatingCommand[commands.size()]);
+		for (RepeatingCommand command : current) {
+			if (!command.execute()) {
+				commands.remove(command);
+			}
+		}
+		return !commands.isEmpty();
+	}
+
+	/**
+	 * Executes slices until every command is finished.
+	 */
+	public void runToCompletion() {
+		while (runSlice()) {
+		}
+	}
+
+	public boolean isIdle() {
+		return commands.isEmpty();
+	}
+}
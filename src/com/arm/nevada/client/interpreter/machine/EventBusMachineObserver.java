@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter.machine;
+
+import com.arm.nevada.client.shared.SpecialRegiser;
+import com.arm.nevada.client.shared.events.ARMRegisterValueChangedEvent;
+import com.arm.nevada.client.shared.events.ARMRegisterValueChangedEventHandler;
+import com.arm.nevada.client.shared.events.AlignmentErrorEvent;
+import com.arm.nevada.client.shared.events.MemoryMachineValueChangedEvent;
+import com.arm.nevada.client.shared.events.MemorySettingsChangedAndClearMemoryEvent;
+import com.arm.nevada.client.shared.events.MemorySettingsChangedAndClearMemoryEventHandler;
+import com.arm.nevada.client.shared.events.MemoryViewValueChangedEvent;
+import com.arm.nevada.client.shared.events.MemoryViewValueChangedEventHandler;
+import com.arm.nevada.client.shared.events.NEONRegisterValueChangedEvent;
+import com.arm.nevada.client.shared.events.NEONRegisterValueChangedEventHandler;
+import com.arm.nevada.client.shared.events.SegmentationFaultEvent;
+import com.arm.nevada.client.shared.events.SpecialRegisterChangedEvent;
+import com.arm.nevada.client.shared.events.SpecialRegisterChangedEventHandler;
+import com.arm.nevada.client.shared.events.visualize.ARMRegisterChangedHighlightEvent;
+import com.arm.nevada.client.shared.events.visualize.MemoryChangedHighlightEvent;
+import com.arm.nevada.client.shared.events.visualize.NEONRegisterChangedHighlightEvent;
+import com.arm.nevada.client.shared.events.visualize.ProgramCounterChangedEvenet;
+import com.google.gwt.event.shared.EventBus;
+import com.google.gwt.event.shared.GwtEvent;
+
+/**
+ * Connects a machine to the GWT event bus of the view. The changes of the machine are forwarded as events and the
+ * changes made by the view are written back into the machine.
+ */
+public class EventBusMachineObserver implements
+		MachineObserver,
+		NEONRegisterValueChangedEventHandler,
+		ARMRegisterValueChangedEventHandler,
+		MemoryViewValueChangedEventHandler,
+		MemorySettingsChangedAndClearMemoryEventHandler,
+		SpecialRegisterChangedEventHandler {
+
+	private final EventBus eventBus;
+	private final Machine machine;
+
+	/**
+	 * Creates the bridge, subscribes it to the event bus and sets it as the observer of the machine.
+	 */
+	public EventBusMachineObserver(Machine machine, EventBus eventBus) {
+		this.machine = machine;
+		this.eventBus = eventBus;
+		subscribeToEventBus();
+		machine.setObserver(this);
+	}
+
+	private void subscribeToEventBus() {
+		eventBus.addHandler(NEONRegisterValueChangedEvent.TYPE, this);
+		eventBus.addHandler(ARMRegisterValueChangedEvent.TYPE, this);
+		eventBus.addHandler(MemoryViewValueChangedEvent.TYPE, this);
+		eventBus.addHandler(MemorySettingsChangedAndClearMemoryEvent.TYPE, this);
+		eventBus.addHandler(SpecialRegisterChangedEvent.TYPE, this);
+	}
+
+	private void fireEvent(GwtEvent<?> event) {
+		eventBus.fireEventFromSource(event, this);
+	}
+
+	public EventBus getEventBus() {
+		return eventBus;
+	}
+
+	// machine -> view
+
+	@Override
+	public void onNEONRegisterChanged(int wordIndex, int value) {
+		fireEvent(new NEONRegisterValueChangedEvent(wordIndex, value));
+	}
+
+	@Override
+	public void onARMRegisterChanged(int index, int value) {
+		fireEvent(new ARMRegisterValueChangedEvent(index, value));
+	}
+
+	@Override
+	public void onProgramCounterChanged(int value) {
+		fireEvent(new ProgramCounterChangedEvenet(value));
+	}
+
+	@Override
+	public void onSpecialRegisterChanged(SpecialRegiser register, int value) {
+		fireEvent(new SpecialRegisterChangedEvent(register, value));
+	}
+
+	@Override
+	public void onMemoryChanged(int wordIndex, int value) {
+		fireEvent(new MemoryMachineValueChangedEvent(wordIndex, value));
+	}
+
+	@Override
+	public void onMemorySizeChanged(int newSizeInWords) {
+		fireEvent(new MemorySettingsChangedAndClearMemoryEvent(newSizeInWords));
+	}
+
+	@Override
+	public void onMemoryOffsetChanged(int newOffsetInWords) {
+		fireEvent(new MemorySettingsChangedAndClearMemoryEvent(null, newOffsetInWords));
+	}
+
+	@Override
+	public void onNEONBytesHighlighted(int fromByte, int toByte) {
+		fireEvent(new NEONRegisterChangedHighlightEvent(fromByte, toByte));
+	}
+
+	@Override
+	public void onMemoryBytesHighlighted(int fromByte, int toByte) {
+		fireEvent(new MemoryChangedHighlightEvent(fromByte, toByte));
+	}
+
+	@Override
+	public void onARMRegisterHighlighted(int index) {
+		fireEvent(new ARMRegisterChangedHighlightEvent(index));
+	}
+
+	@Override
+	public void onAlignmentError(int address, int expectedAlignmentInBits) {
+		fireEvent(new AlignmentErrorEvent(address, expectedAlignmentInBits));
+	}
+
+	@Override
+	public void onSegmentationFault() {
+		fireEvent(new SegmentationFaultEvent());
+	}
+
+	// view -> machine
+
+	@Override
+	public void onElementChanged(NEONRegisterValueChangedEvent event) {
+		if (event.getSource() == this) {
+			return;
+		}
+		machine.getNEONRegisterSet().setOneValue(event.getOffset(), event.getValue(), false);
+		machine.markEdited();
+	}
+
+	@Override
+	public void onElementChanged(ARMRegisterValueChangedEvent event) {
+		if (event.getSource() == this) {
+			return;
+		}
+		machine.getArmRegisterSet().setOneValue(event.getOffset(), event.getValue(), false);
+		machine.markEdited();
+	}
+
+	@Override
+	public void onElementChanged(MemoryViewValueChangedEvent event) {
+		if (event.getSource() == this) {
+			return;
+		}
+		machine.getMemorySet().setOneValue(event.getOffset(), event.getValue(), false);
+		machine.markEdited();
+	}
+
+	@Override
+	public void onMemorySettingsChangedAndClearMemory(MemorySettingsChangedAndClearMemoryEvent event) {
+		if (event.getSource() == this) {
+			return;
+		}
+		MemorySet memorySet = machine.getMemorySet();
+		if (event.getNewSizeInWords() != null)
+			memorySet.setSize(event.getNewSizeInWords(), false, false);
+		if (event.getOffsetInWords() != null)
+			memorySet.setOffset(event.getOffsetInWords(), false);
+		memorySet.clear(false);
+		machine.markEdited();
+	}
+
+	@Override
+	public void onSpecialRegisterChanged(SpecialRegisterChangedEvent event) {
+		if (event.getSource() == this)
+			return;
+		machine.getSpecialRegisters().setOneValue(event.getRegister().getIndex(), event.getValue(), true);
+		machine.markEdited();
+	}
+}
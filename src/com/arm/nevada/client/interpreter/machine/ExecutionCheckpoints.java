@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter.machine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.arm.nevada.client.interpreter.ProgramImage;
+
+/**
+ * Machine checkpoints of the last run, taken every N executed instructions. A checkpoint is keyed by the length and
+ * the hash of the program prefix which was executed before it, so it stays valid as long as only later lines are
+ * edited. The snapshots are copy-on-write forks of the machine. All checkpoints are dropped when the machine is
+ * written outside of the execution, see {@link Machine#markEdited()}.
+ */
+public class ExecutionCheckpoints {
+	public static final int defaultMaxCheckpointCount = 64;
+
+	private static class Checkpoint {
+		final int executedCount;
+		final int prefixLength;
+		final int prefixHash;
+		final Machine snapshot;
+
+		Checkpoint(int executedCount, int prefixLength, int prefixHash, Machine snapshot) {
+			this.executedCount = executedCount;
+			this.prefixLength = prefixLength;
+			this.prefixHash = prefixHash;
+			this.snapshot = snapshot;
+		}
+	}
+
+	private final List<Checkpoint> checkpoints = new ArrayList<Checkpoint>();
+	private int interval;
+	private final int maxCheckpointCount;
+
+	private boolean runActive = false;
+	private int executedCount;
+	private int prefixLength;
+	// the edit count of the machine when the run started or continued from a checkpoint
+	private int machineEditCount;
+
+	/**
+	 * True if the last run reached the end of the program, then the hash of its executed prefix is kept.
+	 */
+	private boolean runCompleted = false;
+	private int completedPrefixHash;
+
+	/**
+	 * @param interval
+	 *            A checkpoint is taken after every interval executed instructions.
+	 * @param maxCheckpointCount
+	 *            If there are more checkpoints then every second is dropped and the interval is doubled.
+	 */
+	public ExecutionCheckpoints(int interval, int maxCheckpointCount) {
+		assert interval > 0 && maxCheckpointCount > 1;
+		this.interval = interval;
+		this.maxCheckpointCount = maxCheckpointCount;
+	}
+
+	public ExecutionCheckpoints(int interval) {
+		this(interval, defaultMaxCheckpointCount);
+	}
+
+	/**
+	 * Must be called before the instruction at the index is executed. The first instruction of a run takes the
+	 * initial checkpoint.
+	 */
+	public void beforeInstruction(Machine machine, ProgramImage program, int index) {
+		beforeInstructions(machine, program, index, 1);
+	}
+
+	/**
+	 * Same as {@link #beforeInstruction(Machine, ProgramImage, int)} for a superinstruction of count instructions
+	 * from the index, the checkpoints are taken between the superinstructions.
+	 */
+	public void beforeInstructions(Machine machine, ProgramImage program, int index, int count) {
+		if (!runActive) {
+			if (index != 0) {
+				return;
+			}
+			runActive = true;
+			runCompleted = false;
+			executedCount = 0;
+			prefixLength = 0;
+			machineEditCount = machine.getEditCount();
+			checkpoints.clear();
+			take(machine, program);
+		} else if (executedCount - checkpoints.get(checkpoints.size() - 1).executedCount >= interval) {
+			take(machine, program);
+		}
+		executedCount += count;
+		prefixLength = Math.max(prefixLength, index + count);
+	}
+
+	private void take(Machine machine, ProgramImage program) {
+		if (checkpoints.size() == maxCheckpointCount) {
+			// keep the initial one and every second
+			for (int i = checkpoints.size() - 1; i > 0; i -= 2) {
+				checkpoints.remove(i);
+			}
+			interval *= 2;
+		}
+		checkpoints.add(new Checkpoint(executedCount, prefixLength, program.getPrefixHash(prefixLength), machine.fork()));
+	}
+
+	/**
+	 * Ends the current run, e.g. the program is finished or the execution is reset. The checkpoints are kept, the
+	 * next run from the first instruction replaces them.
+	 */
+	public void endRun() {
+		runActive = false;
+		runCompleted = false;
+	}
+
+	/**
+	 * Ends the current run at the end of the program, see {@link #isOutdated(Machine, ProgramImage)}.
+	 */
+	public void completeRun(ProgramImage program) {
+		if (runActive) {
+			runCompleted = true;
+			completedPrefixHash = program.getPrefixHash(prefixLength);
+		}
+		runActive = false;
+	}
+
+	/**
+	 * Drops the checkpoints and forgets the completed run.
+	 */
+	private void clear() {
+		runActive = false;
+		runCompleted = false;
+		checkpoints.clear();
+	}
+
+	/**
+	 * Drops the checkpoints if the machine was written outside of the execution since the run started, restoring
+	 * them would overwrite the edit.
+	 */
+	private void clearIfEdited(Machine machine) {
+		if (machine.getEditCount() != machineEditCount) {
+			clear();
+		}
+	}
+
+	/**
+	 * @return True if the last run reached the end of the program and one of the lines executed by it is replaced
+	 *         since then, so the state of the machine is outdated. False if the machine was edited since the run.
+	 */
+	public boolean isOutdated(Machine machine, ProgramImage program) {
+		clearIfEdited(machine);
+		return runCompleted
+				&& (prefixLength > program.getLength() || program.getPrefixHash(prefixLength) != completedPrefixHash);
+	}
+
+	/**
+	 * Restores the latest checkpoint which is still valid for the program and continues the run from there.
+	 * 
+	 * @return False if there is no valid checkpoint, or the machine was edited since the run.
+	 */
+	public boolean restoreLatestValid(Machine machine, ProgramImage program) {
+		clearIfEdited(machine);
+		for (int i = checkpoints.size() - 1; i >= 0; i--) {
+			Checkpoint checkpoint = checkpoints.get(i);
+			if (checkpoint.prefixLength <= program.getLength()
+					&& program.getPrefixHash(checkpoint.prefixLength) == checkpoint.prefixHash) {
+				while (checkpoints.size() > i + 1) {
+					checkpoints.remove(checkpoints.size() - 1);
+				}
+				machine.copyStateFrom(checkpoint.snapshot);
+				machineEditCount = machine.getEditCount();
+				runActive = true;
+				runCompleted = false;
+				executedCount = checkpoint.executedCount;
+				prefixLength = checkpoint.prefixLength;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return The number of executed instructions of the current or the last run.
+	 */
+	public int getExecutedCount() {
+		return executedCount;
+	}
+
+	public int getCheckpointCount() {
+		return checkpoints.size();
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter.machine;
+
+/**
+ * Bounded undo journal of the storage writes. The writes are grouped by executed instruction, every record holds
+ * the storage, the word index and the old value. If the journal is full then the oldest instructions are dropped.
+ */
+public class ExecutionJournal {
+	public static final int defaultCapacity = 1 << 16;
+
+	private final Storage[] storages = new Storage[4];
+	private int storageCount = 0;
+
+	private final int capacity;
+	private final byte[] storageIds;
+	private final int[] indexes;
+	private final int[] oldValues;
+
+	/**
+	 * The record positions only grow, the position p is stored at p % capacity.
+	 */
+	private long firstRecord = 0;
+	private long nextRecord = 0;
+
+	/**
+	 * The first record position of each instruction, it has capacity + 1 slots for the empty open instruction.
+	 */
+	private final long[] instructionStarts;
+	private long firstInstruction = 0;
+	private long nextInstruction = 0;
+
+	private boolean recording = false;
+
+	/**
+	 * True if the open instruction didn't fit into the journal, its records are ignored.
+	 */
+	private boolean overflowed = false;
+
+	/**
+	 * @param capacity
+	 *            The maximum number of the recorded writes.
+	 */
+	public ExecutionJournal(int capacity) {
+		assert capacity > 0;
+		this.capacity = capacity;
+		storageIds = new byte[capacity];
+		indexes = new int[capacity];
+		oldValues = new int[capacity];
+		instructionStarts = new long[capacity + 1];
+	}
+
+	public ExecutionJournal() {
+		this(defaultCapacity);
+	}
+
+	/**
+	 * Registers a storage.
+	 * 
+	 * @return The id of the storage in the records.
+	 */
+	int attach(Storage storage) {
+		storages[storageCount] = storage;
+		return storageCount++;
+	}
+
+	public boolean isRecording() {
+		return recording;
+	}
+
+	/**
+	 * Starts the records of a new instruction. An empty previous instruction is reused.
+	 */
+	public void beginInstruction() {
+		recording = true;
+		if (nextInstruction > firstInstruction && !overflowed && getStart(nextInstruction - 1) == nextRecord) {
+			return;
+		}
+		overflowed = false;
+		instructionStarts[(int) (nextInstruction % (capacity + 1))] = nextRecord;
+		nextInstruction++;
+	}
+
+	/**
+	 * Stops recording until the next {@link #beginInstruction()}, e.g. the user edits are not recorded.
+	 */
+	public void pause() {
+		recording = false;
+	}
+
+	/**
+	 * Forgets every record.
+	 */
+	public void clear() {
+		firstRecord = nextRecord;
+		firstInstruction = nextInstruction;
+		overflowed = false;
+		recording = false;
+	}
+
+	void record(int storageId, int index, int oldValue) {
+		if (overflowed) {
+			return;
+		}
+		if (nextRecord - firstRecord == capacity) {
+			dropOldestInstruction();
+			if (overflowed) {
+				return;
+			}
+		}
+		int position = (int) (nextRecord % capacity);
+		storageIds[position] = (byte) storageId;
+		indexes[position] = index;
+		oldValues[position] = oldValue;
+		nextRecord++;
+	}
+
+	private long getStart(long instruction) {
+		return instructionStarts[(int) (instruction % (capacity + 1))];
+	}
+
+	private void dropOldestInstruction() {
+		if (nextInstruction - firstInstruction <= 1) {
+			// the open instruction alone is too big, it can't be undone
+			clear();
+			recording = true;
+			overflowed = true;
+			return;
+		}
+		firstInstruction++;
+		firstRecord = getStart(firstInstruction);
+	}
+
+	/**
+	 * @return The number of the instructions which can be undone.
+	 */
+	public int getInstructionCount() {
+		dropEmptyInstructions();
+		return (int) (nextInstruction - firstInstruction);
+	}
+
+	private void dropEmptyInstructions() {
+		while (nextInstruction > firstInstruction && getStart(nextInstruction - 1) == nextRecord) {
+			nextInstruction--;
+		}
+	}
+
+	/**
+	 * Restores the storages to the state before the last recorded instruction.
+	 * 
+	 * @return False if there was nothing to undo.
+	 */
+	public boolean undoInstruction() {
+		recording = false;
+		if (overflowed) {
+			overflowed = false;
+			return false;
+		}
+		dropEmptyInstructions();
+		if (nextInstruction == firstInstruction) {
+			return false;
+		}
+		nextInstruction--;
+		long start = getStart(nextInstruction);
+		while (nextRecord > start) {
+			nextRecord--;
+			int position = (int) (nextRecord % capacity);
+			storages[storageIds[position]].setOneValue(indexes[position], oldValues[position], true);
+		}
+		return true;
+	}
+}
@@ -28,12 +28,6 @@ package com.arm.nevada.client.interpreter.machine;
 
 import com.arm.nevada.client.parser.EnumRegisterType;
 import com.arm.nevada.client.shared.ARMRegister;
-import com.arm.nevada.client.shared.events.visualize.ARMRegisterChangedHighlightEvent;
-import com.arm.nevada.client.shared.events.visualize.MemoryChangedHighlightEvent;
-import com.arm.nevada.client.shared.events.visualize.NEONRegisterChangedHighlightEvent;
-import com.arm.nevada.client.shared.events.visualize.ProgramCounterChangedEvenet;
-import com.google.gwt.event.shared.EventBus;
-import com.google.gwt.event.shared.GwtEvent;
 import com.google.gwt.json.client.JSONObject;
 import com.google.gwt.json.client.JSONValue;
 
@@ -42,14 +36,111 @@ public class Machine {
 	private final ARMRegisterSet armRegisterSet;
 	private final MemorySet memorySet;
 	private final SpecialRegisters specialRegisters;
-	private EventBus eventBus;
+	private MachineObserver observer;
+	private ExecutionJournal journal;
+	private int editCount = 0;
 
-	public Machine(EventBus eventBus) {
-		NEONRegisterSet = new NEONRegisterSet(eventBus);
-		armRegisterSet = new ARMRegisterSet(eventBus);
-		memorySet = new MemorySet(eventBus);	// uses the default size
-		specialRegisters = new SpecialRegisters(eventBus);
-		this.eventBus = eventBus;
+	/**
+	 * Creates a machine without any listener. Use {@link #setObserver(MachineObserver)} to get notified about the
+	 * state changes.
+	 */
+	public Machine() {
+		this(new MemorySet());	// uses the default size
+	}
+
+	/**
+	 * Creates a machine with the given memory backend, e.g. a {@link PagedMemorySet}.
+	 */
+	public Machine(MemorySet memorySet) {
+		NEONRegisterSet = new NEONRegisterSet();
+		armRegisterSet = new ARMRegisterSet();
+		this.memorySet = memorySet;
+		specialRegisters = new SpecialRegisters();
+		setObserver(null);
+	}
+
+	private Machine(NEONRegisterSet NEONRegisterSet, ARMRegisterSet armRegisterSet, MemorySet memorySet,
+			SpecialRegisters specialRegisters) {
+		this.NEONRegisterSet = NEONRegisterSet;
+		this.armRegisterSet = armRegisterSet;
+		this.memorySet = memorySet;
+		this.specialRegisters = specialRegisters;
+		setObserver(null);
+	}
+
+	/**
+	 * Creates an independent machine with the same state. The registers and the memory are shared copy-on-write, so
+	 * forking does not copy the state, a write copies only the touched register file or memory page. The fork has
+	 * no observer.
+	 */
+	public Machine fork() {
+		return new Machine(NEONRegisterSet.fork(), armRegisterSet.fork(), memorySet.fork(), specialRegisters.fork());
+	}
+
+	/**
+	 * Takes over the state of the other machine copy-on-write, e.g. to restore a fork. The observer is notified
+	 * about every value.
+	 */
+	public void copyStateFrom(Machine source) {
+		NEONRegisterSet.copyStateFrom(source.NEONRegisterSet);
+		armRegisterSet.copyStateFrom(source.armRegisterSet);
+		memorySet.copyStateFrom(source.memorySet);
+		specialRegisters.copyStateFrom(source.specialRegisters);
+		markEdited();
+	}
+
+	/**
+	 * Must be called after the state is written by something else than the execution, e.g. edited in the view or
+	 * loaded, so the {@link ExecutionCheckpoints} of the earlier runs are not restored over it.
+	 */
+	public void markEdited() {
+		editCount++;
+	}
+
+	/**
+	 * @return The number of {@link #markEdited()} calls.
+	 */
+	public int getEditCount() {
+		return editCount;
+	}
+
+	/**
+	 * Sets the observer of the machine and of all of its storages.
+	 * 
+	 * @param observer
+	 *            The new observer, null means no observer.
+	 */
+	public void setObserver(MachineObserver observer) {
+		if (observer == null) {
+			observer = new MachineObserverAdapter();
+		}
+		this.observer = observer;
+		NEONRegisterSet.setObserver(observer);
+		armRegisterSet.setObserver(observer);
+		memorySet.setObserver(observer);
+		specialRegisters.setObserver(observer);
+	}
+
+	public MachineObserver getObserver() {
+		return observer;
+	}
+
+	/**
+	 * Sets the undo journal of the machine, which records the writes of all storages.
+	 * 
+	 * @param journal
+	 *            The new journal, null means no journal.
+	 */
+	public void setJournal(ExecutionJournal journal) {
+		this.journal = journal;
+		NEONRegisterSet.setJournal(journal);
+		armRegisterSet.setJournal(journal);
+		memorySet.setJournal(journal);
+		specialRegisters.setJournal(journal);
+	}
+
+	public ExecutionJournal getJournal() {
+		return journal;
 	}
 
 	public int getPC() {
@@ -62,7 +153,6 @@ public class Machine {
 
 	public void incrementPCBy4() {
 		armRegisterSet.setOneValue(ARMRegister.R15.getIndex(), armRegisterSet.getOneValue(15) + 4, true);
-		eventBus.fireEvent(new ProgramCounterChangedEvenet(getPC()));
 	}
 
 	public NEONRegisterSet getNEONRegisterSet() {
@@ -77,12 +167,8 @@ public class Machine {
 		return memorySet;
 	}
 
-	public EventBus getEventBus() {
-		return eventBus;
-	}
-
 	public void highlightNEONBytes(int from, int to) {
-		eventBus.fireEvent(new NEONRegisterChangedHighlightEvent(from, to));
+		observer.onNEONBytesHighlighted(from, to);
 	}
 
 	public void highlightNEONSubregister(EnumRegisterType regType, int dataSize, int NEONIndex, int subIndex) {
@@ -95,17 +181,29 @@ public class Machine {
 	}
 
 	public void highlightMemoryBytes(int from, int to) {
-		eventBus.fireEvent(new MemoryChangedHighlightEvent(from, to));
+		observer.onMemoryBytesHighlighted(from, to);
 	}
 
 	public void highlightARMRegister(int index) {
-		eventBus.fireEvent(new ARMRegisterChangedHighlightEvent(index));
+		observer.onARMRegisterHighlighted(index);
 	}
 
 	public void highlightNEONRegister(EnumRegisterType type, int index) {
-		eventBus.fireEvent(new NEONRegisterChangedHighlightEvent(
+		highlightNEONBytes(
 				index * type.getSizeInBytes(),
-				index * type.getSizeInBytes() + type.getSizeInBytes() - 1));
+				index * type.getSizeInBytes() + type.getSizeInBytes() - 1);
+	}
+
+	/**
+	 * Sets all registers and the memory to zero, e.g. before {@link #init(JSONObject)} when the machine is reused,
+	 * since init keeps the register values which are not in the JSON object.
+	 */
+	public void clear() {
+		NEONRegisterSet.clear(true);
+		armRegisterSet.clear(true);
+		memorySet.clear(true);
+		specialRegisters.clear(true);
+		markEdited();
 	}
 
 	/**
@@ -164,11 +262,15 @@ public class Machine {
 		} else {
 			specialRegisters.clear(true);
 		}
+		markEdited();
+	}
+
+	public void reportAlignmentError(int address, int expectedAlignmentInBits) {
+		observer.onAlignmentError(address, expectedAlignmentInBits);
 	}
 
-	public void fireEvent(GwtEvent<?> event) {
-		if (eventBus != null)
-			eventBus.fireEvent(event);
+	public void reportSegmentationFault() {
+		observer.onSegmentationFault();
 	}
 
 	public SpecialRegisters getSpecialRegisters() {
@@ -29,9 +29,12 @@ package com.arm.nevada.client.interpreter.machine;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.arm.nevada.client.interpreter.ErrorInstruction;
-import com.arm.nevada.client.interpreter.Instruction;
 import com.arm.nevada.client.interpreter.InstructionListForMachineController;
+import com.arm.nevada.client.interpreter.ProgramImage;
+import com.arm.nevada.client.interpreter.Superinstruction;
+import com.arm.nevada.client.shared.events.ExecutionProgressEvent;
+import com.arm.nevada.client.shared.events.InstructionUpdatedInViewEvent;
+import com.arm.nevada.client.shared.events.InstructionUpdatedInViewEventHandler;
 import com.arm.nevada.client.shared.events.ShowErrorMessageEvent;
 import com.arm.nevada.client.shared.events.visualize.ClearRegisterChangedHighlightsEvenet;
 import com.arm.nevada.client.view.shared.ExecuteToEndEvent;
@@ -40,16 +43,131 @@ import com.arm.nevada.client.view.shared.ResetExecutionEvent;
 import com.arm.nevada.client.view.shared.ResetMachineEvent;
 import com.arm.nevada.client.view.shared.RunNextInstructionEvent;
 import com.arm.nevada.client.view.shared.RunToNextBreakpointEvent;
+import com.arm.nevada.client.view.shared.StopExecutionEvent;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 import com.google.gwt.event.shared.EventBus;
 import com.google.gwt.event.shared.GwtEvent;
 
-public class MachineController implements ExecutionControllerHandler {
+public class MachineController implements ExecutionControllerHandler, InstructionUpdatedInViewEventHandler {
 	private static final Logger logger = Logger.getLogger(MachineController.class.getName());
 
 	private Machine machine;
 	private InstructionListForMachineController instructions;
 	private EventBus eventBus;
+	private ExecutionCheckpoints checkpoints;
+	private boolean fusion = true;
+	private ExecutionScheduler scheduler;
+	private int sliceMillis = 50;
+	private int instructionBudget = 1000000;
+	private Run run;
 
+	/**
+	 * A run to the next breakpoint or to the end of the program. It is executed at once or in time slices by the
+	 * scheduler, then the changes are forwarded to the observer of the machine once per slice.
+	 */
+	private class Run implements RepeatingCommand {
+		private static final int instructionsBetweenClockChecks = 64;
+
+		private final boolean toBreakpoint;
+		private CoalescingMachineObserver coalescingObserver;
+		private int executedCount = 0;
+		private boolean stopped = false;
+
+		Run(boolean toBreakpoint) {
+			this.toBreakpoint = toBreakpoint;
+		}
+
+		/**
+		 * Executes the instruction or superinstruction at the PC.
+		 * 
+		 * @return False if the run is over.
+		 */
+		boolean step() {
+			if (executedCount > 0 || !toBreakpoint) {
+				int index = instructions.getNextIndex();
+				if (index < 0 || (toBreakpoint && instructions.getProgram().isBreakpoint(index))) {
+					return false;
+				}
+			}
+			if (executedCount >= instructionBudget) {
+				fireEvent(new ShowErrorMessageEvent("Stopped after " + executedCount
+						+ " instructions, maybe the program is in an infinite loop."));
+				return false;
+			}
+			int prevPC = machine.getPC();
+			int index = instructions.getNextIndex();
+			int count = executeSuperinstructionByPC();
+			boolean branch = false;
+			if (count == 0) {
+				branch = index >= 0 && instructions.getProgram().isBranch(index);
+				executeByPC(false);
+				count = 1;
+			}
+			executedCount += count;
+			// an unchanged PC is a fault or an invalid line, unless a branch was taken to itself
+			return machine.getPC() != prevPC || branch;
+		}
+
+		void runToCompletion() {
+			while (step()) {
+			}
+			finish();
+		}
+
+		void schedule() {
+			coalescingObserver = new CoalescingMachineObserver(machine.getObserver());
+			machine.setObserver(coalescingObserver);
+			scheduler.scheduleIncremental(this);
+		}
+
+		/**
+		 * Executes one time slice.
+		 */
+		@Override
+		public boolean execute() {
+			boolean more = !stopped;
+			long deadline = System.currentTimeMillis() + sliceMillis;
+			int sliceCount = 0;
+			while (more) {
+				more = step();
+				sliceCount++;
+				if (sliceCount % instructionsBetweenClockChecks == 0 && System.currentTimeMillis() >= deadline) {
+					break;
+				}
+			}
+			if (more && !stopped) {
+				coalescingObserver.flush();
+				fireEvent(new ExecutionProgressEvent(executedCount, false));
+				return true;
+			}
+			machine.setObserver(coalescingObserver.getTarget());
+			coalescingObserver.flush();
+			finish();
+			return false;
+		}
+
+		private void finish() {
+			if (machine.getPC() / 4 >= instructions.getInstructionCount())
+				restartProgram();
+			pauseJournal();
+			if (run == this) {
+				run = null;
+			}
+			fireEvent(new ExecutionProgressEvent(executedCount, true));
+		}
+	}
+
+	/**
+	 * Creates a controller without event bus, it can be driven by the public methods.
+	 */
+	public MachineController(Machine machine) {
+		this(machine, null);
+	}
+
+	/**
+	 * @param eventBus
+	 *            The controller listens to the execution control events of this bus. Can be null.
+	 */
 	public MachineController(Machine machine, EventBus eventBus) {
 		this.instructions = new InstructionListForMachineController(machine, eventBus);
 
@@ -63,18 +181,128 @@ public class MachineController implements ExecutionControllerHandler {
 		return machine;
 	}
 
+	public InstructionListForMachineController getInstructions() {
+		return instructions;
+	}
+
+	/**
+	 * Enables the automatic checkpoints, see {@link #rerunFromCheckpoint()}. When a line executed by the last
+	 * completed run is edited in the view, the program is re-executed from the checkpoint before the line. Nothing
+	 * is re-executed if the machine was edited or loaded since the run.
+	 * 
+	 * @param checkpoints
+	 *            Null disables the checkpoints.
+	 */
+	public void setCheckpoints(ExecutionCheckpoints checkpoints) {
+		this.checkpoints = checkpoints;
+	}
+
+	public ExecutionCheckpoints getCheckpoints() {
+		return checkpoints;
+	}
+
+	/**
+	 * Enables the superinstructions when running to the next breakpoint or to the end, see
+	 * {@link ProgramImage#getSuperinstruction(int)}. They are not used with the journal, which works per
+	 * instruction.
+	 */
+	public void setFusion(boolean fusion) {
+		this.fusion = fusion;
+	}
+
+	public boolean isFusion() {
+		return fusion;
+	}
+
+	/**
+	 * Executes the runs to the next breakpoint or to the end of the program in time slices, e.g. by a
+	 * {@link GwtExecutionScheduler}. The view is refreshed once per slice and the run can be stopped between the
+	 * slices by {@link #stop()}.
+	 * 
+	 * @param scheduler
+	 *            Null executes the runs at once.
+	 */
+	public void setScheduler(ExecutionScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	public ExecutionScheduler getScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * @param sliceMillis
+	 *            The length of a time slice in milliseconds, see {@link #setScheduler(ExecutionScheduler)}.
+	 */
+	public void setSliceMillis(int sliceMillis) {
+		this.sliceMillis = sliceMillis;
+	}
+
+	public int getSliceMillis() {
+		return sliceMillis;
+	}
+
+	/**
+	 * @param instructionBudget
+	 *            The maximum number of instructions executed by a run to the next breakpoint or to the end, it stops
+	 *            infinite loops. The run stops with an error message when the budget is exhausted.
+	 */
+	public void setInstructionBudget(int instructionBudget) {
+		this.instructionBudget = instructionBudget;
+	}
+
+	public int getInstructionBudget() {
+		return instructionBudget;
+	}
+
+	/**
+	 * @return True from {@link #startRun(boolean)} until the scheduled run is over, even if it is stopped already.
+	 */
+	public boolean isRunning() {
+		return run != null;
+	}
+
+	/**
+	 * @return The number of instructions executed by the scheduled run in progress, or 0.
+	 */
+	public int getExecutedCount() {
+		return run == null ? 0 : run.executedCount;
+	}
+
+	/**
+	 * Stops the scheduled run before its next time slice, the PC points to the next instruction then.
+	 */
+	public void stop() {
+		if (run != null) {
+			run.stopped = true;
+		}
+	}
+
 	private void registerEventHandlers() {
+		if (eventBus == null) {
+			return;
+		}
 		this.eventBus.addHandler(RunToNextBreakpointEvent.TYPE, this);
 		this.eventBus.addHandler(RunNextInstructionEvent.TYPE, this);
 		this.eventBus.addHandler(ExecuteToEndEvent.TYPE, this);
 		this.eventBus.addHandler(ResetExecutionEvent.TYPE, this);
+		this.eventBus.addHandler(StopExecutionEvent.TYPE, this);
+		this.eventBus.addHandler(InstructionUpdatedInViewEvent.TYPE, this);
 	}
 
 	private void executeByPC(boolean allowReset) {
-		Instruction instruction = instructions.getNextInstruction(); 
-		if (instruction != null) {
-			if (!(instruction instanceof ErrorInstruction)) {
-				instructions.getNextInstruction().execute(machine);
+		ExecutionJournal journal = machine.getJournal();
+		if (journal != null) {
+			journal.beginInstruction();
+		}
+		int index = instructions.getNextIndex();
+		if (index >= 0) {
+			ProgramImage program = instructions.getProgram();
+			if (!program.isError(index)) {
+				if (checkpoints != null) {
+					checkpoints.beforeInstruction(machine, program, index);
+				}
+				program.get(index).execute(machine);
 			}
 			else {
 				logger.log(Level.FINE,"Can't execute invalid instruction. Nothing happend. Please fix the current line.");
@@ -88,68 +316,223 @@ public class MachineController implements ExecutionControllerHandler {
 		}
 
 		if (allowReset && machine.getPC() / 4 >= instructions.getInstructionCount())
-			machine.setPC(0);
+			restartProgram();
 	}
 
-	@Override
-	public void onRunNextInstruction(RunNextInstructionEvent event) {
-		logger.log(Level.FINE,"onRunNextInstruction");
-		eventBus.fireEvent(new ClearRegisterChangedHighlightsEvenet());
+	/**
+	 * Executes the superinstruction starting at the PC, if it is not split by a breakpoint.
+	 * 
+	 * @return The number of executed instructions. 0 if nothing is executed, the instruction has to be executed by
+	 *         {@link #executeByPC(boolean)}.
+	 */
+	private int executeSuperinstructionByPC() {
+		if (!fusion || machine.getJournal() != null) {
+			return 0;
+		}
+		int index = instructions.getNextIndex();
+		if (index < 0) {
+			return 0;
+		}
+		ProgramImage program = instructions.getProgram();
+		Superinstruction unit = program.getSuperinstruction(index);
+		if (unit == null) {
+			return 0;
+		}
+		for (int i = 1; i < unit.getLength(); i++) {
+			if (program.isBreakpoint(index + i)) {
+				return 0;
+			}
+		}
+		if (checkpoints != null) {
+			checkpoints.beforeInstructions(machine, program, index, unit.getLength());
+		}
+		unit.execute(machine);
+		return unit.getLength();
+	}
+
+	/**
+	 * Sets the PC to the first instruction after the end of the program.
+	 */
+	private void restartProgram() {
+		machine.setPC(0);
+		if (checkpoints != null) {
+			checkpoints.completeRun(instructions.getProgram());
+		}
+	}
+
+	/**
+	 * Executes the instruction pointed by the PC.
+	 */
+	public void runNextInstruction() {
+		fireEvent(new ClearRegisterChangedHighlightsEvenet());
 		executeByPC(true);
+		pauseJournal();
 	}
 
-	@Override
-	public void onRunToNextBreakpoint(RunToNextBreakpointEvent event) {
-		logger.log(Level.FINE,"onRunToNextBreakpoint");
-		eventBus.fireEvent(new ClearRegisterChangedHighlightsEvenet());
+	/**
+	 * Executes instructions until the next breakpoint or the end of the program.
+	 */
+	public void runToNextBreakpoint() {
+		fireEvent(new ClearRegisterChangedHighlightsEvenet());
+		new Run(true).runToCompletion();
+	}
 
-		int prevPC = machine.getPC();
-		do {
-			executeByPC(false);
-			if (prevPC == machine.getPC()) {
-				break;
+	/**
+	 * Executes instructions until the end of the program.
+	 */
+	public void executeToEnd() {
+		fireEvent(new ClearRegisterChangedHighlightsEvenet());
+		new Run(false).runToCompletion();
+	}
+
+	/**
+	 * Same as {@link #runToNextBreakpoint()} or {@link #executeToEnd()}, but in time slices if there is a scheduler.
+	 * Nothing happens while an other scheduled run is in progress.
+	 */
+	public void startRun(boolean toBreakpoint) {
+		if (run != null) {
+			logger.log(Level.FINE, "A run is already in progress.");
+			return;
+		}
+		if (scheduler == null) {
+			if (toBreakpoint) {
+				runToNextBreakpoint();
+			} else {
+				executeToEnd();
 			}
+			return;
+		}
+		fireEvent(new ClearRegisterChangedHighlightsEvenet());
+		run = new Run(toBreakpoint);
+		run.schedule();
+	}
 
-			prevPC = machine.getPC();
-		} while (instructions.getNextInstruction() != null && !instructions.getNextInstruction().isBreakpoint());
+	public void resetExecution() {
+		stop();
+		fireEvent(new ClearRegisterChangedHighlightsEvenet());
+		if (machine.getJournal() != null) {
+			machine.getJournal().clear();
+		}
+		endCheckpointRun();
+		machine.setPC(0);
+	}
 
-		if (machine.getPC() / 4 >= instructions.getInstructionCount())
-			machine.setPC(0);
+	/**
+	 * Re-executes the program after an edit. The latest checkpoint which is still valid for the current program is
+	 * restored, and the program is executed to the end from there, in time slices if there is a scheduler.
+	 * 
+	 * @return False if there is no valid checkpoint or a run is in progress, then nothing is executed.
+	 */
+	public boolean rerunFromCheckpoint() {
+		if (run != null || checkpoints == null
+				|| !checkpoints.restoreLatestValid(machine, instructions.getProgram())) {
+			return false;
+		}
+		startRun(false);
+		return true;
 	}
 
-	@Override
-	public void onExecuteToEnd(ExecuteToEndEvent event) {
-		logger.log(Level.FINE,"onExecuteToEnd");
-		eventBus.fireEvent(new ClearRegisterChangedHighlightsEvenet());
+	/**
+	 * The run is not continuous after stepping back or a reset, so no more checkpoints are taken.
+	 */
+	private void endCheckpointRun() {
+		if (checkpoints != null) {
+			checkpoints.endRun();
+		}
+	}
+
+	/**
+	 * The writes outside of the execution (e.g. editing) are not recorded.
+	 */
+	private void pauseJournal() {
+		if (machine.getJournal() != null) {
+			machine.getJournal().pause();
+		}
+	}
 
-		int prevPC = machine.getPC();
-		while (instructions.getNextInstruction() != null) {
-			executeByPC(false);
-			if (prevPC == machine.getPC()) {
+	/**
+	 * Undoes the last executed instruction. Needs a journal, see {@link Machine#setJournal(ExecutionJournal)}.
+	 * 
+	 * @return False if there was nothing to undo.
+	 */
+	public boolean stepBack() {
+		fireEvent(new ClearRegisterChangedHighlightsEvenet());
+		endCheckpointRun();
+		ExecutionJournal journal = machine.getJournal();
+		return journal != null && journal.undoInstruction();
+	}
+
+	/**
+	 * Undoes instructions until the PC points to a breakpoint or the journal is empty.
+	 */
+	public void runBackToPreviousBreakpoint() {
+		fireEvent(new ClearRegisterChangedHighlightsEvenet());
+		endCheckpointRun();
+		ExecutionJournal journal = machine.getJournal();
+		if (journal == null) {
+			return;
+		}
+		while (journal.undoInstruction()) {
+			int index = instructions.getNextIndex();
+			if (index >= 0 && instructions.getProgram().isBreakpoint(index)) {
 				break;
 			}
+		}
+	}
 
-			prevPC = machine.getPC();
+	@Override
+	public void onRunNextInstruction(RunNextInstructionEvent event) {
+		logger.log(Level.FINE,"onRunNextInstruction");
+		if (run != null) {
+			logger.log(Level.FINE, "A run is in progress.");
+			return;
 		}
+		runNextInstruction();
+	}
 
-		if (machine.getPC() / 4 >= instructions.getInstructionCount())
-			machine.setPC(0);
+	@Override
+	public void onRunToNextBreakpoint(RunToNextBreakpointEvent event) {
+		logger.log(Level.FINE,"onRunToNextBreakpoint");
+		startRun(true);
+	}
+
+	@Override
+	public void onExecuteToEnd(ExecuteToEndEvent event) {
+		logger.log(Level.FINE,"onExecuteToEnd");
+		startRun(false);
 	}
 
 	@Override
 	public void onResetExecuton(ResetExecutionEvent event) {
 		logger.log(Level.FINE,"onResetExecuton");
-		eventBus.fireEvent(new ClearRegisterChangedHighlightsEvenet());
-		machine.setPC(0);
+		resetExecution();
 	}
 
 	@Override
 	public void onResetMachine(ResetMachineEvent event) {
 		logger.log(Level.FINE,"onResetMachine");
-		eventBus.fireEvent(new ClearRegisterChangedHighlightsEvenet());
+		fireEvent(new ClearRegisterChangedHighlightsEvenet());
 		assert false : "Not implemented";
 	}
 
+	@Override
+	public void onStopExecution(StopExecutionEvent event) {
+		logger.log(Level.FINE, "onStopExecution");
+		stop();
+	}
+
+	/**
+	 * Re-executes the program from a checkpoint if the edited line was executed by the last completed run. The
+	 * instruction list registers its handler in the constructor, before this one, so the program is updated already.
+	 */
+	@Override
+	public void onInstructionUpdatedInView(InstructionUpdatedInViewEvent event) {
+		if (checkpoints != null && run == null && checkpoints.isOutdated(machine, instructions.getProgram())) {
+			logger.log(Level.FINE, "rerun from checkpoint after editing line " + event.getIndex());
+			rerunFromCheckpoint();
+		}
+	}
+
 	private void fireEvent(GwtEvent<?> event) {
 		if (eventBus != null) {
 			eventBus.fireEventFromSource(event, this);
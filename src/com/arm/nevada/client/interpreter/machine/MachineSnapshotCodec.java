@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter.machine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Versioned binary snapshot of a {@link Machine}, for checkpoints, caches and test fixtures. The JSON format of
+ * {@link Machine#getAsJSONObject()} remains the interchange format.
+ * <p>
+ * Layout, every number is little-endian:
+ * <ul>
+ * <li>header: magic "NVSN", version (16 bit), flags (16 bit)</li>
+ * <li>NEON: count of the D registers (32 bit), the D registers (64 bit each)</li>
+ * <li>ARM and special registers: word count (32 bit), the words</li>
+ * <li>memory: kind (8 bit, 0 dense, 1 paged), offset and size in words, then runs of (word address, word count,
+ * words) covering the non zero words, closed by a run with 0 word count; a run is at most 1024 words</li>
+ * <li>Adler-32 checksum of all of the previous bytes, if the checksum flag is set</li>
+ * </ul>
+ */
+public class MachineSnapshotCodec {
+	public static final int version = 1;
+
+	private static final byte[] magic = { 'N', 'V', 'S', 'N' };
+	private static final int flagChecksum = 1;
+	private static final int memoryKindDense = 0;
+	private static final int memoryKindPaged = 1;
+
+	private MachineSnapshotCodec() {
+	}
+
+	/**
+	 * Writes the state of the machine. The stream is flushed but not closed.
+	 * 
+	 * @param checksum
+	 *            If true then a checksum is appended.
+	 */
+	public static void write(Machine machine, OutputStream out, boolean checksum) throws IOException {
+		SnapshotWriter writer = new SnapshotWriter(out);
+		for (byte b : magic) {
+			writer.writeByte(b);
+		}
+		writer.writeShort(version);
+		writer.writeShort(checksum ? flagChecksum : 0);
+
+		NEONRegisterSet neon = machine.getNEONRegisterSet();
+		int doubleCount = neon.getSize() / 2;
+		writer.writeInt(doubleCount);
+		for (int i = 0; i < doubleCount; i++) {
+			writer.writeLong(neon.getDoubleRegister(i));
+		}
+		writeWords(writer, machine.getArmRegisterSet());
+		writeWords(writer, machine.getSpecialRegisters());
+
+		MemorySet memory = machine.getMemorySet();
+		writer.writeByte(memory instanceof PagedMemorySet ? memoryKindPaged : memoryKindDense);
+		memory.writeSnapshot(writer);
+
+		if (checksum) {
+			writer.writeInt(writer.getChecksum());
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Reads a snapshot into the machine, the observer is notified about the new values. The memory backend of the
+	 * machine is kept, a dense memory can't read the blocks outside of its size.
+	 * 
+	 * @throws IOException
+	 *             If the snapshot is invalid, its version is not supported or the checksum doesn't match.
+	 */
+	public static void read(Machine machine, InputStream in) throws IOException {
+		SnapshotReader reader = new SnapshotReader(in);
+		for (byte b : magic) {
+			if (reader.readByte() != b) {
+				throw new IOException("Not a machine snapshot.");
+			}
+		}
+		int snapshotVersion = reader.readShort();
+		if (snapshotVersion != version) {
+			throw new IOException("Unsupported snapshot version: " + snapshotVersion);
+		}
+		int flags = reader.readShort();
+
+		NEONRegisterSet neon = machine.getNEONRegisterSet();
+		int doubleCount = reader.readInt();
+		if (doubleCount != neon.getSize() / 2) {
+			throw new IOException("Invalid NEON register count: " + doubleCount);
+		}
+		for (int i = 0; i < doubleCount; i++) {
+			neon.setDoubleRegister(i, reader.readLong(), true);
+		}
+		readWords(reader, machine.getArmRegisterSet());
+		readWords(reader, machine.getSpecialRegisters());
+
+		int memoryKind = reader.readByte();
+		if (memoryKind != memoryKindDense && memoryKind != memoryKindPaged) {
+			throw new IOException("Invalid memory kind: " + memoryKind);
+		}
+		machine.getMemorySet().readSnapshot(reader);
+
+		if ((flags & flagChecksum) != 0) {
+			int expected = reader.getChecksum();
+			if (reader.readInt() != expected) {
+				throw new IOException("Snapshot checksum mismatch.");
+			}
+		}
+		if (machine.getJournal() != null) {
+			machine.getJournal().clear();
+		}
+		machine.markEdited();
+	}
+
+	private static void writeWords(SnapshotWriter writer, Storage storage) throws IOException {
+		writer.writeInt(storage.getSize());
+		for (int i = 0; i < storage.getSize(); i++) {
+			writer.writeInt(storage.getOneValue(i));
+		}
+	}
+
+	private static void readWords(SnapshotReader reader, Storage storage) throws IOException {
+		int count = reader.readInt();
+		if (count != storage.getSize()) {
+			throw new IOException("Invalid register count: " + count);
+		}
+		for (int i = 0; i < count; i++) {
+			storage.setOneValue(i, reader.readInt(), true);
+		}
+	}
+}
@@ -26,73 +26,143 @@
 
 package com.arm.nevada.client.interpreter.machine;
 
-import com.arm.nevada.client.shared.events.MemoryMachineValueChangedEvent;
-import com.arm.nevada.client.shared.events.MemorySettingsChangedAndClearMemoryEvent;
-import com.arm.nevada.client.shared.events.MemorySettingsChangedAndClearMemoryEventHandler;
-import com.arm.nevada.client.shared.events.MemoryViewValueChangedEvent;
-import com.arm.nevada.client.shared.events.MemoryViewValueChangedEventHandler;
+import java.io.IOException;
+
 import com.arm.nevada.client.utils.DataTypeTools;
-import com.google.gwt.event.shared.EventBus;
 import com.google.gwt.json.client.JSONNumber;
 import com.google.gwt.json.client.JSONObject;
 
-public class MemorySet extends Storage implements
-		MemoryViewValueChangedEventHandler, MemorySettingsChangedAndClearMemoryEventHandler {
-	private static final int defaultSizeInWord = 32;
+public class MemorySet extends Storage {
+	protected static final int defaultSizeInWord = 32;
+	protected static final int snapshotBlockSizeInWords = 1024;
+
+	public MemorySet() {
+		super(defaultSizeInWord);
+	}
 
-	public MemorySet(EventBus eventBus) {
-		super(defaultSizeInWord, eventBus);
+	/**
+	 * @return An independent copy which shares the contents copy-on-write. The dense memory copies the whole
+	 *         array on the first write.
+	 */
+	public MemorySet fork() {
+		MemorySet fork = new MemorySet();
+		shareStateWith(fork);
+		return fork;
 	}
 
+	/**
+	 * The index must be offseted!
+	 */
 	@Override
-	public void onElementChanged(MemoryViewValueChangedEvent event) {
-		if (event.getSource() == this) {
+	protected void fireValueChanged(int index, int value) {
+		observer.onMemoryChanged(index, value);
+	}
+
+	/**
+	 * Checks whether the given byte range can be accessed.
+	 * 
+	 * @param byteAddress
+	 *            The first byte of the range.
+	 * @param byteCount
+	 *            The length of the range in bytes.
+	 * @return True if the whole range is backed by this memory.
+	 */
+	public boolean isAccessible(int byteAddress, int byteCount) {
+		int offsetBytes = getOffset() * 4;
+		// FIXME: maybe unsigned comparison should be done
+		return byteAddress - offsetBytes >= 0 && getSizeInBytes() + offsetBytes >= byteAddress + byteCount;
+	}
+
+	/**
+	 * Loads a little-endian value from any byte address.
+	 * 
+	 * @param byteAddress
+	 *            The address of the lowest byte, no alignment is required.
+	 * @param size
+	 *            8, 16, 32 or 64 bits.
+	 * @return The zero extended value.
+	 */
+	public long load(int byteAddress, int size) {
+		if (size == 64) {
+			return (load(byteAddress, 32) & 0xFFFFFFFFL) | (load(byteAddress + 4, 32) << 32);
+		}
+		int wordIndex = byteAddress >>> 2;
+		int shift = (byteAddress & 3) * 8;
+		long value = getOneValue(wordIndex) & 0xFFFFFFFFL;
+		if (shift + size > 32) {
+			value |= (getOneValue(wordIndex + 1) & 0xFFFFFFFFL) << 32;
+		}
+		return (value >>> shift) & DataTypeTools.getBitmaskLong(size);
+	}
+
+	/**
+	 * Stores a little-endian value to any byte address. Only the touched words are written.
+	 * 
+	 * @param byteAddress
+	 *            The address of the lowest byte, no alignment is required.
+	 * @param value
+	 *            Only the lower size bits are used.
+	 * @param size
+	 *            8, 16, 32 or 64 bits.
+	 */
+	public void store(int byteAddress, long value, int size, boolean fireEvent) {
+		if (size == 64) {
+			store(byteAddress, value, 32, fireEvent);
+			store(byteAddress + 4, value >>> 32, 32, fireEvent);
 			return;
 		}
-		setOneValue(event.getOffset(), event.getValue(), false);
+		int wordIndex = byteAddress >>> 2;
+		int shift = (byteAddress & 3) * 8;
+		boolean twoWords = shift + size > 32;
+		long words = getOneValue(wordIndex) & 0xFFFFFFFFL;
+		if (twoWords) {
+			words |= (getOneValue(wordIndex + 1) & 0xFFFFFFFFL) << 32;
+		}
+		long mask = DataTypeTools.getBitmaskLong(size) << shift;
+		words = (words & ~mask) | ((value << shift) & mask);
+		setOneValue(wordIndex, (int) words, fireEvent);
+		if (twoWords) {
+			setOneValue(wordIndex + 1, (int) (words >>> 32), fireEvent);
+		}
 	}
 
 	/**
-	 * The index must be offseted!
+	 * Loads consecutive little-endian double words from any byte address, the words are read directly if the address
+	 * is word aligned.
 	 */
-	@Override
-	public void setOneValue(int index, int value, boolean fireEvent) {
-		super.setOneValue(index, value, false);
-		values[index - offsetInWords] = value;
-		if (fireEvent) {
-			fireValueChanged(index, value);
+	public void load(int byteAddress, long[] doubleWords, int count) {
+		if ((byteAddress & 3) != 0) {
+			for (int i = 0; i < count; i++) {
+				doubleWords[i] = load(byteAddress + 8 * i, 64);
+			}
+			return;
+		}
+		int position = (byteAddress >>> 2) - offsetInWords;
+		for (int i = 0; i < count; i++) {
+			doubleWords[i] = (readWord(position + 2 * i) & 0xFFFFFFFFL) | ((long) readWord(position + 2 * i + 1) << 32);
 		}
 	}
 
 	/**
-	 * The index must be offseted!
+	 * Stores consecutive little-endian double words to any byte address, every touched word is written once if the
+	 * address is word aligned.
 	 */
-	@Override
-	protected void fireValueChanged(int index, int value) {
-		MemoryMachineValueChangedEvent forwardEvent = new MemoryMachineValueChangedEvent(index, value);
-		fireEvent(forwardEvent);
+	public void store(int byteAddress, long[] doubleWords, int count, boolean fireEvent) {
+		if ((byteAddress & 3) != 0) {
+			for (int i = 0; i < count; i++) {
+				store(byteAddress + 8 * i, doubleWords[i], 64, fireEvent);
+			}
+			return;
+		}
+		int index = byteAddress >>> 2;
+		for (int i = 0; i < count; i++) {
+			setOneValue(index + 2 * i, (int) doubleWords[i], fireEvent);
+			setOneValue(index + 2 * i + 1, (int) (doubleWords[i] >>> 32), fireEvent);
+		}
 	}
 
 	public int getWord(int fromByteAddress) {
-		// fromByteAddress = fromByteAddress - offsetInWords * 4;
-		int lower = getOneValue(fromByteAddress / 4);
-		if (fromByteAddress % 4 == 0)
-			return lower;
-		int higher = getOneValue(fromByteAddress / 4 + 1);
-		int[] lParts = DataTypeTools.getParts(8, lower);
-		int[] hParts = DataTypeTools.getParts(8, higher);
-		int[] outParts = new int[4];
-		int cntr = 0;
-		for (int i = fromByteAddress % 4; i < 4; i++) {
-			outParts[cntr] = lParts[i];
-			cntr++;
-		}
-		for (int i = 0; cntr < 4; i++) {
-			outParts[cntr] = hParts[i];
-			cntr++;
-		}
-		int out = DataTypeTools.createByParts(outParts);
-		return out;
+		return (int) load(fromByteAddress, 32);
 	}
 
 	@Override
@@ -101,55 +171,27 @@ public class MemorySet extends Storage implements
 	}
 
 	public void setWord(int toByteAddress, int value, boolean fireEvent) {
-		// toByteAddress = toByteAddress - offsetInWords * 4;
-		if (toByteAddress % 4 == 0)
-			this.setOneValue(toByteAddress / 4, value, true);
-		else {
-			int[] valueParts = DataTypeTools.getParts(8, value);
-			int[] partsAt = DataTypeTools.getParts(8, this.getOneValue(toByteAddress / 4));
-			int[] partsNext = DataTypeTools.getParts(8, this.getOneValue(toByteAddress / 4 + 1));
-			int cntr = 0;
-			for (int i = toByteAddress % 4; i < 4; i++)
-				partsAt[i] = valueParts[cntr++];
-			for (int i = 0; cntr < 4; i++)
-				partsNext[i] = valueParts[cntr++];
-			int at = DataTypeTools.createByParts(partsAt);
-			int next = DataTypeTools.createByParts(partsNext);
-			this.setOneValue(toByteAddress / 4, at, true);
-			this.setOneValue(toByteAddress / 4 + 1, next, true);
-		}
+		store(toByteAddress, value, 32, fireEvent);
 	}
 
 	public void setValue(int toByteAddress, int value, int size, boolean fireEvent) {
-		int original = this.getWord(toByteAddress);
-		int newWord = original & ~DataTypeTools.getBitmask(size);
-		newWord = newWord | (DataTypeTools.getBitmask(size) & value);
-		this.setWord(toByteAddress, newWord, fireEvent);
+		store(toByteAddress, value, size, fireEvent);
 	}
 
 	public void setSize(int sizeInWord, boolean fireMemorySettingsChangedEvent, boolean fireMemoryClear) {
 		if (this.values.length == sizeInWord)
 			return;
 		values = new int[sizeInWord];
+		valuesShared = false;
+		if (journal != null) {
+			journal.clear();
+		}
 		if (fireMemorySettingsChangedEvent) {
-			MemorySettingsChangedAndClearMemoryEvent e = new MemorySettingsChangedAndClearMemoryEvent(sizeInWord);
-			fireEvent(e);
+			observer.onMemorySizeChanged(sizeInWord);
 		}
 		clear(fireMemoryClear);
 	}
 
-	@Override
-	public void onMemorySettingsChangedAndClearMemory(MemorySettingsChangedAndClearMemoryEvent event) {
-		if (event.getSource() == this) {
-			return;
-		}
-		if (event.getNewSizeInWords() != null)
-			setSize(event.getNewSizeInWords(), false, false);
-		if (event.getOffsetInWords() != null)
-			setOffset(event.getOffsetInWords(), false);
-		clear(false);
-	}
-
 	@Override
 	public void initByJSONObject(JSONObject json) {
 		int size = defaultSizeInWord;
@@ -170,18 +212,90 @@ public class MemorySet extends Storage implements
 		return asJSONObject;
 	}
 
-	@Override
-	public void subscribeToEventBus() {
-		if (eventBus == null) {
-			return;
+	/**
+	 * Writes the settings and the runs of non zero words, see {@link MachineSnapshotCodec}.
+	 */
+	void writeSnapshot(SnapshotWriter out) throws IOException {
+		out.writeInt(getOffset());
+		out.writeInt(getSize());
+		for (int first = 0; first < getSize(); first += snapshotBlockSizeInWords) {
+			int length = Math.min(snapshotBlockSizeInWords, getSize() - first);
+			writeSnapshotBlock(out, first + getOffset(), values, first, length);
 		}
-		this.eventBus.addHandler(MemoryViewValueChangedEvent.TYPE, this);
-		this.eventBus.addHandler(MemorySettingsChangedAndClearMemoryEvent.TYPE, this);
+		out.writeInt(0);
+		out.writeInt(0);
+	}
+
+	/**
+	 * Writes the non zero runs of the words. Zero gaps shorter than a run header are kept in the runs.
+	 */
+	protected static void writeSnapshotBlock(SnapshotWriter out, int wordAddress, int[] words, int from, int length)
+			throws IOException {
+		int end = from + length;
+		int i = from;
+		while (i < end) {
+			while (i < end && words[i] == 0) {
+				i++;
+			}
+			if (i == end) {
+				return;
+			}
+			int runStart = i;
+			int runEnd = i;
+			while (i < end && i - runEnd <= 2) {
+				if (words[i] != 0) {
+					runEnd = i + 1;
+				}
+				i++;
+			}
+			out.writeInt(wordAddress + runStart - from);
+			out.writeInt(runEnd - runStart);
+			out.writeInts(words, runStart, runEnd - runStart);
+			i = runEnd;
+		}
+	}
+
+	/**
+	 * Reads the format of {@link #writeSnapshot(SnapshotWriter)} and publishes the new values.
+	 * 
+	 * @throws IOException
+	 *             If a run is outside of the memory.
+	 */
+	void readSnapshot(SnapshotReader in) throws IOException {
+		int offset = in.readInt();
+		int size = in.readInt();
+		setOffset(offset, true);
+		setSize(size, true, false);
+		clear(false);
+		int[] block = new int[snapshotBlockSizeInWords];
+		while (true) {
+			int address = in.readInt();
+			int length = in.readInt();
+			if (length == 0) {
+				break;
+			}
+			if (length < 0 || length > snapshotBlockSizeInWords || !isBlockInside(address, length)) {
+				throw new IOException("Invalid memory run in the snapshot: " + address + " " + length);
+			}
+			in.readInts(block, 0, length);
+			for (int i = 0; i < length; i++) {
+				writeWord(address - getOffset() + i, block[i]);
+			}
+		}
+		for (int i = 0; i < getSize(); i++) {
+			fireValueChanged(i + getOffset(), readWord(i));
+		}
+	}
+
+	/**
+	 * @return True if the words of the run are backed by the memory.
+	 */
+	protected boolean isBlockInside(int wordAddress, int length) {
+		return wordAddress - getOffset() >= 0 && wordAddress - getOffset() + length <= getSize();
 	}
 
 	@Override
 	protected void fireOffsetChanged(int newOffsetInWords) {
-		MemorySettingsChangedAndClearMemoryEvent e = new MemorySettingsChangedAndClearMemoryEvent(null, newOffsetInWords);
-		fireEvent(e);
+		observer.onMemoryOffsetChanged(newOffsetInWords);
 	}
 }
@@ -30,44 +30,350 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.arm.nevada.client.parser.EnumRegisterType;
-import com.arm.nevada.client.shared.events.NEONRegisterValueChangedEvent;
-import com.arm.nevada.client.shared.events.NEONRegisterValueChangedEventHandler;
 import com.arm.nevada.client.utils.DataTypeTools;
-import com.google.gwt.event.shared.EventBus;
 
 public class NEONRegisterSet extends Storage
 		implements
 		IDoubleWordDataSet,
-		IQuadWordDataSet,
-		NEONRegisterValueChangedEventHandler {
+		IQuadWordDataSet {
 	private static final Logger logger = Logger.getLogger(NEONRegisterSet.class.getName());
+	private static final int doubleRegisterCount = 32;
 
-	public NEONRegisterSet(EventBus eventBus) {
-		super(16 * 4, eventBus);
+	/**
+	 * The register file as D registers. Q registers and S words are views of these: Qn is D2n and D2n+1, the word
+	 * 2n is the lower half of Dn, the word 2n+1 is the upper half.
+	 */
+	private long[] doubleRegisters = new long[doubleRegisterCount];
+
+	/**
+	 * True if the D registers are shared with a fork. They are copied before the first write.
+	 */
+	private boolean doubleRegistersShared = false;
+
+	public NEONRegisterSet() {
+		super();
+	}
+
+	/**
+	 * @return An independent copy which shares the registers copy-on-write.
+	 */
+	public NEONRegisterSet fork() {
+		NEONRegisterSet fork = new NEONRegisterSet();
+		shareStateWith(fork);
+		return fork;
+	}
+
+	@Override
+	protected void shareStateWith(Storage target) {
+		NEONRegisterSet neon = (NEONRegisterSet) target;
+		neon.doubleRegisters = doubleRegisters;
+		neon.doubleRegistersShared = true;
+		doubleRegistersShared = true;
+	}
+
+	/**
+	 * @return The D registers, ready to be written.
+	 */
+	private long[] getWritableDoubleRegisters() {
+		if (doubleRegistersShared) {
+			long[] copy = new long[doubleRegisterCount];
+			System.arraycopy(doubleRegisters, 0, copy, 0, doubleRegisterCount);
+			doubleRegisters = copy;
+			doubleRegistersShared = false;
+		}
+		return doubleRegisters;
+	}
+
+	/**
+	 * Records the old value of a word which is written without {@link #setOneValue(int, int, boolean)}.
+	 */
+	private void journalWord(int position) {
+		if (journal != null && journal.isRecording()) {
+			journal.record(journalId, position, readWord(position));
+		}
+	}
+
+	@Override
+	protected int readWord(int position) {
+		return (int) (doubleRegisters[position >>> 1] >>> ((position & 1) << 5));
+	}
+
+	@Override
+	protected void writeWord(int position, int value) {
+		int shift = (position & 1) << 5;
+		long mask = 0xFFFFFFFFL << shift;
+		long[] registers = getWritableDoubleRegisters();
+		registers[position >>> 1] = (registers[position >>> 1] & ~mask) | ((value & 0xFFFFFFFFL) << shift);
+	}
+
+	@Override
+	public int getSize() {
+		return doubleRegisterCount * 2;
+	}
+
+	/**
+	 * @return The value of the Dn register.
+	 */
+	public long getDoubleRegister(int index) {
+		return doubleRegisters[index];
+	}
+
+	public void setDoubleRegister(int index, long value, boolean fireEvent) {
+		journalWord(2 * index);
+		journalWord(2 * index + 1);
+		getWritableDoubleRegisters()[index] = value;
+		if (fireEvent) {
+			fireValueChanged(2 * index, (int) value);
+			fireValueChanged(2 * index + 1, (int) (value >>> 32));
+		}
 	}
 
 	public int getSubRegister(EnumRegisterType registerType, int size, int index, int subIndex) {
 		assert size <= 32 && size >= 1;
-		int wordIndex = index * registerType.getSize() / 32 + (size * subIndex / 32);
-		int wordValue = getOneValue(wordIndex);
-
-		int inWord = subIndex * size / 32;
-		int wordSubIndex = subIndex - inWord * 32 / size;
-		return DataTypeTools.getParts(size, wordValue)[wordSubIndex];
+		return getLaneInt(registerType, index, size, subIndex);
 	}
 
 	public void setSubRegister(EnumRegisterType registerType, int size, int index, int subIndex, int value) {
 		assert size <= 32 && size >= 1;
-		int wordIndex = index * registerType.getSize() / 32 + (size * subIndex / 32);
-		int inWord = subIndex * size / 32;
-		int wordSubIndex = subIndex - inWord * 32 / size;
+		setLane(registerType, index, size, subIndex, value, true);
+	}
+
+	/**
+	 * @return The number of lanes of the given size in the register type.
+	 */
+	public static int getLaneCount(EnumRegisterType type, int size) {
+		return type.getSize() / size;
+	}
+
+	/**
+	 * Reads one lane of a register without any temporary object.
+	 * 
+	 * @param type
+	 *            The register type: SINGLE, DOUBLE or QUAD.
+	 * @param index
+	 *            The index of the register.
+	 * @param size
+	 *            The size of the lane in bits, power of 2 up to 64.
+	 * @param lane
+	 *            The index of the lane in the register.
+	 * @return The zero extended value of the lane.
+	 */
+	public long getLane(EnumRegisterType type, int index, int size, int lane) {
+		int bit = index * type.getSize() + lane * size;
+		long value = doubleRegisters[bit >>> 6];
+		if (size == 64) {
+			return value;
+		}
+		return (value >>> (bit & 63)) & DataTypeTools.getBitmaskLong(size);
+	}
+
+	/**
+	 * Same as {@link #getLane(EnumRegisterType, int, int, int)}, but the value is sign extended.
+	 */
+	public long getLaneSigned(EnumRegisterType type, int index, int size, int lane) {
+		int bit = index * type.getSize() + lane * size;
+		long value = doubleRegisters[bit >>> 6];
+		if (size == 64) {
+			return value;
+		}
+		return (value << (64 - size - (bit & 63))) >> (64 - size);
+	}
+
+	/**
+	 * Reads one lane of maximum 32 bit. The value is zero extended, except the 32 bit lanes which are returned as
+	 * they are.
+	 */
+	public int getLaneInt(EnumRegisterType type, int index, int size, int lane) {
+		assert size <= 32;
+		int bit = index * type.getSize() + lane * size;
+		return (int) (doubleRegisters[bit >>> 6] >>> (bit & 63)) & DataTypeTools.getBitmask(size);
+	}
+
+	/**
+	 * Writes one lane of a register, the other lanes are not changed.
+	 * 
+	 * @param value
+	 *            Only the lower size bits are used.
+	 */
+	public void setLane(EnumRegisterType type, int index, int size, int lane, long value, boolean fireEvent) {
+		int bit = index * type.getSize() + lane * size;
+		int doubleIndex = bit >>> 6;
+		if (size == 64) {
+			setDoubleRegister(doubleIndex, value, fireEvent);
+			return;
+		}
+		journalWord(bit >>> 5);
+		long mask = DataTypeTools.getBitmaskLong(size) << (bit & 63);
+		long[] registers = getWritableDoubleRegisters();
+		registers[doubleIndex] = (registers[doubleIndex] & ~mask) | ((value << (bit & 63)) & mask);
+		if (fireEvent) {
+			int word = bit >>> 5;
+			fireValueChanged(word, readWord(word));
+		}
+	}
 
-		int original = this.getOneValue(wordIndex);
-		int[] parts = DataTypeTools.getParts(size, original);
-		parts[wordSubIndex] = value;
+	/**
+	 * Notifies the observer about every word of the register. Useful after a sequence of
+	 * {@link #setLane(EnumRegisterType, int, int, int, long, boolean)} calls without firing.
+	 */
+	public void fireRegisterChanged(EnumRegisterType type, int index) {
+		int firstWord = index * type.getSize() / 32;
+		for (int i = firstWord; i < firstWord + type.getSize() / 32; i++) {
+			fireValueChanged(i, readWord(i));
+		}
+	}
 
-		int newValue = DataTypeTools.createByParts(parts);
-		this.setOneValue(wordIndex, newValue, true);
+	/**
+	 * Reads every lane of a register into the given array, zero extended.
+	 * 
+	 * @param lanes
+	 *            Must have at least {@link #getLaneCount(EnumRegisterType, int)} elements.
+	 */
+	public void getLanes(EnumRegisterType type, int index, int size, long[] lanes) {
+		readLanes(doubleRegisters, type, index, size, lanes);
+	}
+
+	/**
+	 * Same as {@link #getLanes(EnumRegisterType, int, int, long[])}, but reads a detached copy of the D registers.
+	 */
+	public static void readLanes(long[] doubleRegisters, EnumRegisterType type, int index, int size, long[] lanes) {
+		int count = getLaneCount(type, size);
+		int firstBit = index * type.getSize();
+		long mask = DataTypeTools.getBitmaskLong(size);
+		for (int i = 0; i < count; i++) {
+			int bit = firstBit + i * size;
+			long value = doubleRegisters[bit >>> 6];
+			lanes[i] = size == 64 ? value : (value >>> (bit & 63)) & mask;
+		}
+	}
+
+	/**
+	 * Writes every lane of a register from the given array. Every D register is written once.
+	 */
+	public void setLanes(EnumRegisterType type, int index, int size, long[] lanes, boolean fireEvent) {
+		if (type == EnumRegisterType.SINGLE) {
+			for (int i = 0; i < 32 / size; i++) {
+				setLane(type, index, size, i, lanes[i], false);
+			}
+		} else {
+			int firstDouble = index * type.getSize() / 64;
+			int doubleCount = type.getSize() / 64;
+			for (int i = 2 * firstDouble; i < 2 * (firstDouble + doubleCount); i++) {
+				journalWord(i);
+			}
+			writeLanes(getWritableDoubleRegisters(), type, index, size, lanes);
+		}
+		if (fireEvent) {
+			fireRegisterChanged(type, index);
+		}
+	}
+
+	/**
+	 * Same as {@link #setLanes(EnumRegisterType, int, int, long[], boolean)} on a detached copy of the D registers,
+	 * without journal and events.
+	 * 
+	 * @param type
+	 *            DOUBLE or QUAD.
+	 */
+	public static void writeLanes(long[] doubleRegisters, EnumRegisterType type, int index, int size, long[] lanes) {
+		assert type != EnumRegisterType.SINGLE;
+		int firstDouble = index * type.getSize() / 64;
+		int doubleCount = type.getSize() / 64;
+		if (size == 64) {
+			for (int d = 0; d < doubleCount; d++) {
+				doubleRegisters[firstDouble + d] = lanes[d];
+			}
+		} else {
+			int lanesPerDouble = 64 / size;
+			long mask = DataTypeTools.getBitmaskLong(size);
+			for (int d = 0; d < doubleCount; d++) {
+				long value = 0;
+				for (int i = lanesPerDouble - 1; i >= 0; i--) {
+					value = (value << size) | (lanes[d * lanesPerDouble + i] & mask);
+				}
+				doubleRegisters[firstDouble + d] = value;
+			}
+		}
+	}
+
+	/**
+	 * Same as {@link #getLanes(EnumRegisterType, int, int, long[])} for lanes of maximum 32 bit. Every D register
+	 * is split into two words once, the lanes are extracted by int operations, which are cheaper than long
+	 * operations in the browser.
+	 */
+	public void getLanesInt(EnumRegisterType type, int index, int size, int[] lanes) {
+		readLanesInt(doubleRegisters, type, index, size, lanes);
+	}
+
+	/**
+	 * Same as {@link #getLanesInt(EnumRegisterType, int, int, int[])} on a detached copy of the D registers.
+	 */
+	public static void readLanesInt(long[] doubleRegisters, EnumRegisterType type, int index, int size, int[] lanes) {
+		assert size <= 32;
+		int firstWord = index * type.getSize() / 32;
+		int wordCount = type.getSize() / 32;
+		int lanesPerWord = 32 / size;
+		int mask = DataTypeTools.getBitmask(size);
+		for (int w = 0; w < wordCount; w++) {
+			int wordIndex = firstWord + w;
+			long doubleValue = doubleRegisters[wordIndex >>> 1];
+			int word = (wordIndex & 1) == 0 ? (int) doubleValue : (int) (doubleValue >>> 32);
+			for (int i = 0; i < lanesPerWord; i++) {
+				lanes[w * lanesPerWord + i] = (word >>> (i * size)) & mask;
+			}
+		}
+	}
+
+	/**
+	 * Same as {@link #setLanes(EnumRegisterType, int, int, long[], boolean)} for lanes of maximum 32 bit. The lanes
+	 * are packed into words by int operations.
+	 */
+	public void setLanesInt(EnumRegisterType type, int index, int size, int[] lanes, boolean fireEvent) {
+		if (type == EnumRegisterType.SINGLE) {
+			for (int i = 0; i < 32 / size; i++) {
+				setLane(type, index, size, i, lanes[i], false);
+			}
+		} else {
+			int firstWord = index * type.getSize() / 32;
+			for (int i = firstWord; i < firstWord + type.getSize() / 32; i++) {
+				journalWord(i);
+			}
+			writeLanesInt(getWritableDoubleRegisters(), type, index, size, lanes);
+		}
+		if (fireEvent) {
+			fireRegisterChanged(type, index);
+		}
+	}
+
+	/**
+	 * Same as {@link #setLanesInt(EnumRegisterType, int, int, int[], boolean)} on a detached copy of the D
+	 * registers, without journal and events.
+	 * 
+	 * @param type
+	 *            DOUBLE or QUAD.
+	 */
+	public static void writeLanesInt(long[] doubleRegisters, EnumRegisterType type, int index, int size, int[] lanes) {
+		assert type != EnumRegisterType.SINGLE && size <= 32;
+		int firstDouble = index * type.getSize() / 64;
+		int doubleCount = type.getSize() / 64;
+		int lanesPerWord = 32 / size;
+		for (int d = 0; d < doubleCount; d++) {
+			int low = packWord(lanes, 2 * d * lanesPerWord, lanesPerWord, size);
+			int high = packWord(lanes, (2 * d + 1) * lanesPerWord, lanesPerWord, size);
+			doubleRegisters[firstDouble + d] = DataTypeTools.LongFromIntegers(low, high);
+		}
+	}
+
+	private static int packWord(int[] lanes, int first, int count, int size) {
+		if (size == 32) {
+			return lanes[first];
+		}
+		int mask = DataTypeTools.getBitmask(size);
+		int word = 0;
+		for (int i = count - 1; i >= 0; i--) {
+			word = (word << size) | (lanes[first + i] & mask);
+		}
+		return word;
 	}
 
 	public int[] getRegisterValues(EnumRegisterType type, int index) {
@@ -90,25 +396,15 @@ public class NEONRegisterSet extends Storage
 	}
 
 	public long[] getRegisterValuesLong(EnumRegisterType type, int index) {
-		long[] out;
-		int[] values;
 		switch (type) {
 		case DOUBLE:
-			values = this.getDouble(index);
-			out = new long[] { DataTypeTools.LongFromIntegers(values[0], values[1]) };
-			break;
+			return new long[] { doubleRegisters[index] };
 		case QUAD:
-			values = this.getQuad(index);
-			out = new long[] {
-					DataTypeTools.LongFromIntegers(values[0], values[1]),
-					DataTypeTools.LongFromIntegers(values[2], values[3]) };
-			break;
+			return new long[] { doubleRegisters[2 * index], doubleRegisters[2 * index + 1] };
 		default:
 			assert false;
 			return null;
 		}
-
-		return out;
 	}
 
 	public void setRegisterValues(EnumRegisterType type, boolean fireEvent, int index, int... values) {
@@ -183,26 +479,9 @@ public class NEONRegisterSet extends Storage
 
 	}
 
-	@Override
-	public void onElementChanged(NEONRegisterValueChangedEvent event) {
-		if (event.getSource() == this) {
-			return;
-		}
-		this.setOneValue(event.getOffset(), event.getValue(), false);
-	}
-
 	@Override
 	protected void fireValueChanged(int index, int value) {
-		NEONRegisterValueChangedEvent event = new NEONRegisterValueChangedEvent(index, value);
-		fireEvent(event);
-	}
-
-	@Override
-	public void subscribeToEventBus() {
-		if (eventBus == null) {
-			return;
-		}
-		this.eventBus.addHandler(NEONRegisterValueChangedEvent.TYPE, this);
+		observer.onNEONRegisterChanged(index, value);
 	}
 
 	@Override
@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter.machine;
+
+import java.io.IOException;
+
+import com.google.gwt.json.client.JSONNumber;
+import com.google.gwt.json.client.JSONObject;
+
+/**
+ * Memory covering the whole 32 bit address space. The words are kept in 4 KiB pages which are allocated on the first
+ * non zero write, untouched pages read as zero.
+ * <p>
+ * The size and the offset only define the window which is published to the observer and written to the JSON object
+ * as settings, the contents outside of the window are kept and accessible.
+ */
+public class PagedMemorySet extends MemorySet {
+	private static final int pageSizeInWords = 1024;
+	private static final int pageBits = 10;
+	private static final int tableBits = 10;
+	private static final int wordAddressMask = 0x3FFFFFFF;
+
+	private static final int tableCount = 1 << (30 - pageBits - tableBits);
+
+	/**
+	 * Two level page table: the upper 10 bits of the word address selects the table, the next 10 bits the page.
+	 */
+	private int[][][] pageTables = new int[tableCount][][];
+
+	/**
+	 * The tables and pages may be shared with forks. Only the ones owned by this memory are written, the others are
+	 * copied first.
+	 */
+	private Object owner = new Object();
+	private Object[] tableOwners = new Object[tableCount];
+	private Object[][] pageOwners = new Object[tableCount][];
+	private int windowSizeInWords = defaultSizeInWord;
+	private int allocatedPageCount = 0;
+
+	public PagedMemorySet() {
+		super();
+	}
+
+	/**
+	 * @return An independent copy which shares the pages copy-on-write. Only the page directory is copied, a page
+	 *         is copied by the first write after the fork.
+	 */
+	@Override
+	public PagedMemorySet fork() {
+		PagedMemorySet fork = new PagedMemorySet();
+		shareStateWith(fork);
+		return fork;
+	}
+
+	@Override
+	protected void shareStateWith(Storage target) {
+		PagedMemorySet paged = (PagedMemorySet) target;
+		paged.offsetInWords = offsetInWords;
+		paged.windowSizeInWords = windowSizeInWords;
+		paged.allocatedPageCount = allocatedPageCount;
+		System.arraycopy(pageTables, 0, paged.pageTables, 0, tableCount);
+		System.arraycopy(tableOwners, 0, paged.tableOwners, 0, tableCount);
+		System.arraycopy(pageOwners, 0, paged.pageOwners, 0, tableCount);
+		// neither of them owns the existing tables and pages any more
+		owner = new Object();
+		paged.owner = new Object();
+	}
+
+	/**
+	 * @param forWrite
+	 *            If true then the page is allocated or copied if needed, so it can be written.
+	 * @return The page of the word address, or null if it is not allocated and not for writing.
+	 */
+	private int[] getPage(int wordAddress, boolean forWrite) {
+		int tableIndex = wordAddress >>> (pageBits + tableBits);
+		int pageIndex = (wordAddress >>> pageBits) & ((1 << tableBits) - 1);
+		int[][] table = pageTables[tableIndex];
+		if (!forWrite) {
+			return table == null ? null : table[pageIndex];
+		}
+		if (table == null) {
+			table = new int[1 << tableBits][];
+			pageTables[tableIndex] = table;
+			pageOwners[tableIndex] = new Object[1 << tableBits];
+			tableOwners[tableIndex] = owner;
+		} else if (tableOwners[tableIndex] != owner) {
+			int[][] tableCopy = new int[1 << tableBits][];
+			System.arraycopy(table, 0, tableCopy, 0, table.length);
+			Object[] ownersCopy = new Object[1 << tableBits];
+			System.arraycopy(pageOwners[tableIndex], 0, ownersCopy, 0, ownersCopy.length);
+			table = tableCopy;
+			pageTables[tableIndex] = table;
+			pageOwners[tableIndex] = ownersCopy;
+			tableOwners[tableIndex] = owner;
+		}
+		int[] page = table[pageIndex];
+		if (page == null) {
+			page = new int[pageSizeInWords];
+			allocatedPageCount++;
+		} else if (pageOwners[tableIndex][pageIndex] != owner) {
+			int[] pageCopy = new int[pageSizeInWords];
+			System.arraycopy(page, 0, pageCopy, 0, pageSizeInWords);
+			page = pageCopy;
+		} else {
+			return page;
+		}
+		table[pageIndex] = page;
+		pageOwners[tableIndex][pageIndex] = owner;
+		return page;
+	}
+
+	@Override
+	protected int readWord(int position) {
+		int wordAddress = (position + getOffset()) & wordAddressMask;
+		int[] page = getPage(wordAddress, false);
+		return page == null ? 0 : page[wordAddress & (pageSizeInWords - 1)];
+	}
+
+	@Override
+	protected void writeWord(int position, int value) {
+		int wordAddress = (position + getOffset()) & wordAddressMask;
+		if (value == 0 && getPage(wordAddress, false) == null) {
+			return;
+		}
+		getPage(wordAddress, true)[wordAddress & (pageSizeInWords - 1)] = value;
+	}
+
+	/**
+	 * @return The size of the window in words.
+	 */
+	@Override
+	public int getSize() {
+		return windowSizeInWords;
+	}
+
+	/**
+	 * @return The number of the allocated 4 KiB pages.
+	 */
+	public int getAllocatedPageCount() {
+		return allocatedPageCount;
+	}
+
+	/**
+	 * Every address is backed.
+	 */
+	@Override
+	public boolean isAccessible(int byteAddress, int byteCount) {
+		return true;
+	}
+
+	/**
+	 * Only the words of the window are published.
+	 */
+	@Override
+	protected void fireValueChanged(int index, int value) {
+		if (index - getOffset() >= 0 && index - getOffset() < windowSizeInWords) {
+			super.fireValueChanged(index, value);
+		}
+	}
+
+	/**
+	 * Changes the size of the window, the contents are kept.
+	 * 
+	 * @param fireMemoryClear
+	 *            If true then the words of the new window are published.
+	 */
+	@Override
+	public void setSize(int sizeInWord, boolean fireMemorySettingsChangedEvent, boolean fireMemoryClear) {
+		if (windowSizeInWords == sizeInWord)
+			return;
+		windowSizeInWords = sizeInWord;
+		if (fireMemorySettingsChangedEvent) {
+			observer.onMemorySizeChanged(sizeInWord);
+		}
+		if (fireMemoryClear) {
+			for (int i = 0; i < windowSizeInWords; i++) {
+				fireValueChanged(i + getOffset(), readWord(i));
+			}
+		}
+	}
+
+	/**
+	 * Releases every page.
+	 */
+	@Override
+	public void clear(boolean fireEvent) {
+		for (int i = 0; i < tableCount; i++) {
+			pageTables[i] = null;
+			tableOwners[i] = null;
+			pageOwners[i] = null;
+		}
+		allocatedPageCount = 0;
+		if (fireEvent) {
+			for (int i = 0; i < windowSizeInWords; i++) {
+				fireValueChanged(i + getOffset(), 0);
+			}
+		}
+	}
+
+	@Override
+	public void initByJSONObject(JSONObject json) {
+		clear(false);
+		super.initByJSONObject(json);
+	}
+
+	/**
+	 * Writes the non zero runs of the allocated pages.
+	 */
+	@Override
+	void writeSnapshot(SnapshotWriter out) throws IOException {
+		out.writeInt(getOffset());
+		out.writeInt(windowSizeInWords);
+		for (int tableIndex = 0; tableIndex < tableCount; tableIndex++) {
+			int[][] table = pageTables[tableIndex];
+			if (table == null) {
+				continue;
+			}
+			for (int pageIndex = 0; pageIndex < table.length; pageIndex++) {
+				int[] page = table[pageIndex];
+				if (page == null) {
+					continue;
+				}
+				writeSnapshotBlock(out, ((tableIndex << tableBits) | pageIndex) << pageBits, page, 0, pageSizeInWords);
+			}
+		}
+		out.writeInt(0);
+		out.writeInt(0);
+	}
+
+	@Override
+	void readSnapshot(SnapshotReader in) throws IOException {
+		clear(false);
+		super.readSnapshot(in);
+	}
+
+	@Override
+	protected boolean isBlockInside(int wordAddress, int length) {
+		return true;
+	}
+
+	/**
+	 * Only the allocated pages are walked.
+	 */
+	@Override
+	public JSONObject getAsJSONObject() {
+		JSONObject jsonObject = new JSONObject();
+		if (getOffset() != defaultOffsetInWords) {
+			jsonObject.put("offsetW", new JSONNumber(getOffset()));
+		}
+		if (windowSizeInWords != defaultSizeInWord) {
+			jsonObject.put("sizeW", new JSONNumber(windowSizeInWords));
+		}
+		for (int tableIndex = 0; tableIndex < pageTables.length; tableIndex++) {
+			int[][] table = pageTables[tableIndex];
+			if (table == null) {
+				continue;
+			}
+			for (int pageIndex = 0; pageIndex < table.length; pageIndex++) {
+				int[] page = table[pageIndex];
+				if (page == null) {
+					continue;
+				}
+				int firstWord = ((tableIndex << tableBits) | pageIndex) << pageBits;
+				for (int i = 0; i < pageSizeInWords; i++) {
+					if (page[i] != 0) {
+						jsonObject.put(firstWord + i + "", new JSONNumber(page[i]));
+					}
+				}
+			}
+		}
+		return jsonObject;
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter.machine;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Little-endian reader of the binary snapshots. It reads exactly the bytes of the snapshot, so the stream can
+ * continue with other data. It keeps an Adler-32 checksum of the read bytes.
+ */
+public class SnapshotReader {
+	private static final int adlerModulo = 65521;
+
+	private final InputStream in;
+	private final byte[] buffer = new byte[4096];
+	private int adlerA = 1;
+	private int adlerB = 0;
+
+	public SnapshotReader(InputStream in) {
+		this.in = in;
+	}
+
+	private void readFully(int length) throws IOException {
+		int read = 0;
+		while (read < length) {
+			int count = in.read(buffer, read, length - read);
+			if (count < 0) {
+				throw new IOException("Unexpected end of the snapshot.");
+			}
+			read += count;
+		}
+		for (int i = 0; i < length; i++) {
+			adlerA = (adlerA + (buffer[i] & 0xFF)) % adlerModulo;
+			adlerB = (adlerB + adlerA) % adlerModulo;
+		}
+	}
+
+	public int readByte() throws IOException {
+		readFully(1);
+		return buffer[0] & 0xFF;
+	}
+
+	public int readShort() throws IOException {
+		readFully(2);
+		return (buffer[0] & 0xFF) | (buffer[1] & 0xFF) << 8;
+	}
+
+	public int readInt() throws IOException {
+		readFully(4);
+		return getInt(0);
+	}
+
+	public long readLong() throws IOException {
+		long lower = readInt() & 0xFFFFFFFFL;
+		return lower | (long) readInt() << 32;
+	}
+
+	public void readInts(int[] values, int offset, int length) throws IOException {
+		int wordsPerChunk = buffer.length / 4;
+		for (int done = 0; done < length; done += wordsPerChunk) {
+			int count = Math.min(wordsPerChunk, length - done);
+			readFully(count * 4);
+			for (int i = 0; i < count; i++) {
+				values[offset + done + i] = getInt(i * 4);
+			}
+		}
+	}
+
+	private int getInt(int position) {
+		return (buffer[position] & 0xFF)
+				| (buffer[position + 1] & 0xFF) << 8
+				| (buffer[position + 2] & 0xFF) << 16
+				| (buffer[position + 3] & 0xFF) << 24;
+	}
+
+	/**
+	 * @return The Adler-32 checksum of the bytes read so far.
+	 */
+	public int getChecksum() {
+		return (adlerB << 16) | adlerA;
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter.machine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffered little-endian writer of the binary snapshots. It keeps an Adler-32 checksum of the written bytes.
+ */
+public class SnapshotWriter {
+	private static final int adlerModulo = 65521;
+
+	private final OutputStream out;
+	private final byte[] buffer = new byte[4096];
+	private int position = 0;
+
+	/**
+	 * The bytes of the buffer before this position are already in the checksum.
+	 */
+	private int checksummed = 0;
+	private int adlerA = 1;
+	private int adlerB = 0;
+
+	public SnapshotWriter(OutputStream out) {
+		this.out = out;
+	}
+
+	public void writeByte(int value) throws IOException {
+		if (position == buffer.length) {
+			flushBuffer();
+		}
+		buffer[position++] = (byte) value;
+	}
+
+	public void writeShort(int value) throws IOException {
+		writeByte(value);
+		writeByte(value >>> 8);
+	}
+
+	public void writeInt(int value) throws IOException {
+		if (buffer.length - position < 4) {
+			flushBuffer();
+		}
+		buffer[position] = (byte) value;
+		buffer[position + 1] = (byte) (value >>> 8);
+		buffer[position + 2] = (byte) (value >>> 16);
+		buffer[position + 3] = (byte) (value >>> 24);
+		position += 4;
+	}
+
+	public void writeLong(long value) throws IOException {
+		writeInt((int) value);
+		writeInt((int) (value >>> 32));
+	}
+
+	public void writeInts(int[] values, int offset, int length) throws IOException {
+		for (int i = offset; i < offset + length; i++) {
+			writeInt(values[i]);
+		}
+	}
+
+	/**
+	 * @return The Adler-32 checksum of the bytes written so far.
+	 */
+	public int getChecksum() {
+		updateChecksum();
+		return (adlerB << 16) | adlerA;
+	}
+
+	private void updateChecksum() {
+		for (int i = checksummed; i < position; i++) {
+			adlerA = (adlerA + (buffer[i] & 0xFF)) % adlerModulo;
+			adlerB = (adlerB + adlerA) % adlerModulo;
+		}
+		checksummed = position;
+	}
+
+	private void flushBuffer() throws IOException {
+		updateChecksum();
+		out.write(buffer, 0, position);
+		position = 0;
+		checksummed = 0;
+	}
+
+	/**
+	 * Writes the buffered bytes to the stream. The stream is not closed.
+	 */
+	public void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+}
@@ -29,16 +29,24 @@ package com.arm.nevada.client.interpreter.machine;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.arm.nevada.client.shared.SpecialBits;
 import com.arm.nevada.client.shared.SpecialRegiser;
-import com.arm.nevada.client.shared.events.SpecialRegisterChangedEvent;
-import com.arm.nevada.client.shared.events.SpecialRegisterChangedEventHandler;
-import com.google.gwt.event.shared.EventBus;
+import com.arm.nevada.client.utils.DataTypeTools;
 
-public class SpecialRegisters extends Storage implements SpecialRegisterChangedEventHandler {
+public class SpecialRegisters extends Storage {
 	private static final Logger logger = Logger.getLogger(SpecialRegisters.class.getName());
 
-	public SpecialRegisters(EventBus eventBus) {
-		super(2, eventBus);
+	public SpecialRegisters() {
+		super(2);
+	}
+
+	/**
+	 * @return An independent copy which shares the values copy-on-write.
+	 */
+	public SpecialRegisters fork() {
+		SpecialRegisters fork = new SpecialRegisters();
+		shareStateWith(fork);
+		return fork;
 	}
 
 	public void setOneValue(SpecialRegiser register, int value, boolean fireEvent) {
@@ -53,6 +61,26 @@ public class SpecialRegisters extends Storage implements SpecialRegisterChangedE
 		this.setOneValue(SpecialRegiser.APSR.getIndex(), value, true);
 	}
 
+	/**
+	 * @param bit
+	 *            One of the APSR bits of {@link SpecialBits}, e.g. {@link SpecialBits#APSR_Z}.
+	 */
+	public boolean getAPSRFlag(int bit) {
+		return DataTypeTools.getBit(getAPSR(), bit);
+	}
+
+	/**
+	 * Sets the condition flags of the APSR, the other bits are kept.
+	 */
+	public void setAPSRFlags(boolean n, boolean z, boolean c, boolean v, boolean fireEvent) {
+		int apsr = getAPSR();
+		apsr = DataTypeTools.setBit(apsr, n, SpecialBits.APSR_N);
+		apsr = DataTypeTools.setBit(apsr, z, SpecialBits.APSR_Z);
+		apsr = DataTypeTools.setBit(apsr, c, SpecialBits.APSR_C);
+		apsr = DataTypeTools.setBit(apsr, v, SpecialBits.APSR_V);
+		setAPSR(apsr, fireEvent);
+	}
+
 	public int getFPSCR() {
 		return this.getOneValue(SpecialRegiser.FPSCR.getIndex());
 	}
@@ -61,25 +89,9 @@ public class SpecialRegisters extends Storage implements SpecialRegisterChangedE
 		this.setOneValue(SpecialRegiser.FPSCR.getIndex(), value, true);
 	}
 
-	@Override
-	public void onSpecialRegisterChanged(SpecialRegisterChangedEvent event) {
-		if (event.getSource() == this)
-			return;
-		this.setOneValue(event.getRegister().getIndex(), event.getValue(), true);
-	}
-
 	@Override
 	protected void fireValueChanged(int index, int value) {
-		SpecialRegisterChangedEvent event = new SpecialRegisterChangedEvent(SpecialRegiser.getByIndex(index), value);
-		fireEvent(event);
-	}
-
-	@Override
-	public void subscribeToEventBus() {
-		if (eventBus == null) {
-			return;
-		}
-		eventBus.addHandler(SpecialRegisterChangedEvent.TYPE, this);
+		observer.onSpecialRegisterChanged(SpecialRegiser.getByIndex(index), value);
 	}
 
 	@Override
@@ -30,44 +30,108 @@ import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.google.gwt.event.shared.EventBus;
-import com.google.gwt.event.shared.GwtEvent;
 import com.google.gwt.json.client.JSONNumber;
 import com.google.gwt.json.client.JSONObject;
 
 public abstract class Storage {
 	private static final Logger logger = Logger.getLogger(Storage.class.getName());
 	protected int[] values;
-	protected EventBus eventBus;
+	protected MachineObserver observer = new MachineObserverAdapter();
 	public static final int defaultOffsetInWords = 0;
 
 	protected int offsetInWords = 0;
 
-	public abstract void subscribeToEventBus();
+	/**
+	 * True if the values array is shared with a fork. It is copied before the first write.
+	 */
+	protected boolean valuesShared = false;
+
+	protected ExecutionJournal journal = null;
+	protected int journalId;
 
+	/**
+	 * Notifies the observer about the change of one word.
+	 */
 	protected abstract void fireValueChanged(int index, int value);
 
 	protected abstract void fireOffsetChanged(int newOffsetInWords);
 
-	protected Storage(int sizeInWords, EventBus eventBus) {
+	protected Storage(int sizeInWords) {
 		values = new int[sizeInWords];
-		setEventBus(eventBus);
-		subscribeToEventBus();
 	}
 
-	public int getOffset() {
-		return offsetInWords;
+	/**
+	 * For subclasses which keep the words in their own representation. Such a subclass has to override
+	 * {@link #readWord(int)}, {@link #writeWord(int, int)} and {@link #getSize()}.
+	 */
+	protected Storage() {
 	}
 
-	public void fireEvent(GwtEvent<?> event) {
-		if (eventBus == null) {
-			return;
+	/**
+	 * Reads a word of the backing store.
+	 * 
+	 * @param position
+	 *            The position in the backing store, the offset is already removed.
+	 */
+	protected int readWord(int position) {
+		return values[position];
+	}
+
+	/**
+	 * Writes a word of the backing store without any notification.
+	 * 
+	 * @param position
+	 *            The position in the backing store, the offset is already removed.
+	 */
+	protected void writeWord(int position, int value) {
+		if (valuesShared) {
+			int[] copy = new int[values.length];
+			System.arraycopy(values, 0, copy, 0, values.length);
+			values = copy;
+			valuesShared = false;
+		}
+		values[position] = value;
+	}
+
+	/**
+	 * Shares the state with a fork of the same class, both of them copy the shared values before their first write.
+	 * The observer and the journal are not shared.
+	 */
+	protected void shareStateWith(Storage fork) {
+		fork.values = values;
+		fork.offsetInWords = offsetInWords;
+		if (values != null) {
+			valuesShared = true;
+			fork.valuesShared = true;
 		}
-		eventBus.fireEventFromSource(event, this);
+	}
+
+	/**
+	 * Takes over the state of the source copy-on-write and publishes every word to the observer. The journal is
+	 * cleared.
+	 * 
+	 * @param source
+	 *            A storage of the same class.
+	 */
+	public void copyStateFrom(Storage source) {
+		source.shareStateWith(this);
+		if (journal != null) {
+			journal.clear();
+		}
+		for (int i = 0; i < getSize(); i++) {
+			fireValueChanged(i + getOffset(), readWord(i));
+		}
+	}
+
+	public int getOffset() {
+		return offsetInWords;
 	}
 
 	public void setOneValue(int index, int value, boolean fireEvent) {
-		values[index - getOffset()] = value;
+		if (journal != null && journal.isRecording()) {
+			journal.record(journalId, index, readWord(index - getOffset()));
+		}
+		writeWord(index - getOffset(), value);
 		if (fireEvent) {
 			fireValueChanged(index, value);
 		}
@@ -78,15 +142,19 @@ public abstract class Storage {
 		if (getOffset() != defaultOffsetInWords) {
 			jsonObject.put("offsetW", new JSONNumber(getOffset()));
 		}
-		for (int i = 0; i < this.values.length; i++) {
-			if (values[i] != 0) {
-				jsonObject.put(i + getOffset() + "", new JSONNumber(values[i]));
+		for (int i = 0; i < getSize(); i++) {
+			int value = readWord(i);
+			if (value != 0) {
+				jsonObject.put(i + getOffset() + "", new JSONNumber(value));
 			}
 		}
 		return jsonObject;
 	}
 
 	public void initByJSONObject(JSONObject json) {
+		if (journal != null) {
+			journal.clear();
+		}
 		Set<String> keySet = json.keySet();
 		int offset = defaultOffsetInWords;
 		try {
@@ -99,13 +167,13 @@ public abstract class Storage {
 			try {
 				index = Integer.parseInt(key);
 				value = Integer.parseInt(json.get(key).toString());
-				values[index - getOffset()] = value;
+				writeWord(index - getOffset(), value);
 			} catch (Exception e) {
 				logger.log(Level.FINE, "Error during parsing json object: key:" + key + " value: " + json.get(key));
 			}
 		}
-		for (int i = 0; i < values.length; i++) {
-			fireValueChanged(i + getOffset(), values[i]);
+		for (int i = 0; i < getSize(); i++) {
+			fireValueChanged(i + getOffset(), readWord(i));
 		}
 	}
 
@@ -121,11 +189,11 @@ public abstract class Storage {
 	}
 
 	public int getOneValue(int index) {
-		return values[index];
+		return readWord(index);
 	}
 
 	public int getSizeInBytes() {
-		return values.length * 4;
+		return getSize() * 4;
 	}
 
 	/**
@@ -135,7 +203,7 @@ public abstract class Storage {
 	 *            If true then sends value changed event.
 	 */
 	public void clear(boolean fireEvent) {
-		for (int i = 0; i < values.length; i++) {
+		for (int i = 0; i < getSize(); i++) {
 			setOneValue(i + getOffset(), 0, fireEvent);
 		}
 	}
@@ -147,11 +215,24 @@ public abstract class Storage {
 		return values.length;
 	}
 
-	public EventBus getEventBus() {
-		return eventBus;
+	/**
+	 * Sets the journal which records the old values of the written words.
+	 * 
+	 * @param journal
+	 *            Null means no journal.
+	 */
+	public void setJournal(ExecutionJournal journal) {
+		this.journal = journal;
+		if (journal != null) {
+			journalId = journal.attach(this);
+		}
+	}
+
+	public MachineObserver getObserver() {
+		return observer;
 	}
 
-	public void setEventBus(EventBus eventBus) {
-		this.eventBus = eventBus;
+	public void setObserver(MachineObserver observer) {
+		this.observer = observer;
 	}
 }
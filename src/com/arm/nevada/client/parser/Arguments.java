@@ -37,6 +37,7 @@ public class Arguments {
 	private int subRegisterIndex;
 	private long immediateValue;
 	private int alignmentByte = 1;
+	private String label;
 
 	public EnumDataType getType() {
 		return type;
@@ -77,4 +78,12 @@ public class Arguments {
 	public void setAlignmentByte(int alignmentByte) {
 		this.alignmentByte = alignmentByte;
 	}
-}
\ No newline at end of file
+
+	public String getLabel() {
+		return label;
+	}
+
+	public void setLabel(String label) {
+		this.label = label;
+	}
+}
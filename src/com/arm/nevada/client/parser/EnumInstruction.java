@@ -158,5 +158,25 @@ public enum EnumInstruction {
 	vext,
 
 	vmrs,
-	vmsr;
+	vmsr,
+
+	add,
+	adds,
+	sub,
+	subs,
+	cmp,
+	mov,
+
+	ldr,
+	str,
+
+	b,
+	beq,
+	bne,
+	bgt,
+	blt,
+	bge,
+	ble,
+
+	nop;
 }
@@ -39,7 +39,7 @@ public class InstructionForm {
 
 	public Instruction buildInstruction(Arguments arguments) {
 		Instruction newInstruction = this.template.create();
-		newInstruction.bindArguments(arguments);
+		newInstruction.bind(arguments);
 		return newInstruction;
 	}
 
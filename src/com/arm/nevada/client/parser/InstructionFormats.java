@@ -32,9 +32,11 @@ import java.util.List;
 
 import com.arm.nevada.client.interpreter.AbsoluteAndNegateInstruction;
 import com.arm.nevada.client.interpreter.ArithmeticInstructions;
+import com.arm.nevada.client.interpreter.BranchInstruction;
 import com.arm.nevada.client.interpreter.ComparisonInstruction;
 import com.arm.nevada.client.interpreter.ConversationInstruction;
 import com.arm.nevada.client.interpreter.CountInstruction;
+import com.arm.nevada.client.interpreter.DataProcessingInstruction;
 import com.arm.nevada.client.interpreter.EnumDataType;
 import com.arm.nevada.client.interpreter.Instruction;
 import com.arm.nevada.client.interpreter.LogicalInstruction;
@@ -43,9 +45,12 @@ import com.arm.nevada.client.interpreter.MinimumAndMaximumInstruction;
 import com.arm.nevada.client.interpreter.MoveFPSCAndRAPSR;
 import com.arm.nevada.client.interpreter.MoveInstruction;
 import com.arm.nevada.client.interpreter.MultiplyInstruction;
+import com.arm.nevada.client.interpreter.NopInstruction;
 import com.arm.nevada.client.interpreter.ReciprocalSqrtReciprocalEstimate;
 import com.arm.nevada.client.interpreter.ReciprocalSqrtReciprocalStep;
 import com.arm.nevada.client.interpreter.ReverseInstruction;
+import com.arm.nevada.client.interpreter.ScalarMemoryInstruction;
+import com.arm.nevada.client.interpreter.ScalarMemoryInstruction.AddressingMode;
 import com.arm.nevada.client.interpreter.ShiftInstruction;
 import com.arm.nevada.client.interpreter.TableInstruction;
 import com.arm.nevada.client.interpreter.VdupInstruction;
@@ -1405,6 +1410,50 @@ public class InstructionFormats {
 			//VMRS and VMSR
 			append(new MoveFPSCAndRAPSR(EnumInstruction.vmrs), Space.p(), R.p(), Comma.p(), FPSCR.p());
 			append(new MoveFPSCAndRAPSR(EnumInstruction.vmsr), Space.p(), FPSCR.p(), Comma.p(), R.p());
+
+			//CORE REGISTERS
+			//add, adds, sub, subs
+			append(new DataProcessingInstruction(EnumInstruction.add, false), Space.p(), RNotPC.p(), Comma.p(), R.p(), Comma.p(), R.p());
+			append(new DataProcessingInstruction(EnumInstruction.add, true), Space.p(), RNotPC.p(), Comma.p(), R.p(), Comma.p(), Imm32.p());
+			append(new DataProcessingInstruction(EnumInstruction.add, false), Space.p(), RNotPC.p(), Comma.p(), R.p());
+			append(new DataProcessingInstruction(EnumInstruction.add, true), Space.p(), RNotPC.p(), Comma.p(), Imm32.p());
+			append(new DataProcessingInstruction(EnumInstruction.adds, false), Space.p(), RNotPC.p(), Comma.p(), R.p(), Comma.p(), R.p());
+			append(new DataProcessingInstruction(EnumInstruction.adds, true), Space.p(), RNotPC.p(), Comma.p(), R.p(), Comma.p(), Imm32.p());
+			append(new DataProcessingInstruction(EnumInstruction.adds, false), Space.p(), RNotPC.p(), Comma.p(), R.p());
+			append(new DataProcessingInstruction(EnumInstruction.adds, true), Space.p(), RNotPC.p(), Comma.p(), Imm32.p());
+			append(new DataProcessingInstruction(EnumInstruction.sub, false), Space.p(), RNotPC.p(), Comma.p(), R.p(), Comma.p(), R.p());
+			append(new DataProcessingInstruction(EnumInstruction.sub, true), Space.p(), RNotPC.p(), Comma.p(), R.p(), Comma.p(), Imm32.p());
+			append(new DataProcessingInstruction(EnumInstruction.sub, false), Space.p(), RNotPC.p(), Comma.p(), R.p());
+			append(new DataProcessingInstruction(EnumInstruction.sub, true), Space.p(), RNotPC.p(), Comma.p(), Imm32.p());
+			append(new DataProcessingInstruction(EnumInstruction.subs, false), Space.p(), RNotPC.p(), Comma.p(), R.p(), Comma.p(), R.p());
+			append(new DataProcessingInstruction(EnumInstruction.subs, true), Space.p(), RNotPC.p(), Comma.p(), R.p(), Comma.p(), Imm32.p());
+			append(new DataProcessingInstruction(EnumInstruction.subs, false), Space.p(), RNotPC.p(), Comma.p(), R.p());
+			append(new DataProcessingInstruction(EnumInstruction.subs, true), Space.p(), RNotPC.p(), Comma.p(), Imm32.p());
+			//cmp
+			append(new DataProcessingInstruction(EnumInstruction.cmp, false), Space.p(), R.p(), Comma.p(), R.p());
+			append(new DataProcessingInstruction(EnumInstruction.cmp, true), Space.p(), R.p(), Comma.p(), Imm32.p());
+			//mov
+			append(new DataProcessingInstruction(EnumInstruction.mov, false), Space.p(), RNotPC.p(), Comma.p(), R.p());
+			append(new DataProcessingInstruction(EnumInstruction.mov, true), Space.p(), RNotPC.p(), Comma.p(), Imm32.p());
+
+			//ldr, str
+			append(new ScalarMemoryInstruction(EnumInstruction.ldr, AddressingMode.OFFSET), Space.p(), RNotPC.p(), Comma.p(), ScalarAddress.p());
+			append(new ScalarMemoryInstruction(EnumInstruction.ldr, AddressingMode.PRE_INDEXED), Space.p(), RNotPC.p(), Comma.p(), ScalarAddress.p(), WriteBack.p());
+			append(new ScalarMemoryInstruction(EnumInstruction.ldr, AddressingMode.POST_INDEXED), Space.p(), RNotPC.p(), Comma.p(), ScalarAddress.pBaseOnly(), Comma.p(), ImmAnyLong.p());
+			append(new ScalarMemoryInstruction(EnumInstruction.str, AddressingMode.OFFSET), Space.p(), R.p(), Comma.p(), ScalarAddress.p());
+			append(new ScalarMemoryInstruction(EnumInstruction.str, AddressingMode.PRE_INDEXED), Space.p(), R.p(), Comma.p(), ScalarAddress.p(), WriteBack.p());
+			append(new ScalarMemoryInstruction(EnumInstruction.str, AddressingMode.POST_INDEXED), Space.p(), R.p(), Comma.p(), ScalarAddress.pBaseOnly(), Comma.p(), ImmAnyLong.p());
+
+			//BRANCHES
+			append(new BranchInstruction(EnumInstruction.b), Space.p(), Label.p());
+			append(new BranchInstruction(EnumInstruction.beq), Space.p(), Label.p());
+			append(new BranchInstruction(EnumInstruction.bne), Space.p(), Label.p());
+			append(new BranchInstruction(EnumInstruction.bgt), Space.p(), Label.p());
+			append(new BranchInstruction(EnumInstruction.blt), Space.p(), Label.p());
+			append(new BranchInstruction(EnumInstruction.bge), Space.p(), Label.p());
+			append(new BranchInstruction(EnumInstruction.ble), Space.p(), Label.p());
+			//nop
+			append(new NopInstruction());
 		}
 		
 		private static void append(Instruction create, Token... tokens) {
@@ -48,22 +48,36 @@ public class Parser {
 		// Locale.ENGLISH
 		line = line.trim().replace('\t', ' ').toLowerCase(); // FIXME: real whitespace replace needed
 
-		int pos = 0;
+		// "name:" before the instruction is a label, a line with only a label is a nop
+		String label = null;
+		int mnemonicStart = 0;
+		int labelEnd = Utils.parseIdentifier(line, 0);
+		if (labelEnd >= 0 && labelEnd < line.length()) {
+			int afterColonPos = Utils.parseCharSurroundedByWhitespace(line, labelEnd, ':');
+			if (afterColonPos >= 0) {
+				label = line.substring(0, labelEnd);
+				mnemonicStart = afterColonPos;
+			}
+		}
+
+		int pos = mnemonicStart;
 		while (line.length() > pos && (line.charAt(pos) >= 'a' && line.charAt(pos) <= 'z' || line.charAt(pos) >= '0' && line.charAt(pos) <= '9'))
 			pos++;
+		String mnemonic = line.substring(mnemonicStart, pos);
 		
 		List<InstructionForm> forms;
 		try {
-			EnumInstruction currentInstruction = EnumInstruction.valueOf(line.substring(0, pos));
+			EnumInstruction currentInstruction = label != null && mnemonic.length() == 0 ? EnumInstruction.nop
+					: EnumInstruction.valueOf(mnemonic);
 			forms = InstructionFormats.get(currentInstruction);
 		} catch (Exception e) {
 			forms = null;
 		}
 
 		if (forms == null) {
-			logger.log(Level.FINE, "null: there is no definition for the instruction: " + line.substring(0, pos) + "\n");
-			String errorText = "Invalid instruction: " + line.substring(0, pos);
-			ErrorInstruction out = new ErrorInstruction(errorText, 0, line);
+			logger.log(Level.FINE, "null: there is no definition for the instruction: " + mnemonic + "\n");
+			String errorText = "Invalid instruction: " + mnemonic;
+			ErrorInstruction out = new ErrorInstruction(errorText, mnemonicStart, line);
 			return out;
 		}
 
@@ -95,7 +109,9 @@ public class Parser {
 
 		try {
 			// GWT.create(parsedForm.getCreate());
-			return parsedForm.buildInstruction(arguments);
+			Instruction instruction = parsedForm.buildInstruction(arguments);
+			instruction.setLabel(label);
+			return instruction;
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
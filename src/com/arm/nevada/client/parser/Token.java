@@ -984,6 +984,30 @@ class RNotPCNotSP extends R {
 	}
 }
 
+/**
+ * Accepts any core register except the PC, which is written only by the branches.
+ */
+class RNotPC extends R {
+	private static final RNotPC staticThis = new RNotPC();
+
+	static Token p() {
+		return staticThis;
+	}
+
+	@Override
+	MSG parse(String instruction, int pos, Arguments a) {
+		MSG superParserResult = super.parse(instruction, pos, a);
+		if (superParserResult.isError()) {
+			return superParserResult;
+		}
+		int index = a.getRegisterIndexes().get(a.getRegisterIndexes().size() - 1);
+		if (index == ARMRegister.R15.getIndex()) {
+			return MSG.error(-pos - 1, "PC (R15) is not permitted here, use a branch instead");
+		}
+		return superParserResult;
+	}
+}
+
 /**
  * Accepts one ARM register, but PC (R15) and SP (R13) are disallowed.
  */
@@ -1269,6 +1293,22 @@ class ImmAnyLong extends Token {
 	}
 }
 
+/**
+ * Accepts any 32 bit immediate value, signed or unsigned: [-2^31; 2^32 - 1]
+ */
+class Imm32 extends ImmAnyLong {
+	static Imm32 p() {
+		return staticThis;
+	}
+
+	private static final Imm32 staticThis = new Imm32();
+
+	@Override
+	boolean check(Arguments a) {
+		return a.getImmediateValue() >= Integer.MIN_VALUE && a.getImmediateValue() <= 0xFFFFFFFFL;
+	}
+}
+
 /**
  * Accepts immediate value in range: [0; (size of data type - 1)]
  */
@@ -1729,6 +1769,79 @@ class WriteBack extends Token {
 	}
 }
 
+/**
+ * Accepts the name of a label, which is resolved when the program is built. E.g.: "loop"
+ */
+class Label extends Token {
+	static Label p() {
+		return staticThis;
+	}
+
+	private static final Label staticThis = new Label();
+
+	@Override
+	MSG parse(String instruction, int pos, Arguments a) {
+		int end = Utils.parseIdentifier(instruction, pos);
+		if (end < 0)
+			return MSG.error(-pos - 1, "Label needed");
+		a.setLabel(instruction.substring(pos, end));
+		return MSG.ok(end);
+	}
+}
+
+/**
+ * Accepts the address of a core register load or store: "[rn]" or "[rn, #imm]". The offset is stored as the
+ * immediate value, it is 0 if omitted.
+ */
+class ScalarAddress extends Token {
+	private static final ScalarAddress withOffset = new ScalarAddress(true);
+	private static final ScalarAddress withoutOffset = new ScalarAddress(false);
+
+	private final boolean offsetAllowed;
+
+	private ScalarAddress(boolean offsetAllowed) {
+		this.offsetAllowed = offsetAllowed;
+	}
+
+	static ScalarAddress p() {
+		return withOffset;
+	}
+
+	/**
+	 * Accepts only "[rn]", e.g. before the offset of the post-indexed addressing.
+	 */
+	static ScalarAddress pBaseOnly() {
+		return withoutOffset;
+	}
+
+	@Override
+	MSG parse(String instruction, int pos, Arguments a) {
+		pos = Utils.parseCharAndWhitespace(instruction, pos, '[');
+		if (pos < 0)
+			return MSG.error(pos, "Address must be started with [");
+		int savePos = pos;
+		pos = RNotPC.p().parse(instruction, pos, a).getPosition();
+		if (pos < 0)
+			return MSG.error(-savePos - 1, "Invalid core register, the PC is not permitted here");
+		a.setImmediateValue(0);
+		if (offsetAllowed) {
+			int afterCommaPos = Utils.parseCharSurroundedByWhitespace(instruction, pos, ',');
+			if (afterCommaPos >= 0) {
+				MSG offset = ImmAnyLong.p().parse(instruction, afterCommaPos, a);
+				if (offset.isError())
+					return offset;
+				pos = offset.getPosition();
+			}
+		}
+		pos = WhiteSpace.p().parse(instruction, pos, a).getPosition();
+		savePos = pos;
+		pos = Utils.parseChar(instruction, pos, ']');
+		if (pos < 0)
+			return MSG.error(-savePos - 1, "Address must be closed with ]");
+		return MSG.ok(pos);
+	}
+}
+
 /**
  * Accepts the "FPSCR" string.
  */
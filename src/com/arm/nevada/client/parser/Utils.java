@@ -389,4 +389,23 @@ public class Utils {
 		pos = WhiteSpace.p().parse(instruction, pos, null).getPosition();
 		return pos;
 	}
+
+	/**
+	 * Parses a label name: a letter or underscore followed by letters, digits and underscores.
+	 * 
+	 * @return The position after the name, or (-pos - 1) if there is no name at pos.
+	 */
+	public static int parseIdentifier(String instruction, int pos) {
+		int end = pos;
+		while (end < instruction.length()) {
+			char c = instruction.charAt(end);
+			if (c >= 'a' && c <= 'z' || c == '_' || end > pos && c >= '0' && c <= '9')
+				end++;
+			else
+				break;
+		}
+		if (end == pos)
+			return -pos - 1;
+		return end;
+	}
 }
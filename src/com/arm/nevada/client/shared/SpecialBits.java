@@ -32,6 +32,11 @@ public class SpecialBits {
 	public static final int FPSCR_C = 29;
 	public static final int FPSCR_V = 28;
 	public static final int FPSCR_QC = 27;
+	public static final int FPSCR_AHP = 26;
+	/**
+	 * The lower bit of the two bit rounding mode field.
+	 */
+	public static final int FPSCR_RMODE = 22;
 	public static final int APSR_N = 31;
 	public static final int APSR_Z = 30;
 	public static final int APSR_C = 29;
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.arm.nevada.client.shared.events;
+
+import com.google.gwt.event.shared.GwtEvent;
+
+/**
+ * Fired by the machine controller after every time slice of a run and when the run is over.
+ */
+public class ExecutionProgressEvent extends GwtEvent<ExecutionProgressEventHandler> {
+	public static final Type<ExecutionProgressEventHandler> TYPE = new Type<ExecutionProgressEventHandler>();
+	private final int executedCount;
+	private final boolean finished;
+
+	/**
+	 * @param executedCount
+	 *            The number of instructions executed by the run so far.
+	 * @param finished
+	 *            True if the run is over, because it reached its end or it was stopped.
+	 */
+	public ExecutionProgressEvent(int executedCount, boolean finished) {
+		this.executedCount = executedCount;
+		this.finished = finished;
+	}
+
+	@Override
+	public GwtEvent.Type<ExecutionProgressEventHandler> getAssociatedType() {
+		return TYPE;
+	}
+
+	@Override
+	protected void dispatch(ExecutionProgressEventHandler handler) {
+		handler.onExecutionProgress(this);
+	}
+
+	public int getExecutedCount() {
+		return executedCount;
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+
+}
@@ -848,7 +848,7 @@ public class DataTypeTools extends FloatingDataTypeTools {
 		return value != 0;
 	}
 
-	public static Integer saturateMax32bit(int originalSize, int outSize, long source, int leftShiftAmount, boolean typeUnsigned, boolean satUnsigned) {
+	public static Integer saturateMax32bit(int originalSize, int outSize, int source, int leftShiftAmount, boolean typeUnsigned, boolean satUnsigned) {
 		assert originalSize >= outSize;
 		if (source == 0 || leftShiftAmount == 0) {
 			return null;
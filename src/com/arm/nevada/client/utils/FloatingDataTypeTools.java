@@ -82,14 +82,7 @@ public class FloatingDataTypeTools {
 		// return parseFloatToUnsignedItneger(from + "");
 	}
 
-	/**
-	 * TODO: FIXME:THIS ISN'T PROVIDE EXACT VALUE!
-	 * 
-	 * @param from
-	 * @return
-	 */
 	public static long DoubleToLong(Double from) {
-		// long bits = Double.doubleToLongBits(from);
 		long bits = Numbers.doubleToLongBits(from);
 		return bits;
 	}
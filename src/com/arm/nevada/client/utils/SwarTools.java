@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.utils;
+
+/**
+ * Lane-parallel integer operations on 64 bit words holding 8, 16 or 32 bit lanes (SIMD within a register). The
+ * carries and borrows are kept inside the lanes by masking the top bit of every lane and fixing it up separately. The
+ * comparisons return all ones or zero in every lane.
+ */
+public class SwarTools {
+
+	/**
+	 * @return The top bit of every lane, e.g. 0x8080808080808080 when size is 8.
+	 */
+	public static long getHighBits(int size) {
+		assert size == 8 || size == 16 || size == 32;
+		switch (size) {
+		case 8:
+			return 0x8080808080808080L;
+		case 16:
+			return 0x8000800080008000L;
+		default:
+			return 0x8000000080000000L;
+		}
+	}
+
+	public static long add(long a, long b, int size) {
+		long high = getHighBits(size);
+		return ((a & ~high) + (b & ~high)) ^ ((a ^ b) & high);
+	}
+
+	public static long subtract(long a, long b, int size) {
+		long high = getHighBits(size);
+		return ((a | high) - (b & ~high)) ^ ((a ^ ~b) & high);
+	}
+
+	public static long negate(long a, int size) {
+		return subtract(0, a, size);
+	}
+
+	/**
+	 * Shifts every lane right by one, the top bit of the lane is copied when signed.
+	 */
+	public static long shiftRightByOne(long a, int size, boolean signed) {
+		long high = getHighBits(size);
+		return ((a >>> 1) & ~high) | (signed ? a & high : 0);
+	}
+
+	/**
+	 * (a + b) >> 1 without overflow, e.g. VHADD.
+	 */
+	public static long halvingAdd(long a, long b, int size, boolean signed) {
+		return add(a & b, shiftRightByOne(a ^ b, size, signed), size);
+	}
+
+	/**
+	 * (a + b + 1) >> 1 without overflow, e.g. VRHADD.
+	 */
+	public static long roundingHalvingAdd(long a, long b, int size, boolean signed) {
+		return subtract(a | b, shiftRightByOne(a ^ b, size, signed), size);
+	}
+
+	/**
+	 * Extends the top bit of every lane to the whole lane.
+	 * 
+	 * @param highBits
+	 *            Only the top bits of the lanes may be set.
+	 */
+	public static long expandHighBits(long highBits, int size) {
+		return (highBits << 1) - (highBits >>> (size - 1));
+	}
+
+	/**
+	 * @return The top bit of the lanes which are not zero.
+	 */
+	private static long nonZeroHighBits(long a, int size) {
+		long high = getHighBits(size);
+		return (((a & ~high) + ~high) | a) & high;
+	}
+
+	public static long equal(long a, long b, int size) {
+		return expandHighBits(~nonZeroHighBits(a ^ b, size) & getHighBits(size), size);
+	}
+
+	/**
+	 * (a & b) != 0, e.g. VTST.
+	 */
+	public static long test(long a, long b, int size) {
+		return expandHighBits(nonZeroHighBits(a & b, size), size);
+	}
+
+	/**
+	 * @return The top bit of the lanes where a >= b.
+	 */
+	private static long greaterEqualHighBits(long a, long b, int size, boolean signed) {
+		long high = getHighBits(size);
+		if (signed) {
+			a ^= high;
+			b ^= high;
+		}
+		// the top bit of the difference of the lower bits is set where the lower bits of a are not less
+		long lowGreaterEqual = (a | high) - (b & ~high);
+		return ((a & ~b) | (~(a ^ b) & lowGreaterEqual)) & high;
+	}
+
+	public static long greaterEqual(long a, long b, int size, boolean signed) {
+		return expandHighBits(greaterEqualHighBits(a, b, size, signed), size);
+	}
+
+	public static long greaterThan(long a, long b, int size, boolean signed) {
+		return expandHighBits(~greaterEqualHighBits(b, a, size, signed) & getHighBits(size), size);
+	}
+
+	public static long maximum(long a, long b, int size, boolean signed) {
+		long aGreater = greaterEqual(a, b, size, signed);
+		return (a & aGreater) | (b & ~aGreater);
+	}
+
+	public static long minimum(long a, long b, int size, boolean signed) {
+		long aGreater = greaterEqual(a, b, size, signed);
+		return (b & aGreater) | (a & ~aGreater);
+	}
+
+	/**
+	 * Absolute value of signed lanes, the minimum value stays the same.
+	 */
+	public static long absolute(long a, int size) {
+		long negative = expandHighBits(a & getHighBits(size), size);
+		return (negate(a, size) & negative) | (a & ~negative);
+	}
+}
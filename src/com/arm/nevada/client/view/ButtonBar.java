@@ -26,12 +26,15 @@
 
 package com.arm.nevada.client.view;
 
+import com.arm.nevada.client.shared.events.ExecutionProgressEvent;
+import com.arm.nevada.client.shared.events.ExecutionProgressEventHandler;
 import com.arm.nevada.client.shared.events.ShowHelpEvent;
 import com.arm.nevada.client.shared.events.ShowInitializatorEvent;
 import com.arm.nevada.client.shared.events.ShowSessionManagerEvent;
 import com.arm.nevada.client.view.shared.ResetExecutionEvent;
 import com.arm.nevada.client.view.shared.RunNextInstructionEvent;
 import com.arm.nevada.client.view.shared.RunToNextBreakpointEvent;
+import com.arm.nevada.client.view.shared.StopExecutionEvent;
 import com.arm.nevada.client.view.shared.ToggleEditViewModeEvent;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.event.dom.client.ClickEvent;
@@ -41,13 +44,17 @@ import com.google.gwt.uibinder.client.UiBinder;
 import com.google.gwt.uibinder.client.UiField;
 import com.google.gwt.uibinder.client.UiHandler;
 import com.google.gwt.user.client.ui.Composite;
+import com.google.gwt.user.client.ui.Label;
 import com.google.gwt.user.client.ui.PushButton;
 import com.google.gwt.user.client.ui.Widget;
 
-public class ButtonBar extends Composite {
+public class ButtonBar extends Composite implements ExecutionProgressEventHandler {
 
 	@UiField
-	PushButton stepButton, runButton, resetButton, viewEditButton, loadSaveButton, helpButton, randomizeButton;
+	PushButton stepButton, runButton, stopButton, resetButton, viewEditButton, loadSaveButton, helpButton,
+			randomizeButton;
+	@UiField
+	Label progressLabel;
 
 	private static ButtonBarUiBinder uiBinder = GWT.create(ButtonBarUiBinder.class);
 
@@ -67,6 +74,9 @@ public class ButtonBar extends Composite {
 
 	public void setEventBus(EventBus eventBus) {
 		this.eventBus = eventBus;
+		if (eventBus != null) {
+			eventBus.addHandler(ExecutionProgressEvent.TYPE, this);
+		}
 	}
 
 	public void fireEventToSharedBus(GwtEvent<?> event) {
@@ -85,6 +95,11 @@ public class ButtonBar extends Composite {
 		fireEventToSharedBus(new RunToNextBreakpointEvent());
 	}
 
+	@UiHandler("stopButton")
+	void onStop(ClickEvent event) {
+		fireEventToSharedBus(new StopExecutionEvent());
+	}
+
 	@UiHandler("resetButton")
 	void onReset(ClickEvent event) {
 		fireEventToSharedBus(new ResetExecutionEvent());
@@ -109,4 +124,10 @@ public class ButtonBar extends Composite {
 	void onRandomize(ClickEvent event) {
 		fireEventToSharedBus(new ShowInitializatorEvent());
 	}
+
+	@Override
+	public void onExecutionProgress(ExecutionProgressEvent event) {
+		stopButton.setEnabled(!event.isFinished());
+		progressLabel.setText(event.isFinished() ? "" : event.getExecutedCount() + " instructions executed");
+	}
 }
@@ -62,6 +62,9 @@ public interface ResourceBundle extends ClientBundle {
 	@Source("images/runToEnd.png")
 	public ImageResource runToEnd();
 
+	@Source("images/stop.png")
+	public ImageResource stop();
+
 	@Source("images/help.png")
 	public ImageResource help();
 
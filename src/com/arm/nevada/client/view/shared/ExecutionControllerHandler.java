@@ -38,4 +38,6 @@ public interface ExecutionControllerHandler extends EventHandler {
 	void onResetExecuton(ResetExecutionEvent event);
 
 	void onResetMachine(ResetMachineEvent event);
+
+	void onStopExecution(StopExecutionEvent event);
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.utils;
+
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Bit conversions of the floating point values in the browser. The value is written to a Float32Array or
+ * Float64Array and read back from an Int32Array over the same ArrayBuffer, which is exact, unlike calculating the
+ * exponent with logarithms. NaN is always converted to the default NaN of the NEON unit.
+ * <p>
+ * Super-source of the JVM implementation in the client package, which uses {@link Float} and {@link Double}.
+ */
+public class Numbers {
+
+	private static final JavaScriptObject views = createViews();
+
+	private static native JavaScriptObject createViews() /*-{
+		var buffer = new ArrayBuffer(8);
+		return {
+			floats : new Float32Array(buffer),
+			doubles : new Float64Array(buffer),
+			words : new Int32Array(buffer)
+		};
+	}-*/;
+
+	public static final int floatToIntBits(float f) {
+		if (Float.isNaN(f)) {
+			return 0x7fc00000;
+		}
+		return floatToRawIntBits(views, f);
+	}
+
+	public static final float intBitsToFloat(int i) {
+		return intBitsToFloat(views, i);
+	}
+
+	public static final long doubleToLongBits(double f) {
+		if (Double.isNaN(f)) {
+			return 0x7ff8000000000000L;
+		}
+		int low = doubleToLowWord(views, f);
+		int high = getHighWord(views);
+		return ((long) high << 32) | (low & 0xFFFFFFFFL);
+	}
+
+	public static final double longBitsToDouble(long i) {
+		return wordsToDouble(views, (int) i, (int) (i >>> 32));
+	}
+
+	private static native int floatToRawIntBits(JavaScriptObject views, float f) /*-{
+		views.floats[0] = f;
+		return views.words[0];
+	}-*/;
+
+	private static native float intBitsToFloat(JavaScriptObject views, int i) /*-{
+		views.words[0] = i;
+		return views.floats[0];
+	}-*/;
+
+	/**
+	 * Writes the double to the buffer, the words are in the little-endian order of the browsers.
+	 * 
+	 * @return The lower word.
+	 */
+	private static native int doubleToLowWord(JavaScriptObject views, double f) /*-{
+		views.doubles[0] = f;
+		return views.words[0];
+	}-*/;
+
+	private static native int getHighWord(JavaScriptObject views) /*-{
+		return views.words[1];
+	}-*/;
+
+	private static native double wordsToDouble(JavaScriptObject views, int low, int high) /*-{
+		views.words[0] = low;
+		views.words[1] = high;
+		return views.doubles[0];
+	}-*/;
+}
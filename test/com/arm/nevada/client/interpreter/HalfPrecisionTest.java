@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.arm.nevada.client.shared.SpecialBits;
+import com.arm.nevada.client.utils.SampledOperands;
+
+/**
+ * Checks the table-driven half-precision conversions on all halves and on the singles of {@link SampledOperands} (all
+ * 2^32 with -Dexhaustive=true), in both half formats and all rounding modes, against the values calculated in double.
+ * Runs on the JVM only.
+ */
+public class HalfPrecisionTest {
+	private static final int alternative = 1 << SpecialBits.FPSCR_AHP;
+	private static final double[] powersOfTwo = new double[512];
+
+	static {
+		for (int i = 0; i < powersOfTwo.length; i++) {
+			powersOfTwo[i] = Math.scalb(1.0, i - 256);
+		}
+	}
+
+	@Test
+	public void testToSingle() {
+		for (int fpscr : new int[] { 0, alternative }) {
+			for (int half = 0; half < 1 << 16; half++) {
+				int expected = toSingle(half, fpscr != 0);
+				int actual = HalfPrecision.toSingle(half, fpscr);
+				if (actual != expected) {
+					fail(fpscr, half, expected, actual);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testToHalf() {
+		testToHalf(HalfPrecision.roundToNearest);
+	}
+
+	@Test
+	public void testToHalfRoundingModes() {
+		testToHalf(HalfPrecision.roundTowardsPlusInfinity);
+		testToHalf(HalfPrecision.roundTowardsMinusInfinity);
+		testToHalf(HalfPrecision.roundTowardsZero);
+	}
+
+	private static void testToHalf(int roundingMode) {
+		for (int format : new int[] { 0, alternative }) {
+			int fpscr = format | (roundingMode << SpecialBits.FPSCR_RMODE);
+			int single = 0;
+			do {
+				int expected = toHalf(single, format != 0, roundingMode);
+				int actual = HalfPrecision.toHalf(single, fpscr);
+				if (actual != expected) {
+					fail(fpscr, single, expected, actual);
+				}
+			} while ((single = SampledOperands.next(single)) != 0);
+		}
+	}
+
+	private static void fail(int fpscr, int value, int expected, int actual) {
+		Assert.fail("FPSCR " + Integer.toHexString(fpscr) + ", " + Integer.toHexString(value) + ": expected "
+				+ Integer.toHexString(expected) + " but was " + Integer.toHexString(actual));
+	}
+
+	private static double powerOfTwo(int exponent) {
+		return powersOfTwo[exponent + 256];
+	}
+
+	private static int toSingle(int half, boolean alternative) {
+		int exponent = (half >>> 10) & 0x1f;
+		int mantissa = half & 0x3ff;
+		double magnitude;
+		if (exponent == 0x1f && !alternative) {
+			if (mantissa != 0) {
+				return 0x7fc00000;
+			}
+			magnitude = Double.POSITIVE_INFINITY;
+		} else if (exponent == 0) {
+			magnitude = Math.scalb((double) mantissa, -24);
+		} else {
+			magnitude = Math.scalb((double) (mantissa | 0x400), exponent - 25);
+		}
+		return Float.floatToIntBits((float) ((half & 0x8000) != 0 ? -magnitude : magnitude));
+	}
+
+	private static int toHalf(int single, boolean alternative, int roundingMode) {
+		int sign = (single >>> 16) & 0x8000;
+		boolean negative = sign != 0;
+		float value = Float.intBitsToFloat(single);
+		if (Float.isNaN(value)) {
+			return alternative ? 0 : 0x7e00;
+		} else if (Float.isInfinite(value)) {
+			return sign | (alternative ? 0x7fff : 0x7c00);
+		} else if (Math.getExponent(value) < Float.MIN_EXPONENT) {
+			// zero, or denormal flushed to zero
+			return sign;
+		}
+		double magnitude = Math.abs((double) value);
+		int exponent = Math.max(Math.getExponent(value), -14);
+		// the magnitude in units of the last place of the half
+		double units = magnitude * powerOfTwo(10 - exponent);
+		boolean up;
+		switch (roundingMode) {
+		case HalfPrecision.roundTowardsPlusInfinity:
+			up = !negative;
+			break;
+		case HalfPrecision.roundTowardsMinusInfinity:
+			up = negative;
+			break;
+		case HalfPrecision.roundTowardsZero:
+			up = false;
+			break;
+		default:
+			up = Math.rint(units) > units;
+			break;
+		}
+		double rounded = up ? Math.ceil(units) : Math.floor(units);
+		double result = rounded * powerOfTwo(exponent - 10);
+		double largest = alternative ? 131008 : 65504;
+		if (result > largest) {
+			if (alternative) {
+				return sign | 0x7fff;
+			}
+			boolean infinity = roundingMode == HalfPrecision.roundToNearest
+					|| (roundingMode == HalfPrecision.roundTowardsPlusInfinity && !negative)
+					|| (roundingMode == HalfPrecision.roundTowardsMinusInfinity && negative);
+			return sign | (infinity ? 0x7c00 : 0x7bff);
+		}
+		if (result < powerOfTwo(-14)) {
+			return sign | (int) rounded;
+		}
+		int resultExponent = Math.getExponent(result);
+		int mantissa = (int) (result * powerOfTwo(10 - resultExponent)) & 0x3ff;
+		return sign | ((resultExponent + 15) << 10) | mantissa;
+	}
+}
@@ -26,13 +26,14 @@
 
 package com.arm.nevada.client.interpreter;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Test;
 
 import com.arm.nevada.client.interpreter.Instruction;
 import com.arm.nevada.client.interpreter.machine.Machine;
-import com.google.gwt.event.shared.SimpleEventBus;
+import com.arm.nevada.client.parser.Parser;
 import com.google.gwt.junit.client.GWTTestCase;
 
 public class InstructionTest extends GWTTestCase {
@@ -51,7 +52,7 @@ public class InstructionTest extends GWTTestCase {
 		int testCounter = 0;
 		for (TestCase testCase : testCases) {
 			testCounter++;
-			Machine machine = new Machine(new SimpleEventBus());
+			Machine machine = new Machine();
 			machine.init(testCase.getInputMachineAsJSON());
 			for (Instruction instruction : testCase.getInputInstructions()) {
 				instruction.execute(machine);
@@ -69,4 +70,144 @@ public class InstructionTest extends GWTTestCase {
 		}
 		assertTrue("Number of failed tests: " + failedTests, failedTests == 0);
 	}
+
+	@Test
+	public void testExecuteCompiled() {
+		TestcasePool testCasePool = new TestcasePool();
+		List<TestCase> testCases = testCasePool.getTestCases();
+
+		int failedTests = 0;
+		int testCounter = 0;
+		for (TestCase testCase : testCases) {
+			testCounter++;
+			Machine machine = new Machine();
+			machine.init(testCase.getInputMachineAsJSON());
+			CompiledBlock block = new CompiledBlock(testCase.getInputInstructions());
+			block.setConformanceCheck(true);
+			block.execute(machine);
+			String realOutput = machine.getAsJSONObject().toString();
+			String expectedOutput = testCase.getExpectedOutputMachine();
+			if (!expectedOutput.equals(realOutput)) {
+				System.out.println("FAILED compiled #" + testCounter + " @line: " + testCase.getStartLine());
+				System.out.println("EXPECTED:\n" + expectedOutput);
+				System.out.println("BUT GET :\n" + realOutput);
+				failedTests++;
+			}
+		}
+		assertTrue("Number of failed tests: " + failedTests, failedTests == 0);
+	}
+
+	@Test
+	public void testExecuteFused() {
+		TestcasePool testCasePool = new TestcasePool();
+		List<TestCase> testCases = testCasePool.getTestCases();
+
+		int failedTests = 0;
+		int testCounter = 0;
+		int fusedCount = 0;
+		for (TestCase testCase : testCases) {
+			testCounter++;
+			Machine machine = new Machine();
+			machine.init(testCase.getInputMachineAsJSON());
+			List<Instruction> instructions = testCase.getInputInstructions();
+			Superinstruction[] units = new SuperinstructionFusion().fuse(instructions);
+			for (int i = 0; i < instructions.size();) {
+				if (units[i] != null) {
+					units[i].execute(machine);
+					i += units[i].getLength();
+					fusedCount++;
+				} else {
+					instructions.get(i).execute(machine);
+					i++;
+				}
+			}
+			String realOutput = machine.getAsJSONObject().toString();
+			String expectedOutput = testCase.getExpectedOutputMachine();
+			if (!expectedOutput.equals(realOutput)) {
+				System.out.println("FAILED fused #" + testCounter + " @line: " + testCase.getStartLine());
+				System.out.println("EXPECTED:\n" + expectedOutput);
+				System.out.println("BUT GET :\n" + realOutput);
+				failedTests++;
+			}
+		}
+		assertTrue("Number of failed tests: " + failedTests, failedTests == 0);
+		assertTrue("No superinstruction is fused", fusedCount > 0);
+	}
+
+	/**
+	 * Every machine of the engine starts from the input of a different case, and its result is compared with the
+	 * interpretation of the program on that input.
+	 */
+	@Test
+	public void testExecuteLockstep() {
+		TestcasePool testCasePool = new TestcasePool();
+		List<TestCase> testCases = testCasePool.getTestCases();
+
+		int failedTests = 0;
+		int machineCount = 3;
+		for (int testIndex = 0; testIndex < testCases.size(); testIndex++) {
+			TestCase testCase = testCases.get(testIndex);
+			LockstepEngine engine = new LockstepEngine(testCase.getInputInstructions(), machineCount);
+			String[] expectedOutputs = new String[machineCount];
+			for (int k = 0; k < machineCount; k++) {
+				Machine machine = new Machine();
+				machine.init(testCases.get((testIndex + k) % testCases.size()).getInputMachineAsJSON());
+				engine.load(k, machine);
+				for (Instruction instruction : testCase.getInputInstructions()) {
+					instruction.execute(machine);
+				}
+				expectedOutputs[k] = machine.getAsJSONObject().toString();
+			}
+			engine.execute();
+			for (int k = 0; k < machineCount; k++) {
+				Machine machine = new Machine();
+				engine.store(k, machine);
+				String realOutput = machine.getAsJSONObject().toString();
+				if (!expectedOutputs[k].equals(realOutput)) {
+					System.out.println("FAILED lockstep #" + (testIndex + 1) + " machine " + k + " @line: "
+							+ testCase.getStartLine());
+					System.out.println("EXPECTED:\n" + expectedOutputs[k]);
+					System.out.println("BUT GET :\n" + realOutput);
+					failedTests++;
+				}
+			}
+		}
+		assertTrue("Number of failed tests: " + failedTests, failedTests == 0);
+	}
+
+	@Test
+	public void testExecuteLoop() {
+		String[] lines = { "mov r0, #0", "mov r1, #64", "mov r2, #4", "loop:", "vld1.32 {d0}, [r0]!",
+				"vadd.i32 d0, d0, d0", "vst1.32 {d0}, [r1]!", "subs r2, r2, #1", "bgt loop", "str r2, [r1]" };
+		List<Instruction> instructions = new ArrayList<Instruction>();
+		for (String line : lines) {
+			instructions.add(Parser.Parse(line));
+		}
+		ProgramImage program = new ProgramImage(instructions);
+		assertEquals(0, program.getErrorCount());
+
+		Machine machine = new Machine();
+		for (int i = 0; i < 8; i++) {
+			machine.getMemorySet().setWord(4 * i, i + 1, false);
+		}
+		assertEquals(3 + 4 * 6 + 1, program.execute(machine, 1000));
+		assertEquals(4 * lines.length, machine.getPC());
+		for (int i = 0; i < 8; i++) {
+			assertEquals(2 * (i + 1), machine.getMemorySet().getWord(64 + 4 * i));
+		}
+		assertEquals(0, machine.getMemorySet().getWord(96));
+
+		List<Instruction> infinite = new ArrayList<Instruction>();
+		infinite.add(Parser.Parse("loop: add r0, r0, #1"));
+		infinite.add(Parser.Parse("b loop"));
+		machine.setPC(0);
+		assertEquals(100, new ProgramImage(infinite).execute(machine, 100));
+
+		List<Instruction> selfBranch = new ArrayList<Instruction>();
+		selfBranch.add(Parser.Parse("mov r0, #1"));
+		selfBranch.add(Parser.Parse("self: b self"));
+		machine.setPC(0);
+		assertEquals(100, new ProgramImage(selfBranch).execute(machine, 100));
+		assertEquals(4, machine.getPC());
+	}
 }
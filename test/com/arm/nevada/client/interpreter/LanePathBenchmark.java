@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.arm.nevada.client.interpreter.machine.Machine;
+import com.arm.nevada.client.interpreter.machine.NEONRegisterSet;
+import com.arm.nevada.client.parser.Parser;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Compares the int-only lane paths with the long lane paths on instructions with lanes of maximum 32 bit. Both paths
+ * must give the same machine state. The times are printed, run it in production mode (-prod) to measure the
+ * speedup in the browser, where long is emulated.
+ */
+public class LanePathBenchmark extends GWTTestCase {
+	private static final int iterationCount = 2000;
+
+	private static final String[] program = {
+			"vadd.i32 q0, q1, q2",
+			"vqadd.s32 q3, q0, q4",
+			"vqsub.u32 q5, q3, q1",
+			"vhadd.s32 q6, q5, q2",
+			"vrhadd.u32 q7, q6, q3",
+			"vaddl.u16 q8, d0, d1",
+			"vsubw.s16 q9, q8, d4",
+			"vpadd.i32 d20, d16, d17",
+			"vaddhn.i32 d21, q8, q9",
+			"vmul.i32 q10, q0, q1",
+			"vmla.i16 q11, q2, q3",
+			"vmull.s16 q12, d4, d5",
+			"vqdmulh.s16 q13, q4, q5",
+			"vqdmlal.s16 q14, d6, d7",
+			"vshl.s32 q15, q0, q1",
+			"vshr.u16 q1, q7, #3",
+			"vrshrn.i32 d4, q12, #5",
+			"vsra.s32 q2, q13, #7",
+			"vqshl.u16 q0, q14, #2",
+			"vsli.32 q3, q15, #9" };
+
+	@Override
+	public String getModuleName() {
+		return "com.arm.nevada.Nevada";
+	}
+
+	@Test
+	public void testIntLanePaths() {
+		boolean original = Instruction.isIntLanePaths();
+		try {
+			Instruction.setIntLanePaths(false);
+			Machine longMachine = createMachine();
+			long longTime = run(longMachine);
+
+			Instruction.setIntLanePaths(true);
+			Machine intMachine = createMachine();
+			long intTime = run(intMachine);
+
+			System.out.println("long lanes: " + longTime + " ms, int lanes: " + intTime + " ms, speedup: "
+					+ (intTime == 0 ? "-" : String.valueOf((double) longTime / intTime)));
+			NEONRegisterSet expected = longMachine.getNEONRegisterSet();
+			NEONRegisterSet actual = intMachine.getNEONRegisterSet();
+			for (int i = 0; i < expected.getSize(); i++) {
+				assertEquals("NEON word " + i, expected.getOneValue(i), actual.getOneValue(i));
+			}
+			assertEquals(longMachine.getSpecialRegisters().getFPSCR(), intMachine.getSpecialRegisters().getFPSCR());
+		} finally {
+			Instruction.setIntLanePaths(original);
+		}
+	}
+
+	private static Machine createMachine() {
+		Machine machine = new Machine();
+		NEONRegisterSet neon = machine.getNEONRegisterSet();
+		int value = 0x12345678;
+		for (int i = 0; i < neon.getSize(); i++) {
+			value = value * 1103515245 + 12345;
+			neon.setOneValue(i, value, false);
+		}
+		return machine;
+	}
+
+	/**
+	 * @return The time of the execution in milliseconds, without the parsing.
+	 */
+	private static long run(Machine machine) {
+		List<Instruction> instructions = new ArrayList<Instruction>();
+		for (String line : program) {
+			instructions.add(Parser.Parse(line));
+		}
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < iterationCount; i++) {
+			for (Instruction instruction : instructions) {
+				instruction.execute(machine);
+			}
+		}
+		return System.currentTimeMillis() - start;
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.arm.nevada.client.interpreter.machine.Machine;
+import com.arm.nevada.client.interpreter.machine.MachineObserverAdapter;
+import com.arm.nevada.client.interpreter.machine.PagedMemorySet;
+import com.arm.nevada.client.interpreter.machine.TestMachines;
+
+/**
+ * Checks that a faulting instruction or a memory access on one machine of the {@link LockstepEngine} behaves like in
+ * the interpreter and does not affect the other machines.
+ */
+public class LockstepEngineTest {
+
+	private static class FaultObserver extends MachineObserverAdapter {
+		String faults = "";
+
+		@Override
+		public void onAlignmentError(int address, int expectedAlignmentInBits) {
+			faults += "alignment " + address + " " + expectedAlignmentInBits + ";";
+		}
+
+		@Override
+		public void onSegmentationFault() {
+			faults += "segmentation;";
+		}
+	}
+
+	@Test
+	public void testFaults() {
+		List<Instruction> program = TestMachines.parse("vld1.32 {d0}, [r0:64]", "vadd.i32 d1, d0, d0",
+				"vld1.32 {d2}, [r1]", "vadd.i32 d3, d2, d1");
+		// no fault, alignment error at the first instruction, segmentation fault at the third one
+		int[][] addresses = { { 0, 8 }, { 4, 8 }, { 0, 1000 } };
+		String[] expectedFaults = { "", "alignment 4 64;", "segmentation;" };
+		int[] expectedFaultIndexes = { -1, 0, 2 };
+		int[] expectedPCs = { 16, 12, 12 };
+
+		LockstepEngine engine = new LockstepEngine(program, addresses.length);
+		Machine[] references = new Machine[addresses.length];
+		for (int k = 0; k < addresses.length; k++) {
+			Machine machine = new Machine();
+			TestMachines.randomize(machine, k);
+			machine.getArmRegisterSet().setOneValue(0, addresses[k][0], false);
+			machine.getArmRegisterSet().setOneValue(1, addresses[k][1], false);
+			engine.load(k, machine);
+			FaultObserver observer = new FaultObserver();
+			machine.setObserver(observer);
+			for (Instruction instruction : program) {
+				instruction.execute(machine);
+			}
+			Assert.assertEquals(expectedFaults[k], observer.faults);
+			references[k] = machine;
+		}
+		engine.execute();
+		for (int k = 0; k < addresses.length; k++) {
+			Machine machine = new Machine();
+			FaultObserver observer = new FaultObserver();
+			machine.setObserver(observer);
+			engine.store(k, machine);
+			Assert.assertEquals("machine " + k, expectedPCs[k], machine.getPC());
+			Assert.assertArrayEquals("machine " + k, TestMachines.snapshot(references[k]),
+					TestMachines.snapshot(machine));
+			Assert.assertEquals(expectedFaultIndexes[k], engine.getFaultIndex(k));
+			Assert.assertEquals(expectedFaults[k], observer.faults);
+		}
+	}
+
+	/**
+	 * The machines write the same address outside of the memory window, every machine reads back its own value.
+	 */
+	@Test
+	public void testPagedMemory() {
+		List<Instruction> program = TestMachines.parse("vst1.32 {d1}, [r0]", "vld1.32 {d0}, [r0]");
+		int address = 0x100000;
+		LockstepEngine engine = new LockstepEngine(program, 2);
+		Machine[] references = new Machine[2];
+		for (int k = 0; k < 2; k++) {
+			Machine machine = new Machine(new PagedMemorySet());
+			machine.getArmRegisterSet().setOneValue(0, address, false);
+			machine.getNEONRegisterSet().setDoubleRegister(1, 11 * (k + 1), false);
+			engine.load(k, machine);
+			for (Instruction instruction : program) {
+				instruction.execute(machine);
+			}
+			Assert.assertEquals(11 * (k + 1), machine.getNEONRegisterSet().getDoubleRegister(0));
+			references[k] = machine;
+		}
+		engine.execute();
+		for (int k = 0; k < 2; k++) {
+			Assert.assertEquals(11 * (k + 1), engine.getDoubleRegister(k, 0));
+			Machine machine = new Machine(new PagedMemorySet());
+			engine.store(k, machine);
+			Assert.assertEquals(11 * (k + 1), machine.getMemorySet().getWord(address));
+			Assert.assertArrayEquals("machine " + k, TestMachines.snapshot(references[k]),
+					TestMachines.snapshot(machine));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMixedMemory() {
+		LockstepEngine engine = new LockstepEngine(TestMachines.parse("vadd.i32 d0, d0, d0"), 2);
+		engine.load(0, new Machine(new PagedMemorySet()));
+		engine.load(1, new Machine());
+	}
+}
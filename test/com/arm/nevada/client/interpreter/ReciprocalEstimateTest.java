@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.arm.nevada.client.utils.SampledOperands;
+
+/**
+ * Compares the table-driven vrecpe and vrsqrte with the ARM pseudocode, as the instruction calculated them for every
+ * lane before the tables, on the operands of {@link SampledOperands} (all 2^32 operands with -Dexhaustive=true). The
+ * doubles of the pseudocode are converted exactly, so it runs on the JVM only.
+ */
+public class ReciprocalEstimateTest {
+
+	@Test
+	public void testReciprocalEstimateFloat() {
+		int value = 0;
+		do {
+			assertEquals(Integer.toHexString(value), reciprocalEstimateFloat(value),
+					ReciprocalSqrtReciprocalEstimate.calculateReciprocalEstimateFloat(value));
+		} while ((value = SampledOperands.next(value)) != 0);
+	}
+
+	@Test
+	public void testReciprocalEstimateUnsigned32() {
+		int value = 0;
+		do {
+			assertEquals(Integer.toHexString(value), reciprocalEstimateUnsigned32(value),
+					ReciprocalSqrtReciprocalEstimate.calculateReciprocEstimateUnsigned32(value));
+		} while ((value = SampledOperands.next(value)) != 0);
+	}
+
+	@Test
+	public void testReciprocalSqrtEstimateFloat() {
+		int value = 0;
+		do {
+			assertEquals(Integer.toHexString(value), reciprocalSqrtEstimateFloat(value),
+					ReciprocalSqrtReciprocalEstimate.calculateReciprocSqrtEstimateFloat(value));
+		} while ((value = SampledOperands.next(value)) != 0);
+	}
+
+	@Test
+	public void testReciprocalSqrtEstimateUnsigned32() {
+		int value = 0;
+		do {
+			assertEquals(Integer.toHexString(value), reciprocalSqrtEstimateUnsigned32(value),
+					ReciprocalSqrtReciprocalEstimate.calculateReciprocSqrtEstimateUnsigned32(value));
+		} while ((value = SampledOperands.next(value)) != 0);
+	}
+
+	@Test
+	public void testReciprocalSqrtEstimateUnsigned32Edges() {
+		// only operands below 2^30 saturate, the lower bits do not matter
+		for (int value : new int[] { 0, 1, 0x3FFFFFFF, 0x40000000, 0x40000001, 0x7FFFFFFF, 0x80000000, 0xC0000000,
+				0xFFFFFFFF }) {
+			assertEquals(Integer.toHexString(value), reciprocalSqrtEstimateUnsigned32(value),
+					ReciprocalSqrtReciprocalEstimate.calculateReciprocSqrtEstimateUnsigned32(value));
+		}
+		assertEquals(0xFFFFFFFF, ReciprocalSqrtReciprocalEstimate.calculateReciprocSqrtEstimateUnsigned32(0x3FFFFFFF));
+		assertEquals(0xFF800000, ReciprocalSqrtReciprocalEstimate.calculateReciprocSqrtEstimateUnsigned32(0x40000000));
+	}
+
+	/**
+	 * FPRecipEstimate()
+	 */
+	private static int reciprocalEstimateFloat(int value) {
+		float floatValue = Float.intBitsToFloat(value);
+		if (Float.isNaN(floatValue)) {
+			return 0x7fc00000;
+		} else if (Float.isInfinite(floatValue) || floatValue == 0.0) {
+			return floatValue > 0 ? 0x7f800000 : 0xff800000;
+		} else if (Math.abs(floatValue) >= Math.pow(2.0, 126)) {
+			return floatValue < 0 ? 0x80000000 : 0;
+		}
+		long scaled = 0x3fe0000000000000L | ((value & 0x7FFFFFL) << 29);
+		int resultExp = 253 - ((value >>> 23) & 0xFF);
+		long estimate = recipEstimate(scaled);
+		return (value & 0x80000000) | ((resultExp & 255) << 23) | (int) ((estimate >>> 29) & 0x7FFFFF);
+	}
+
+	/**
+	 * UnsignedRecipEstimate()
+	 */
+	private static int reciprocalEstimateUnsigned32(int value) {
+		if (value >= 0) {
+			return 0xFFFFFFFF;
+		}
+		long dp_operand = 0x3FE0000000000000L | ((value & 0x7FFFFFFFL) << 21L);
+		long estimate = recipEstimate(dp_operand);
+		return 0x80000000 | ((int) ((estimate & 0xFFFFFFFE00000L) >>> 21));
+	}
+
+	/**
+	 * FPRSqrtEstimate()
+	 */
+	private static int reciprocalSqrtEstimateFloat(int value) {
+		float floatValue = Float.intBitsToFloat(value);
+		if (Float.isNaN(floatValue)) {
+			return 0x7fc00000;
+		} else if (floatValue == 0) {
+			return floatValue > 0 ? 0x7f800000 : 0xff800000;
+		} else if (value < 0) {
+			return 0x7fc00000;
+		} else if (Float.isInfinite(floatValue)) {
+			return 0;
+		}
+		long scaled;
+		if ((value & 0x800000) == 0) {
+			scaled = 0x3fe0000000000000L | ((value & 0x7FFFFFL) << 29);
+		} else {
+			scaled = 0x3fd0000000000000L | ((value & 0x7FFFFFL) << 29);
+		}
+		int resultExp = (380 - ((value & 0x7f800000) >>> 23)) / 2;
+		long estimate = recipSqrtEstimate(scaled);
+		return ((resultExp & 255) << 23) | (int) ((estimate >>> 29) & 0x7FFFFF);
+	}
+
+	/**
+	 * UnsignedRSqrtEstimate()
+	 */
+	private static int reciprocalSqrtEstimateUnsigned32(int value) {
+		if ((value >>> 30) == 0) {
+			return 0xFFFFFFFF;
+		}
+		long dp_operand;
+		if (value < 0) {
+			dp_operand = 0x3FE0000000000000L | ((value & 0x7FFFFFFFL) << 21L);
+		} else {
+			dp_operand = 0x3FD0000000000000L | ((value & 0x3FFFFFFFL) << 22L);
+		}
+		long estimate = recipSqrtEstimate(dp_operand);
+		return 0x80000000 | ((int) ((estimate & 0xFFFFFFFE00000L) >>> 21));
+	}
+
+	/**
+	 * recip_estimate()
+	 */
+	private static long recipEstimate(long value) {
+		double a = Double.longBitsToDouble(value);
+		int q = (int) (a * 512.0);
+		double r = 1.0 / (((double) q + 0.5) / 512.0);
+		int s = (int) (256.0 * r + 0.5);
+		return Double.doubleToRawLongBits((double) s / 256.0);
+	}
+
+	/**
+	 * recip_sqrt_estimate()
+	 */
+	private static long recipSqrtEstimate(long value) {
+		double a = Double.longBitsToDouble(value);
+		double r;
+		if (a < 0.5) {
+			int q0 = (int) (a * 512.0);
+			r = 1.0 / Math.sqrt(((double) q0 + 0.5) / 512.0);
+		} else {
+			int q1 = (int) (a * 256.0);
+			r = 1.0 / Math.sqrt(((double) q1 + 0.5) / 256.0);
+		}
+		int s = (int) (256.0 * r + 0.5);
+		return Double.doubleToRawLongBits((double) s / 256.0);
+	}
+}
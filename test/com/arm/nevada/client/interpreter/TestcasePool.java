@@ -34,7 +34,14 @@ public class TestcasePool {
 	String[] lines;
 
 	public TestcasePool() {
-		String allTestString = res.INSTANCE.synchronous().getText();
+		this(res.INSTANCE.synchronous().getText());
+	}
+
+	/**
+	 * @param allTestString
+	 *            The contents of tests.txt, e.g. read by the JVM tests without the GWT resources.
+	 */
+	public TestcasePool(String allTestString) {
 		allTestString = allTestString.replace("\r\n", "\n");
 		lines = allTestString.split("\n");
 		int actualStart = 0;
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter.machine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.arm.nevada.client.shared.events.ExecutionProgressEvent;
+import com.arm.nevada.client.shared.events.ExecutionProgressEventHandler;
+import com.google.gwt.event.shared.EventBus;
+import com.google.gwt.event.shared.SimpleEventBus;
+
+/**
+ * Runs a program in time slices by the {@link CooperativeExecutionScheduler}. The slices are 0 milliseconds long, so
+ * every slice executes the instructions between two clock checks.
+ */
+public class CooperativeExecutionSchedulerTest {
+	private static final String[] operations = { "vadd.i32 d0, d0, d1", "vmul.i16 q1, q1, q2",
+			"vqadd.s8 d6, d6, d7", "vzip.8 d8, d9", "veor q5, q5, q0" };
+	private static final int lineCount = 1000;
+
+	/**
+	 * Mirrors the NEON registers from the notifications.
+	 */
+	private static class MirrorObserver extends MachineObserverAdapter {
+		final int[] neonWords = new int[64];
+
+		@Override
+		public void onNEONRegisterChanged(int wordIndex, int value) {
+			neonWords[wordIndex] = value;
+		}
+	}
+
+	private final CooperativeExecutionScheduler scheduler = new CooperativeExecutionScheduler();
+	private final MirrorObserver observer = new MirrorObserver();
+	private final List<ExecutionProgressEvent> progressEvents = new ArrayList<ExecutionProgressEvent>();
+	private MachineController controller;
+
+	@Before
+	public void setUp() {
+		EventBus eventBus = new SimpleEventBus();
+		eventBus.addHandler(ExecutionProgressEvent.TYPE, new ExecutionProgressEventHandler() {
+			@Override
+			public void onExecutionProgress(ExecutionProgressEvent event) {
+				progressEvents.add(event);
+			}
+		});
+		Machine machine = createMachine();
+		for (int i = 0; i < 64; i++) {
+			observer.neonWords[i] = machine.getNEONRegisterSet().getOneValue(i);
+		}
+		machine.setObserver(observer);
+		controller = new MachineController(machine, eventBus);
+		controller.getInstructions().setInstructions(TestMachines.parse(program()));
+		controller.setScheduler(scheduler);
+		controller.setSliceMillis(0);
+	}
+
+	@Test
+	public void testSlicedRunEqualsSynchronousRun() {
+		controller.startRun(false);
+		Assert.assertTrue(controller.isRunning());
+		int sliceCount = 0;
+		while (scheduler.runSlice()) {
+			sliceCount++;
+		}
+		Assert.assertTrue("slices " + sliceCount, sliceCount > 1);
+		Assert.assertFalse(controller.isRunning());
+		Assert.assertTrue(scheduler.isIdle());
+
+		Machine machine = controller.getMachine();
+		Assert.assertSame(observer, machine.getObserver());
+		Assert.assertArrayEquals(TestMachines.snapshot(executeSynchronously()), TestMachines.snapshot(machine));
+		for (int i = 0; i < 64; i++) {
+			Assert.assertEquals(machine.getNEONRegisterSet().getOneValue(i), observer.neonWords[i]);
+		}
+
+		// one progress event per slice, then the finished one
+		Assert.assertEquals(sliceCount + 1, progressEvents.size());
+		int previousCount = 0;
+		for (int i = 0; i < sliceCount; i++) {
+			Assert.assertFalse(progressEvents.get(i).isFinished());
+			Assert.assertTrue(progressEvents.get(i).getExecutedCount() > previousCount);
+			previousCount = progressEvents.get(i).getExecutedCount();
+		}
+		Assert.assertTrue(progressEvents.get(sliceCount).isFinished());
+		Assert.assertEquals(lineCount, progressEvents.get(sliceCount).getExecutedCount());
+	}
+
+	@Test
+	public void testStopBetweenSlices() {
+		controller.startRun(false);
+		Assert.assertTrue(scheduler.runSlice());
+		Assert.assertTrue(scheduler.runSlice());
+		int executedCount = controller.getExecutedCount();
+		Assert.assertTrue(executedCount > 0 && executedCount < lineCount);
+		Assert.assertEquals(4 * executedCount, controller.getMachine().getPC());
+
+		controller.stop();
+		Assert.assertFalse(scheduler.runSlice());
+		Assert.assertFalse(controller.isRunning());
+		Assert.assertEquals(4 * executedCount, controller.getMachine().getPC());
+		ExecutionProgressEvent last = progressEvents.get(progressEvents.size() - 1);
+		Assert.assertTrue(last.isFinished());
+		Assert.assertEquals(executedCount, last.getExecutedCount());
+
+		// continues from the next instruction
+		controller.startRun(false);
+		scheduler.runToCompletion();
+		Assert.assertArrayEquals(TestMachines.snapshot(executeSynchronously()),
+				TestMachines.snapshot(controller.getMachine()));
+	}
+
+	private static Machine executeSynchronously() {
+		MachineController reference = new MachineController(createMachine());
+		reference.getInstructions().setInstructions(TestMachines.parse(program()));
+		reference.executeToEnd();
+		return reference.getMachine();
+	}
+
+	private static Machine createMachine() {
+		Machine machine = new Machine();
+		TestMachines.randomize(machine, 1);
+		return machine;
+	}
+
+	private static String[] program() {
+		String[] lines = new String[lineCount];
+		for (int i = 0; i < lineCount; i++) {
+			lines[i] = operations[i % operations.length];
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter.machine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.arm.nevada.client.interpreter.Instruction;
+import com.arm.nevada.client.parser.Parser;
+import com.arm.nevada.client.shared.events.ExecutionProgressEvent;
+import com.arm.nevada.client.shared.events.ExecutionProgressEventHandler;
+import com.arm.nevada.client.shared.events.InstructionUpdatedInViewEvent;
+import com.arm.nevada.client.shared.events.MemoryViewValueChangedEvent;
+import com.arm.nevada.client.shared.events.NEONRegisterValueChangedEvent;
+import com.google.gwt.event.shared.EventBus;
+import com.google.gwt.event.shared.SimpleEventBus;
+
+/**
+ * Edits lines of an executed program through the event bus, like the instruction editor, and checks that the
+ * controller re-executes only the part after the latest valid checkpoint, with the same result as a full run.
+ */
+public class ExecutionCheckpointsTest {
+	private static final String[] operations = { "vadd.i32 q0, q0, q1", "vmul.i16 q1, q1, q2", "veor d4, d5, d6",
+			"vst1.32 {d0, d1}, [r0]!", "vld1.8 {d6}, [r1]", "vqadd.s64 q3, q3, q0", "vzip.8 d8, d9",
+			"vshl.i32 q4, q4, #3" };
+	private static final String edit = "vsub.i8 q2, q2, q5";
+	private static final int lineCount = 40;
+	private static final int interval = 4;
+
+	private EventBus eventBus;
+	private MachineController controller;
+	private final List<Integer> finishedRuns = new ArrayList<Integer>();
+
+	@Before
+	public void setUp() {
+		eventBus = new SimpleEventBus();
+		controller = new MachineController(createMachine(), eventBus);
+		controller.setCheckpoints(new ExecutionCheckpoints(interval));
+		controller.getInstructions().setInstructions(program(new String[lineCount]));
+		eventBus.addHandler(ExecutionProgressEvent.TYPE, new ExecutionProgressEventHandler() {
+			@Override
+			public void onExecutionProgress(ExecutionProgressEvent event) {
+				if (event.isFinished()) {
+					finishedRuns.add(event.getExecutedCount());
+				}
+			}
+		});
+	}
+
+	@Test
+	public void testRerunAfterEdit() {
+		String[] edits = new String[lineCount];
+		controller.executeToEnd();
+		Assert.assertEquals(Integer.valueOf(lineCount), finishedRuns.get(0));
+
+		// then an earlier line, the checkpoints after it are invalid
+		for (int line : new int[] { 30, 12 }) {
+			edits[line] = edit;
+			editLine(line, edit);
+			Assert.assertEquals(line == 30 ? 2 : 3, finishedRuns.size());
+			int executed = finishedRuns.get(finishedRuns.size() - 1);
+			Assert.assertTrue("executed " + executed, executed > 0 && executed < lineCount - line + 2 * interval);
+			Assert.assertArrayEquals(TestMachines.snapshot(executeFully(edits)),
+					TestMachines.snapshot(controller.getMachine()));
+			Assert.assertEquals(0, controller.getMachine().getPC());
+		}
+	}
+
+	/**
+	 * Toggling a breakpoint sends the same instruction again, it doesn't change the result.
+	 */
+	@Test
+	public void testNoRerunAfterBreakpointToggle() {
+		controller.executeToEnd();
+		Instruction instruction = controller.getInstructions().getProgram().get(10);
+		instruction.setBreakpoint(true);
+		eventBus.fireEvent(new InstructionUpdatedInViewEvent(10, instruction));
+		Assert.assertEquals(1, finishedRuns.size());
+	}
+
+	/**
+	 * Without a completed run the machine state is not the result of the program, an edit doesn't execute anything.
+	 */
+	@Test
+	public void testNoRerunWithoutCompletedRun() {
+		for (int i = 0; i < 20; i++) {
+			controller.runNextInstruction();
+		}
+		byte[] state = TestMachines.snapshot(controller.getMachine());
+		editLine(5, edit);
+		Assert.assertArrayEquals(state, TestMachines.snapshot(controller.getMachine()));
+
+		controller.executeToEnd();
+		controller.resetExecution();
+		state = TestMachines.snapshot(controller.getMachine());
+		editLine(6, edit);
+		Assert.assertArrayEquals(state, TestMachines.snapshot(controller.getMachine()));
+	}
+
+	/**
+	 * A register or memory edit in the view after the run is kept, restoring a checkpoint would overwrite it. A new
+	 * run takes new checkpoints.
+	 */
+	@Test
+	public void testNoRerunAfterMachineEdit() {
+		Machine machine = controller.getMachine();
+		new EventBusMachineObserver(machine, eventBus);
+		controller.executeToEnd();
+		eventBus.fireEvent(new NEONRegisterValueChangedEvent(4, 100));
+		eventBus.fireEvent(new NEONRegisterValueChangedEvent(0, 0));
+		eventBus.fireEvent(new MemoryViewValueChangedEvent(20, 7));
+		byte[] state = TestMachines.snapshot(machine);
+		editLine(10, edit);
+		Assert.assertEquals(1, finishedRuns.size());
+		Assert.assertArrayEquals(state, TestMachines.snapshot(machine));
+		Assert.assertEquals(100, machine.getNEONRegisterSet().getOneValue(4));
+		Assert.assertEquals(0, machine.getNEONRegisterSet().getOneValue(0));
+		Assert.assertEquals(7, machine.getMemorySet().getOneValue(20));
+
+		controller.executeToEnd();
+		editLine(30, edit);
+		Assert.assertEquals(3, finishedRuns.size());
+	}
+
+	private void editLine(int index, String line) {
+		eventBus.fireEvent(new InstructionUpdatedInViewEvent(index, Parser.Parse(line)));
+	}
+
+	private static Machine createMachine() {
+		Machine machine = new Machine();
+		machine.getMemorySet().setSize(256, false, false);
+		TestMachines.randomize(machine, 3);
+		machine.getArmRegisterSet().setOneValue(1, 8, false);
+		return machine;
+	}
+
+	private static Machine executeFully(String[] edits) {
+		MachineController reference = new MachineController(createMachine());
+		reference.getInstructions().setInstructions(program(edits));
+		reference.executeToEnd();
+		return reference.getMachine();
+	}
+
+	/**
+	 * @param edits
+	 *            The replaced lines, null keeps the original line.
+	 */
+	private static List<Instruction> program(String[] edits) {
+		String[] lines = new String[edits.length];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = edits[i] != null ? edits[i] : operations[i % operations.length];
+		}
+		return TestMachines.parse(lines);
+	}
+}
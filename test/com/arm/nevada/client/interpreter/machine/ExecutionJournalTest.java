@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter.machine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.arm.nevada.client.interpreter.Instruction;
+import com.arm.nevada.client.interpreter.ProgramImage;
+
+/**
+ * Executes a program instruction by instruction with an {@link ExecutionJournal}, then steps back to the beginning
+ * and compares every state with the one recorded during the execution.
+ */
+public class ExecutionJournalTest {
+	private static final String[] lines = { "vadd.i32 q0, q0, q1", "vst1.32 {d0, d1}, [r0]!", "vmov.i8 d3, #7",
+			"vld2.8 {d4, d5}, [r1]", "vmul.i16 q3, q2, q0", "vst1.8 {d6[3]}, [r1]", "vqadd.s64 q4, q3, q0",
+			"vzip.8 d8, d9", "vtbl.8 d10, {d0, d1}, d3", "vcvt.f32.s32 q6, q0" };
+
+	@Test
+	public void testStepBackToInitialState() {
+		List<byte[]> states = new ArrayList<byte[]>();
+		MachineController controller = execute(new ExecutionJournal(), states);
+		for (int i = lines.length - 1; i >= 0; i--) {
+			Assert.assertTrue(controller.stepBack());
+			Assert.assertArrayEquals("after undoing line " + i, states.get(i),
+					TestMachines.snapshot(controller.getMachine()));
+		}
+		Assert.assertFalse(controller.stepBack());
+		Assert.assertEquals(0, controller.getMachine().getPC());
+	}
+
+	/**
+	 * The journal is too small for the whole program, the oldest instructions are dropped.
+	 */
+	@Test
+	public void testCapacityOverflow() {
+		List<byte[]> states = new ArrayList<byte[]>();
+		ExecutionJournal journal = new ExecutionJournal(8);
+		MachineController controller = execute(journal, states);
+		int undoable = journal.getInstructionCount();
+		Assert.assertTrue(undoable > 0 && undoable < lines.length);
+		for (int i = lines.length - 1; i >= lines.length - undoable; i--) {
+			Assert.assertTrue(controller.stepBack());
+			Assert.assertArrayEquals("after undoing line " + i, states.get(i),
+					TestMachines.snapshot(controller.getMachine()));
+		}
+		Assert.assertFalse(controller.stepBack());
+		Assert.assertEquals(0, journal.getInstructionCount());
+	}
+
+	/**
+	 * An instruction which writes more words than the capacity can't be undone, neither the earlier ones.
+	 */
+	@Test
+	public void testInstructionLargerThanCapacity() {
+		Machine machine = new Machine();
+		ExecutionJournal journal = new ExecutionJournal(4);
+		machine.setJournal(journal);
+		MachineController controller = new MachineController(machine);
+		controller.getInstructions().setInstructions(
+				TestMachines.parse("vmov.i8 d0, #1", "vld4.32 {d0, d1, d2, d3}, [r0]", "vmov.i8 d4, #2"));
+		controller.runNextInstruction();
+		controller.runNextInstruction();
+		Assert.assertEquals(0, journal.getInstructionCount());
+		Assert.assertFalse(controller.stepBack());
+
+		byte[] state = TestMachines.snapshot(machine);
+		controller.runNextInstruction();
+		Assert.assertTrue(controller.stepBack());
+		Assert.assertArrayEquals(state, TestMachines.snapshot(machine));
+		Assert.assertFalse(controller.stepBack());
+	}
+
+	@Test
+	public void testRunBackToPreviousBreakpoint() {
+		List<byte[]> states = new ArrayList<byte[]>();
+		MachineController controller = execute(new ExecutionJournal(), states);
+		ProgramImage program = controller.getInstructions().getProgram();
+		Instruction breakpoint = program.get(4);
+		breakpoint.setBreakpoint(true);
+		program.set(4, breakpoint);
+		controller.runBackToPreviousBreakpoint();
+		Assert.assertEquals(16, controller.getMachine().getPC());
+		Assert.assertArrayEquals(states.get(4), TestMachines.snapshot(controller.getMachine()));
+	}
+
+	/**
+	 * Executes the lines one by one and collects the state before each of them.
+	 */
+	private static MachineController execute(ExecutionJournal journal, List<byte[]> states) {
+		Machine machine = new Machine();
+		machine.getMemorySet().setSize(64, false, false);
+		TestMachines.randomize(machine, 1);
+		machine.getArmRegisterSet().setOneValue(1, 40, false);
+		machine.setJournal(journal);
+		MachineController controller = new MachineController(machine);
+		controller.getInstructions().setInstructions(TestMachines.parse(lines));
+		for (int i = 0; i < lines.length; i++) {
+			states.add(TestMachines.snapshot(machine));
+			controller.runNextInstruction();
+		}
+		// the end of the program resets the PC
+		Assert.assertEquals(0, machine.getPC());
+		return controller;
+	}
+}
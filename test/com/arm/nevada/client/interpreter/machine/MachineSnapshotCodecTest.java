@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter.machine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Round trips of the dense and the paged machines, and the snapshots which must be rejected.
+ */
+public class MachineSnapshotCodecTest {
+
+	@Test
+	public void testDenseRoundTrip() throws IOException {
+		Machine machine = createMachine(new MemorySet());
+		byte[] bytes = write(machine, true);
+		Machine copy = new Machine();
+		read(copy, bytes);
+		Assert.assertEquals(5000, copy.getMemorySet().getSize());
+		Assert.assertEquals(machine.getMemorySet().getWord(4 * 3999), copy.getMemorySet().getWord(4 * 3999));
+		Assert.assertArrayEquals(bytes, write(copy, true));
+	}
+
+	@Test
+	public void testPagedRoundTrip() throws IOException {
+		Machine machine = createMachine(new PagedMemorySet());
+		machine.getMemorySet().setWord(0x80001234, 42, false);
+		byte[] bytes = write(machine, true);
+		Machine copy = new Machine(new PagedMemorySet());
+		copy.getMemorySet().setWord(0x40000000, 7, false);
+		read(copy, bytes);
+		Assert.assertEquals(42, copy.getMemorySet().getWord(0x80001234));
+		Assert.assertEquals(0, copy.getMemorySet().getWord(0x40000000));
+		Assert.assertArrayEquals(bytes, write(copy, true));
+	}
+
+	/**
+	 * The stream can continue after the snapshot.
+	 */
+	@Test
+	public void testReadsOnlyTheSnapshot() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MachineSnapshotCodec.write(createMachine(new MemorySet()), out, false);
+		out.write(99);
+		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+		MachineSnapshotCodec.read(new Machine(), in);
+		Assert.assertEquals(99, in.read());
+	}
+
+	@Test
+	public void testBadMagic() {
+		byte[] bytes = write(createMachine(new MemorySet()), true);
+		bytes[0] = 'X';
+		assertInvalid(bytes);
+	}
+
+	@Test
+	public void testBadVersion() {
+		byte[] bytes = write(createMachine(new MemorySet()), true);
+		bytes[4] = (byte) (MachineSnapshotCodec.version + 1);
+		assertInvalid(bytes);
+	}
+
+	@Test
+	public void testBadChecksum() {
+		byte[] bytes = write(createMachine(new MemorySet()), true);
+		bytes[20] ^= 1;
+		assertInvalid(bytes);
+	}
+
+	@Test
+	public void testTruncated() {
+		byte[] bytes = write(createMachine(new MemorySet()), true);
+		byte[] truncated = new byte[bytes.length - 1];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		assertInvalid(truncated);
+	}
+
+	/**
+	 * A dense memory can't hold the words outside of its size.
+	 */
+	@Test
+	public void testRunOutsideOfTheWindow() {
+		Machine machine = new Machine(new PagedMemorySet());
+		machine.getMemorySet().setSize(16, false, false);
+		machine.getMemorySet().setWord(0x80001234, 42, false);
+		assertInvalid(write(machine, true));
+
+		// the only run is the last word, its address is moved after the end of the memory
+		machine = new Machine();
+		machine.getMemorySet().setSize(16, false, false);
+		machine.getMemorySet().setWord(4 * 15, 1, false);
+		byte[] bytes = write(machine, false);
+		int address = bytes.length - 20;
+		Assert.assertEquals(15, bytes[address]);
+		bytes[address] = 16;
+		assertInvalid(bytes);
+	}
+
+	private static Machine createMachine(MemorySet memory) {
+		Machine machine = new Machine(memory);
+		memory.setSize(5000, false, false);
+		TestMachines.randomize(machine, 5);
+		Random random = new Random(5);
+		for (int i = 0; i < 16; i++) {
+			machine.getArmRegisterSet().setOneValue(i, random.nextInt(), false);
+		}
+		machine.getSpecialRegisters().setOneValue(1, 0x03C00000, false);
+		for (int i = 0; i < 100; i++) {
+			memory.setWord(4 * random.nextInt(5000), random.nextInt(), false);
+		}
+		return machine;
+	}
+
+	private static byte[] write(Machine machine, boolean checksum) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			MachineSnapshotCodec.write(machine, out, checksum);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return out.toByteArray();
+	}
+
+	private static void read(Machine machine, byte[] bytes) throws IOException {
+		MachineSnapshotCodec.read(machine, new ByteArrayInputStream(bytes));
+	}
+
+	private static void assertInvalid(byte[] bytes) {
+		try {
+			read(new Machine(), bytes);
+			Assert.fail("The invalid snapshot is read.");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+}
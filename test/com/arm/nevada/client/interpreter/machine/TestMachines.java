@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.interpreter.machine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.arm.nevada.client.interpreter.Instruction;
+import com.arm.nevada.client.parser.Parser;
+
+/**
+ * Helpers of the JVM tests of the machine, the states are compared by their binary snapshots since the JSON classes
+ * of GWT need a browser.
+ */
+public class TestMachines {
+	private TestMachines() {
+	}
+
+	public static List<Instruction> parse(String... lines) {
+		List<Instruction> instructions = new ArrayList<Instruction>();
+		for (String line : lines) {
+			instructions.add(Parser.Parse(line));
+		}
+		return instructions;
+	}
+
+	/**
+	 * Fills the NEON registers and at most the first 64 words of the memory with random values.
+	 */
+	public static void randomize(Machine machine, long seed) {
+		Random random = new Random(seed);
+		NEONRegisterSet neon = machine.getNEONRegisterSet();
+		for (int i = 0; i < neon.getSize(); i++) {
+			neon.setOneValue(i, random.nextInt(), false);
+		}
+		for (int i = 0; i < Math.min(64, machine.getMemorySet().getSize()); i++) {
+			machine.getMemorySet().setWord(4 * i, random.nextInt(), false);
+		}
+	}
+
+	public static byte[] snapshot(Machine machine) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			MachineSnapshotCodec.write(machine, out, false);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return out.toByteArray();
+	}
+}
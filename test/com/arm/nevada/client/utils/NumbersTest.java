@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the bit conversions of {@link Numbers} on the float bit patterns of {@link SampledOperands} (all 2^32 with
+ * -Dexhaustive=true) against the value decoded from the sign, exponent and fraction fields. Runs on the JVM only, the
+ * browser uses the super-source.
+ */
+public class NumbersTest {
+
+	@Test
+	public void testFloatBits() {
+		int bits = 0;
+		do {
+			float value = Numbers.intBitsToFloat(bits);
+			int expectedBits = bits;
+			if (isNaN(bits)) {
+				expectedBits = 0x7fc00000;
+				if (!Float.isNaN(value)) {
+					fail(bits, "NaN", value);
+				}
+			} else if (Float.compare(decode(bits), value) != 0) {
+				fail(bits, decode(bits), value);
+			}
+			if (Numbers.floatToIntBits(value) != expectedBits) {
+				fail(bits, Integer.toHexString(expectedBits), Integer.toHexString(Numbers.floatToIntBits(value)));
+			}
+		} while ((bits = SampledOperands.next(bits)) != 0);
+	}
+
+	/**
+	 * Every float is converted to double and back, the double bits are composed from the float fields.
+	 */
+	@Test
+	public void testDoubleBits() {
+		int bits = 0;
+		do {
+			double value = Numbers.intBitsToFloat(bits);
+			long expectedBits = isNaN(bits) ? 0x7ff8000000000000L : toDoubleBits(bits);
+			if (Numbers.doubleToLongBits(value) != expectedBits) {
+				fail(bits, Long.toHexString(expectedBits), Long.toHexString(Numbers.doubleToLongBits(value)));
+			}
+			if (!isNaN(bits) && Double.compare(value, Numbers.longBitsToDouble(expectedBits)) != 0) {
+				fail(bits, value, Numbers.longBitsToDouble(expectedBits));
+			}
+		} while ((bits = SampledOperands.next(bits)) != 0);
+	}
+
+	private static void fail(int bits, Object expected, Object actual) {
+		Assert.fail(Integer.toHexString(bits) + ": expected " + expected + " but was " + actual);
+	}
+
+	private static boolean isNaN(int bits) {
+		return (bits & 0x7f800000) == 0x7f800000 && (bits & 0x7fffff) != 0;
+	}
+
+	private static float decode(int bits) {
+		int exponent = (bits >>> 23) & 0xff;
+		int fraction = bits & 0x7fffff;
+		float magnitude;
+		if (exponent == 0xff) {
+			magnitude = Float.POSITIVE_INFINITY;
+		} else if (exponent == 0) {
+			magnitude = Math.scalb((float) fraction, -149);
+		} else {
+			magnitude = Math.scalb((float) (fraction | 0x800000), exponent - 150);
+		}
+		return bits < 0 ? -magnitude : magnitude;
+	}
+
+	private static long toDoubleBits(int bits) {
+		long sign = (bits & 0x80000000L) << 32;
+		int exponent = (bits >>> 23) & 0xff;
+		long fraction = bits & 0x7fffff;
+		if (exponent == 0xff) {
+			return sign | 0x7ff0000000000000L;
+		} else if (exponent == 0) {
+			if (fraction == 0) {
+				return sign;
+			}
+			// the denormal floats are normal doubles
+			exponent = 1;
+			while ((fraction & 0x800000) == 0) {
+				fraction <<= 1;
+				exponent--;
+			}
+			fraction &= 0x7fffff;
+		}
+		return sign | ((long) (exponent - 127 + 1023) << 52) | (fraction << 29);
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.client.utils;
+
+/**
+ * Walks the 32 bit operands of the table and bit conversion tests. By default every upper half is combined with a
+ * few lower halves, the edges of the fields and some patterns, so every exponent and table index is reached in
+ * milliseconds. With -Dexhaustive=true all 2^32 values are walked, which takes minutes.
+ * 
+ * <pre>
+ * int value = 0;
+ * do {
+ * 	...
+ * } while ((value = SampledOperands.next(value)) != 0);
+ * </pre>
+ */
+public class SampledOperands {
+	private static final boolean exhaustive = Boolean.getBoolean("exhaustive");
+	// sorted, starts with 0 so the walk wraps around to 0
+	// 0x1000 and 0x3000 are the rounding ties of the single to half conversion
+	private static final int[] lowHalves = { 0x0000, 0x0001, 0x0002, 0x00ff, 0x0100, 0x0fff, 0x1000, 0x1001, 0x2000,
+			0x3000, 0x3fff, 0x4000, 0x5555, 0x7fff, 0x8000, 0x8001, 0xaaaa, 0xbfff, 0xc000, 0xf000, 0xfffe, 0xffff };
+
+	private SampledOperands() {
+	}
+
+	/**
+	 * @return The operand after the value, 0 after the last one.
+	 */
+	public static int next(int value) {
+		if (exhaustive) {
+			return value + 1;
+		}
+		int low = value & 0xffff;
+		for (int i = 0; i < lowHalves.length - 1; i++) {
+			if (lowHalves[i] > low) {
+				break;
+			}
+			if (lowHalves[i] == low) {
+				return (value & 0xffff0000) | lowHalves[i + 1];
+			}
+		}
+		return (value & 0xffff0000) + 0x10000;
+	}
+}
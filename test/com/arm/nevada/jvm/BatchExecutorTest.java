@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.jvm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.arm.nevada.client.interpreter.Instruction;
+import com.arm.nevada.client.interpreter.ProgramImage;
+import com.arm.nevada.client.interpreter.TestCase;
+import com.arm.nevada.client.interpreter.machine.Machine;
+import com.arm.nevada.client.interpreter.machine.PagedMemorySet;
+import com.arm.nevada.client.interpreter.machine.TestMachines;
+import com.arm.nevada.client.parser.Parser;
+
+/**
+ * Executes the programs of the corpus over their input state and random variations of it, on several threads, and
+ * compares the results with the serial execution.
+ */
+public class BatchExecutorTest {
+	private static final int variationCount = 40;
+
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testCorpus() throws IOException {
+		for (TestCase testCase : Corpus.load()) {
+			List<Machine> states = createStates(testCase);
+			BatchExecutor executor = new BatchExecutor(testCase.getInputInstructions(), pool);
+			List<Machine> results = executor.execute(states, BatchExecutor.finalState);
+			List<int[]> words = executor.execute(states, BatchExecutor.neonWords(0, 64));
+			Assert.assertEquals(states.size(), results.size());
+			for (int i = 0; i < states.size(); i++) {
+				String message = "@line: " + testCase.getStartLine() + " state " + i;
+				Machine expected = executeSerially(testCase.getInputInstructions(), states.get(i));
+				Assert.assertArrayEquals(message, TestMachines.snapshot(expected), TestMachines.snapshot(results.get(i)));
+				for (int w = 0; w < 64; w++) {
+					Assert.assertEquals(message, expected.getNEONRegisterSet().getOneValue(w), words.get(i)[w]);
+				}
+			}
+			// the states are not modified
+			Assert.assertArrayEquals(TestMachines.snapshot(Corpus.createMachine(testCase.getInputMachine())),
+					TestMachines.snapshot(states.get(0)));
+		}
+	}
+
+	@Test
+	public void testStreamed() throws IOException {
+		TestCase testCase = Corpus.load().get(2);
+		List<Machine> states = new ArrayList<Machine>();
+		for (int i = 0; i < 50; i++) {
+			states.addAll(createStates(testCase));
+		}
+		final byte[][] results = new byte[states.size()][];
+		new BatchExecutor(testCase.getInputInstructions(), pool).execute(states.iterator(), BatchExecutor.finalState,
+				new BatchExecutor.ResultHandler<Machine>() {
+					public void handle(int index, Machine result) {
+						results[index] = TestMachines.snapshot(result);
+					}
+				});
+		for (int i = 0; i < states.size(); i++) {
+			Assert.assertArrayEquals("state " + i,
+					TestMachines.snapshot(executeSerially(testCase.getInputInstructions(), states.get(i))), results[i]);
+		}
+	}
+
+	@Test
+	public void testLoop() {
+		List<Instruction> program = new ArrayList<Instruction>();
+		for (String line : new String[] { "mov r0, #0", "mov r2, #4", "loop: add r0, r0, #1", "subs r2, r2, #1",
+				"bgt loop" }) {
+			program.add(Parser.Parse(line));
+		}
+		List<Machine> states = new ArrayList<Machine>();
+		for (int i = 0; i < 100; i++) {
+			states.add(new Machine());
+		}
+		List<int[]> words = new BatchExecutor(program, pool).execute(states, new BatchExecutor.Extractor<int[]>() {
+			public int[] extract(Machine machine) {
+				return new int[] { machine.getArmRegisterSet().getOneValue(0), machine.getPC() };
+			}
+		});
+		for (int[] result : words) {
+			Assert.assertArrayEquals(new int[] { 4, 20 }, result);
+		}
+	}
+
+	@Test
+	public void testBudget() {
+		List<Instruction> program = new ArrayList<Instruction>();
+		program.add(Parser.Parse("loop: add r0, r0, #1"));
+		program.add(Parser.Parse("b loop"));
+		BatchExecutor executor = new BatchExecutor(program, pool);
+		executor.setInstructionBudget(1001);
+		Machine result = executor.execute(Arrays.asList(new Machine()), BatchExecutor.finalState).get(0);
+		Assert.assertEquals(501, result.getArmRegisterSet().getOneValue(0));
+	}
+
+	/**
+	 * Dense and paged states in one batch, the program writes the memory.
+	 */
+	@Test
+	public void testMixedMemory() {
+		List<Instruction> program = new ArrayList<Instruction>();
+		for (String line : new String[] { "vld1.32 {d0}, [r0]", "vadd.i32 d0, d0, d1", "vst1.32 {d0}, [r0]!",
+				"add r1, r1, #1" }) {
+			program.add(Parser.Parse(line));
+		}
+		Random random = new Random(5);
+		List<Machine> states = new ArrayList<Machine>();
+		for (int i = 0; i < 200; i++) {
+			Machine state = random.nextBoolean() ? new Machine() : new Machine(new PagedMemorySet());
+			TestMachines.randomize(state, i);
+			state.getArmRegisterSet().setOneValue(0, 8 * random.nextInt(8), false);
+			states.add(state);
+		}
+		List<Machine> results = new BatchExecutor(program, pool).execute(states, BatchExecutor.finalState);
+		for (int i = 0; i < states.size(); i++) {
+			Assert.assertArrayEquals("state " + i, TestMachines.snapshot(executeSerially(program, states.get(i))),
+					TestMachines.snapshot(results.get(i)));
+		}
+	}
+
+	/**
+	 * The input state of the case and its variations with random NEON registers.
+	 */
+	private static List<Machine> createStates(TestCase testCase) {
+		List<Machine> states = new ArrayList<Machine>();
+		states.add(Corpus.createMachine(testCase.getInputMachine()));
+		Random random = new Random(testCase.getStartLine());
+		for (int i = 0; i < variationCount; i++) {
+			Machine state = Corpus.createMachine(testCase.getInputMachine());
+			for (int w = 0; w < 64; w++) {
+				if (random.nextBoolean()) {
+					state.getNEONRegisterSet().setOneValue(w, random.nextInt(), false);
+				}
+			}
+			states.add(state);
+		}
+		return states;
+	}
+
+	private static Machine executeSerially(List<Instruction> program, Machine state) {
+		Machine machine = state.fork();
+		new ProgramImage(program).execute(machine, 1000000);
+		return machine;
+	}
+}
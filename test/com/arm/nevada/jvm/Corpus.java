@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.arm.nevada.client.interpreter.TestCase;
+import com.arm.nevada.client.interpreter.TestcasePool;
+import com.arm.nevada.client.interpreter.machine.Machine;
+import com.arm.nevada.client.interpreter.machine.Storage;
+
+/**
+ * The test corpus of the interpreter for the JVM tests, which can't use the GWT resources and JSON classes. The
+ * machine states of tests.txt are flat objects of word values per storage.
+ */
+class Corpus {
+	private static final Pattern storagePattern = Pattern.compile("\"(\\w+)\":\\s*\\{([^}]*)\\}");
+	private static final Pattern valuePattern = Pattern.compile("\"(\\w+)\":\\s*(-?\\d+)");
+
+	private Corpus() {
+	}
+
+	static List<TestCase> load() throws IOException {
+		InputStream in = Corpus.class.getResourceAsStream("/com/arm/nevada/client/interpreter/tests.txt");
+		if (in == null) {
+			throw new IOException("tests.txt is not on the class path.");
+		}
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = in.read(buffer)) > 0) {
+				out.write(buffer, 0, count);
+			}
+			return new TestcasePool(out.toString("UTF-8")).getTestCases();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Creates a machine in the state, the same as {@link Machine#init(com.google.gwt.json.client.JSONObject)}.
+	 */
+	static Machine createMachine(String state) {
+		Machine machine = new Machine();
+		Matcher storages = storagePattern.matcher(state);
+		while (storages.find()) {
+			Storage storage = getStorage(machine, storages.group(1));
+			Matcher values = valuePattern.matcher(storages.group(2));
+			while (values.find()) {
+				int value = Integer.parseInt(values.group(2));
+				if (values.group(1).equals("sizeW")) {
+					machine.getMemorySet().setSize(value, false, false);
+				} else {
+					storage.setOneValue(Integer.parseInt(values.group(1)), value, false);
+				}
+			}
+		}
+		return machine;
+	}
+
+	private static Storage getStorage(Machine machine, String name) {
+		if (name.equals("arm")) {
+			return machine.getArmRegisterSet();
+		} else if (name.equals("neon")) {
+			return machine.getNEONRegisterSet();
+		} else if (name.equals("memory")) {
+			return machine.getMemorySet();
+		} else if (name.equals("spec")) {
+			return machine.getSpecialRegisters();
+		}
+		throw new IllegalArgumentException("Unknown storage: " + name);
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2011, 2012 University of Szeged
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY UNIVERSITY OF SZEGED ``AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED.  IN NO EVENT SHALL UNIVERSITY OF SZEGED OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY
+ * OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.arm.nevada.jvm;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.arm.nevada.client.interpreter.CompiledBlock;
+import com.arm.nevada.client.interpreter.LaneBackend;
+import com.arm.nevada.client.interpreter.TestCase;
+import com.arm.nevada.client.interpreter.machine.Machine;
+import com.arm.nevada.client.interpreter.machine.TestMachines;
+
+/**
+ * Runs the corpus through compiled blocks with the vector backend installed. The conformance check compares every
+ * block with the interpreter, and the result is compared with the expected state. Skipped if the host has no vector
+ * module, see {@link VectorLaneBackend#isSupported()}.
+ */
+public class VectorLaneBackendTest {
+
+	@Before
+	public void setUp() {
+		Assume.assumeTrue(VectorLaneBackend.install());
+	}
+
+	@After
+	public void tearDown() {
+		LaneBackend.install(null);
+	}
+
+	@Test
+	public void testCorpusConformance() throws IOException {
+		for (TestCase testCase : Corpus.load()) {
+			Machine machine = Corpus.createMachine(testCase.getInputMachine());
+			CompiledBlock block = new CompiledBlock(testCase.getInputInstructions());
+			block.setConformanceCheck(true);
+			block.execute(machine);
+			Machine expected = Corpus.createMachine(testCase.getExpectedOutputMachine());
+			Assert.assertArrayEquals("@line: " + testCase.getStartLine(), TestMachines.snapshot(expected),
+					TestMachines.snapshot(machine));
+		}
+	}
+}